@@ -0,0 +1,151 @@
+package com.richardarcega.sudoku.benchmark;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
+import com.richardarcega.sudoku.puzzle.Grid;
+import com.richardarcega.sudoku.puzzle.Puzzle;
+import com.richardarcega.sudoku.solver.Algorithm;
+import com.richardarcega.sudoku.solver.CachingSudokuSolver;
+import com.richardarcega.sudoku.solver.SolverFactory;
+import com.richardarcega.sudoku.solver.SudokuSolver;
+import com.richardarcega.sudoku.solver.UnsolvableException;
+
+/**
+ * Compares a cache hit of the CachingSudokuSolver with a direct solve by DLX,
+ * the solver it wraps. A hit on the puzzle as given is an exact match; a hit on
+ * an isomorphic copy, relabeled and with its rows and bands shuffled at random
+ * on every invocation, pays for canonicalization.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheBenchmark
+{
+	private static final int		SIZE	= 9;
+
+	@Param({ "easy.txt", "medium.txt", "hard.txt", "expert.txt" })
+	public String					puzzleFile;
+
+	private final int[]				givens	= new int[SIZE * SIZE];
+	private final int[]				digits	= new int[SIZE + 1];
+	private final int[]				rows	= new int[SIZE];
+	private final Random			random	= new Random( 1 );
+
+	private Grid					grid;
+	private Puzzle					puzzle;
+	private SudokuSolver			direct;
+	private CachingSudokuSolver		caching;
+
+	@Setup
+	public void setUp() throws IOException, UnsolvableException
+	{
+		grid = new BitboardGrid();
+		grid.load( getClass().getClassLoader().getResourceAsStream( puzzleFile ) );
+
+		for ( int i = 0; i < givens.length; i++ )
+		{
+			givens[i] = grid.getCellValue( i % SIZE, i / SIZE );
+		}
+
+		puzzle  = new Puzzle( grid );
+		direct  = SolverFactory.getSolver( Algorithm.DLX );
+		caching = new CachingSudokuSolver( SolverFactory.getSolver( Algorithm.DLX ), 1024 );
+
+		caching.solve( puzzle );
+	}
+
+	@Benchmark
+	public Grid solve() throws UnsolvableException
+	{
+		for ( int i = 0; i < givens.length; i++ )
+		{
+			grid.setCellValue( i % SIZE, i / SIZE, givens[i] );
+		}
+
+		direct.solve( puzzle );
+		return grid;
+	}
+
+	@Benchmark
+	public Grid exactHit() throws UnsolvableException
+	{
+		for ( int i = 0; i < givens.length; i++ )
+		{
+			grid.setCellValue( i % SIZE, i / SIZE, givens[i] );
+		}
+
+		caching.solve( puzzle );
+		return grid;
+	}
+
+	@Benchmark
+	public Grid isomorphicHit() throws UnsolvableException
+	{
+		shuffleDigits();
+
+		for ( int band = 0; band < SIZE; band += 3 )
+		{
+			rows[band] = band;
+			rows[band + 1] = band + 1;
+			rows[band + 2] = band + 2;
+			shuffle( rows, band, band + 3 );
+		}
+
+		final boolean transpose = random.nextBoolean();
+
+		for ( int i = 0; i < givens.length; i++ )
+		{
+			final int given = givens[rows[i / SIZE] * SIZE + i % SIZE];
+			final int x = transpose ? i / SIZE : i % SIZE;
+			final int y = transpose ? i % SIZE : i / SIZE;
+
+			grid.setCellValue( x, y, digits[given] );
+		}
+
+		caching.solve( puzzle );
+		return grid;
+	}
+
+	/**
+	 * Sets the digits to a random permutation of 1 to 9, leaving 0 in place.
+	 */
+	private void shuffleDigits()
+	{
+		for ( int i = 0; i <= SIZE; i++ )
+		{
+			digits[i] = i;
+		}
+
+		shuffle( digits, 1, digits.length );
+	}
+
+	private void shuffle(final int[] values, final int from, final int to)
+	{
+		for ( int i = to - 1; i > from; i-- )
+		{
+			final int j = from + random.nextInt( i - from + 1 );
+			final int value = values[i];
+
+			values[i] = values[j];
+			values[j] = value;
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package com.richardarcega.sudoku.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.richardarcega.sudoku.puzzle.Grid;
+import com.richardarcega.sudoku.puzzle.Puzzle;
+import com.richardarcega.sudoku.solver.BacktrackSudokuSolver;
+
+/**
+ * Measures the candidate generation and guess validation primitives of the
+ * backtracking solver, per cell.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CandidateBenchmark
+{
+	private static final int		SIZE	= 9;
+
+	@Param({ "easy.txt", "expert.txt" })
+	public String					puzzleFile;
+
+	@Param
+	public GridType					gridType;
+
+	private BacktrackSudokuSolver	solver;
+
+	@Setup
+	public void setUp() throws IOException
+	{
+		final Grid grid = gridType.create();
+		grid.load( getClass().getClassLoader().getResourceAsStream( puzzleFile ) );
+
+		solver = new BacktrackSudokuSolver();
+		solver.setPuzzle( new Puzzle( grid ) );
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE * SIZE)
+	public void getCandidates(final Blackhole blackhole)
+	{
+		for ( int y = 0; y < SIZE; y++ )
+		{
+			for ( int x = 0; x < SIZE; x++ )
+			{
+				blackhole.consume( solver.getCandidates( x, y ) );
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE * SIZE * SIZE)
+	public void isValidGuess(final Blackhole blackhole)
+	{
+		for ( int y = 0; y < SIZE; y++ )
+		{
+			for ( int x = 0; x < SIZE; x++ )
+			{
+				for ( int guess = 1; guess <= SIZE; guess++ )
+				{
+					blackhole.consume( solver.isValidGuess( x, y, guess ) );
+				}
+			}
+		}
+	}
+}
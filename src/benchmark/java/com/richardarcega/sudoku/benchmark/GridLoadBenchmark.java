@@ -0,0 +1,71 @@
+package com.richardarcega.sudoku.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.io.Resources;
+import com.richardarcega.sudoku.puzzle.Grid;
+import com.richardarcega.sudoku.puzzle.PuzzleParser;
+
+/**
+ * Measures parsing a puzzle file into a grid.
+ *
+ * The file is read into memory up front so that only the parsing is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GridLoadBenchmark
+{
+	@Param({ "easy.txt", "medium.txt", "hard.txt", "expert.txt" })
+	public String	puzzleFile;
+
+	@Param
+	public GridType	gridType;
+
+	private byte[]			bytes;
+	private Grid			grid;
+	private PuzzleParser	parser;
+
+	@Setup
+	public void setUp() throws IOException
+	{
+		bytes = Resources.toByteArray( Resources.getResource( puzzleFile ) );
+		grid   = gridType.create();
+		parser = new PuzzleParser( grid.size() );
+	}
+
+	@Benchmark
+	public Grid load() throws IOException
+	{
+		grid.load( new ByteArrayInputStream( bytes ) );
+		return grid;
+	}
+
+	/**
+	 * Parses the bytes in place with a reused parser, as the batch readers can.
+	 */
+	@Benchmark
+	public Grid parse()
+	{
+		parser.parse( bytes );
+		grid.load( parser );
+		return grid;
+	}
+}
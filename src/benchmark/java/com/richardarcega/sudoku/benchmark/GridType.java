@@ -0,0 +1,33 @@
+package com.richardarcega.sudoku.benchmark;
+
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
+import com.richardarcega.sudoku.puzzle.Grid;
+import com.richardarcega.sudoku.puzzle.TableGrid;
+
+/**
+ * The grid implementations measured by the benchmarks.
+ */
+public enum GridType
+{
+	TABLE
+	{
+		@Override
+		public Grid create()
+		{
+			return new TableGrid( 9, 9 );
+		}
+	},
+	BITBOARD
+	{
+		@Override
+		public Grid create()
+		{
+			return new BitboardGrid();
+		}
+	};
+
+	/**
+	 * Returns a new, empty grid of this type.
+	 */
+	public abstract Grid create();
+}
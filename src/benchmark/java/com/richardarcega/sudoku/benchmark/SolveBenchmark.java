@@ -0,0 +1,81 @@
+package com.richardarcega.sudoku.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
+import com.richardarcega.sudoku.puzzle.Grid;
+import com.richardarcega.sudoku.puzzle.Puzzle;
+import com.richardarcega.sudoku.solver.Algorithm;
+import com.richardarcega.sudoku.solver.SolverFactory;
+import com.richardarcega.sudoku.solver.SudokuSolver;
+import com.richardarcega.sudoku.solver.UnsolvableException;
+
+/**
+ * Measures end-to-end solves of the bundled puzzles with every algorithm
+ * known to the SolverFactory.
+ *
+ * Each invocation restores the givens before solving; this costs 81 cell
+ * writes, which is negligible next to a solve.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolveBenchmark
+{
+	private static final int	SIZE	= 9;
+
+	@Param({ "easy.txt", "medium.txt", "hard.txt", "expert.txt" })
+	public String				puzzleFile;
+
+	@Param
+	public Algorithm			algorithm;
+
+	private final int[]			givens	= new int[SIZE * SIZE];
+
+	private Grid				grid;
+	private Puzzle				puzzle;
+	private SudokuSolver		solver;
+
+	@Setup
+	public void setUp() throws IOException
+	{
+		grid = new BitboardGrid();
+		grid.load( getClass().getClassLoader().getResourceAsStream( puzzleFile ) );
+
+		for ( int i = 0; i < givens.length; i++ )
+		{
+			givens[i] = grid.getCellValue( i % SIZE, i / SIZE );
+		}
+
+		puzzle = new Puzzle( grid );
+		solver = SolverFactory.getSolver( algorithm );
+	}
+
+	@Benchmark
+	public Grid solve() throws UnsolvableException
+	{
+		for ( int i = 0; i < givens.length; i++ )
+		{
+			grid.setCellValue( i % SIZE, i / SIZE, givens[i] );
+		}
+
+		solver.solve( puzzle );
+		return grid;
+	}
+}
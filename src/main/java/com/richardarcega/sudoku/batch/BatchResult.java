@@ -0,0 +1,65 @@
+package com.richardarcega.sudoku.batch;
+
+import java.util.concurrent.TimeUnit;
+
+import com.richardarcega.sudoku.solver.Algorithm;
+
+/**
+ * Summarises a run of the {@link BatchSolver}.
+ */
+public class BatchResult
+{
+	private final Algorithm	algorithm;
+	private final long		numPuzzles;
+	private final long		numUnsolved;
+	private final long		elapsedNanos;
+
+	public BatchResult(final Algorithm algorithm, final long numPuzzles, final long numUnsolved, final long elapsedNanos)
+	{
+		this.algorithm    = algorithm;
+		this.numPuzzles   = numPuzzles;
+		this.numUnsolved  = numUnsolved;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	public Algorithm getAlgorithm()
+	{
+		return algorithm;
+	}
+
+	/**
+	 * Returns the number of puzzles read, including those which were not solved.
+	 */
+	public long getNumPuzzles()
+	{
+		return numPuzzles;
+	}
+
+	/**
+	 * Returns the number of puzzles which could not be parsed or solved.
+	 */
+	public long getNumUnsolved()
+	{
+		return numUnsolved;
+	}
+
+	public long getElapsedNanos()
+	{
+		return elapsedNanos;
+	}
+
+	/**
+	 * Returns the overall throughput, in puzzles per second.
+	 */
+	public double getPuzzlesPerSecond()
+	{
+		return ( elapsedNanos == 0 ) ? 0 : numPuzzles * (double) TimeUnit.SECONDS.toNanos( 1 ) / elapsedNanos;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format( "%s: %d puzzles (%d unsolved) in %.1f ms, %.0f puzzles/s",
+			algorithm.name(), numPuzzles, numUnsolved, elapsedNanos / 1e6, getPuzzlesPerSecond() );
+	}
+}
@@ -0,0 +1,369 @@
+package com.richardarcega.sudoku.batch;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
+import com.richardarcega.sudoku.puzzle.Puzzle;
+import com.richardarcega.sudoku.puzzle.Units;
+import com.richardarcega.sudoku.solver.Algorithm;
+import com.richardarcega.sudoku.solver.SolverFactory;
+import com.richardarcega.sudoku.solver.SudokuSolver;
+import com.richardarcega.sudoku.solver.UnsolvableException;
+
+/**
+ * Solves a stream of puzzles in the one-puzzle-per-line format across
+ * several threads, writing the solutions in input order.
+ *
+ * A reader thread parses the input and submits each puzzle, with its sequence
+ * number, to a fixed pool of solver threads, each of which owns its own solver and
+ * grid. A solver thread serializes its solution into a pooled buffer of a
+ * {@link SolutionWriter} and moves on without waiting for any I/O; the calling
+ * thread writes the solutions in sequence order, in large writes. When the window
+ * of puzzles read but not yet written is full the reader blocks, so memory use is
+ * bounded however large the input is.
+ *
+ * Blank lines and lines starting with '#' are skipped. A puzzle which cannot
+ * be parsed or solved is written back as a '#' comment followed by the input line.
+ */
+public class BatchSolver
+{
+	private static final Logger			log			= LoggerFactory.getLogger( BatchSolver.class );
+
+	/**
+	 * The number of puzzles read but not yet written when none is specified.
+	 */
+	public static final int				DEFAULT_WINDOW_SIZE	= 1024;
+
+	/**
+	 * The number of bytes of solutions gathered for each write.
+	 */
+	private static final int			OUTPUT_BUFFER_SIZE	= 1 << 20;
+
+	private final Algorithm				algorithm;
+	private final int					numThreads;
+	private final int					windowSize;
+
+	/**
+	 * Receives the time taken by each solve, if not null.
+	 */
+	private final LatencyRecorder		latencies;
+
+	/**
+	 * The solver and grid owned by each pool thread.
+	 */
+	private final ThreadLocal<Worker>	workers		= new ThreadLocal<Worker>()
+	{
+		@Override
+		protected Worker initialValue()
+		{
+			return new Worker( SolverFactory.getSolver( algorithm ), latencies );
+		}
+	};
+
+	/**
+	 * Creates a batch solver using every available processor.
+	 *
+	 * @param algorithm	the algorithm used to solve each puzzle
+	 */
+	public BatchSolver(final Algorithm algorithm)
+	{
+		this( algorithm, Runtime.getRuntime().availableProcessors(), DEFAULT_WINDOW_SIZE );
+	}
+
+	/**
+	 * @param algorithm		the algorithm used to solve each puzzle
+	 * @param numThreads	the number of solver threads
+	 * @param windowSize	the maximum number of puzzles read but not yet written
+	 */
+	public BatchSolver(final Algorithm algorithm, final int numThreads, final int windowSize)
+	{
+		this( algorithm, numThreads, windowSize, null );
+	}
+
+	/**
+	 * @param algorithm		the algorithm used to solve each puzzle
+	 * @param numThreads	the number of solver threads
+	 * @param windowSize	the maximum number of puzzles read but not yet written
+	 * @param latencies		records the time taken to solve each puzzle, or null
+	 */
+	public BatchSolver(final Algorithm algorithm, final int numThreads, final int windowSize, final LatencyRecorder latencies)
+	{
+		checkArgument( numThreads > 0, "Number of threads must be > 0. Specified: " + numThreads );
+		checkArgument( windowSize > 0, "Window size must be > 0. Specified: " + windowSize );
+
+		this.algorithm  = algorithm;
+		this.numThreads = numThreads;
+		this.windowSize = windowSize;
+		this.latencies  = latencies;
+	}
+
+	/**
+	 * Solves every puzzle read from the input and writes the solutions, one
+	 * per line and in input order, to the output. Neither stream is closed.
+	 *
+	 * @param input		the puzzles, one per line
+	 * @param output	the destination of the solutions
+	 *
+	 * @return the number of puzzles processed and the time taken
+	 */
+	public BatchResult solve(final BufferedReader input, final Writer output) throws IOException, InterruptedException
+	{
+		final BatchResult result = solve( input, new WriterChannel( output ) );
+
+		output.flush();
+
+		return result;
+	}
+
+	/**
+	 * Solves every puzzle read from the input and writes the solutions, one
+	 * per line and in input order, to a channel such as a {@link java.nio.channels.FileChannel}.
+	 * Neither is closed.
+	 *
+	 * @param input		the puzzles, one per line
+	 * @param output	the destination of the solutions, as ASCII text
+	 *
+	 * @return the number of puzzles processed and the time taken
+	 */
+	public BatchResult solve(final BufferedReader input, final WritableByteChannel output) throws IOException, InterruptedException
+	{
+		final ExecutorService pool = Executors.newFixedThreadPool( numThreads,
+			new ThreadFactoryBuilder().setNameFormat( "batch-solver-%d" ).setDaemon( true ).build() );
+
+		final SolutionWriter writer = new SolutionWriter( output, windowSize, OUTPUT_BUFFER_SIZE );
+		final AtomicLong unsolved = new AtomicLong();
+		final IOException[] readFailure = new IOException[1];
+
+		final long start = System.nanoTime();
+
+		final Thread reader = new Thread( new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					String line = null;
+
+					while ( ( line = input.readLine() ) != null )
+					{
+						final String puzzleLine = line.trim();
+
+						if ( puzzleLine.isEmpty() || puzzleLine.charAt( 0 ) == '#' )
+						{
+							continue;
+						}
+
+						final long sequence = writer.claim();
+
+						if ( sequence < 0 )
+						{
+							break;
+						}
+
+						pool.execute( new Runnable()
+						{
+							@Override
+							public void run()
+							{
+								try
+								{
+									workers.get().solve( puzzleLine, sequence, writer, unsolved );
+								}
+								catch ( final RuntimeException | Error e )
+								{
+									writer.abort( e );
+								}
+							}
+						} );
+					}
+				}
+				catch ( final IOException e )
+				{
+					readFailure[0] = e;
+				}
+				catch ( final InterruptedException e )
+				{
+					Thread.currentThread().interrupt();
+				}
+				finally
+				{
+					writer.finish();
+				}
+			}
+		}, "batch-reader" );
+
+		reader.setDaemon( true );
+		reader.start();
+
+		final long count;
+
+		try
+		{
+			count = writer.drain();
+		}
+		finally
+		{
+			reader.interrupt();
+			pool.shutdownNow();
+		}
+
+		if ( readFailure[0] != null )
+		{
+			throw readFailure[0];
+		}
+
+		final BatchResult result = new BatchResult( algorithm, count, unsolved.get(), System.nanoTime() - start );
+		log.info( result.toString() + " in " + writer.getNumWrites() + " writes" );
+
+		return result;
+	}
+
+	/**
+	 * The per-thread solving state, with one grid for each puzzle size met so far.
+	 */
+	private static final class Worker
+	{
+		private final SudokuSolver		solver;
+		private final LatencyRecorder	latencies;
+		private final BitboardGrid[]	grids	= new BitboardGrid[Units.MAX_BOX_SIZE + 1];
+
+		Worker(final SudokuSolver solver, final LatencyRecorder latencies)
+		{
+			this.solver    = solver;
+			this.latencies = latencies;
+		}
+
+		/**
+		 * Solves a puzzle line and publishes its solution, or the line commented out,
+		 * under its sequence number.
+		 */
+		void solve(final String line, final long sequence, final SolutionWriter writer, final AtomicLong unsolved)
+		{
+			ByteBuffer buffer = null;
+
+			try
+			{
+				final BitboardGrid grid = getGrid( line.length() );
+
+				grid.loadLine( line );
+				solve( grid );
+
+				buffer = writer.getBuffer( sequence, line.length() + 1 );
+				grid.writeLine( buffer );
+			}
+			catch ( final IllegalArgumentException | UnsolvableException e )
+			{
+				unsolved.incrementAndGet();
+
+				buffer = writer.getBuffer( sequence, line.length() + 2 );
+				buffer.put( (byte) '#' );
+
+				for ( int i = 0; i < line.length(); i++ )
+				{
+					final char c = line.charAt( i );
+					buffer.put( (byte) ( ( c < 0x80 ) ? c : '?' ) );
+				}
+			}
+
+			buffer.put( (byte) '\n' );
+			writer.publish( sequence );
+		}
+
+		/**
+		 * Solves a loaded grid, recording the time taken whether or not it is solved.
+		 */
+		private void solve(final BitboardGrid grid) throws UnsolvableException
+		{
+			final long start = System.nanoTime();
+
+			try
+			{
+				solver.solve( new Puzzle( grid ) );
+			}
+			finally
+			{
+				if ( latencies != null )
+				{
+					latencies.record( System.nanoTime() - start );
+				}
+			}
+		}
+
+		/**
+		 * Returns the grid for puzzle lines of the given length.
+		 *
+		 * @throws IllegalArgumentException if no grid size has that many cells
+		 */
+		private BitboardGrid getGrid(final int numCells)
+		{
+			final Units units = Units.of( (int) Math.sqrt( numCells ) );
+
+			if ( grids[units.getBoxSize()] == null )
+			{
+				grids[units.getBoxSize()] = new BitboardGrid( units.size() );
+			}
+
+			return grids[units.getBoxSize()];
+		}
+	}
+
+	/**
+	 * Adapts a Writer to receive the ASCII bytes of the solutions.
+	 */
+	private static final class WriterChannel implements WritableByteChannel
+	{
+		private final Writer	writer;
+		private final char[]	chars	= new char[8192];
+
+		WriterChannel(final Writer writer)
+		{
+			this.writer = writer;
+		}
+
+		@Override
+		public int write(final ByteBuffer src) throws IOException
+		{
+			final int numBytes = src.remaining();
+
+			while ( src.hasRemaining() )
+			{
+				final int length = Math.min( src.remaining(), chars.length );
+
+				for ( int i = 0; i < length; i++ )
+				{
+					chars[i] = (char) ( src.get() & 0xFF );
+				}
+
+				writer.write( chars, 0, length );
+			}
+
+			return numBytes;
+		}
+
+		@Override
+		public boolean isOpen()
+		{
+			return true;
+		}
+
+		@Override
+		public void close()
+		{
+			// the writer belongs to the caller
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package com.richardarcega.sudoku.batch;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records latencies from any number of threads. Each thread records into its own
+ * {@link LatencyHistogram}, without synchronization, and the histograms are
+ * combined when read.
+ *
+ * The combined histogram is exact once the recording threads' work is known to be
+ * complete, such as after a {@link BatchSolver} run returns; read while threads are
+ * recording, it may miss their latest latencies.
+ */
+public final class LatencyRecorder
+{
+	private final List<LatencyHistogram>			histograms	= new CopyOnWriteArrayList<LatencyHistogram>();
+
+	private final ThreadLocal<LatencyHistogram>	local		= new ThreadLocal<LatencyHistogram>()
+	{
+		@Override
+		protected LatencyHistogram initialValue()
+		{
+			final LatencyHistogram histogram = new LatencyHistogram();
+			histograms.add( histogram );
+			return histogram;
+		}
+	};
+
+	/**
+	 * Records a latency in the calling thread's histogram.
+	 *
+	 * @param nanos	the latency in nanoseconds
+	 */
+	public void record(final long nanos)
+	{
+		local.get().record( nanos );
+	}
+
+	/**
+	 * Returns the latencies recorded by every thread, combined into a new histogram.
+	 */
+	public LatencyHistogram getHistogram()
+	{
+		final LatencyHistogram combined = new LatencyHistogram();
+
+		for ( final LatencyHistogram histogram : histograms )
+		{
+			combined.add( histogram );
+		}
+
+		return combined;
+	}
+}
@@ -0,0 +1,116 @@
+package com.richardarcega.sudoku.batch;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.richardarcega.sudoku.solver.Algorithm;
+
+/**
+ * The solve latency distribution and throughput of each {@link Algorithm} run over
+ * a corpus, printable as a table or as CSV for comparing runs.
+ */
+public final class LatencyReport
+{
+	/**
+	 * The percentiles reported, alongside the maximum.
+	 */
+	private static final double[]					PERCENTILES	= { 50, 90, 99, 99.9 };
+
+	private static final String						CSV_HEADER	= "algorithm,puzzles,elapsed_ms,puzzles_per_s,p50_us,p90_us,p99_us,p99.9_us,max_us,mean_us";
+
+	private final Map<Algorithm, LatencyHistogram>	latencies	= new EnumMap<Algorithm, LatencyHistogram>( Algorithm.class );
+	private final Map<Algorithm, Long>				elapsed		= new EnumMap<Algorithm, Long>( Algorithm.class );
+
+	/**
+	 * Adds the results of a run, replacing any earlier run of the algorithm.
+	 *
+	 * @param algorithm		the algorithm run
+	 * @param histogram		the latency of each solve
+	 * @param elapsedNanos	the wall-clock time of the run
+	 */
+	public void add(final Algorithm algorithm, final LatencyHistogram histogram, final long elapsedNanos)
+	{
+		latencies.put( algorithm, histogram );
+		elapsed.put( algorithm, elapsedNanos );
+	}
+
+	/**
+	 * Returns the latencies of an algorithm's run, or null if it was not run.
+	 */
+	public LatencyHistogram getLatencies(final Algorithm algorithm)
+	{
+		return latencies.get( algorithm );
+	}
+
+	/**
+	 * Returns the throughput of an algorithm's run, in puzzles per second.
+	 */
+	public double getPuzzlesPerSecond(final Algorithm algorithm)
+	{
+		final long elapsedNanos = elapsed.get( algorithm );
+
+		return ( elapsedNanos == 0 ) ? 0 : latencies.get( algorithm ).getCount() * (double) TimeUnit.SECONDS.toNanos( 1 ) / elapsedNanos;
+	}
+
+	/**
+	 * Writes a header line and one line per algorithm, with times in milliseconds
+	 * for the run and microseconds for the solves.
+	 */
+	public void writeCsv(final Appendable out) throws IOException
+	{
+		out.append( CSV_HEADER ).append( '\n' );
+
+		for ( final Algorithm algorithm : latencies.keySet() )
+		{
+			final LatencyHistogram histogram = latencies.get( algorithm );
+
+			out.append( algorithm.name() )
+				.append( ',' ).append( Long.toString( histogram.getCount() ) )
+				.append( ',' ).append( format( "%.3f", elapsed.get( algorithm ) / 1e6 ) )
+				.append( ',' ).append( format( "%.1f", getPuzzlesPerSecond( algorithm ) ) );
+
+			for ( final double percentile : PERCENTILES )
+			{
+				out.append( ',' ).append( format( "%.3f", histogram.getValueAtPercentile( percentile ) / 1e3 ) );
+			}
+
+			out.append( ',' ).append( format( "%.3f", histogram.getMax() / 1e3 ) )
+				.append( ',' ).append( format( "%.3f", histogram.getMean() / 1e3 ) )
+				.append( '\n' );
+		}
+	}
+
+	private static String format(final String format, final double value)
+	{
+		return String.format( Locale.ROOT, format, value );
+	}
+
+	/**
+	 * Returns a table of the runs, with the solve latencies in microseconds.
+	 */
+	@Override
+	public String toString()
+	{
+		final StringBuilder sb = new StringBuilder( String.format( Locale.ROOT, "%-10s %9s %11s %10s %10s %10s %10s %10s%n",
+			"algorithm", "puzzles", "puzzles/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us" ) );
+
+		for ( final Algorithm algorithm : latencies.keySet() )
+		{
+			final LatencyHistogram histogram = latencies.get( algorithm );
+
+			sb.append( String.format( Locale.ROOT, "%-10s %9d %11.0f", algorithm.name(), histogram.getCount(), getPuzzlesPerSecond( algorithm ) ) );
+
+			for ( final double percentile : PERCENTILES )
+			{
+				sb.append( String.format( Locale.ROOT, " %10.1f", histogram.getValueAtPercentile( percentile ) / 1e3 ) );
+			}
+
+			sb.append( String.format( Locale.ROOT, " %10.1f%n", histogram.getMax() / 1e3 ) );
+		}
+
+		return sb.toString();
+	}
+}
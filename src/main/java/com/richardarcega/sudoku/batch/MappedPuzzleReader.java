@@ -0,0 +1,411 @@
+package com.richardarcega.sudoku.batch;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
+import com.richardarcega.sudoku.puzzle.Units;
+
+/**
+ * Reads a file of puzzles in the one-puzzle-per-line format by memory-mapping
+ * it, parsing each puzzle straight from the mapped bytes into a grid without
+ * creating a String per line.
+ *
+ * The file is divided into byte ranges which start and end on line boundaries,
+ * so that each range can be mapped and parsed by a different thread. Lines of
+ * 16, 81, 256 or 625 cells are read as 4x4, 9x9, 16x16 or 25x25 puzzles. Blank
+ * lines and lines starting with '#' are skipped, and a '\r' before the line
+ * terminator is ignored.
+ */
+public class MappedPuzzleReader implements Closeable
+{
+	/**
+	 * The largest range which can be mapped at once.
+	 */
+	public static final long	MAX_RANGE_SIZE	= Integer.MAX_VALUE;
+
+	private final FileChannel	channel;
+	private final long			size;
+
+	/**
+	 * Receives the puzzles parsed from a range. When ranges are parsed in
+	 * parallel the handler is called from several threads at once.
+	 */
+	public interface Handler
+	{
+		/**
+		 * Called for each puzzle. The grid belongs to the parsing thread and is
+		 * reused for the next puzzle of its size once this method returns.
+		 *
+		 * @param position	the file offset of the puzzle's line
+		 * @param grid		the puzzle
+		 */
+		void puzzle(long position, BitboardGrid grid);
+
+		/**
+		 * Called for each line which is not a valid puzzle.
+		 *
+		 * @param position	the file offset of the line
+		 * @param length	the length of the line, without its terminator
+		 */
+		void invalid(long position, int length);
+	}
+
+	/**
+	 * A part of the file which starts at the beginning of a line and ends
+	 * after a line terminator, or at the end of the file.
+	 */
+	public static final class Range
+	{
+		private final long	start;
+		private final long	end;
+
+		Range(final long start, final long end)
+		{
+			this.start = start;
+			this.end   = end;
+		}
+
+		/**
+		 * Returns the file offset of the first byte of the range.
+		 */
+		public long getStart()
+		{
+			return start;
+		}
+
+		/**
+		 * Returns the file offset just past the last byte of the range.
+		 */
+		public long getEnd()
+		{
+			return end;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "[" + start + ", " + end + ")";
+		}
+	}
+
+	/**
+	 * Opens the file for reading.
+	 *
+	 * @param path	the file of puzzles
+	 */
+	public MappedPuzzleReader(final Path path) throws IOException
+	{
+		this.channel = FileChannel.open( path, StandardOpenOption.READ );
+		this.size    = channel.size();
+	}
+
+	/**
+	 * Returns the size of the file in bytes.
+	 */
+	public long size()
+	{
+		return size;
+	}
+
+	/**
+	 * Divides the file into about the given number of ranges of similar size, each
+	 * starting at the beginning of a line. More ranges are returned when the file
+	 * is too large to map in so few, and fewer when it has too few lines.
+	 *
+	 * @param numRanges	the number of ranges wanted
+	 *
+	 * @return the ranges in file order, which together cover the whole file
+	 */
+	public List<Range> split(final int numRanges) throws IOException
+	{
+		return split( numRanges, MAX_RANGE_SIZE );
+	}
+
+	/**
+	 * Divides the file into about the given number of ranges of similar size, each
+	 * starting at the beginning of a line and none longer than the given size.
+	 *
+	 * @param numRanges		the number of ranges wanted
+	 * @param maxRangeSize	the largest range, in bytes
+	 *
+	 * @return the ranges in file order, which together cover the whole file
+	 * @throws IOException if a line is longer than the largest range
+	 */
+	public List<Range> split(final int numRanges, final long maxRangeSize) throws IOException
+	{
+		checkArgument( numRanges > 0, "Number of ranges must be > 0. Specified: " + numRanges );
+		checkArgument( maxRangeSize > 0 && maxRangeSize <= MAX_RANGE_SIZE,
+			"Maximum range size must be > 0 and <= " + MAX_RANGE_SIZE + ". Specified: " + maxRangeSize );
+
+		final long count = Math.max( numRanges, ( size + maxRangeSize - 1 ) / maxRangeSize );
+		final List<Range> ranges = Lists.newArrayList();
+
+		long start = 0;
+
+		for ( long i = 1; i < count && start < size; i++ )
+		{
+			long end = nextLine( Math.max( start, size / count * i ) );
+
+			// moving the cut to the next line may have made the range too long
+			if ( end - start > maxRangeSize )
+			{
+				end = lastLine( start, start + maxRangeSize );
+			}
+
+			if ( end > start && end < size )
+			{
+				ranges.add( new Range( start, end ) );
+				start = end;
+			}
+		}
+
+		while ( size - start > maxRangeSize )
+		{
+			final long end = lastLine( start, start + maxRangeSize );
+
+			ranges.add( new Range( start, end ) );
+			start = end;
+		}
+
+		if ( start < size )
+		{
+			ranges.add( new Range( start, size ) );
+		}
+
+		return ranges;
+	}
+
+	/**
+	 * Returns the offset of the last line starting after the start of a range and
+	 * at or before the limit.
+	 *
+	 * @throws IOException if no line starts there
+	 */
+	private long lastLine(final long start, final long limit) throws IOException
+	{
+		final ByteBuffer buffer = ByteBuffer.allocate( 4096 );
+
+		for ( long end = limit; end > start; )
+		{
+			final long offset = Math.max( start, end - buffer.capacity() );
+
+			buffer.clear();
+			buffer.limit( (int) ( end - offset ) );
+
+			while ( buffer.hasRemaining() && channel.read( buffer, offset + buffer.position() ) >= 0 )
+			{
+				// read the whole block
+			}
+
+			for ( int i = buffer.position() - 1; i >= 0; i-- )
+			{
+				if ( buffer.get( i ) == '\n' )
+				{
+					return offset + i + 1;
+				}
+			}
+
+			end = offset;
+		}
+
+		throw new IOException( "The line at " + start + " is longer than the largest range of " + ( limit - start ) + " bytes" );
+	}
+
+	/**
+	 * Returns the offset of the first line starting at or after the given offset.
+	 */
+	private long nextLine(final long position) throws IOException
+	{
+		if ( position == 0 )
+		{
+			return 0;
+		}
+
+		final ByteBuffer buffer = ByteBuffer.allocate( 4096 );
+
+		// the line containing the byte before the position ends at or after it
+		for ( long offset = position - 1; offset < size; )
+		{
+			buffer.clear();
+
+			final int read = channel.read( buffer, offset );
+
+			for ( int i = 0; i < read; i++ )
+			{
+				if ( buffer.get( i ) == '\n' )
+				{
+					return offset + i + 1;
+				}
+			}
+
+			offset += read;
+		}
+
+		return size;
+	}
+
+	/**
+	 * Maps the range and passes each of its puzzles to the handler, in file order.
+	 *
+	 * @param range		a range returned by {@link #split(int)}
+	 * @param handler	the receiver of the puzzles
+	 *
+	 * @return the number of puzzles passed to the handler
+	 */
+	public long parse(final Range range, final Handler handler) throws IOException
+	{
+		final MappedByteBuffer buffer = channel.map( FileChannel.MapMode.READ_ONLY, range.start, range.end - range.start );
+		final BitboardGrid[] grids = new BitboardGrid[Units.MAX_BOX_SIZE + 1];
+		final int limit = buffer.limit();
+
+		long count = 0;
+
+		for ( int lineStart = 0; lineStart < limit; )
+		{
+			int lineEnd = lineStart;
+
+			while ( lineEnd < limit && buffer.get( lineEnd ) != '\n' )
+			{
+				lineEnd++;
+			}
+
+			final int next = lineEnd + 1;
+
+			// trim the surrounding white space, including a '\r' terminator
+			int first = lineStart;
+
+			while ( first < lineEnd && ( buffer.get( first ) & 0xFF ) <= ' ' )
+			{
+				first++;
+			}
+
+			while ( lineEnd > first && ( buffer.get( lineEnd - 1 ) & 0xFF ) <= ' ' )
+			{
+				lineEnd--;
+			}
+
+			final int length = lineEnd - first;
+
+			if ( length > 0 && buffer.get( first ) != '#' )
+			{
+				final BitboardGrid grid = getGrid( grids, length );
+
+				if ( grid != null && grid.loadLine( buffer, first ) )
+				{
+					handler.puzzle( range.start + lineStart, grid );
+					count++;
+				}
+				else
+				{
+					handler.invalid( range.start + lineStart, length );
+				}
+			}
+
+			lineStart = next;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Returns the grid for puzzle lines of the given length, or null if no grid size has that many cells.
+	 */
+	private static BitboardGrid getGrid(final BitboardGrid[] grids, final int numCells)
+	{
+		final int gridSize = (int) Math.sqrt( numCells );
+
+		if ( gridSize * gridSize != numCells || !Units.isValidSize( gridSize ) )
+		{
+			return null;
+		}
+
+		final int boxSize = Units.of( gridSize ).getBoxSize();
+
+		if ( grids[boxSize] == null )
+		{
+			grids[boxSize] = new BitboardGrid( gridSize );
+		}
+
+		return grids[boxSize];
+	}
+
+	/**
+	 * Splits the file into one range per thread and parses the ranges in parallel.
+	 *
+	 * @param numThreads	the number of parsing threads
+	 * @param handler		the receiver of the puzzles, called from every thread
+	 *
+	 * @return the number of puzzles passed to the handler
+	 */
+	public long parseAll(final int numThreads, final Handler handler) throws IOException, InterruptedException
+	{
+		checkArgument( numThreads > 0, "Number of threads must be > 0. Specified: " + numThreads );
+
+		final ExecutorService pool = Executors.newFixedThreadPool( numThreads,
+			new ThreadFactoryBuilder().setNameFormat( "mapped-reader-%d" ).setDaemon( true ).build() );
+
+		try
+		{
+			final List<Future<Long>> counts = Lists.newArrayList();
+
+			for ( final Range range : split( numThreads ) )
+			{
+				counts.add( pool.submit( new Callable<Long>()
+				{
+					@Override
+					public Long call() throws IOException
+					{
+						return parse( range, handler );
+					}
+				} ) );
+			}
+
+			long count = 0;
+
+			for ( final Future<Long> next : counts )
+			{
+				count += next.get();
+			}
+
+			return count;
+		}
+		catch ( final ExecutionException e )
+		{
+			if ( e.getCause() instanceof IOException )
+			{
+				throw (IOException) e.getCause();
+			}
+
+			throw new IllegalStateException( "Mapped reader thread failed", e.getCause() );
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Closes the file. Buffers already mapped remain valid until they are garbage collected.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+}
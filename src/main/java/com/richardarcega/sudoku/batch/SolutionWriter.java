@@ -0,0 +1,292 @@
+package com.richardarcega.sudoku.batch;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The output stage of a batch: lines produced out of order by several threads are
+ * written to a channel in order of their sequence numbers.
+ *
+ * A producer claims a sequence number for each line, in input order, and hands it
+ * to any thread, which serializes the line into the buffer of that sequence's slot
+ * in a ring and publishes it. A single thread drains the ring in sequence order,
+ * gathering the lines into one large buffer which is written to the channel only
+ * when full. The slot buffers are reused, so lines are serialized without
+ * allocation, and the threads publishing lines never wait: the producer cannot
+ * claim a sequence number until the line using the same slot has been written.
+ */
+public final class SolutionWriter
+{
+	/**
+	 * The capacity with which slot buffers are first created, enough for a line of
+	 * the standard grid.
+	 */
+	private static final int				MIN_LINE_BYTES	= 128;
+
+	private final WritableByteChannel		channel;
+	private final int						capacity;
+
+	/**
+	 * The buffer of each slot, created when first used and grown for longer lines.
+	 */
+	private final ByteBuffer[]				lines;
+
+	/**
+	 * The sequence number plus one of the line published in each slot, 0 if none.
+	 */
+	private final AtomicLongArray			published;
+
+	/**
+	 * The slots free to be claimed.
+	 */
+	private final Semaphore					free;
+
+	/**
+	 * The lines gathered for the next write.
+	 */
+	private final ByteBuffer				output;
+
+	private long							numClaimed;
+	private long							numWrites;
+
+	/**
+	 * The number of lines to be written, known once the producer has finished.
+	 */
+	private volatile long					end				= Long.MAX_VALUE;
+
+	/**
+	 * The sequence number the draining thread is parked on, or -1.
+	 */
+	private volatile long					waitingFor		= -1;
+	private volatile Thread					drainer;
+	private volatile Throwable				failure;
+
+	/**
+	 * @param channel		the destination of the lines
+	 * @param capacity		the maximum number of lines claimed but not yet written
+	 * @param bufferSize	the number of bytes gathered for each write to the channel
+	 */
+	public SolutionWriter(final WritableByteChannel channel, final int capacity, final int bufferSize)
+	{
+		checkArgument( capacity > 0, "Capacity must be > 0. Specified: " + capacity );
+		checkArgument( bufferSize > 0, "Buffer size must be > 0. Specified: " + bufferSize );
+
+		this.channel  = channel;
+		this.capacity = capacity;
+
+		lines     = new ByteBuffer[capacity];
+		published = new AtomicLongArray( capacity );
+		free      = new Semaphore( capacity );
+		output    = ByteBuffer.allocateDirect( bufferSize );
+	}
+
+	/**
+	 * Claims the next sequence number, waiting until its slot is free. Only one thread
+	 * may claim sequence numbers.
+	 *
+	 * @return the sequence number, or -1 if the writer has failed
+	 */
+	public long claim() throws InterruptedException
+	{
+		checkState( end == Long.MAX_VALUE, "No lines may be claimed once finished" );
+
+		free.acquire();
+
+		return ( failure != null ) ? -1 : numClaimed++;
+	}
+
+	/**
+	 * Returns the cleared buffer into which the line of a claimed sequence number is
+	 * serialized, ending with its line terminator.
+	 *
+	 * @param sequence	the sequence number
+	 * @param numBytes	the length of the line, including its terminator
+	 */
+	public ByteBuffer getBuffer(final long sequence, final int numBytes)
+	{
+		final int slot = (int) ( sequence % capacity );
+
+		if ( lines[slot] == null || lines[slot].capacity() < numBytes )
+		{
+			lines[slot] = ByteBuffer.allocate( Math.max( numBytes, MIN_LINE_BYTES ) );
+		}
+
+		lines[slot].clear();
+
+		return lines[slot];
+	}
+
+	/**
+	 * Hands the line serialized into the buffer of a sequence number to the draining
+	 * thread. Never blocks.
+	 *
+	 * @param sequence	the sequence number
+	 */
+	public void publish(final long sequence)
+	{
+		published.set( (int) ( sequence % capacity ), sequence + 1 );
+
+		if ( waitingFor == sequence )
+		{
+			LockSupport.unpark( drainer );
+		}
+	}
+
+	/**
+	 * Marks every sequence number as claimed. Draining ends once their lines are written.
+	 */
+	public void finish()
+	{
+		end = numClaimed;
+
+		LockSupport.unpark( drainer );
+	}
+
+	/**
+	 * Stops the batch, failing {@link #drain()} and any further {@link #claim()}.
+	 *
+	 * @param cause	the reason, such as a failure to produce a line
+	 */
+	public void abort(final Throwable cause)
+	{
+		failure = cause;
+
+		// wake the producer, which sees the failure on claiming
+		free.release( capacity );
+		LockSupport.unpark( drainer );
+	}
+
+	/**
+	 * Writes the published lines in sequence order, waiting for each in turn, until
+	 * the producer has finished and every line claimed has been written.
+	 *
+	 * @return the number of lines written
+	 * @throws IOException if the channel cannot be written
+	 * @throws IllegalStateException if the writer was aborted
+	 */
+	public long drain() throws IOException, InterruptedException
+	{
+		drainer = Thread.currentThread();
+
+		try
+		{
+			long next = 0;
+
+			for ( ; ; next++ )
+			{
+				final int slot = (int) ( next % capacity );
+
+				if ( !await( next, slot ) )
+				{
+					break;
+				}
+
+				final ByteBuffer line = lines[slot];
+				line.flip();
+
+				if ( line.remaining() > output.remaining() )
+				{
+					flush();
+				}
+
+				if ( line.remaining() > output.remaining() )
+				{
+					write( line );
+				}
+				else
+				{
+					output.put( line );
+				}
+
+				free.release();
+			}
+
+			flush();
+
+			return next;
+		}
+		catch ( final IOException e )
+		{
+			abort( e );
+			throw e;
+		}
+		finally
+		{
+			waitingFor = -1;
+			drainer    = null;
+		}
+	}
+
+	/**
+	 * Waits until the line of a sequence number is published.
+	 *
+	 * @return false if every line has been written
+	 */
+	private boolean await(final long sequence, final int slot) throws InterruptedException
+	{
+		while ( published.get( slot ) != sequence + 1 )
+		{
+			if ( failure != null )
+			{
+				throw new IllegalStateException( "Batch output aborted", failure );
+			}
+
+			if ( sequence == end )
+			{
+				return false;
+			}
+
+			waitingFor = sequence;
+
+			// publish() sees waitingFor, or this sees the line
+			if ( published.get( slot ) != sequence + 1 && sequence != end && failure == null )
+			{
+				LockSupport.park( this );
+			}
+
+			waitingFor = -1;
+
+			if ( Thread.interrupted() )
+			{
+				throw new InterruptedException();
+			}
+		}
+
+		return true;
+	}
+
+	private void flush() throws IOException
+	{
+		output.flip();
+		write( output );
+		output.clear();
+	}
+
+	private void write(final ByteBuffer buffer) throws IOException
+	{
+		if ( buffer.hasRemaining() )
+		{
+			numWrites++;
+		}
+
+		while ( buffer.hasRemaining() )
+		{
+			channel.write( buffer );
+		}
+	}
+
+	/**
+	 * Returns the number of writes made to the channel, for the draining thread.
+	 */
+	public long getNumWrites()
+	{
+		return numWrites;
+	}
+}
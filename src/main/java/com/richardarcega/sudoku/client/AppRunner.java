@@ -1,16 +1,48 @@
 package com.richardarcega.sudoku.client;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Splitter;
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+import com.richardarcega.sudoku.batch.BatchResult;
+import com.richardarcega.sudoku.batch.BatchSolver;
+import com.richardarcega.sudoku.batch.LatencyRecorder;
+import com.richardarcega.sudoku.batch.LatencyReport;
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
 import com.richardarcega.sudoku.puzzle.Puzzle;
-import com.richardarcega.sudoku.puzzle.TableGrid;
+import com.richardarcega.sudoku.puzzle.PuzzleGenerator;
+import com.richardarcega.sudoku.server.SolveServer;
 import com.richardarcega.sudoku.solver.Algorithm;
+import com.richardarcega.sudoku.solver.BacktrackSudokuSolver;
+import com.richardarcega.sudoku.solver.CellSelection;
+import com.richardarcega.sudoku.solver.LogicalSolver;
+import com.richardarcega.sudoku.solver.SearchAbortedException;
+import com.richardarcega.sudoku.solver.SearchCheckpoint;
+import com.richardarcega.sudoku.solver.SolveLimits;
 import com.richardarcega.sudoku.solver.SolverFactory;
+import com.richardarcega.sudoku.solver.SolverService;
 import com.richardarcega.sudoku.solver.SudokuSolver;
+import com.richardarcega.sudoku.solver.Technique;
 import com.richardarcega.sudoku.solver.UnsolvableException;
 
 /**
@@ -20,16 +52,326 @@ public class AppRunner
 {
 	private static Logger	log	= LoggerFactory.getLogger( AppRunner.class );
 
-	public static void main(final String[] args) throws IOException
+	/**
+	 * The port of the solve server when none is specified.
+	 */
+	private static final int	DEFAULT_PORT	= 8081;
+
+	/**
+	 * The number of puzzles solved before measuring when none is specified.
+	 */
+	private static final int	DEFAULT_WARM_UP	= 1000;
+
+	/**
+	 * The seconds between checkpoints of a search when none is specified.
+	 */
+	private static final long	DEFAULT_CHECKPOINT_INTERVAL	= 60;
+
+	public static void main(final String[] args) throws IOException, InterruptedException
 	{
 		log.info( "Started Sudoku Puzzle Solver" );
 
-		play();
+		if ( args.length > 0 && "--batch".equals( args[0] ) )
+		{
+			if ( args.length < 3 )
+			{
+				System.err.println( "Usage: AppRunner --batch <input file> <output file> [algorithm]" );
+				return;
+			}
+
+			batch( args[1], args[2], ( args.length > 3 ) ? Algorithm.valueOf( args[3] ) : Algorithm.DLX );
+		}
+		else if ( args.length > 0 && "--generate".equals( args[0] ) )
+		{
+			if ( args.length < 3 )
+			{
+				System.err.println( "Usage: AppRunner --generate <count> <output file or directory> [seed] [minimum clues] [grade]" );
+				return;
+			}
+
+			generate( Long.parseLong( args[1] ), args[2], ( args.length > 3 ) ? Long.parseLong( args[3] ) : System.nanoTime(),
+					  ( args.length > 4 ) ? Integer.parseInt( args[4] ) : 0, ( args.length > 5 ) ? Technique.valueOf( args[5] ) : null );
+		}
+		else if ( args.length > 0 && "--report".equals( args[0] ) )
+		{
+			if ( args.length < 2 )
+			{
+				System.err.println( "Usage: AppRunner --report <input file> [algorithm,...] [warm-up puzzles] [csv file]" );
+				return;
+			}
+
+			final List<Algorithm> algorithms = Lists.newArrayList();
+
+			for ( final String name : Splitter.on( ',' ).trimResults().omitEmptyStrings().split( ( args.length > 2 ) ? args[2] : Algorithm.DLX.name() ) )
+			{
+				algorithms.add( Algorithm.valueOf( name ) );
+			}
+
+			final LatencyReport report = report( Paths.get( args[1] ), algorithms, ( args.length > 3 ) ? Integer.parseInt( args[3] ) : DEFAULT_WARM_UP );
+
+			System.out.print( report );
+
+			if ( args.length > 4 )
+			{
+				try ( Writer csv = Files.newBufferedWriter( Paths.get( args[4] ), StandardCharsets.US_ASCII ) )
+				{
+					report.writeCsv( csv );
+				}
+			}
+		}
+		else if ( args.length > 0 && "--search".equals( args[0] ) )
+		{
+			if ( args.length < 3 )
+			{
+				System.err.println( "Usage: AppRunner --search <puzzle file> <checkpoint file> [grid size] [checkpoint interval seconds]" );
+				return;
+			}
+
+			try
+			{
+				final Puzzle puzzle = search( Paths.get( args[1] ), Paths.get( args[2] ), ( args.length > 3 ) ? Integer.parseInt( args[3] ) : BitboardGrid.SIZE,
+											  ( args.length > 4 ) ? Long.parseLong( args[4] ) : DEFAULT_CHECKPOINT_INTERVAL );
+
+				System.out.println( "SOLUTION:\n" + puzzle );
+			}
+			catch ( final SearchAbortedException e )
+			{
+				System.out.println( "Stopped; run the same command to resume the search from " + args[2] );
+			}
+			catch ( final UnsolvableException e )
+			{
+				log.warn( "Failed to solve puzzle", e );
+			}
+		}
+		else if ( args.length > 0 && "--serve".equals( args[0] ) )
+		{
+			serve( ( args.length > 1 ) ? Integer.parseInt( args[1] ) : DEFAULT_PORT,
+				   ( args.length > 2 ) ? Integer.parseInt( args[2] ) : Runtime.getRuntime().availableProcessors() * 4 );
+		}
+		else
+		{
+			play();
+		}
+	}
+
+	/**
+	 * Solves a file of puzzles, one per line, on every available processor.
+	 *
+	 * @param inputFile		the puzzles, one per line
+	 * @param outputFile	the destination of the solutions
+	 * @param algorithm		the algorithm used to solve each puzzle
+	 */
+	public static void batch(final String inputFile, final String outputFile, final Algorithm algorithm) throws IOException, InterruptedException
+	{
+		try ( BufferedReader input = Files.newBufferedReader( Paths.get( inputFile ), StandardCharsets.US_ASCII );
+			  FileChannel output = FileChannel.open( Paths.get( outputFile ),
+				  StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE ) )
+		{
+			final BatchResult result = new BatchSolver( algorithm ).solve( input, output );
+
+			System.out.println( result );
+		}
+	}
+
+	/**
+	 * Measures the solve latency and throughput of each algorithm over a file of
+	 * puzzles, one per line, on every available processor. Before each algorithm's
+	 * measured run, it solves the first puzzles of the file unrecorded, so that the
+	 * figures exclude the compilation and cache warming of a cold start.
+	 *
+	 * @param inputFile		the puzzles, one per line
+	 * @param algorithms	the algorithms to measure, in turn
+	 * @param numWarmUp		the number of puzzles solved before each measured run
+	 *
+	 * @return the latencies and throughput of each algorithm
+	 */
+	public static LatencyReport report(final Path inputFile, final List<Algorithm> algorithms, final int numWarmUp) throws IOException, InterruptedException
+	{
+		final int numThreads = Runtime.getRuntime().availableProcessors();
+		final WritableByteChannel discard = Channels.newChannel( ByteStreams.nullOutputStream() );
+		final LatencyReport report = new LatencyReport();
+
+		final StringBuilder warmUp = new StringBuilder();
+
+		try ( BufferedReader input = Files.newBufferedReader( inputFile, StandardCharsets.US_ASCII ) )
+		{
+			String line = null;
+
+			for ( int i = 0; i < numWarmUp && ( line = input.readLine() ) != null; i++ )
+			{
+				warmUp.append( line ).append( '\n' );
+			}
+		}
+
+		for ( final Algorithm algorithm : algorithms )
+		{
+			new BatchSolver( algorithm, numThreads, BatchSolver.DEFAULT_WINDOW_SIZE )
+				.solve( new BufferedReader( new StringReader( warmUp.toString() ) ), discard );
+
+			final LatencyRecorder latencies = new LatencyRecorder();
+
+			try ( BufferedReader input = Files.newBufferedReader( inputFile, StandardCharsets.US_ASCII ) )
+			{
+				final BatchResult result = new BatchSolver( algorithm, numThreads, BatchSolver.DEFAULT_WINDOW_SIZE, latencies ).solve( input, discard );
+
+				report.add( algorithm, latencies.getHistogram(), result.getElapsedNanos() );
+			}
+		}
+
+		return report;
+	}
+
+	/**
+	 * Generates puzzles with a unique solution on every available processor.
+	 *
+	 * @param count		the number of puzzles
+	 * @param output	a file to write the puzzles to, one per line, or an existing
+	 *                  directory to write each to its own file in the text format
+	 * @param seed		the seed of the puzzles' random choices
+	 * @param minClues	the number of clues at which removal stops
+	 * @param grade		the hardest technique each puzzle needs (see {@link LogicalSolver#grade(com.richardarcega.sudoku.puzzle.Grid)}),
+	 *                  or null for puzzles of any grade
+	 */
+	public static void generate(final long count, final String output, final long seed, final int minClues, final Technique grade)
+		throws IOException, InterruptedException
+	{
+		final PuzzleGenerator generator = ( grade == null ) ? new PuzzleGenerator( BitboardGrid.SIZE, seed, minClues )
+			: new PuzzleGenerator( BitboardGrid.SIZE, seed, minClues, LogicalSolver.hasGrade( grade ) );
+		final int numThreads = Runtime.getRuntime().availableProcessors();
+
+		if ( Files.isDirectory( Paths.get( output ) ) )
+		{
+			generator.writeFiles( count, numThreads, Paths.get( output ) );
+			return;
+		}
+
+		try ( Writer writer = new BufferedWriter( Files.newBufferedWriter( Paths.get( output ), StandardCharsets.US_ASCII ), 1 << 16 ) )
+		{
+			generator.writeLines( count, numThreads, writer );
+		}
+	}
+
+	/**
+	 * Solves a puzzle by backtracking, saving the search to a checkpoint file at
+	 * intervals and when the JVM shuts down, as on Ctrl-C. If the checkpoint file
+	 * exists, the search is resumed from it and the puzzle file is not read. The
+	 * checkpoint file is deleted once the search is done.
+	 *
+	 * @param puzzleFile		the puzzle, in any format read by the grid
+	 * @param checkpointFile	the file the search is saved to and resumed from
+	 * @param size				the size of the puzzle's grid
+	 * @param intervalSeconds	the time between checkpoints
+	 *
+	 * @return the solved puzzle
+	 * @throws SearchAbortedException if the search was stopped, its checkpoint saved
+	 */
+	public static Puzzle search(final Path puzzleFile, final Path checkpointFile, final int size, final long intervalSeconds)
+		throws IOException, UnsolvableException
+	{
+		final SearchCheckpoint checkpoint = Files.exists( checkpointFile ) ? SearchCheckpoint.load( checkpointFile ) : null;
+		final BacktrackSudokuSolver solver = new BacktrackSudokuSolver( ( checkpoint == null ) ? CellSelection.DYNAMIC : checkpoint.getSelection() );
+		final Puzzle puzzle = new Puzzle( new BitboardGrid( ( checkpoint == null ) ? size : checkpoint.size() ) );
+
+		if ( checkpoint == null )
+		{
+			puzzle.getGrid().load( Files.newInputStream( puzzleFile ) );
+		}
+		else
+		{
+			log.info( "Resuming the search from " + checkpointFile + " after " + checkpoint.getGuesses() + " guesses" );
+		}
+
+		solver.setCheckpointListener( SearchCheckpoint.saveTo( checkpointFile ), intervalSeconds, TimeUnit.SECONDS );
+
+		// on shutdown, stop the search and wait for its checkpoint to be saved
+		final Thread searching = Thread.currentThread();
+		final CountDownLatch stopped = new CountDownLatch( 1 );
+		final Thread hook = new Thread()
+		{
+			@Override
+			public void run()
+			{
+				searching.interrupt();
+
+				try
+				{
+					stopped.await( 10, TimeUnit.SECONDS );
+				}
+				catch ( final InterruptedException e )
+				{
+					// exit anyway
+				}
+			}
+		};
+
+		Runtime.getRuntime().addShutdownHook( hook );
+
+		try
+		{
+			if ( checkpoint == null )
+			{
+				solver.solve( puzzle );
+			}
+			else
+			{
+				solver.resume( checkpoint, puzzle, SolveLimits.NONE );
+			}
+		}
+		catch ( final SearchAbortedException e )
+		{
+			// clear the interruption, which would close the checkpoint file's channel
+			Thread.interrupted();
+
+			solver.getLastCheckpoint().save( checkpointFile );
+			log.info( "Saved the search to " + checkpointFile + " after " + solver.getLastCheckpoint().getGuesses() + " guesses" );
+			throw e;
+		}
+		catch ( final UnsolvableException e )
+		{
+			Files.deleteIfExists( checkpointFile );
+			throw e;
+		}
+		finally
+		{
+			stopped.countDown();
+
+			try
+			{
+				Runtime.getRuntime().removeShutdownHook( hook );
+			}
+			catch ( final IllegalStateException e )
+			{
+				// the JVM is shutting down
+			}
+		}
+
+		Files.deleteIfExists( checkpointFile );
+
+		return puzzle;
+	}
+
+	/**
+	 * Serves solve requests on the loopback interface until the process is killed.
+	 *
+	 * @param port			the port to listen on
+	 * @param maxInFlight	the maximum number of requests solved at once
+	 */
+	public static void serve(final int port, final int maxInFlight) throws IOException, InterruptedException
+	{
+		final SolverService service = new SolverService();
+		service.warmUp( 100 );
+
+		final SolveServer server = new SolveServer( port, service, maxInFlight );
+		server.start();
+
+		System.out.println( "Serving on http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/solve" );
+
+		Thread.currentThread().join();
 	}
 
 	public static void play()
 	{
-		final Puzzle puzzle       = new Puzzle( new TableGrid(9, 9) );
+		final Puzzle puzzle       = new Puzzle( new BitboardGrid() );
 		final SudokuSolver solver = SolverFactory.getSolver( Algorithm.BACKTRACK );
 
 		for ( final String puzzleFile : new String[]{ "expert.txt" } )
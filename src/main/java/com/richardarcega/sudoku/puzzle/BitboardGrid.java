@@ -0,0 +1,424 @@
+package com.richardarcega.sudoku.puzzle;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+/**
+ * A primitive array based implementation of the Sudoku grid.
+ *
+ * The digits are held in a flat array indexed by {@code y * size + x}. Alongside
+ * the digits, an occupancy mask is kept for every row, column and box, where
+ * bit {@code (d - 1)} is set when digit {@code d} is present in that unit. The masks
+ * are maintained on every write so that the candidates of a cell can be obtained
+ * without scanning its peers.
+ *
+ * Any size supported by {@link Units} may be used; the default is the standard 9x9 grid.
+ */
+public class BitboardGrid extends Grid
+{
+	/**
+	 * The number of rows and columns in the standard grid.
+	 */
+	public static final int		SIZE		= 9;
+
+	/**
+	 * The number of rows and columns in a box of the standard grid.
+	 */
+	public static final int		BOX_SIZE	= 3;
+
+	/**
+	 * The number of cells in the standard grid.
+	 */
+	public static final int		NUM_CELLS	= SIZE * SIZE;
+
+	/**
+	 * The mask with a bit set for each of the digits 1..9.
+	 */
+	public static final int		ALL_DIGITS	= ( 1 << SIZE ) - 1;
+
+	private final int			size;
+	private final int			numCells;
+	private final int			allDigits;
+
+	/**
+	 * The box index of every cell, indexed by {@code y * size + x}.
+	 */
+	private final int[]			boxOf;
+
+	/**
+	 * The cells of every unit: rows, then columns, then boxes.
+	 */
+	private final int[][]		units;
+
+	/**
+	 * The digits of the puzzle, 0 denoting an empty cell.
+	 */
+	private final byte[]		cells;
+
+	/**
+	 * The solution to the puzzle
+	 */
+	private final byte[]		solution;
+
+	private final int[]			rowMasks;
+	private final int[]			colMasks;
+	private final int[]			boxMasks;
+
+	public BitboardGrid()
+	{
+		this( SIZE );
+	}
+
+	/**
+	 * @param size	the number of rows and columns: 4, 9, 16 or 25
+	 */
+	public BitboardGrid(final int size)
+	{
+		final Units units = Units.of( size );
+
+		this.size      = size;
+		this.numCells  = units.getNumCells();
+		this.allDigits = units.getAllDigits();
+		this.boxOf     = units.getBoxOf();
+		this.units     = units.getUnits();
+
+		cells    = new byte[numCells];
+		solution = new byte[numCells];
+		rowMasks = new int[size];
+		colMasks = new int[size];
+		boxMasks = new int[size];
+	}
+
+	@Override
+	public int getCellValue(final int x, final int y)
+	{
+		checkElementIndex( x, size, "x coordinate" );
+		checkElementIndex( y, size, "y coordinate" );
+
+		return cells[y * size + x];
+	}
+
+	@Override
+	public void setCellValue(final int x, final int y, final int digit)
+	{
+		checkElementIndex( x, size, "x coordinate" );
+		checkElementIndex( y, size, "y coordinate" );
+
+		if ( digit < 0 || digit > size )
+		{
+			throw new IllegalArgumentException( "Invalid digit: " + digit );
+		}
+
+		final int index = y * size + x;
+		final int box   = boxOf[index];
+
+		final int previous = cells[index];
+
+		cells[index] = (byte) digit;
+
+		// a digit repeated by the givens stays in the masks of the units still holding it
+		if ( previous != 0 && previous != digit )
+		{
+			final int clear = ~( 1 << ( previous - 1 ) );
+
+			if ( !holds( y, previous ) )
+			{
+				rowMasks[y] &= clear;
+			}
+
+			if ( !holds( size + x, previous ) )
+			{
+				colMasks[x] &= clear;
+			}
+
+			if ( !holds( 2 * size + box, previous ) )
+			{
+				boxMasks[box] &= clear;
+			}
+		}
+
+		if ( digit != 0 )
+		{
+			final int bit = 1 << ( digit - 1 );
+			rowMasks[y]   |= bit;
+			colMasks[x]   |= bit;
+			boxMasks[box] |= bit;
+		}
+	}
+
+	/**
+	 * Returns true if a cell of the unit holds the digit.
+	 */
+	private boolean holds(final int unit, final int digit)
+	{
+		for ( final int cell : units[unit] )
+		{
+			if ( cells[cell] == digit )
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns the digits which can be placed in the specified cell without
+	 * repeating a digit within its row, column or box.
+	 *
+	 * @param x		the x coordinate of the cell
+	 * @param y		the y coordinate of the cell
+	 *
+	 * @return a mask where bit {@code (d - 1)} is set when digit {@code d} is a candidate
+	 */
+	public int getCandidates(final int x, final int y)
+	{
+		checkElementIndex( x, size, "x coordinate" );
+		checkElementIndex( y, size, "y coordinate" );
+
+		return ~( rowMasks[y] | colMasks[x] | boxMasks[boxOf[y * size + x]] ) & allDigits;
+	}
+
+	/**
+	 * Returns the digit of the loaded solution for the specified cell, or 0
+	 * if the puzzle file did not contain a solution.
+	 *
+	 * @param x		the x coordinate of the cell
+	 * @param y		the y coordinate of the cell
+	 *
+	 * @return the digit within the solution
+	 */
+	public int getSolutionValue(final int x, final int y)
+	{
+		checkElementIndex( x, size, "x coordinate" );
+		checkElementIndex( y, size, "y coordinate" );
+
+		return solution[y * size + x];
+	}
+
+	/**
+	 * Sets the digit of the solution for a cell, for puzzles created rather than loaded.
+	 *
+	 * @param index	the index of the cell, {@code y * size + x}
+	 * @param digit	the digit within the solution
+	 */
+	void setSolutionValue(final int index, final int digit)
+	{
+		checkElementIndex( index, numCells, "cell index" );
+
+		solution[index] = (byte) digit;
+	}
+
+	/**
+	 * Loads the puzzle and any solution read by the parser.
+	 *
+	 * @param parser	a parser for grids of this size
+	 */
+	@Override
+	public void load(final PuzzleParser parser)
+	{
+		checkArgument( parser.size() == size, "Parser size must be equal to grid size. Parser: " + parser.size() + " =/= " + "Grid: " + size );
+
+		clear();
+
+		for ( int y = 0; y < size; y++ )
+		{
+			for ( int x = 0; x < size; x++ )
+			{
+				final int digit = parser.getCellValue( x, y );
+
+				if ( digit != 0 )
+				{
+					setCellValue( x, y, digit );
+				}
+
+				solution[y * size + x] = (byte) parser.getSolutionValue( x, y );
+			}
+		}
+	}
+
+	/**
+	 * Loads a puzzle from the common single-line format: the cells in
+	 * row-major order, written as in {@link Grid#toDigit(char)}, with '.' or
+	 * '0' denoting an empty cell.
+	 *
+	 * @param line	the puzzle line, without its line terminator
+	 * @throws IllegalArgumentException if the line is not a valid puzzle
+	 */
+	public void loadLine(final CharSequence line)
+	{
+		if ( line.length() != numCells )
+		{
+			throw new IllegalArgumentException( "Expected " + numCells + " cells but found " + line.length() );
+		}
+
+		clear();
+
+		for ( int index = 0; index < numCells; index++ )
+		{
+			final char c = line.charAt( index );
+			final int digit = toDigit( c );
+
+			if ( digit < 0 || digit > size )
+			{
+				throw new IllegalArgumentException( "Invalid cell '" + c + "' at position " + index );
+			}
+
+			if ( digit != 0 )
+			{
+				setCellValue( index % size, index / size, digit );
+			}
+		}
+	}
+
+	/**
+	 * Loads a puzzle in the single-line format directly from a buffer of ASCII
+	 * bytes, without creating a String. The buffer's position is not changed.
+	 *
+	 * @param buffer	the bytes holding the puzzle line
+	 * @param offset	the index of the line's first cell within the buffer
+	 *
+	 * @return false if a cell is not a valid digit, in which case the grid is left empty
+	 */
+	public boolean loadLine(final ByteBuffer buffer, final int offset)
+	{
+		clear();
+
+		for ( int index = 0; index < numCells; index++ )
+		{
+			final int digit = toDigit( (char) buffer.get( offset + index ) );
+
+			if ( digit < 0 || digit > size )
+			{
+				clear();
+				return false;
+			}
+
+			if ( digit != 0 )
+			{
+				setCellValue( index % size, index / size, digit );
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the grid in the single-line format read by {@link #loadLine(CharSequence)},
+	 * using '.' for empty cells.
+	 *
+	 * @return the cells in row-major order
+	 */
+	public String toLine()
+	{
+		final char[] line = new char[numCells];
+
+		for ( int index = 0; index < numCells; index++ )
+		{
+			line[index] = toSymbol( cells[index] );
+		}
+
+		return new String( line );
+	}
+
+	/**
+	 * Writes the grid in the single-line format as ASCII bytes at the buffer's
+	 * position, without creating a String.
+	 *
+	 * @param buffer	a buffer with at least {@code size() * size()} bytes remaining
+	 */
+	public void writeLine(final ByteBuffer buffer)
+	{
+		for ( int index = 0; index < numCells; index++ )
+		{
+			buffer.put( (byte) toSymbol( cells[index] ) );
+		}
+	}
+
+	@Override
+	public BitboardGrid copy()
+	{
+		final BitboardGrid copy = new BitboardGrid( size );
+
+		System.arraycopy( cells, 0, copy.cells, 0, numCells );
+		System.arraycopy( solution, 0, copy.solution, 0, numCells );
+		System.arraycopy( rowMasks, 0, copy.rowMasks, 0, size );
+		System.arraycopy( colMasks, 0, copy.colMasks, 0, size );
+		System.arraycopy( boxMasks, 0, copy.boxMasks, 0, size );
+
+		return copy;
+	}
+
+	/**
+	 * Empties every cell of the grid and its solution.
+	 */
+	public void clear()
+	{
+		Arrays.fill( cells, (byte) 0 );
+		Arrays.fill( solution, (byte) 0 );
+		Arrays.fill( rowMasks, 0 );
+		Arrays.fill( colMasks, 0 );
+		Arrays.fill( boxMasks, 0 );
+	}
+
+	/**
+	 * Returns the empty cells in the grid.
+	 *
+	 * @return a List of Cell objects
+	 */
+	@Override
+	public List<Cell> getEmptyCells()
+	{
+		final List<Cell> emptyCells = Lists.newArrayList();
+
+		for ( int index = 0; index < numCells; index++ )
+		{
+			if ( cells[index] == 0 )
+			{
+				emptyCells.add( new Cell( index % size, index / size, 0 ) );
+			}
+		}
+
+		return emptyCells;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + Arrays.hashCode( cells );
+		result = prime * result + Arrays.hashCode( solution );
+		return result;
+	}
+
+	@Override
+	public boolean equals(final Object obj)
+	{
+		if ( this == obj )
+			return true;
+		if ( obj == null )
+			return false;
+		if ( getClass() != obj.getClass() )
+			return false;
+		final BitboardGrid other = (BitboardGrid) obj;
+		if ( !Arrays.equals( cells, other.cells ) )
+			return false;
+		if ( !Arrays.equals( solution, other.solution ) )
+			return false;
+		return true;
+	}
+
+}
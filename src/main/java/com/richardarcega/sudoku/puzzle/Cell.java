@@ -117,6 +117,11 @@ public class Cell
 		return "Cell [x=" + x + ", y=" + y + ", digit=" + digit + ", candidates=" + candidates + ", iterator=" + iterator + "]";
 	}
 
+	/**
+	 * Cells are equal when they hold the same coordinates, digit and candidates.
+	 * The iterator is a cursor over the candidates rather than part of the cell's
+	 * value, and is left out.
+	 */
 	@Override
 	public int hashCode()
 	{
@@ -124,7 +129,6 @@ public class Cell
 		int result = 1;
 		result = prime * result + ( ( candidates == null ) ? 0 : candidates.hashCode() );
 		result = prime * result + digit;
-		result = prime * result + ( ( iterator == null ) ? 0 : iterator.hashCode() );
 		result = prime * result + x;
 		result = prime * result + y;
 		return result;
@@ -161,17 +165,6 @@ public class Cell
 		{
 			return false;
 		}
-		if ( iterator == null )
-		{
-			if ( other.iterator != null )
-			{
-				return false;
-			}
-		}
-		else if ( !iterator.equals( other.iterator ) )
-		{
-			return false;
-		}
 		if ( x != other.x )
 		{
 			return false;
@@ -3,8 +3,13 @@ package com.richardarcega.sudoku.puzzle;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
+import java.util.Set;
 
+import com.google.common.collect.ContiguousSet;
+import com.google.common.collect.DiscreteDomain;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Range;
+import com.google.common.io.ByteStreams;
 
 /**
  * This abstract class defines the grid representation of a sudoku puzzle.
@@ -12,10 +17,53 @@ import com.google.common.collect.ImmutableSet;
 public abstract class Grid
 {
 	/**
-	 * The possible set of digits within a cell.
+	 * The possible set of digits within a cell of the standard 9x9 grid.
 	 */
 	public static final ImmutableSet<Integer> DIGITS = ImmutableSet.of( 1, 2, 3, 4, 5, 6, 7, 8, 9 );
 
+	/**
+	 * The symbols of the digits 1 to 25. Digits above 9 are written as letters.
+	 */
+	private static final String SYMBOLS = "123456789ABCDEFGHIJKLMNOP";
+
+	/**
+	 * Returns the symbol of a digit, or '.' for an empty cell.
+	 *
+	 * @param digit	the digit, 0 to 25
+	 * @return		the symbol
+	 */
+	public static char toSymbol(final int digit)
+	{
+		return ( digit == 0 ) ? '.' : SYMBOLS.charAt( digit - 1 );
+	}
+
+	/**
+	 * Returns the digit written by a symbol: '1' to '9', then 'A' to 'P' (in either
+	 * case) for 10 to 25. Both '.' and '0' denote an empty cell.
+	 *
+	 * @param symbol	the symbol
+	 * @return			the digit, 0 for an empty cell, or -1 if the character is not a symbol
+	 */
+	public static int toDigit(final char symbol)
+	{
+		if ( symbol >= '1' && symbol <= '9' )
+		{
+			return symbol - '0';
+		}
+
+		if ( symbol >= 'A' && symbol <= 'P' )
+		{
+			return symbol - 'A' + 10;
+		}
+
+		if ( symbol >= 'a' && symbol <= 'p' )
+		{
+			return symbol - 'a' + 10;
+		}
+
+		return ( symbol == '.' || symbol == '0' ) ? 0 : -1;
+	}
+
 	/**
 	 * Returns the digit contained within the specified cell.
 	 *
@@ -26,12 +74,66 @@ public abstract class Grid
 	public abstract int getCellValue(int x, int y);
 
 	/**
-	 * Populates the grid with the known digits.
+	 * Places a digit within the specified cell. A digit of 0 empties the cell.
+	 *
+	 * @param x		the x coordinate of the cell
+	 * @param y		the y coordinate of the cell
+	 * @param digit	the digit
+	 */
+	public abstract void setCellValue(int x, int y, int digit);
+
+	/**
+	 * Returns the number of rows (equivalently, columns) in the grid.
+	 *
+	 * @return	the grid size
+	 */
+	public abstract int size();
+
+	/**
+	 * Returns the possible set of digits within a cell, 1 to {@link #size()}.
+	 */
+	public Set<Integer> getDigits()
+	{
+		return ContiguousSet.create( Range.closed( 1, size() ), DiscreteDomain.integers() );
+	}
+
+	/**
+	 * Populates the grid with the known digits, and any solution, of the first
+	 * puzzle in a file of any format read by {@link PuzzleParser}.
+	 *
+	 * See src/main/resources/format.txt for the format of the puzzle
+	 * text files.
 	 *
 	 * @param puzzleFile	the puzzle file
 	 * @throws IOException
+	 * @throws IllegalArgumentException if the file holds no complete puzzle
+	 */
+	public void load(final InputStream puzzleFile) throws IOException
+	{
+		final PuzzleParser parser = new PuzzleParser( size() );
+
+		try ( InputStream in = puzzleFile )
+		{
+			parser.parse( ByteStreams.toByteArray( in ) );
+		}
+
+		load( parser );
+	}
+
+	/**
+	 * Populates the grid with the puzzle, and any solution, last read by a parser.
+	 * An empty grid is loaded if the parser has read nothing.
+	 *
+	 * @param parser	a parser for grids of this size
+	 */
+	public abstract void load(PuzzleParser parser);
+
+	/**
+	 * Returns an independent copy of the grid, including any loaded solution.
+	 *
+	 * @return	the copy
 	 */
-	public abstract void load(InputStream puzzleFile) throws IOException;
+	public abstract Grid copy();
 
 	/**
 	 * Returns the cells which do not contain any digits.
@@ -40,4 +142,54 @@ public abstract class Grid
 	 */
 	public abstract List<Cell> getEmptyCells();
 
+	/**
+	 * Returns the grid in the format of the puzzle files, with the boxes
+	 * separated by lines and '.' for an empty cell.
+	 */
+	@Override
+	public String toString()
+	{
+		final int size    = size();
+		final int boxSize = (int) Math.sqrt( size );
+
+		final StringBuilder separator = new StringBuilder();
+
+		for ( int box = 0; box < boxSize; box++ )
+		{
+			if ( box != 0 )
+			{
+				separator.append( '+' );
+			}
+
+			for ( int i = 0; i < 2 * boxSize; i++ )
+			{
+				separator.append( '-' );
+			}
+		}
+
+		final StringBuilder sb = new StringBuilder( ( size + 1 ) * ( 2 * size + boxSize ) );
+
+		for ( int y = 0; y < size; y++ )
+		{
+			if ( y != 0 && y % boxSize == 0 )
+			{
+				sb.append( separator ).append( '\n' );
+			}
+
+			for ( int x = 0; x < size; x++ )
+			{
+				if ( x != 0 && x % boxSize == 0 )
+				{
+					sb.append( '|' );
+				}
+
+				sb.append( toSymbol( getCellValue( x, y ) ) ).append( ' ' );
+			}
+
+			sb.append( '\n' );
+		}
+
+		return sb.toString();
+	}
+
 }
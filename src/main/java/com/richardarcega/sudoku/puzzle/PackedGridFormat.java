@@ -0,0 +1,106 @@
+package com.richardarcega.sudoku.puzzle;
+
+/**
+ * Describes the packed binary format of puzzles and their solutions, written by
+ * {@link PackedGridWriter} and read by {@link PackedGridReader}.
+ *
+ * A stream starts with the four bytes of {@link #MAGIC} and a version byte, and
+ * is followed by any number of records. Each record holds:
+ * <ol>
+ * <li>the grid size, one byte;</li>
+ * <li>the flags, one byte: {@link #FLAG_SOLUTION} and {@link #FLAG_CHECKSUM};</li>
+ * <li>the cells in row-major order, two to a byte (high nibble first) for grids of
+ * up to 9x9, and one to a byte for larger grids. Without a solution these are the
+ * digits of the puzzle, 0 denoting an empty cell; with a solution they are the
+ * digits of the solution;</li>
+ * <li>with a solution, a bitmap of the givens, one bit per cell (most significant
+ * bit first), from which the puzzle is recovered;</li>
+ * <li>with a checksum, the CRC-32 of the preceding bytes of the record, four bytes
+ * big-endian.</li>
+ * </ol>
+ * A 9x9 puzzle with its solution takes 54 bytes, or 58 with a checksum.
+ */
+public final class PackedGridFormat
+{
+	/**
+	 * The first bytes of a packed stream: "SDKP".
+	 */
+	public static final int		MAGIC			= 0x53444B50;
+
+	/**
+	 * The version of the format written after the magic number.
+	 */
+	public static final int		VERSION			= 1;
+
+	/**
+	 * Set when the record holds the solution as well as the puzzle.
+	 */
+	public static final int		FLAG_SOLUTION	= 1;
+
+	/**
+	 * Set when the record ends with a CRC-32 checksum.
+	 */
+	public static final int		FLAG_CHECKSUM	= 2;
+
+	/**
+	 * Every flag defined by this version; a record with any other is rejected.
+	 */
+	static final int			ALL_FLAGS		= FLAG_SOLUTION | FLAG_CHECKSUM;
+
+	/**
+	 * The size of the largest record, a 25x25 grid with its solution and checksum.
+	 */
+	static final int			MAX_RECORD_SIZE	= recordSize( Units.MAX_BOX_SIZE * Units.MAX_BOX_SIZE, FLAG_SOLUTION | FLAG_CHECKSUM );
+
+	private PackedGridFormat()
+	{
+	}
+
+	/**
+	 * Returns true if the cells of a grid of the given size are packed two to a byte.
+	 */
+	static boolean isNibblePacked(final int size)
+	{
+		return size <= 15;
+	}
+
+	/**
+	 * Returns the number of bytes holding the cells of a grid of the given size.
+	 */
+	static int cellBytes(final int size)
+	{
+		final int numCells = size * size;
+		return isNibblePacked( size ) ? ( numCells + 1 ) / 2 : numCells;
+	}
+
+	/**
+	 * Returns the number of bytes in the bitmap of givens of a grid of the given size.
+	 */
+	static int givensBytes(final int size)
+	{
+		return ( size * size + 7 ) / 8;
+	}
+
+	/**
+	 * Returns the number of bytes in a record.
+	 *
+	 * @param size	the grid size
+	 * @param flags	the record flags
+	 */
+	public static int recordSize(final int size, final int flags)
+	{
+		int recordSize = 2 + cellBytes( size );
+
+		if ( ( flags & FLAG_SOLUTION ) != 0 )
+		{
+			recordSize += givensBytes( size );
+		}
+
+		if ( ( flags & FLAG_CHECKSUM ) != 0 )
+		{
+			recordSize += 4;
+		}
+
+		return recordSize;
+	}
+}
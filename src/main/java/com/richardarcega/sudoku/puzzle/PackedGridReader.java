@@ -0,0 +1,234 @@
+package com.richardarcega.sudoku.puzzle;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Reads puzzles, and their solutions when present, from a stream in the packed
+ * binary format described by {@link PackedGridFormat}. Each record is read
+ * into a reused buffer and unpacked straight into the caller's grids.
+ *
+ * A record which does not fit the caller's grids is left unread, so it can be
+ * read again into grids of {@link #getSize()}. After any other error, such as
+ * a corrupt or truncated record, the stream cannot be read further.
+ */
+public class PackedGridReader implements Closeable
+{
+	private final DataInputStream	input;
+	private final CRC32				crc		= new CRC32();
+
+	/**
+	 * The record being read, sized for the largest grid.
+	 */
+	private final byte[]			record	= new byte[PackedGridFormat.MAX_RECORD_SIZE];
+
+	private int						size;
+	private int						flags;
+
+	/**
+	 * Reads and checks the stream header.
+	 *
+	 * @param input	the source of the records
+	 * @throws IOException if the stream is not in the packed format
+	 */
+	public PackedGridReader(final InputStream input) throws IOException
+	{
+		this.input = new DataInputStream( new BufferedInputStream( input ) );
+
+		final int magic = this.input.readInt();
+		final int version = this.input.readUnsignedByte();
+
+		if ( magic != PackedGridFormat.MAGIC )
+		{
+			throw new IOException( "Not a packed puzzle stream. Magic number: " + Integer.toHexString( magic ) );
+		}
+
+		if ( version != PackedGridFormat.VERSION )
+		{
+			throw new IOException( "Unsupported packed format version: " + version );
+		}
+	}
+
+	/**
+	 * Reads the next record into a grid, ignoring its solution.
+	 *
+	 * @param puzzle	the grid receiving the puzzle
+	 * @return false at the end of the stream
+	 */
+	public boolean read(final Grid puzzle) throws IOException
+	{
+		return read( puzzle, null );
+	}
+
+	/**
+	 * Reads the next record into the grids. When the record holds no solution
+	 * the solution grid is left unchanged; see {@link #hasSolution()}.
+	 *
+	 * @param puzzle	the grid receiving the puzzle
+	 * @param solution	the grid receiving the solution, or null to ignore it
+	 * @return false at the end of the stream
+	 * @throws IOException if the record is truncated or corrupt, or does not fit the
+	 *                     grids, in which case it is left unread
+	 */
+	public boolean read(final Grid puzzle, final Grid solution) throws IOException
+	{
+		input.mark( 2 );
+
+		final int first = input.read();
+
+		if ( first < 0 )
+		{
+			return false;
+		}
+
+		size  = first;
+		flags = input.readUnsignedByte();
+
+		if ( !Units.isValidSize( size ) )
+		{
+			throw new IOException( "Invalid grid size in packed record: " + size );
+		}
+
+		if ( ( flags & ~PackedGridFormat.ALL_FLAGS ) != 0 )
+		{
+			throw new IOException( "Unknown flags in packed record: " + Integer.toHexString( flags ) );
+		}
+
+		if ( puzzle.size() != size || ( solution != null && solution.size() != size ) )
+		{
+			input.reset();
+			throw new IOException( "A packed record of size " + size + " does not fit a grid of size " + puzzle.size() );
+		}
+
+		final int recordSize = PackedGridFormat.recordSize( size, flags );
+
+		record[0] = (byte) size;
+		record[1] = (byte) flags;
+
+		try
+		{
+			input.readFully( record, 2, recordSize - 2 );
+		}
+		catch ( final EOFException e )
+		{
+			throw new IOException( "Truncated packed record", e );
+		}
+
+		if ( ( flags & PackedGridFormat.FLAG_CHECKSUM ) != 0 )
+		{
+			crc.reset();
+			crc.update( record, 0, recordSize - 4 );
+
+			final int expected = ( record[recordSize - 4] & 0xFF ) << 24 | ( record[recordSize - 3] & 0xFF ) << 16
+				| ( record[recordSize - 2] & 0xFF ) << 8 | ( record[recordSize - 1] & 0xFF );
+
+			if ( (int) crc.getValue() != expected )
+			{
+				throw new IOException( "Checksum mismatch in packed record" );
+			}
+		}
+
+		final boolean hasSolution = hasSolution();
+		final int cellBytes = PackedGridFormat.cellBytes( size );
+		final int numCells = size * size;
+
+		// checked before the grids are changed
+		for ( int index = 0; index < numCells; index++ )
+		{
+			final int digit = digitAt( index );
+
+			if ( digit > size )
+			{
+				throw new IOException( "Invalid digit in packed record: " + digit );
+			}
+
+			if ( hasSolution && digit == 0 )
+			{
+				throw new IOException( "Empty cell in the solution of a packed record at index " + index );
+			}
+		}
+
+		for ( int index = 0; index < numCells; index++ )
+		{
+			final int digit = digitAt( index );
+			final int x = index % size;
+			final int y = index / size;
+
+			if ( hasSolution )
+			{
+				final boolean given = ( record[2 + cellBytes + index / 8] & ( 0x80 >>> ( index % 8 ) ) ) != 0;
+
+				puzzle.setCellValue( x, y, given ? digit : 0 );
+
+				if ( solution != null )
+				{
+					solution.setCellValue( x, y, digit );
+				}
+			}
+			else
+			{
+				puzzle.setCellValue( x, y, digit );
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the digit of a cell in the record being read.
+	 */
+	private int digitAt(final int index)
+	{
+		return PackedGridFormat.isNibblePacked( size )
+			? ( record[2 + index / 2] >>> ( ( index % 2 == 0 ) ? 4 : 0 ) ) & 0x0F
+			: record[2 + index] & 0xFF;
+	}
+
+	/**
+	 * Returns true if the last record read held a solution.
+	 */
+	public boolean hasSolution()
+	{
+		return ( flags & PackedGridFormat.FLAG_SOLUTION ) != 0;
+	}
+
+	/**
+	 * Returns the grid size of the last record read.
+	 */
+	public int getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * Reads the next record of the given size and returns it in the text format
+	 * (see src/main/resources/format.txt): the puzzle, then a blank line and the
+	 * solution when the record holds one.
+	 *
+	 * @param gridSize	the grid size of the record
+	 * @return the text, or null at the end of the stream
+	 */
+	public String readText(final int gridSize) throws IOException
+	{
+		final BitboardGrid puzzle = new BitboardGrid( gridSize );
+		final BitboardGrid solution = new BitboardGrid( gridSize );
+
+		if ( !read( puzzle, solution ) )
+		{
+			return null;
+		}
+
+		return hasSolution() ? puzzle + "\n" + solution : puzzle.toString();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		input.close();
+	}
+}
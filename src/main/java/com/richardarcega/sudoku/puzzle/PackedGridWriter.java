@@ -0,0 +1,171 @@
+package com.richardarcega.sudoku.puzzle;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Writes puzzles, and optionally their solutions, to a stream in the packed
+ * binary format described by {@link PackedGridFormat}.
+ */
+public class PackedGridWriter implements Closeable, Flushable
+{
+	private final DataOutputStream	output;
+	private final boolean			checksum;
+	private final CRC32				crc		= new CRC32();
+
+	/**
+	 * The record being written, sized for the largest grid.
+	 */
+	private final byte[]			record	= new byte[PackedGridFormat.MAX_RECORD_SIZE];
+
+	/**
+	 * Writes the stream header.
+	 *
+	 * @param output	the destination of the records
+	 * @param checksum	whether each record ends with a CRC-32 checksum
+	 */
+	public PackedGridWriter(final OutputStream output, final boolean checksum) throws IOException
+	{
+		this.output   = new DataOutputStream( new BufferedOutputStream( output ) );
+		this.checksum = checksum;
+
+		this.output.writeInt( PackedGridFormat.MAGIC );
+		this.output.writeByte( PackedGridFormat.VERSION );
+	}
+
+	/**
+	 * Writes a puzzle without a solution.
+	 *
+	 * @param puzzle	the puzzle
+	 */
+	public void write(final Grid puzzle) throws IOException
+	{
+		write( puzzle, null );
+	}
+
+	/**
+	 * Writes a puzzle with its solution.
+	 *
+	 * @param puzzle	the puzzle
+	 * @param solution	the solution, or null to write the puzzle alone
+	 * @throws IllegalArgumentException if the solution is incomplete or does not agree with the givens
+	 */
+	public void write(final Grid puzzle, final Grid solution) throws IOException
+	{
+		final int size = puzzle.size();
+		final int numCells = size * size;
+		final int cellBytes = PackedGridFormat.cellBytes( size );
+
+		checkArgument( Units.isValidSize( size ), "Grid size must be one of 4, 9, 16 or 25. Specified: " + size );
+		checkArgument( solution == null || solution.size() == size, "Solution size must match puzzle size. Specified: " + ( solution == null ? 0 : solution.size() ) );
+
+		final int flags = ( solution != null ? PackedGridFormat.FLAG_SOLUTION : 0 )
+			| ( checksum ? PackedGridFormat.FLAG_CHECKSUM : 0 );
+		final int recordSize = PackedGridFormat.recordSize( size, flags );
+
+		Arrays.fill( record, 0, recordSize, (byte) 0 );
+
+		record[0] = (byte) size;
+		record[1] = (byte) flags;
+
+		for ( int index = 0; index < numCells; index++ )
+		{
+			final int x = index % size;
+			final int y = index / size;
+
+			final int given = puzzle.getCellValue( x, y );
+			int digit = given;
+
+			if ( solution != null )
+			{
+				digit = solution.getCellValue( x, y );
+
+				checkArgument( digit != 0, "Solution is incomplete at cell " + index );
+				checkArgument( given == 0 || given == digit, "Solution does not agree with the given at cell " + index );
+
+				if ( given != 0 )
+				{
+					record[2 + cellBytes + index / 8] |= 0x80 >>> ( index % 8 );
+				}
+			}
+
+			if ( PackedGridFormat.isNibblePacked( size ) )
+			{
+				record[2 + index / 2] |= ( index % 2 == 0 ) ? digit << 4 : digit;
+			}
+			else
+			{
+				record[2 + index] = (byte) digit;
+			}
+		}
+
+		if ( checksum )
+		{
+			crc.reset();
+			crc.update( record, 0, recordSize - 4 );
+
+			final int value = (int) crc.getValue();
+
+			record[recordSize - 4] = (byte) ( value >>> 24 );
+			record[recordSize - 3] = (byte) ( value >>> 16 );
+			record[recordSize - 2] = (byte) ( value >>> 8 );
+			record[recordSize - 1] = (byte) value;
+		}
+
+		output.write( record, 0, recordSize );
+	}
+
+	/**
+	 * Converts a puzzle file in the text format (see src/main/resources/format.txt)
+	 * and writes it, with its solution when the file contains one.
+	 *
+	 * @param puzzleFile	the puzzle file
+	 * @param size			the grid size of the puzzle
+	 */
+	public void writeText(final InputStream puzzleFile, final int size) throws IOException
+	{
+		final BitboardGrid puzzle = new BitboardGrid( size );
+		puzzle.load( puzzleFile );
+
+		final BitboardGrid solution = new BitboardGrid( size );
+
+		for ( int y = 0; y < size; y++ )
+		{
+			for ( int x = 0; x < size; x++ )
+			{
+				final int digit = puzzle.getSolutionValue( x, y );
+
+				if ( digit == 0 )
+				{
+					write( puzzle );
+					return;
+				}
+
+				solution.setCellValue( x, y, digit );
+			}
+		}
+
+		write( puzzle, solution );
+	}
+
+	@Override
+	public void flush() throws IOException
+	{
+		output.flush();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		output.close();
+	}
+}
@@ -0,0 +1,574 @@
+package com.richardarcega.sudoku.puzzle;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Generates random puzzles with a unique solution.
+ *
+ * A complete grid is filled in at random, and its clues are then removed in a
+ * random order. A clue is put back if, without it, the puzzle would have a
+ * solution other than the grid; as the only solution in question differs in that
+ * cell, the check is a search for a solution with another digit there, which
+ * usually fails fast. Removal stops when every clue has been tried, or when
+ * the minimum number of clues is reached; the fewer clues are kept, the harder
+ * the puzzles tend to be.
+ *
+ * A filter may pick the puzzles kept, such as those of a given grade: a puzzle
+ * it rejects is generated again with other random choices, up to
+ * {@link #MAX_ATTEMPTS} times.
+ *
+ * Puzzle {@code i} is derived from the seed and {@code i} alone, so a run is
+ * reproducible whatever the number of threads. Puzzles are generated in blocks
+ * on a pool of threads, and written in index order.
+ */
+public class PuzzleGenerator
+{
+	private static final Logger						log				= LoggerFactory.getLogger( PuzzleGenerator.class );
+
+	/**
+	 * The number of puzzles generated by each task.
+	 */
+	private static final int						BLOCK_SIZE		= 64;
+
+	/**
+	 * The number of times a puzzle is generated before the filter is given up on.
+	 */
+	public static final int							MAX_ATTEMPTS	= 10000;
+
+	private final Units								units;
+	private final long								seed;
+	private final int								minClues;
+	private final Predicate<? super BitboardGrid>	filter;
+
+	/**
+	 * Creates a generator of minimal standard puzzles, from which no clue can be removed.
+	 *
+	 * @param seed	the seed of every puzzle's random choices
+	 */
+	public PuzzleGenerator(final long seed)
+	{
+		this( BitboardGrid.SIZE, seed, 0 );
+	}
+
+	/**
+	 * @param size		the number of rows and columns: 4 or 9
+	 * @param seed		the seed of every puzzle's random choices
+	 * @param minClues	the number of clues at which removal stops
+	 */
+	public PuzzleGenerator(final int size, final long seed, final int minClues)
+	{
+		this( size, seed, minClues, Predicates.alwaysTrue() );
+	}
+
+	/**
+	 * @param size		the number of rows and columns: 4 or 9
+	 * @param seed		the seed of every puzzle's random choices
+	 * @param minClues	the number of clues at which removal stops
+	 * @param filter	accepts the puzzles kept; called by every generating thread at once
+	 */
+	public PuzzleGenerator(final int size, final long seed, final int minClues, final Predicate<? super BitboardGrid> filter)
+	{
+		checkArgument( size <= BitboardGrid.SIZE, "Generated puzzles must be 4x4 or 9x9. Specified: " + size );
+
+		this.units = Units.of( size );
+
+		checkArgument( minClues >= 0 && minClues <= units.getNumCells(),
+			"Minimum clues must be >= 0 and <= " + units.getNumCells() + ". Specified: " + minClues );
+
+		this.seed     = seed;
+		this.minClues = minClues;
+		this.filter   = checkNotNull( filter );
+	}
+
+	/**
+	 * Returns the puzzle with the given index, its solution loaded alongside it
+	 * (see {@link BitboardGrid#getSolutionValue(int, int)}).
+	 *
+	 * @throws IllegalStateException if the filter rejects {@link #MAX_ATTEMPTS} puzzles in a row
+	 */
+	public BitboardGrid generate(final long index)
+	{
+		return generate( new Search( units, minClues ), index );
+	}
+
+	/**
+	 * Generates the puzzle with the given index until the filter accepts it.
+	 * The first attempt makes the same choices as an unfiltered generator.
+	 */
+	private BitboardGrid generate(final Search search, final long index)
+	{
+		final long puzzleSeed = mix( seed, index );
+
+		for ( int attempt = 0; attempt < MAX_ATTEMPTS; attempt++ )
+		{
+			final BitboardGrid puzzle = search.generate( new Random( ( attempt == 0 ) ? puzzleSeed : mix( puzzleSeed, attempt ) ) );
+
+			if ( filter.apply( puzzle ) )
+			{
+				return puzzle;
+			}
+		}
+
+		throw new IllegalStateException( "No puzzle " + index + " accepted by " + filter + " in " + MAX_ATTEMPTS + " attempts" );
+	}
+
+	/**
+	 * Generates puzzles and writes them to the output in the single-line
+	 * format, one per line. The output is not closed.
+	 *
+	 * @param count			the number of puzzles
+	 * @param numThreads	the number of generating threads
+	 *
+	 * @return the number of puzzles written
+	 */
+	public long writeLines(final long count, final int numThreads, final Writer output) throws IOException, InterruptedException
+	{
+		final long written = generate( count, numThreads, new Sink()
+		{
+			@Override
+			public void write(final long index, final BitboardGrid puzzle) throws IOException
+			{
+				output.write( puzzle.toLine() );
+				output.write( '\n' );
+			}
+		} );
+
+		output.flush();
+
+		return written;
+	}
+
+	/**
+	 * Generates puzzles and writes each to a file of the directory, named
+	 * {@code puzzle-<index>.txt}, in the text format with its solution.
+	 *
+	 * @param count			the number of puzzles
+	 * @param numThreads	the number of generating threads
+	 *
+	 * @return the number of puzzles written
+	 */
+	public long writeFiles(final long count, final int numThreads, final Path directory) throws IOException, InterruptedException
+	{
+		Files.createDirectories( directory );
+
+		return generate( count, numThreads, new Sink()
+		{
+			@Override
+			public void write(final long index, final BitboardGrid puzzle) throws IOException
+			{
+				final BitboardGrid solution = new BitboardGrid( puzzle.size() );
+
+				for ( int y = 0; y < puzzle.size(); y++ )
+				{
+					for ( int x = 0; x < puzzle.size(); x++ )
+					{
+						solution.setCellValue( x, y, puzzle.getSolutionValue( x, y ) );
+					}
+				}
+
+				final String text = puzzle.toString() + "\n" + solution.toString();
+
+				Files.write( directory.resolve( "puzzle-" + index + ".txt" ), text.getBytes( StandardCharsets.US_ASCII ) );
+			}
+		} );
+	}
+
+	/**
+	 * The destination of generated puzzles, called in index order.
+	 */
+	private interface Sink
+	{
+		void write(long index, BitboardGrid puzzle) throws IOException;
+	}
+
+	private long generate(final long count, final int numThreads, final Sink sink) throws IOException, InterruptedException
+	{
+		checkArgument( count >= 0, "Number of puzzles must be >= 0. Specified: " + count );
+		checkArgument( numThreads > 0, "Number of threads must be > 0. Specified: " + numThreads );
+
+		final ExecutorService pool = Executors.newFixedThreadPool( numThreads,
+			new ThreadFactoryBuilder().setNameFormat( "puzzle-generator-%d" ).setDaemon( true ).build() );
+
+		// the blocks submitted but not yet written, in index order
+		final Deque<Future<BitboardGrid[]>> window = new ArrayDeque<Future<BitboardGrid[]>>();
+
+		final long start = System.nanoTime();
+		long next = 0;
+		long written = 0;
+
+		try
+		{
+			while ( written < count )
+			{
+				while ( next < count && window.size() < 2 * numThreads )
+				{
+					final long first = next;
+					final int size = (int) Math.min( BLOCK_SIZE, count - first );
+
+					window.add( pool.submit( new Callable<BitboardGrid[]>()
+					{
+						@Override
+						public BitboardGrid[] call()
+						{
+							final Search search = new Search( units, minClues );
+							final BitboardGrid[] puzzles = new BitboardGrid[size];
+
+							for ( int i = 0; i < size; i++ )
+							{
+								puzzles[i] = generate( search, first + i );
+							}
+
+							return puzzles;
+						}
+					} ) );
+
+					next += size;
+				}
+
+				for ( final BitboardGrid puzzle : window.poll().get() )
+				{
+					sink.write( written++, puzzle );
+				}
+			}
+		}
+		catch ( final ExecutionException e )
+		{
+			throw new IllegalStateException( "Puzzle generator thread failed", e.getCause() );
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+
+		final long elapsed = System.nanoTime() - start;
+		log.info( "Generated " + written + " puzzles in " + elapsed / 1000000 + " ms ("
+			+ ( ( elapsed > 0 ) ? written * 1000000000L / elapsed : 0 ) + " puzzles/s)" );
+
+		return written;
+	}
+
+	/**
+	 * Returns the seed of a puzzle's random choices, spreading consecutive
+	 * indices across the seed space.
+	 */
+	private static long mix(final long seed, final long index)
+	{
+		long z = seed + ( index + 1 ) * 0x9E3779B97F4A7C15L;
+
+		z = ( z ^ ( z >>> 30 ) ) * 0xBF58476D1CE4E5B9L;
+		z = ( z ^ ( z >>> 27 ) ) * 0x94D049BB133111EBL;
+
+		return z ^ ( z >>> 31 );
+	}
+
+	/**
+	 * The digits of the grid being generated, with the occupancy mask of
+	 * every row, column and box. Used by one thread at a time.
+	 */
+	private static final class Search
+	{
+		private final int		size;
+		private final int		numCells;
+		private final int		allDigits;
+		private final int		minClues;
+
+		/**
+		 * The row, column and box of every cell.
+		 */
+		private final int[]		rowOf;
+		private final int[]		colOf;
+		private final int[]		boxOf;
+
+		private final int[]		cells;
+		private final int[]		rowMasks;
+		private final int[]		colMasks;
+		private final int[]		boxMasks;
+
+		private final int[]		order;
+
+		/**
+		 * The clues, kept while a search fills in the grid around them.
+		 */
+		private final int[]		clues;
+
+		/**
+		 * The cell whose removed digit the current search must avoid, and that digit as a bit.
+		 */
+		private int				excludedCell	= -1;
+		private int				excludedBit;
+
+		private Random			random;
+
+		Search(final Units units, final int minClues)
+		{
+			this.size      = units.size();
+			this.numCells  = units.getNumCells();
+			this.allDigits = units.getAllDigits();
+			this.boxOf     = units.getBoxOf();
+			this.minClues  = minClues;
+
+			cells      = new int[numCells];
+			rowMasks   = new int[size];
+			colMasks   = new int[size];
+			boxMasks   = new int[size];
+			order      = new int[numCells];
+			clues      = new int[numCells];
+			rowOf      = new int[numCells];
+			colOf      = new int[numCells];
+
+			for ( int cell = 0; cell < numCells; cell++ )
+			{
+				rowOf[cell] = cell / size;
+				colOf[cell] = cell % size;
+			}
+		}
+
+		BitboardGrid generate(final Random random)
+		{
+			this.random = random;
+
+			for ( int cell = 0; cell < numCells; cell++ )
+			{
+				cells[cell] = 0;
+				order[cell] = cell;
+			}
+
+			for ( int unit = 0; unit < size; unit++ )
+			{
+				rowMasks[unit] = 0;
+				colMasks[unit] = 0;
+				boxMasks[unit] = 0;
+			}
+
+			excludedCell = -1;
+
+			// an empty grid always has a solution
+			fill();
+
+			final BitboardGrid puzzle = new BitboardGrid( size );
+
+			for ( int cell = 0; cell < numCells; cell++ )
+			{
+				puzzle.setSolutionValue( cell, cells[cell] );
+			}
+
+			shuffle( order, numCells );
+
+			int numClues = numCells;
+
+			for ( int i = 0; i < numCells && numClues > minClues; i++ )
+			{
+				final int cell = order[i];
+				final int digit = cells[cell];
+
+				clear( cell, digit );
+
+				// the cell's only candidate, or no other solution exists without the clue
+				if ( Integer.bitCount( candidates( cell ) ) == 1 || !hasOtherSolution( cell, digit ) )
+				{
+					numClues--;
+				}
+				else
+				{
+					set( cell, digit );
+				}
+			}
+
+			for ( int cell = 0; cell < numCells; cell++ )
+			{
+				if ( cells[cell] != 0 )
+				{
+					puzzle.setCellValue( cell % size, cell / size, cells[cell] );
+				}
+			}
+
+			return puzzle;
+		}
+
+		/**
+		 * Returns true if the grid, without the clue of the cell, has a solution
+		 * with another digit in that cell. The grid is left unchanged.
+		 */
+		private boolean hasOtherSolution(final int cell, final int digit)
+		{
+			System.arraycopy( cells, 0, clues, 0, numCells );
+
+			excludedCell = cell;
+			excludedBit  = 1 << ( digit - 1 );
+
+			final boolean found = fill();
+
+			excludedCell = -1;
+
+			// undo the search's placements, leaving only the clues
+			for ( int i = 0; i < numCells; i++ )
+			{
+				if ( cells[i] != clues[i] )
+				{
+					clear( i, cells[i] );
+				}
+			}
+
+			return found;
+		}
+
+		/**
+		 * Fills in the empty cells, trying the candidates of the cell with the
+		 * fewest in a random order.
+		 *
+		 * @return false if the grid cannot be completed, in which case it is left unchanged
+		 */
+		private boolean fill()
+		{
+			int best = -1;
+			int bestCandidates = 0;
+			int fewest = Integer.MAX_VALUE;
+
+			for ( int cell = 0; cell < numCells; cell++ )
+			{
+				if ( cells[cell] == 0 )
+				{
+					final int candidates = candidates( cell );
+					final int count = Integer.bitCount( candidates );
+
+					if ( count < fewest )
+					{
+						best = cell;
+						bestCandidates = candidates;
+						fewest = count;
+
+						if ( count <= 1 )
+						{
+							break;
+						}
+					}
+				}
+			}
+
+			if ( best < 0 )
+			{
+				return true;
+			}
+
+			// the order of the digits only matters when filling a complete grid
+			if ( excludedCell >= 0 )
+			{
+				for ( int remaining = bestCandidates; remaining != 0; remaining &= remaining - 1 )
+				{
+					if ( tryDigit( best, Integer.numberOfTrailingZeros( remaining ) + 1 ) )
+					{
+						return true;
+					}
+				}
+
+				return false;
+			}
+
+			final int[] digits = new int[fewest];
+
+			for ( int i = 0, remaining = bestCandidates; remaining != 0; remaining &= remaining - 1 )
+			{
+				digits[i++] = Integer.numberOfTrailingZeros( remaining ) + 1;
+			}
+
+			shuffle( digits, fewest );
+
+			for ( final int digit : digits )
+			{
+				if ( tryDigit( best, digit ) )
+				{
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		/**
+		 * Places the digit and fills in the rest of the grid.
+		 *
+		 * @return false if the grid cannot be completed, in which case the digit is removed
+		 */
+		private boolean tryDigit(final int cell, final int digit)
+		{
+			set( cell, digit );
+
+			if ( fill() )
+			{
+				return true;
+			}
+
+			clear( cell, digit );
+
+			return false;
+		}
+
+		private int candidates(final int cell)
+		{
+			int candidates = ~( rowMasks[rowOf[cell]] | colMasks[colOf[cell]] | boxMasks[boxOf[cell]] ) & allDigits;
+
+			if ( cell == excludedCell )
+			{
+				candidates &= ~excludedBit;
+			}
+
+			return candidates;
+		}
+
+		private void set(final int cell, final int digit)
+		{
+			final int bit = 1 << ( digit - 1 );
+
+			cells[cell] = digit;
+			rowMasks[rowOf[cell]] |= bit;
+			colMasks[colOf[cell]] |= bit;
+			boxMasks[boxOf[cell]] |= bit;
+		}
+
+		private void clear(final int cell, final int digit)
+		{
+			final int bit = ~( 1 << ( digit - 1 ) );
+
+			cells[cell] = 0;
+			rowMasks[rowOf[cell]] &= bit;
+			colMasks[colOf[cell]] &= bit;
+			boxMasks[boxOf[cell]] &= bit;
+		}
+
+		/**
+		 * Shuffles the first n values of the array.
+		 */
+		private void shuffle(final int[] values, final int n)
+		{
+			for ( int i = n - 1; i > 0; i-- )
+			{
+				final int j = random.nextInt( i + 1 );
+				final int value = values[i];
+				values[i] = values[j];
+				values[j] = value;
+			}
+		}
+	}
+}
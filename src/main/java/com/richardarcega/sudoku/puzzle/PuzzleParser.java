@@ -0,0 +1,482 @@
+package com.richardarcega.sudoku.puzzle;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Reads puzzles from text, detecting the format from the lines themselves:
+ * <ul>
+ * <li>{@link Format#BOXED}: the format of the puzzle files (see src/main/resources/format.txt),
+ * one row per line with the cells separated by spaces or '|', and optionally a
+ * solution after a blank line</li>
+ * <li>{@link Format#SDK}: one row per line without separators, as in .sdk files</li>
+ * <li>{@link Format#LINE}: every cell on a single line, as in the single-line format
+ * and the .sdm collections of one puzzle per line</li>
+ * </ul>
+ *
+ * Cells are written as in {@link Grid#toDigit(char)}, with '.' or '0' denoting an
+ * empty cell; grids larger than 9x9 may also write a digit as a two-digit number
+ * between separators. Lines starting with '#' are comments, and lines which are not
+ * rows (such as the separators between boxes or section headers) are skipped.
+ *
+ * The text is parsed in a single pass straight from a {@link CharSequence}, a byte
+ * array or a {@link ByteBuffer} of ASCII text, without creating objects for its
+ * lines or tokens. Each call reads one puzzle and returns where it ended, so that a
+ * collection of puzzles can be read by calling it again from there. A parser may be
+ * reused, but is not thread-safe.
+ *
+ * A solution is recognised by a blank line after the puzzle followed by a row
+ * without empty cells, so that puzzles in the row-based formats may also follow
+ * one another.
+ */
+public final class PuzzleParser
+{
+	/**
+	 * The layouts recognised by the parser.
+	 */
+	public enum Format
+	{
+		BOXED, SDK, LINE
+	}
+
+	/**
+	 * The largest grid whose digits can be written as single symbols.
+	 */
+	public static final int		MAX_SIZE	= 25;
+
+	private static final int	BLANK		= -1;
+	private static final int	COMMENT		= -2;
+	private static final int	INVALID		= -3;
+
+	private final int			size;
+	private final int			numCells;
+
+	/**
+	 * The digits of the puzzle and of its solution, indexed by {@code y * size + x}.
+	 */
+	private final byte[]		cells;
+	private final byte[]		solution;
+
+	/**
+	 * The cells of the line being read.
+	 */
+	private final byte[]		row;
+
+	/**
+	 * Whether the line read held more than one token, and the index of its '\n'
+	 * (or of the end of the input).
+	 */
+	private boolean				separated;
+	private int					lineEnd;
+
+	private Format				format;
+	private int					numSolutionRows;
+
+	private final TextInput		textInput	= new TextInput();
+	private final BytesInput	bytesInput	= new BytesInput();
+	private final BufferInput	bufferInput	= new BufferInput();
+
+	/**
+	 * Creates a parser for the standard 9x9 grid.
+	 */
+	public PuzzleParser()
+	{
+		this( BitboardGrid.SIZE );
+	}
+
+	/**
+	 * Creates a parser for grids of the specified size.
+	 *
+	 * @param size	the number of rows (equivalently, columns) of the grid
+	 */
+	public PuzzleParser(final int size)
+	{
+		checkArgument( size > 1 && size <= MAX_SIZE, "Grid size must be > 1 and <= " + MAX_SIZE + ". Specified: " + size );
+
+		this.size = size;
+		numCells  = size * size;
+		cells     = new byte[numCells];
+		solution  = new byte[numCells];
+		row       = new byte[numCells];
+	}
+
+	/**
+	 * Reads the first puzzle of the text.
+	 *
+	 * @see #parse(CharSequence, int, int)
+	 */
+	public int parse(final CharSequence text)
+	{
+		return parse( text, 0, text.length() );
+	}
+
+	/**
+	 * Reads the first puzzle of a range of the text.
+	 *
+	 * @param text	the text
+	 * @param start	the index of the first character to read
+	 * @param end	the index after the last character to read
+	 *
+	 * @return the index after the puzzle and any solution, or -1 if the range holds
+	 * 			nothing but blank lines and comments
+	 * @throws IllegalArgumentException if the range holds no complete puzzle
+	 */
+	public int parse(final CharSequence text, final int start, final int end)
+	{
+		checkPositionIndexes( start, end, text.length() );
+
+		textInput.text = text;
+
+		try
+		{
+			return parse( textInput, start, end );
+		}
+		finally
+		{
+			textInput.text = null;
+		}
+	}
+
+	/**
+	 * Reads the first puzzle of an array of ASCII bytes.
+	 *
+	 * @see #parse(byte[], int, int)
+	 */
+	public int parse(final byte[] bytes)
+	{
+		return parse( bytes, 0, bytes.length );
+	}
+
+	/**
+	 * Reads the first puzzle of a range of an array of ASCII bytes.
+	 *
+	 * @see #parse(CharSequence, int, int)
+	 */
+	public int parse(final byte[] bytes, final int start, final int end)
+	{
+		checkPositionIndexes( start, end, bytes.length );
+
+		bytesInput.bytes = bytes;
+
+		try
+		{
+			return parse( bytesInput, start, end );
+		}
+		finally
+		{
+			bytesInput.bytes = null;
+		}
+	}
+
+	/**
+	 * Reads the first puzzle of a range of a buffer of ASCII bytes, such as a mapped
+	 * file. The range is given by absolute indices and the buffer's position is not
+	 * changed.
+	 *
+	 * @see #parse(CharSequence, int, int)
+	 */
+	public int parse(final ByteBuffer buffer, final int start, final int end)
+	{
+		checkPositionIndexes( start, end, buffer.limit() );
+
+		bufferInput.buffer = buffer;
+
+		try
+		{
+			return parse( bufferInput, start, end );
+		}
+		finally
+		{
+			bufferInput.buffer = null;
+		}
+	}
+
+	private int parse(final Input input, final int start, final int end)
+	{
+		Arrays.fill( cells, (byte) 0 );
+		Arrays.fill( solution, (byte) 0 );
+
+		format          = null;
+		numSolutionRows = 0;
+
+		int numRows = 0;
+
+		// whether a line other than a blank line or comment precedes the puzzle
+		boolean content = false;
+
+		// whether a blank line follows the puzzle, introducing its solution
+		boolean blank = false;
+
+		for ( int lineStart = start; lineStart < end; )
+		{
+			final int numLineCells = readLine( input, lineStart, end );
+			final int next = Math.min( lineEnd + 1, end );
+
+			if ( numLineCells == BLANK )
+			{
+				blank = ( numRows == size );
+			}
+			else if ( numLineCells == COMMENT )
+			{
+				// skipped wherever it appears
+			}
+			else if ( numRows < size )
+			{
+				content = true;
+
+				if ( numRows == 0 && numLineCells == numCells )
+				{
+					System.arraycopy( row, 0, cells, 0, numCells );
+					format = Format.LINE;
+
+					return next;
+				}
+
+				if ( numLineCells == size )
+				{
+					if ( numRows == 0 )
+					{
+						format = separated ? Format.BOXED : Format.SDK;
+					}
+
+					System.arraycopy( row, 0, cells, numRows * size, size );
+					numRows++;
+				}
+			}
+			else if ( numLineCells == size && ( numSolutionRows > 0 || blank && isRowFilled() ) )
+			{
+				System.arraycopy( row, 0, solution, numSolutionRows * size, size );
+
+				if ( ++numSolutionRows == size )
+				{
+					return next;
+				}
+			}
+			else if ( numLineCells != INVALID || numSolutionRows == 0 )
+			{
+				// the start of the next puzzle
+				return lineStart;
+			}
+
+			lineStart = next;
+		}
+
+		if ( numRows == size )
+		{
+			return end;
+		}
+
+		if ( !content )
+		{
+			return -1;
+		}
+
+		throw new IllegalArgumentException( "Expected " + size + " rows of " + size + " cells, or a line of "
+			+ numCells + " cells, but found " + numRows + " rows" );
+	}
+
+	/**
+	 * Reads the cells of the line starting at an index into {@link #row}, and
+	 * records where the line ends in {@link #lineEnd}.
+	 *
+	 * @return the number of cells, or {@link #BLANK}, {@link #COMMENT} or {@link #INVALID}
+	 * 			if the line holds something other than cells
+	 */
+	private int readLine(final Input input, final int start, final int end)
+	{
+		int numLineCells = 0;
+		int numTokens    = 0;
+		int tokenLength  = 0;
+		int result       = BLANK;
+
+		// whether the token being read is written in decimal digits only
+		boolean decimal = true;
+
+		int i = start;
+
+		for ( ; i <= end; i++ )
+		{
+			final char c = ( i < end ) ? input.charAt( i ) : '\n';
+
+			if ( c == ' ' || c == '|' || c == '\t' || c == '\r' || c == '\n' )
+			{
+				if ( tokenLength != 0 )
+				{
+					// a digit above 9 written as a number
+					if ( decimal && tokenLength == 2 && size > 9 )
+					{
+						final int digit = row[numLineCells - 2] * 10 + row[numLineCells - 1];
+
+						if ( digit > size )
+						{
+							result = INVALID;
+							break;
+						}
+
+						row[--numLineCells - 1] = (byte) digit;
+					}
+
+					tokenLength = 0;
+					decimal     = true;
+					result      = numLineCells;
+
+					// a whole puzzle may be followed by other fields, such as a rating
+					if ( ++numTokens == 1 && numLineCells == numCells )
+					{
+						break;
+					}
+				}
+
+				if ( c == '\n' )
+				{
+					break;
+				}
+
+				continue;
+			}
+
+			if ( numTokens == 0 && tokenLength == 0 && c == '#' )
+			{
+				result = COMMENT;
+				break;
+			}
+
+			final int digit = Grid.toDigit( c );
+
+			if ( digit < 0 || digit > size || numLineCells == numCells )
+			{
+				result = INVALID;
+				break;
+			}
+
+			row[numLineCells++] = (byte) digit;
+			decimal &= ( c >= '0' && c <= '9' );
+			tokenLength++;
+		}
+
+		while ( i < end && input.charAt( i ) != '\n' )
+		{
+			i++;
+		}
+
+		lineEnd   = i;
+		separated = numTokens > 1;
+
+		return result;
+	}
+
+	/**
+	 * Returns true if the line read has no empty cells, as the rows of a solution
+	 * must; otherwise it begins another puzzle.
+	 */
+	private boolean isRowFilled()
+	{
+		for ( int x = 0; x < size; x++ )
+		{
+			if ( row[x] == 0 )
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the number of rows (equivalently, columns) of the grids read.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns the format of the last puzzle read, or null if none was read.
+	 */
+	public Format getFormat()
+	{
+		return format;
+	}
+
+	/**
+	 * Returns the digit of a cell of the last puzzle read, 0 for an empty cell.
+	 *
+	 * @param x		the x coordinate of the cell
+	 * @param y		the y coordinate of the cell
+	 */
+	public int getCellValue(final int x, final int y)
+	{
+		checkElementIndex( x, size, "x coordinate" );
+		checkElementIndex( y, size, "y coordinate" );
+
+		return cells[y * size + x];
+	}
+
+	/**
+	 * Returns the digit of a cell of the solution following the last puzzle read, or
+	 * 0 if there was no solution or it did not include the cell's row.
+	 *
+	 * @param x		the x coordinate of the cell
+	 * @param y		the y coordinate of the cell
+	 */
+	public int getSolutionValue(final int x, final int y)
+	{
+		checkElementIndex( x, size, "x coordinate" );
+		checkElementIndex( y, size, "y coordinate" );
+
+		return solution[y * size + x];
+	}
+
+	/**
+	 * Returns true if a solution followed the last puzzle read.
+	 */
+	public boolean hasSolution()
+	{
+		return numSolutionRows > 0;
+	}
+
+	/**
+	 * The characters being parsed, whatever holds them.
+	 */
+	private abstract static class Input
+	{
+		abstract char charAt(int index);
+	}
+
+	private static final class TextInput extends Input
+	{
+		CharSequence text;
+
+		@Override
+		char charAt(final int index)
+		{
+			return text.charAt( index );
+		}
+	}
+
+	private static final class BytesInput extends Input
+	{
+		byte[] bytes;
+
+		@Override
+		char charAt(final int index)
+		{
+			return (char) ( bytes[index] & 0xFF );
+		}
+	}
+
+	private static final class BufferInput extends Input
+	{
+		ByteBuffer buffer;
+
+		@Override
+		char charAt(final int index)
+		{
+			return (char) ( buffer.get( index ) & 0xFF );
+		}
+	}
+}
@@ -2,18 +2,11 @@ package com.richardarcega.sudoku.puzzle;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.List;
 
-import com.google.common.base.CharMatcher;
-import com.google.common.base.Splitter;
 import com.google.common.collect.ArrayTable;
 import com.google.common.collect.ContiguousSet;
 import com.google.common.collect.DiscreteDomain;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Range;
 import com.google.common.collect.Table;
@@ -66,72 +59,60 @@ public class TableGrid extends Grid
 		return grid.get( x, y );
 	}
 
+	@Override
+	public void setCellValue(final int x, final int y, final int digit)
+	{
+		checkArgument( x >= 0 && x < grid.rowKeySet().size(), "Invalid x coordinate: " + x );
+		checkArgument( y >= 0 && y < grid.columnKeySet().size(), "Invalid y coordinate: " + y );
+
+		grid.put( x, y, digit );
+	}
+
+	@Override
+	public int size()
+	{
+		return grid.rowKeySet().size();
+	}
+
 	/**
-	 * Loads a puzzle grid from an InputStream (typically a text file),
-	 * and stores in a Table-based representation.
+	 * Stores the puzzle and any solution read by the parser in the Table-based
+	 * representation.
 	 *
-	 * See src/main/resources/format.txt for the format of the puzzle
-	 * text file.
-	 *
-	 * @param puzzleFile	the file containing the sudoku puzzle
+	 * @param parser	a parser for grids of this size
 	 */
 	@Override
-	public void load(final InputStream puzzleFile) throws IOException
+	public void load(final PuzzleParser parser)
 	{
-		try ( BufferedReader reader = new BufferedReader( new InputStreamReader( puzzleFile ) ) )
-		{
-			String line = null;
+		checkArgument( parser.size() == size(), "Parser size must be equal to grid size. Parser: " + parser.size() + " =/= " + "Grid: " + size() );
 
-			// Iterate through the file line-by-line, capturing the digits
-			for ( int y = 0, isSolution = 0; ( line = reader.readLine() ) != null;  )
+		for ( int y = 0; y < size(); y++ )
+		{
+			for ( int x = 0; x < size(); x++ )
 			{
-				// split and store the digits within the current line
-				final String[] digits = Iterables.toArray(
-					Splitter
-					    .on( CharMatcher.anyOf(" |") )
-						.trimResults()
-					    .omitEmptyStrings()
-					    .split( line )
-			    , String.class);
-
-				// treat a line with nine valid tokens as a valid sudoku row
-				if ( digits.length == 9)
-				{
-					for ( int x = 0; x < 9; x++)
-					{
-						// set the value of cell if it known
-						if ( Character.isDigit( digits[x].charAt(0) ) )
-						{
-							if ( isSolution == 0 )
-							{
-								grid.put( x, y, Integer.valueOf( digits[x] ) );
-							}
-							else
-							{
-								solution.put( x, y, Integer.valueOf( digits[x] ) );
-							}
-						}
-						else
-						{
-							// unsolved cell
-							grid.put( x, y, 0 );
-						}
-					}
-
-					// only increment for actual rows--ignore the dotted separators between boxes
-					y++;
-				}
+				grid.put( x, y, parser.getCellValue( x, y ) );
 
-				// a blank line serves as the separator between unsolved puzzle and its solution
-				if ( digits.length == 0 )
+				// only the known digits of the solution are stored
+				final int digit = parser.getSolutionValue( x, y );
+
+				if ( digit != 0 )
 				{
-					y = 0; 			// reset row counter for solution grid
-					isSolution = 1; // start populating the solution grid
+					solution.put( x, y, digit );
 				}
 			}
 		}
 	}
 
+	@Override
+	public TableGrid copy()
+	{
+		final TableGrid copy = new TableGrid( size(), size() );
+
+		copy.grid.putAll( grid );
+		copy.solution.putAll( solution );
+
+		return copy;
+	}
+
 	/**
 	 * Returns the empty cells in the grid.
 	 *
@@ -162,47 +143,6 @@ public class TableGrid extends Grid
 	}
 
 
-	@Override
-	public String toString()
-	{
-		final int numRows = grid.rowKeySet().size();
-		final int numCols = grid.columnKeySet().size();
-
-		final StringBuilder sb = new StringBuilder();
-
-		for ( int y = 0; y < numRows; y++ )
-		{
-			if ( y != 0 && y % 3 == 0)
-			{
-				sb.append( "------+------+------\n" );
-			}
-
-			for ( int x = 0; x < numCols; x++ )
-			{
-				if ( x != 0 && x % 3 == 0)
-				{
-					sb.append( "|" );
-				}
-
-				final Integer digit = grid.get(x, y);
-
-				if ( digit == 0 )
-				{
-					sb.append( ". " );
-				}
-				else
-				{
-					sb.append( digit + " " );
-				}
-			}
-
-			sb.append( '\n' );
-		}
-
-		return sb.toString();
-	}
-
-
 	public Table<Integer, Integer, Integer> getGrid()
 	{
 		return grid;
@@ -0,0 +1,204 @@
+package com.richardarcega.sudoku.puzzle;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Describes the geometry of a sudoku grid: its units (rows, columns and
+ * boxes) and the peers of every cell.
+ *
+ * Cells are identified by their index {@code y * size + x}. The tables are
+ * computed once per grid size and shared, so the solvers can walk a cell's
+ * peers without any coordinate arithmetic.
+ *
+ * Grids of size 4, 9, 16 and 25 are supported, so that a unit's digits always
+ * fit in an int mask.
+ */
+public final class Units
+{
+	/**
+	 * The smallest and largest supported number of rows and columns in a box.
+	 */
+	public static final int		MIN_BOX_SIZE	= 2;
+	public static final int		MAX_BOX_SIZE	= 5;
+
+	private static final Units[]	BY_BOX_SIZE	= new Units[MAX_BOX_SIZE + 1];
+
+	static
+	{
+		for ( int boxSize = MIN_BOX_SIZE; boxSize <= MAX_BOX_SIZE; boxSize++ )
+		{
+			BY_BOX_SIZE[boxSize] = new Units( boxSize );
+		}
+	}
+
+	/**
+	 * The standard 9x9 grid.
+	 */
+	public static final Units	STANDARD	= BY_BOX_SIZE[3];
+
+	private final int			boxSize;
+	private final int			size;
+	private final int			numCells;
+
+	/**
+	 * Every unit as a list of cell indices: rows, then columns, then boxes.
+	 */
+	private final int[][]		units;
+
+	/**
+	 * The indices of the three units containing each cell.
+	 */
+	private final int[][]		unitsOf;
+
+	/**
+	 * The distinct cells sharing a unit with each cell, excluding the cell itself.
+	 */
+	private final int[][]		peers;
+
+	private final int[]			boxOf;
+
+	private Units(final int boxSize)
+	{
+		this.boxSize  = boxSize;
+		this.size     = boxSize * boxSize;
+		this.numCells = size * size;
+
+		units   = new int[3 * size][size];
+		unitsOf = new int[numCells][3];
+		peers   = new int[numCells][];
+		boxOf   = new int[numCells];
+
+		for ( int y = 0; y < size; y++ )
+		{
+			for ( int x = 0; x < size; x++ )
+			{
+				final int cell = y * size + x;
+				final int box  = ( y / boxSize ) * boxSize + x / boxSize;
+				final int pos  = ( y % boxSize ) * boxSize + x % boxSize;
+
+				units[y][x]              = cell;
+				units[size + x][y]       = cell;
+				units[2 * size + box][pos] = cell;
+
+				unitsOf[cell][0] = y;
+				unitsOf[cell][1] = size + x;
+				unitsOf[cell][2] = 2 * size + box;
+
+				boxOf[cell] = box;
+			}
+		}
+
+		// rows and columns contribute (size - 1) peers each, boxes a further (boxSize - 1)^2
+		final int numPeers = 2 * ( size - 1 ) + ( boxSize - 1 ) * ( boxSize - 1 );
+
+		for ( int cell = 0; cell < numCells; cell++ )
+		{
+			final boolean[] seen = new boolean[numCells];
+			final int[] cellPeers = new int[numPeers];
+			int count = 0;
+
+			seen[cell] = true;
+
+			for ( final int unit : unitsOf[cell] )
+			{
+				for ( final int peer : units[unit] )
+				{
+					if ( !seen[peer] )
+					{
+						seen[peer] = true;
+						cellPeers[count++] = peer;
+					}
+				}
+			}
+
+			peers[cell] = cellPeers;
+		}
+	}
+
+	/**
+	 * Returns the geometry of a grid with the given number of rows and columns.
+	 *
+	 * @throws IllegalArgumentException if the size is not supported
+	 */
+	public static Units of(final int size)
+	{
+		checkArgument( isValidSize( size ), "Grid size must be one of 4, 9, 16 or 25. Specified: " + size );
+
+		return BY_BOX_SIZE[(int) Math.sqrt( size )];
+	}
+
+	/**
+	 * Returns true if a grid with the given number of rows and columns is supported.
+	 */
+	public static boolean isValidSize(final int size)
+	{
+		final int boxSize = (int) Math.sqrt( size );
+
+		return boxSize >= MIN_BOX_SIZE && boxSize <= MAX_BOX_SIZE && boxSize * boxSize == size;
+	}
+
+	/**
+	 * Returns the number of rows and columns in a box.
+	 */
+	public int getBoxSize()
+	{
+		return boxSize;
+	}
+
+	/**
+	 * Returns the number of rows (equivalently, columns or digits) in the grid.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns the number of cells in the grid.
+	 */
+	public int getNumCells()
+	{
+		return numCells;
+	}
+
+	/**
+	 * Returns the mask with a bit set for each of the digits of the grid,
+	 * bit {@code (d - 1)} corresponding to digit {@code d}.
+	 */
+	public int getAllDigits()
+	{
+		return ( 1 << size ) - 1;
+	}
+
+	/**
+	 * Returns every unit, as cell indices. Rows come first, then columns, then boxes.
+	 */
+	public int[][] getUnits()
+	{
+		return units;
+	}
+
+	/**
+	 * Returns the row, column and box unit indices of every cell.
+	 */
+	public int[][] getUnitsOf()
+	{
+		return unitsOf;
+	}
+
+	/**
+	 * Returns the peers of every cell.
+	 */
+	public int[][] getPeers()
+	{
+		return peers;
+	}
+
+	/**
+	 * Returns the box index of every cell.
+	 */
+	public int[] getBoxOf()
+	{
+		return boxOf;
+	}
+}
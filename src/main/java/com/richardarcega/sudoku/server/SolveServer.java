@@ -0,0 +1,524 @@
+package com.richardarcega.sudoku.server;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
+import com.richardarcega.sudoku.puzzle.Grid;
+import com.richardarcega.sudoku.puzzle.Puzzle;
+import com.richardarcega.sudoku.puzzle.Units;
+import com.richardarcega.sudoku.solver.Algorithm;
+import com.richardarcega.sudoku.solver.SearchAbortedException;
+import com.richardarcega.sudoku.solver.SolveLimits;
+import com.richardarcega.sudoku.solver.SolveStats;
+import com.richardarcega.sudoku.solver.SolverService;
+import com.richardarcega.sudoku.solver.UnsolvableException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Solves puzzles posted over HTTP, using the JDK's built-in server.
+ *
+ * {@code POST /solve} takes either one puzzle in the text format (see
+ * src/main/resources/format.txt), or any number of puzzles in the single-line
+ * format, one per line. It answers with one line per puzzle, in order:
+ * <pre>
+ * &lt;status&gt; TAB &lt;grid&gt; TAB &lt;microseconds&gt; TAB &lt;nodes&gt;
+ * </pre>
+ * where the status is SOLVED, UNSOLVABLE, ABORTED or INVALID, and the grid is the
+ * solution, or the puzzle as posted if it was not solved. The query parameters
+ * {@code algorithm}, {@code timeoutMs} and {@code maxNodes} select the solver and
+ * bound the search; the timeout covers the whole request. {@code GET /health}
+ * answers 200 while the server is running.
+ *
+ * Each request runs on its own thread: a virtual thread where the JDK has them,
+ * and otherwise a thread of a cached pool. At most {@code maxInFlight} requests
+ * are solved at once; the rest are turned away at once with 503 and a
+ * Retry-After header, rather than queued. A request is read and checked before
+ * it takes its place, so clients uploading slowly do not hold places.
+ */
+public class SolveServer implements Closeable
+{
+	private static final Logger	log						= LoggerFactory.getLogger( SolveServer.class );
+
+	/**
+	 * The largest request body accepted, in bytes.
+	 */
+	public static final int		MAX_REQUEST_BYTES		= 1 << 20;
+
+	/**
+	 * The timeout of a request which does not specify one, and the longest it may specify.
+	 */
+	public static final long	DEFAULT_TIMEOUT_MILLIS	= 10000;
+	public static final long	MAX_TIMEOUT_MILLIS		= 60000;
+
+	private final HttpServer		server;
+	private final ExecutorService	executor;
+	private final SolverService		service;
+
+	private final int				maxInFlight;
+	private final Semaphore			inFlight;
+	private final AtomicLong		rejected				= new AtomicLong();
+
+	/**
+	 * Creates a server on the loopback interface.
+	 *
+	 * @param port			the port, or 0 for any free port
+	 * @param service		the solvers used
+	 * @param maxInFlight	the maximum number of requests solved at once
+	 */
+	public SolveServer(final int port, final SolverService service, final int maxInFlight) throws IOException
+	{
+		this( new InetSocketAddress( InetAddress.getLoopbackAddress(), port ), service, maxInFlight );
+	}
+
+	/**
+	 * @param address		the address the server listens on
+	 * @param service		the solvers used
+	 * @param maxInFlight	the maximum number of requests solved at once
+	 */
+	public SolveServer(final InetSocketAddress address, final SolverService service, final int maxInFlight) throws IOException
+	{
+		checkArgument( maxInFlight > 0, "Maximum requests in flight must be > 0. Specified: " + maxInFlight );
+
+		this.service     = service;
+		this.maxInFlight = maxInFlight;
+		this.inFlight    = new Semaphore( maxInFlight );
+
+		this.executor = newRequestExecutor();
+		this.server   = HttpServer.create( address, 0 );
+
+		server.setExecutor( executor );
+		server.createContext( "/solve", new SolveHandler() );
+		server.createContext( "/health", new HealthHandler() );
+	}
+
+	/**
+	 * Returns an executor running each task on a new virtual thread, or a cached
+	 * pool of platform threads on JDKs without them. Found by reflection, since
+	 * the project is built for older JDKs.
+	 */
+	static ExecutorService newRequestExecutor()
+	{
+		try
+		{
+			final ExecutorService executor = (ExecutorService) Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" ).invoke( null );
+
+			log.info( "Serving requests on virtual threads" );
+			return executor;
+		}
+		catch ( final ReflectiveOperationException e )
+		{
+			log.info( "Virtual threads are not available; serving requests on a cached thread pool" );
+
+			return Executors.newCachedThreadPool( new ThreadFactoryBuilder().setNameFormat( "solve-server-%d" ).setDaemon( true ).build() );
+		}
+	}
+
+	public void start()
+	{
+		server.start();
+
+		log.info( "Solve server listening on " + getAddress() + " with at most " + maxInFlight + " requests in flight" );
+	}
+
+	/**
+	 * Stops accepting requests, and interrupts the searches of those in flight.
+	 */
+	@Override
+	public void close()
+	{
+		server.stop( 0 );
+		executor.shutdownNow();
+	}
+
+	public InetSocketAddress getAddress()
+	{
+		return server.getAddress();
+	}
+
+	/**
+	 * Returns the number of requests being solved.
+	 */
+	public int getInFlight()
+	{
+		return maxInFlight - inFlight.availablePermits();
+	}
+
+	/**
+	 * Returns the number of requests turned away because too many were in flight.
+	 */
+	public long getRejectedCount()
+	{
+		return rejected.get();
+	}
+
+	private final class SolveHandler implements HttpHandler
+	{
+		@Override
+		public void handle(final HttpExchange exchange) throws IOException
+		{
+			try
+			{
+				if ( !"POST".equals( exchange.getRequestMethod() ) )
+				{
+					exchange.getResponseHeaders().set( "Allow", "POST" );
+					send( exchange, 405, "Puzzles must be POSTed\n" );
+					return;
+				}
+
+				final Request request;
+
+				try
+				{
+					request = readRequest( exchange );
+				}
+				catch ( final BadRequest e )
+				{
+					send( exchange, e.status, e.getMessage() + "\n" );
+					return;
+				}
+
+				if ( !inFlight.tryAcquire() )
+				{
+					rejected.incrementAndGet();
+
+					exchange.getResponseHeaders().set( "Retry-After", "1" );
+					send( exchange, 503, "Too many requests in flight\n" );
+					return;
+				}
+
+				final String response;
+
+				// the permit covers the solving only: not the upload of the request, nor
+				// the response, so that a client sending its next request as soon as it
+				// has a response is not turned away
+				try
+				{
+					response = solve( exchange, request );
+				}
+				finally
+				{
+					inFlight.release();
+				}
+
+				send( exchange, 200, response );
+			}
+			finally
+			{
+				exchange.close();
+			}
+		}
+	}
+
+	private static final class HealthHandler implements HttpHandler
+	{
+		@Override
+		public void handle(final HttpExchange exchange) throws IOException
+		{
+			try
+			{
+				send( exchange, 200, "OK\n" );
+			}
+			finally
+			{
+				exchange.close();
+			}
+		}
+	}
+
+	/**
+	 * A request read and checked, waiting to be solved.
+	 */
+	private static final class Request
+	{
+		final long			start;
+		final Algorithm		algorithm;
+		final long			deadline;
+		final long			maxNodes;
+		final List<String>	puzzles;
+
+		Request(final long start, final Algorithm algorithm, final long deadline, final long maxNodes, final List<String> puzzles)
+		{
+			this.start     = start;
+			this.algorithm = algorithm;
+			this.deadline  = deadline;
+			this.maxNodes  = maxNodes;
+			this.puzzles   = puzzles;
+		}
+	}
+
+	/**
+	 * A request which cannot be solved, with the status it is answered with.
+	 */
+	private static final class BadRequest extends Exception
+	{
+		private static final long	serialVersionUID	= 4460128537461275305L;
+
+		final int					status;
+
+		BadRequest(final int status, final String message)
+		{
+			super( message );
+
+			this.status = status;
+		}
+	}
+
+	/**
+	 * Reads the parameters and puzzles of a request.
+	 *
+	 * @throws BadRequest if they are invalid, or the body is too long
+	 */
+	private Request readRequest(final HttpExchange exchange) throws IOException, BadRequest
+	{
+		final long start = System.nanoTime();
+
+		final Algorithm algorithm;
+		final long timeoutNanos;
+		final long maxNodes;
+
+		try
+		{
+			final Map<String, String> params = parseQuery( exchange.getRequestURI() );
+
+			algorithm = params.containsKey( "algorithm" )
+				? Algorithm.valueOf( params.get( "algorithm" ) ) : service.getDefaultAlgorithm();
+
+			final long timeoutMillis = params.containsKey( "timeoutMs" )
+				? Long.parseLong( params.get( "timeoutMs" ) ) : DEFAULT_TIMEOUT_MILLIS;
+
+			checkArgument( timeoutMillis > 0 && timeoutMillis <= MAX_TIMEOUT_MILLIS,
+				"timeoutMs must be > 0 and <= " + MAX_TIMEOUT_MILLIS + ". Specified: " + timeoutMillis );
+
+			maxNodes = params.containsKey( "maxNodes" ) ? Long.parseLong( params.get( "maxNodes" ) ) : Long.MAX_VALUE;
+			checkArgument( maxNodes > 0, "maxNodes must be > 0. Specified: " + maxNodes );
+
+			service.getSolver( algorithm );
+			timeoutNanos = TimeUnit.MILLISECONDS.toNanos( timeoutMillis );
+		}
+		catch ( final IllegalArgumentException e )
+		{
+			throw new BadRequest( 400, e.getMessage() );
+		}
+
+		final byte[] body = readBody( exchange.getRequestBody() );
+
+		if ( body == null )
+		{
+			throw new BadRequest( 413, "Requests are limited to " + MAX_REQUEST_BYTES + " bytes" );
+		}
+
+		try
+		{
+			return new Request( start, algorithm, start + timeoutNanos, maxNodes, parsePuzzles( body ) );
+		}
+		catch ( final IllegalArgumentException e )
+		{
+			throw new BadRequest( 400, e.getMessage() );
+		}
+	}
+
+	/**
+	 * Solves the puzzles of a request, returning the body of the response.
+	 */
+	private String solve(final HttpExchange exchange, final Request request)
+	{
+		final StringBuilder response = new StringBuilder();
+
+		for ( final String line : request.puzzles )
+		{
+			final SolveLimits limits = SolveLimits.timeout( Math.max( 0, request.deadline - System.nanoTime() ), TimeUnit.NANOSECONDS )
+				.withMaxNodes( request.maxNodes );
+
+			solveLine( line, request.algorithm, limits, response );
+		}
+
+		exchange.getResponseHeaders().set( "X-Puzzles", Integer.toString( request.puzzles.size() ) );
+		exchange.getResponseHeaders().set( "X-Elapsed-Micros", Long.toString( ( System.nanoTime() - request.start ) / 1000 ) );
+
+		return response.toString();
+	}
+
+	/**
+	 * Solves one puzzle in the single-line format, appending its result line.
+	 */
+	private void solveLine(final String line, final Algorithm algorithm, final SolveLimits limits, final StringBuilder response)
+	{
+		final long start = System.nanoTime();
+
+		String status;
+		String grid = line;
+		long nodes = 0;
+
+		try
+		{
+			final BitboardGrid puzzle = new BitboardGrid( (int) Math.sqrt( line.length() ) );
+			puzzle.loadLine( line );
+
+			final SolveStats stats = service.solve( new Puzzle( puzzle ), algorithm, limits );
+
+			status = "SOLVED";
+			grid   = puzzle.toLine();
+			nodes  = stats.getNodes();
+		}
+		catch ( final SearchAbortedException e )
+		{
+			status = "ABORTED";
+			nodes  = e.getStats().getNodes();
+		}
+		catch ( final UnsolvableException e )
+		{
+			status = "UNSOLVABLE";
+			nodes  = service.getSolver( algorithm ).getLastStats().getNodes();
+		}
+		catch ( final IllegalArgumentException e )
+		{
+			status = "INVALID";
+		}
+
+		response.append( status ).append( '\t' ).append( grid ).append( '\t' )
+			.append( ( System.nanoTime() - start ) / 1000 ).append( '\t' ).append( nodes ).append( '\n' );
+	}
+
+	/**
+	 * Returns the puzzles of a request body in the single-line format. A body
+	 * holding a box separator ('|') is read as one puzzle in the text format.
+	 *
+	 * @throws IllegalArgumentException if the body holds no puzzle
+	 */
+	static List<String> parsePuzzles(final byte[] body) throws IOException
+	{
+		final String text = new String( body, StandardCharsets.US_ASCII );
+		final List<String> puzzles = Lists.newArrayList();
+
+		if ( text.indexOf( '|' ) >= 0 )
+		{
+			final int size = countCells( text );
+
+			checkArgument( Units.isValidSize( size ), "Text puzzle rows must have 4, 9, 16 or 25 cells. Found: " + size );
+
+			final BitboardGrid grid = new BitboardGrid( size );
+			grid.load( new ByteArrayInputStream( body ) );
+
+			puzzles.add( grid.toLine() );
+		}
+		else
+		{
+			for ( final String line : Splitter.on( '\n' ).trimResults().omitEmptyStrings().split( text ) )
+			{
+				puzzles.add( line );
+			}
+		}
+
+		checkArgument( !puzzles.isEmpty(), "The request holds no puzzle" );
+
+		return puzzles;
+	}
+
+	/**
+	 * Returns the number of cells in the first row of a puzzle in the text format.
+	 */
+	private static int countCells(final String text)
+	{
+		for ( final String line : Splitter.on( '\n' ).trimResults().omitEmptyStrings().split( text ) )
+		{
+			int numCells = 0;
+
+			for ( int i = 0; i < line.length(); i++ )
+			{
+				if ( Grid.toDigit( line.charAt( i ) ) >= 0 )
+				{
+					numCells++;
+				}
+			}
+
+			if ( numCells > 0 )
+			{
+				return numCells;
+			}
+		}
+
+		return 0;
+	}
+
+	private static Map<String, String> parseQuery(final URI uri)
+	{
+		final Map<String, String> params = Maps.newHashMap();
+
+		if ( uri.getRawQuery() != null )
+		{
+			for ( final String param : Splitter.on( '&' ).omitEmptyStrings().split( uri.getRawQuery() ) )
+			{
+				final int equals = param.indexOf( '=' );
+
+				checkArgument( equals > 0, "Malformed query parameter: " + param );
+
+				params.put( param.substring( 0, equals ), param.substring( equals + 1 ) );
+			}
+		}
+
+		return params;
+	}
+
+	/**
+	 * Reads a request body.
+	 *
+	 * @return the body, or null if it is longer than {@link #MAX_REQUEST_BYTES}
+	 */
+	private static byte[] readBody(final InputStream input) throws IOException
+	{
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[8192];
+
+		for ( int n; ( n = input.read( buffer ) ) > 0; )
+		{
+			if ( body.size() + n > MAX_REQUEST_BYTES )
+			{
+				return null;
+			}
+
+			body.write( buffer, 0, n );
+		}
+
+		return body.toByteArray();
+	}
+
+	private static void send(final HttpExchange exchange, final int status, final String body) throws IOException
+	{
+		final byte[] bytes = body.getBytes( StandardCharsets.US_ASCII );
+
+		exchange.getResponseHeaders().set( "Content-Type", "text/plain; charset=US-ASCII" );
+		exchange.sendResponseHeaders( status, bytes.length );
+
+		try ( OutputStream output = exchange.getResponseBody() )
+		{
+			output.write( bytes );
+		}
+	}
+}
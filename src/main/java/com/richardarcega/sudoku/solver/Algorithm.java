@@ -17,6 +17,14 @@ public enum Algorithm
 	DLX
 	{
 
+	},
+	FORK_JOIN
+	{
+
+	},
+	PORTFOLIO
+	{
+
 	};
 
 	@Override
@@ -33,6 +41,10 @@ public enum Algorithm
 			case DLX:
 				System.out.println( "Peter Norvig's Sudoku Solution using CPS" );
 				break;
+			case FORK_JOIN:
+				return "Constraint propagation with a parallel fork/join search";
+			case PORTFOLIO:
+				return "A portfolio of algorithms raced on separate threads";
 		}
 
 		return super.toString();
@@ -1,21 +1,20 @@
 package com.richardarcega.sudoku.solver;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
-import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.ArrayTable;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
 import com.richardarcega.sudoku.puzzle.Cell;
 import com.richardarcega.sudoku.puzzle.Grid;
 import com.richardarcega.sudoku.puzzle.Puzzle;
-import com.richardarcega.sudoku.puzzle.TableGrid;
 
 /**
  * Solves a sudoku puzzle using a backtracking algorithm.
@@ -26,136 +25,777 @@ import com.richardarcega.sudoku.puzzle.TableGrid;
  * when they cannot possibly lead to a valid solution.
  * Once this occurs, the algorithm backtracks to an earlier
  * state to try a different guess.
+ *
+ * A search made by {@link #solve(Puzzle, SolveLimits)} can be saved as a
+ * {@link SearchCheckpoint}: at intervals, to a listener, and when it is stopped
+ * by its limits or by interruption. {@link #resume(SearchCheckpoint, Puzzle, SolveLimits)}
+ * carries on from a checkpoint, in this JVM or another, placing the same guesses
+ * in the same order as the uninterrupted search.
  */
 public class BacktrackSudokuSolver extends SudokuSolver
 {
+	private static final Logger log = LoggerFactory.getLogger( BacktrackSudokuSolver.class );
+
+	private final CellSelection			selection;
+
 	/**
-	 * The sudoku puzzle to be solved.
+	 * Receives the checkpoints of every solve, every {@link #checkpointInterval} nanoseconds.
 	 */
-	private Puzzle puzzle;
+	private volatile SearchCheckpoint.Listener	checkpointListener;
+	private volatile long						checkpointInterval;
 
-	private static final Logger log = LoggerFactory.getLogger( BacktrackSudokuSolver.class );
+	/**
+	 * The checkpoint each thread is resuming from, and the checkpoint of its last
+	 * solve if that was stopped. Set to null rather than removed, so as not to
+	 * allocate a new entry for every solve.
+	 */
+	private final ThreadLocal<SearchCheckpoint>	resuming		= new ThreadLocal<SearchCheckpoint>();
+	private final ThreadLocal<SearchCheckpoint>	lastCheckpoint	= new ThreadLocal<SearchCheckpoint>();
+
+	/**
+	 * The puzzle set by each thread for {@link #getCandidates(int, int)} and
+	 * {@link #isValidGuess(int, int, int)}, apart from the searches.
+	 */
+	private final ThreadLocal<Search>	examined	= new ThreadLocal<Search>()
+	{
+		@Override
+		protected Search initialValue()
+		{
+			return new Search( selection );
+		}
+	};
+
+	public BacktrackSudokuSolver()
+	{
+		this( CellSelection.STATIC );
+	}
+
+	/**
+	 * @param selection	the order in which the empty cells are visited
+	 */
+	public BacktrackSudokuSolver(final CellSelection selection)
+	{
+		super( Algorithm.BACKTRACK );
+
+		this.selection = selection;
+	}
+
+	@Override
+	SearchContext newContext()
+	{
+		return new Search( selection );
+	}
 
 	@Override
-	public void solve(final Puzzle puzzle) throws UnsolvableException
+	void solvePuzzle(final Puzzle puzzle, final SearchContext context) throws UnsolvableException
 	{
-		this.puzzle = puzzle;
+		final Search search = (Search) context;
+		final SearchCheckpoint checkpoint = resuming.get();
 
-		for ( final ListIterator<Cell> it = getEmptyCells().listIterator(); it.hasNext(); )
+		if ( checkpoint != null )
 		{
-			final Cell cell = it.next();
+			resuming.set( null );
+		}
+
+		lastCheckpoint.set( null );
+		search.setPuzzle( puzzle );
+		search.setCheckpoints( checkpointListener, checkpointInterval );
 
-			if ( nextValidGuess(cell) )
+		final int numSolutions;
+
+		try
+		{
+			numSolutions = ( checkpoint == null ) ? search.search( 1, true ) : search.resume( checkpoint );
+		}
+		catch ( final SearchAbort e )
+		{
+			lastCheckpoint.set( search.aborted );
+			throw e;
+		}
+
+		if ( numSolutions == 0 )
+		{
+			log.info( "The puzzle is unsolvable!" );
+			throw new UnsolvableException( "The puzzle could not be solved using " + this.getClass().getSimpleName() );
+		}
+	}
+
+	@Override
+	int count(final Puzzle puzzle, final int limit, final SearchContext context)
+	{
+		final Search search = (Search) context;
+		search.setPuzzle( puzzle );
+		search.setCheckpoints( null, 0 );
+
+		try
+		{
+			return search.search( limit, false );
+		}
+		finally
+		{
+			search.clearSingles();
+		}
+	}
+
+	/**
+	 * The puzzle being solved by one thread, with the masks of the digits
+	 * placed in it.
+	 *
+	 * The empty cells are held as parallel arrays, in search order: the cell's
+	 * coordinates and box, the guesses still to be tried there, and the guess
+	 * placed. The arrays are sized for the grid and reused by every search, so
+	 * a search allocates nothing once the first puzzle of its size is set.
+	 */
+	private static final class Search extends SearchContext
+	{
+		private final CellSelection	selection;
+
+		private Puzzle				puzzle;
+
+		/**
+		 * The size of the grid and of its boxes.
+		 */
+		private int					size;
+		private int					boxSize;
+		private int					allDigits;
+
+		/**
+		 * The digits placed in each row, column and box, where bit {@code (d - 1)}
+		 * is set when digit {@code d} is present. They are updated as digits are
+		 * placed and removed, so a guess is checked with a single AND.
+		 */
+		private int[]				rowMasks;
+		private int[]				colMasks;
+		private int[]				boxMasks;
+
+		/**
+		 * False if the givens of the puzzle repeat a digit within a row, column or box.
+		 */
+		private boolean				consistent;
+
+		/**
+		 * The empty cells in search order: coordinates, box, the guesses not yet
+		 * tried as a mask, and the guess placed as a single bit.
+		 */
+		private int[]				xs;
+		private int[]				ys;
+		private int[]				boxes;
+		private int[]				untried;
+		private int[]				placed;
+
+		/**
+		 * The empty cells in row-major order, used to sort them by their number of
+		 * candidates, and the running count of cells with each number.
+		 */
+		private int[]				unsorted;
+		private int[]				counts;
+
+		/**
+		 * The cells filled as single candidates before the search, by index.
+		 */
+		private int[]				singles;
+		private int					numSingles;
+
+		/**
+		 * The receiver of checkpoints of the search, or null, the interval between
+		 * them, and the value of {@code System.nanoTime()} at which the next is due.
+		 */
+		private SearchCheckpoint.Listener	listener;
+		private long				interval;
+		private long				nextCheckpoint;
+
+		/**
+		 * The guesses made before the search was resumed, and the checkpoint of the
+		 * search if it was stopped.
+		 */
+		private long				resumedGuesses;
+		private SearchCheckpoint	aborted;
+
+		Search(final CellSelection selection)
+		{
+			this.selection = selection;
+		}
+
+		Grid getGrid()
+		{
+			return puzzle.getGrid();
+		}
+
+		/**
+		 * Searches for solutions until the limit is reached or the search space
+		 * is exhausted.
+		 *
+		 * @param limit		the number of solutions at which the search stops
+		 * @param write		whether the first solution is written to the grid
+		 *
+		 * @return the number of solutions found
+		 */
+		int search(final int limit, final boolean write)
+		{
+			if ( !consistent )
 			{
-				// assign the guess to the empty cell
-				getGrid().put( cell.getX(), cell.getY(), cell.getIterator().next() );
+				return 0;
 			}
-			else
+
+			final int numCells = prepare();
+
+			resumedGuesses = 0;
+
+			if ( numCells > 0 )
+			{
+				untried[0] = selectCell( 0, numCells );
+			}
+
+			return search( limit, write, numCells, 0 );
+		}
+
+		/**
+		 * Restores the search saved in a checkpoint of the puzzle, and continues it
+		 * until the first solution is written to the grid or the search space is
+		 * exhausted.
+		 *
+		 * @return the number of solutions found
+		 */
+		int resume(final SearchCheckpoint checkpoint)
+		{
+			checkArgument( consistent, "The checkpoint's puzzle repeats a digit" );
+
+			final int numCells = prepare();
+
+			checkArgument( numCells == checkpoint.getNumCells(),
+				"The checkpoint has " + checkpoint.getNumCells() + " cells to search. Expected: " + numCells );
+
+			for ( int position = 0; position < numCells; position++ )
+			{
+				final int index = checkpoint.getCell( position );
+
+				checkArgument( index < size * size && getGrid().getCellValue( index % size, index / size ) == 0,
+					"The checkpoint searches a cell which is not empty: " + index );
+
+				xs[position]    = index % size;
+				ys[position]    = index / size;
+				boxes[position] = ys[position] / boxSize * boxSize + xs[position] / boxSize;
+			}
+
+			final int depth = checkpoint.getDepth();
+
+			for ( int position = 0; position < depth; position++ )
 			{
-				// cannot possibly lead to a viable solution
-				// empty the current cell
-				getGrid().put( cell.getX(), cell.getY(), 0 );
+				final int bit = 1 << ( checkpoint.getDigit( position ) - 1 );
+
+				checkArgument( ( getFreeDigits( ys[position], xs[position], boxes[position] ) & bit ) != 0,
+					"The checkpoint places a digit which is not free: " + checkpoint.getDigit( position ) );
+
+				placed[position]  = bit;
+				untried[position] = checkpoint.getUntried( position );
+				toggle( ys[position], xs[position], boxes[position], bit );
+			}
+
+			untried[depth] = checkpoint.getUntried( depth );
+			resumedGuesses = checkpoint.getGuesses();
 
-				// reset the iterator to the first candidate
-				cell.setIterator( cell.getCandidates().listIterator() );
+			return search( 1, true, numCells, depth );
+		}
+
+		/**
+		 * Searches from the given depth, the cells above it holding their guesses and
+		 * the guesses still to be tried at it set.
+		 */
+		private int search(final int limit, final boolean write, final int numCells, final int start)
+		{
+			final int[] xs = this.xs;
+			final int[] ys = this.ys;
+			final int[] boxes = this.boxes;
+			final int[] untried = this.untried;
+			final int[] placed = this.placed;
 
-				// move the cursor position to before the current cell
-				it.previous();
+			int numSolutions = 0;
+			int i = start;
 
-				if ( it.hasPrevious() )
+			// counted in locals, and copied to the statistics once the search ends
+			long numGuesses = 0;
+			int deepest = 0;
+			int budget = this.budget;
+
+			aborted = null;
+
+			if ( listener != null )
+			{
+				nextCheckpoint = System.nanoTime() + interval;
+			}
+
+			try
+			{
+				while ( i >= 0 )
 				{
-					// "backtrack" to the previous cell
-					// move the cursor position to before the previous cell
-					it.previous();
+					if ( i == numCells )
+					{
+						if ( ++numSolutions == 1 && write )
+						{
+							for ( int j = 0; j < numCells; j++ )
+							{
+								getGrid().setCellValue( xs[j], ys[j], Integer.numberOfTrailingZeros( placed[j] ) + 1 );
+							}
+						}
+
+						if ( numSolutions >= limit )
+						{
+							break;
+						}
+					}
+					else if ( untried[i] != 0 )
+					{
+						if ( --budget < 0 )
+						{
+							budget = nextBudget();
+
+							if ( listener != null && System.nanoTime() - nextCheckpoint >= 0 )
+							{
+								listener.checkpoint( checkpoint( numCells, i, numGuesses ) );
+								nextCheckpoint = System.nanoTime() + interval;
+							}
+						}
+
+						// assign the next guess to the empty cell
+						placed[i] = Integer.lowestOneBit( untried[i] );
+						untried[i] ^= placed[i];
+						toggle( ys[i], xs[i], boxes[i], placed[i] );
+						numGuesses++;
+
+						if ( ++i < numCells )
+						{
+							untried[i] = selectCell( i, numCells );
+						}
+
+						if ( SolveStats.ENABLED && i > deepest )
+						{
+							deepest = i;
+						}
+
+						continue;
+					}
+
+					// cannot possibly lead to another solution
+					// "backtrack" to the previous cell and empty it
+					if ( --i >= 0 )
+					{
+						toggle( ys[i], xs[i], boxes[i], placed[i] );
+					}
+				}
+			}
+			catch ( final SearchAbort e )
+			{
+				// stopped before placing the next guess at i
+				if ( write )
+				{
+					aborted = checkpoint( numCells, i, numGuesses );
 				}
-				else
+
+				throw e;
+			}
+			finally
+			{
+				if ( SolveStats.ENABLED )
 				{
-					log.info( "The puzzle is unsolvable!" );
-					throw new UnsolvableException( "The puzzle could not be solved using " + this.getClass().getSimpleName() );
+					// every guess not still placed when the search ended was withdrawn,
+					// counting those placed before it was resumed
+					guesses    += numGuesses;
+					nodes      += numGuesses + 1;
+					backtracks += numGuesses - ( Math.max( i, 0 ) - start );
+					maxDepth    = Math.max( maxDepth, deepest );
 				}
 			}
+
+			return numSolutions;
 		}
-	}
 
-	/**
-	 * Returns the empty cells in the grid.
-	 *
-	 * Removes cells which only have a single candidate
-	 * and sorts the returned list in ascending order of
-	 * the number of candidates held by each cell.
-	 *
-	 * @return a list of empty cells
-	 */
-	public List<Cell> getEmptyCells()
-	{
-		final List<Cell> emptyCells = puzzle.getGrid().getEmptyCells();
+		/**
+		 * Sets the receiver of the checkpoints of the next search, or null for none.
+		 *
+		 * @param interval	the nanoseconds between checkpoints
+		 */
+		void setCheckpoints(final SearchCheckpoint.Listener listener, final long interval)
+		{
+			this.listener = listener;
+			this.interval = interval;
+		}
 
-		// obtain the list of possible candidate digits for each empty cell
-		for ( ListIterator<Cell> it = emptyCells.listIterator(); it.hasNext(); )
+		/**
+		 * Saves the state of the search, about to try the next guess at the given depth.
+		 *
+		 * @param numGuesses	the guesses made since the search started or was resumed
+		 */
+		private SearchCheckpoint checkpoint(final int numCells, final int depth, final long numGuesses)
 		{
-			final Cell cell = it.next();
-			final List<Integer> candidates = getCandidates( cell.getX(), cell.getY() );
+			final Grid grid = getGrid();
+			final byte[] givens = new byte[size * size];
+
+			for ( int index = 0; index < givens.length; index++ )
+			{
+				givens[index] = (byte) grid.getCellValue( index % size, index / size );
+			}
+
+			// the singles are filled again when the search is resumed
+			for ( int i = 0; i < numSingles; i++ )
+			{
+				givens[singles[i]] = 0;
+			}
+
+			final int[] cells = new int[numCells];
+			final int[] digits = new int[depth];
+
+			for ( int position = 0; position < numCells; position++ )
+			{
+				cells[position] = ys[position] * size + xs[position];
+			}
+
+			for ( int position = 0; position < depth; position++ )
+			{
+				digits[position] = Integer.numberOfTrailingZeros( placed[position] ) + 1;
+			}
+
+			return new SearchCheckpoint( size, selection, givens, resumedGuesses + numGuesses, cells, depth, digits,
+				Arrays.copyOf( untried, depth + 1 ) );
+		}
+
+		/**
+		 * Chooses the cell searched at the given position among the cells not yet
+		 * filled, moving it to that position.
+		 *
+		 * @param position	the number of cells filled so far
+		 * @param numCells	the number of empty cells
+		 *
+		 * @return the free digits of the chosen cell
+		 */
+		private int selectCell(final int position, final int numCells)
+		{
+			int free = getFreeDigits( ys[position], xs[position], boxes[position] );
+
+			if ( selection == CellSelection.STATIC )
+			{
+				return free;
+			}
+
+			int fewest = position;
+			int count = Integer.bitCount( free );
+
+			for ( int i = position + 1; i < numCells && count > 1; i++ )
+			{
+				final int candidates = getFreeDigits( ys[i], xs[i], boxes[i] );
+
+				if ( Integer.bitCount( candidates ) < count )
+				{
+					fewest = i;
+					free = candidates;
+					count = Integer.bitCount( candidates );
+				}
+			}
+
+			if ( fewest != position )
+			{
+				final int x = xs[fewest];
+				final int y = ys[fewest];
+				final int box = boxes[fewest];
+
+				System.arraycopy( xs, position, xs, position + 1, fewest - position );
+				System.arraycopy( ys, position, ys, position + 1, fewest - position );
+				System.arraycopy( boxes, position, boxes, position + 1, fewest - position );
+				xs[position] = x;
+				ys[position] = y;
+				boxes[position] = box;
+			}
+
+			return free;
+		}
+
+		/**
+		 * Fills the cells with a single candidate, and lays out the remaining empty
+		 * cells in ascending order of their number of candidates, ties keeping
+		 * row-major order. After a single is filled the cells are scanned again
+		 * from the first, as {@link #getEmptyCells()} does.
+		 *
+		 * @return the number of empty cells left to search
+		 */
+		private int prepare()
+		{
+			final Grid grid = getGrid();
+			final int numCells = size * size;
+
+			numSingles = 0;
+
+			int numEmpty = 0;
+
+			for ( int index = 0; index < numCells; index++ )
+			{
+				if ( grid.getCellValue( index % size, index / size ) == 0 )
+				{
+					unsorted[numEmpty++] = index;
+				}
+			}
 
 			// eliminate single candidates
-			if ( candidates.size() == 1 )
+			for ( int i = 0; i < numEmpty; i++ )
+			{
+				final int x = unsorted[i] % size;
+				final int y = unsorted[i] / size;
+				final int box = y / boxSize * boxSize + x / boxSize;
+				final int free = getFreeDigits( y, x, box );
+
+				if ( Integer.bitCount( free ) == 1 )
+				{
+					grid.setCellValue( x, y, Integer.numberOfTrailingZeros( free ) + 1 );
+					toggle( y, x, box, free );
+					singles[numSingles++] = unsorted[i];
+
+					System.arraycopy( unsorted, i + 1, unsorted, i, numEmpty - i - 1 );
+					numEmpty--;
+
+					if ( SolveStats.ENABLED )
+					{
+						propagations++;
+					}
+
+					// reset to the first cell
+					i = -1;
+				}
+			}
+
+			// a stable counting sort on the number of candidates
+			Arrays.fill( counts, 0 );
+
+			for ( int i = 0; i < numEmpty; i++ )
+			{
+				counts[Integer.bitCount( freeDigits( unsorted[i] ) ) + 1]++;
+			}
+
+			for ( int count = 1; count < counts.length; count++ )
+			{
+				counts[count] += counts[count - 1];
+			}
+
+			for ( int i = 0; i < numEmpty; i++ )
 			{
-				getGrid().set( cell.getX(), cell.getY(), candidates.get( 0 ) );
-				it.remove();
-				it = emptyCells.listIterator(); // reset to the first element
+				final int index = unsorted[i];
+				final int position = counts[Integer.bitCount( freeDigits( index ) )]++;
+
+				xs[position]    = index % size;
+				ys[position]    = index / size;
+				boxes[position] = ys[position] / boxSize * boxSize + xs[position] / boxSize;
 			}
 
-			cell.setCandidates( candidates );
+			return numEmpty;
 		}
 
-		// Sorts the empty cells according to the number of candidates.
-		// The cells with the least amount candidates are chosen first so as to
-		// improve the likelihood of being the correct guess.
-		Collections.sort( emptyCells, Cell.NumCandidatesComparator );
+		/**
+		 * Empties the cells filled as single candidates before the last search.
+		 */
+		void clearSingles()
+		{
+			for ( int i = 0; i < numSingles; i++ )
+			{
+				getGrid().setCellValue( singles[i] % size, singles[i] / size, 0 );
+			}
 
-		return emptyCells;
-	}
+			numSingles = 0;
+		}
 
-	/**
-	 * Returns the potential candidates for a given cell.
-	 *
-	 * @param cellX 	the cell's row
-	 * @param cellY 	the cell's column
-	 *
-	 * @return	a collection of the potential candidates
-	 */
-	public List<Integer> getCandidates(final int cellX, final int cellY)
-	{
-		final Set<Integer> givens = Sets.newHashSet();
+		private int freeDigits(final int index)
+		{
+			final int x = index % size;
+			final int y = index / size;
 
-		// row
-		for ( int x = 0; x < getGrid().columnKeySet().size(); x++ )
+			return getFreeDigits( y, x, y / boxSize * boxSize + x / boxSize );
+		}
+
+		/**
+		 * Returns the empty cells in the grid.
+		 *
+		 * Removes cells which only have a single candidate
+		 * and sorts the returned list in ascending order of
+		 * the number of candidates held by each cell.
+		 *
+		 * @return a list of empty cells
+		 */
+		List<Cell> getEmptyCells()
 		{
-			givens.add( getGrid().get( x, cellY) );
+			final List<Cell> emptyCells = puzzle.getGrid().getEmptyCells();
+
+			// obtain the list of possible candidate digits for each empty cell
+			for ( ListIterator<Cell> it = emptyCells.listIterator(); it.hasNext(); )
+			{
+				final Cell cell = it.next();
+				final List<Integer> candidates = getCandidates( cell.getX(), cell.getY() );
+
+				// eliminate single candidates
+				if ( candidates.size() == 1 )
+				{
+					getGrid().setCellValue( cell.getX(), cell.getY(), candidates.get( 0 ) );
+					toggle( cell.getY(), cell.getX(), cell.getY() / boxSize * boxSize + cell.getX() / boxSize, 1 << ( candidates.get( 0 ) - 1 ) );
+					it.remove();
+
+					if ( SolveStats.ENABLED )
+					{
+						propagations++;
+					}
+
+					it = emptyCells.listIterator(); // reset to the first element
+				}
+
+				cell.setCandidates( candidates );
+			}
+
+			// Sorts the empty cells according to the number of candidates.
+			// The cells with the least amount candidates are chosen first so as to
+			// improve the likelihood of being the correct guess.
+			Collections.sort( emptyCells, Cell.NumCandidatesComparator );
+
+			return emptyCells;
 		}
 
-		// column
-		for ( int y = 0; y < getGrid().rowKeySet().size(); y++ )
+		/**
+		 * Returns the potential candidates for a given cell.
+		 *
+		 * @param cellX 	the cell's row
+		 * @param cellY 	the cell's column
+		 *
+		 * @return	a collection of the potential candidates
+		 */
+		List<Integer> getCandidates(final int cellX, final int cellY)
 		{
-			givens.add( getGrid().get( cellX, y ) );
+			final int free = getFreeDigits( cellX, cellY );
+			final List<Integer> candidates = Lists.newArrayListWithCapacity( Integer.bitCount( free ) );
+
+			for ( int bits = free; bits != 0; bits &= bits - 1 )
+			{
+				candidates.add( Integer.numberOfTrailingZeros( bits ) + 1 );
+			}
+
+			return candidates;
 		}
 
+		/**
+		 * Returns true if the guess is valid, false otherwise.
+		 *
+		 * @param cellX	the candidate cell's x coordinate
+		 * @param cellY	the candidate cell's y coordinate
+		 * @param guess	the current candidate guess
+		 *
+		 * @return	true if the guess does not violate the rules, false otherwise.
+		 */
+		boolean isValidGuess(final int cellX, final int cellY, final int guess)
+		{
+			return ( getFreeDigits( cellX, cellY ) & ( 1 << ( guess - 1 ) ) ) != 0;
+		}
 
-		final int offset = (int) Math.pow( getGrid().size(), 1.0 / 4.0 );
+		/**
+		 * Returns the digits absent from a cell's row, column and box as a bit mask.
+		 */
+		int getFreeDigits(final int cellX, final int cellY)
+		{
+			return getFreeDigits( cellY, cellX, cellY / boxSize * boxSize + cellX / boxSize );
+		}
 
-		// coordinates of the top left cell of the containing block
-		final int topLeftX = cellX / (offset) * (offset);
-		final int topLeftY = cellY / (offset) * (offset);
+		private int getFreeDigits(final int row, final int col, final int box)
+		{
+			return ~( rowMasks[row] | colMasks[col] | boxMasks[box] ) & allDigits;
+		}
 
-		// block
-		for ( int y = topLeftY; y < topLeftY + 3; y++ )
+		/**
+		 * Places a digit in, or removes it from, the masks of a cell's row, column and box.
+		 *
+		 * @param bit	the digit, as a single bit mask
+		 */
+		private void toggle(final int row, final int col, final int box, final int bit)
 		{
-			for ( int x = topLeftX; x < topLeftX + 3; x++)
+			rowMasks[row] ^= bit;
+			colMasks[col] ^= bit;
+			boxMasks[box] ^= bit;
+		}
+
+		/**
+		 * Sets the puzzle searched, building the row, column and box masks
+		 * from its current digits.
+		 */
+		void setPuzzle(final Puzzle puzzle)
+		{
+			this.puzzle = puzzle;
+
+			final Grid grid = puzzle.getGrid();
+
+			if ( rowMasks == null || size != grid.size() )
+			{
+				size      = grid.size();
+				boxSize   = (int) Math.sqrt( size );
+				allDigits = ( 1 << size ) - 1;
+				rowMasks  = new int[size];
+				colMasks  = new int[size];
+				boxMasks  = new int[size];
+				xs        = new int[size * size];
+				ys        = new int[size * size];
+				boxes     = new int[size * size];
+				untried   = new int[size * size];
+				placed    = new int[size * size];
+				unsorted  = new int[size * size];
+				singles   = new int[size * size];
+				counts    = new int[size + 2];
+			}
+			else
 			{
-				givens.add( getGrid().get( x, y ) );
+				Arrays.fill( rowMasks, 0 );
+				Arrays.fill( colMasks, 0 );
+				Arrays.fill( boxMasks, 0 );
+			}
+
+			consistent = true;
+
+			for ( int y = 0; y < size; y++ )
+			{
+				for ( int x = 0; x < size; x++ )
+				{
+					final int digit = grid.getCellValue( x, y );
+
+					if ( digit != 0 )
+					{
+						final int bit = 1 << ( digit - 1 );
+						final int box = y / boxSize * boxSize + x / boxSize;
+
+						consistent &= ( ( rowMasks[y] | colMasks[x] | boxMasks[box] ) & bit ) == 0;
+
+						// OR rather than toggle, so that a repeated given stays marked
+						rowMasks[y] |= bit;
+						colMasks[x] |= bit;
+						boxMasks[box] |= bit;
+					}
+				}
 			}
 		}
+	}
 
-		return Lists.newArrayList( ( Sets.difference( Grid.DIGITS, givens ).copyInto( new HashSet<Integer>() ) ) );
+	/**
+	 * Returns the empty cells in the grid of the calling thread's puzzle.
+	 *
+	 * Removes cells which only have a single candidate
+	 * and sorts the returned list in ascending order of
+	 * the number of candidates held by each cell.
+	 *
+	 * @return a list of empty cells
+	 */
+	public List<Cell> getEmptyCells()
+	{
+		return search().getEmptyCells();
+	}
+
+	/**
+	 * Returns the potential candidates for a given cell.
+	 *
+	 * @param cellX 	the cell's row
+	 * @param cellY 	the cell's column
+	 *
+	 * @return	a collection of the potential candidates
+	 */
+	public List<Integer> getCandidates(final int cellX, final int cellY)
+	{
+		return search().getCandidates( cellX, cellY );
 	}
 
 	/**
@@ -169,13 +809,15 @@ public class BacktrackSudokuSolver extends SudokuSolver
 	 */
 	public boolean nextValidGuess(final Cell cell)
 	{
+		final Search search = search();
+
 		if ( cell.getCandidates() != null && cell.getCandidates().size() > 0 )
 		{
 			for ( final ListIterator<Integer> it = cell.getIterator();  it.hasNext(); )
 			{
 				final Integer candidateGuess = it.next();
 
-				if ( isValidGuess( cell.getX(), cell.getY(), candidateGuess ) )
+				if ( search.isValidGuess( cell.getX(), cell.getY(), candidateGuess ) )
 				{
 					it.previous();
 					return true;
@@ -198,47 +840,105 @@ public class BacktrackSudokuSolver extends SudokuSolver
 	 */
 	public boolean isValidGuess(final int cellX, final int cellY, final int guess)
 	{
-		// row
-		for ( int x = 0; x < getGrid().columnKeySet().size(); x++ )
+		return search().isValidGuess( cellX, cellY, guess );
+	}
+
+	public CellSelection getSelection()
+	{
+		return selection;
+	}
+
+	/**
+	 * Saves the state of every search made by {@link #solve(Puzzle, SolveLimits)}
+	 * at intervals. The listener is called on the searching thread, when the limits
+	 * are checked once the interval has passed.
+	 *
+	 * @param listener	the receiver of the checkpoints, or null for none
+	 * @param interval	the time between checkpoints of a search
+	 * @param unit		the unit of the interval
+	 */
+	public void setCheckpointListener(final SearchCheckpoint.Listener listener, final long interval, final TimeUnit unit)
+	{
+		checkArgument( interval >= 0, "Checkpoint interval must be >= 0. Specified: " + interval );
+
+		this.checkpointInterval = unit.toNanos( interval );
+		this.checkpointListener = listener;
+	}
+
+	/**
+	 * Returns the checkpoint of the calling thread's last solve if it was stopped by
+	 * its limits or by interruption, or null if it was not.
+	 */
+	public SearchCheckpoint getLastCheckpoint()
+	{
+		return lastCheckpoint.get();
+	}
+
+	/**
+	 * Resumes a search saved in a checkpoint, within new limits. The puzzle's grid
+	 * is set to the checkpoint's givens, and then to the solution. The statistics
+	 * of the search count only the guesses made since it was resumed.
+	 *
+	 * @param checkpoint	a checkpoint taken with this solver's cell selection
+	 * @param puzzle		the puzzle, of the checkpoint's size, to solve
+	 * @param limits		the limits of the resumed search
+	 *
+	 * @throws SearchAbortedException if a limit is reached, or the thread is interrupted
+	 * @throws UnsolvableException if the puzzle has no solution
+	 * @throws IllegalArgumentException if the checkpoint does not describe a search by this solver
+	 */
+	public void resume(final SearchCheckpoint checkpoint, final Puzzle puzzle, final SolveLimits limits) throws UnsolvableException
+	{
+		checkArgument( checkpoint.getSelection() == selection,
+			"Cell selection must be " + checkpoint.getSelection() + " to resume the checkpoint. Specified: " + selection );
+
+		checkpoint.loadGivens( puzzle.getGrid() );
+		resuming.set( checkpoint );
+
+		try
 		{
-			if ( getGrid().get(x, cellY) == guess)
-			{
-				return false;
-			}
+			solve( puzzle, limits );
 		}
-
-		// column
-		for ( int y = 0; y < getGrid().rowKeySet().size(); y++ )
+		finally
 		{
-			if ( getGrid().get(cellX, y) == guess)
-			{
-				return false;
-			}
+			resuming.set( null );
 		}
+	}
 
-		final int offset = (int) Math.pow( getGrid().size(), 1.0 / 4.0 );
+	/**
+	 * Returns the number of guesses placed during the calling thread's last search,
+	 * or zero if statistics are not {@link SolveStats#ENABLED}.
+	 */
+	public long getNodeCount()
+	{
+		return getLastStats().getGuesses();
+	}
 
-		// coordinates of the top left cell of the containing block
-		final int topLeftX = cellX / offset * offset;
-		final int topLeftY = cellY / offset * offset;
+	public Grid getGrid()
+	{
+		return search().getGrid();
+	}
 
-		// block
-		for ( int y = topLeftY; y < topLeftY + 3; y++ )
-		{
-			for ( int x = topLeftX; x < topLeftX + 3; x++ )
-			{
-				if ( getGrid().get(x, y) == guess)
-				{
-					return false;
-				}
-			}
-		}
+	public Puzzle getPuzzle()
+	{
+		return search().puzzle;
+	}
 
-		return true;
+	/**
+	 * Sets the puzzle examined by {@link #getCandidates(int, int)} and
+	 * {@link #isValidGuess(int, int, int)} outside of a call to solve,
+	 * building the row, column and box masks from its current digits.
+	 * The puzzle is held for the calling thread alone.
+	 *
+	 * @param puzzle	the sudoku puzzle
+	 */
+	public void setPuzzle(final Puzzle puzzle)
+	{
+		search().setPuzzle( puzzle );
 	}
 
-	public ArrayTable<Integer, Integer, Integer> getGrid()
+	private Search search()
 	{
-		return (ArrayTable<Integer, Integer, Integer>) ( (TableGrid) puzzle.getGrid() ).getGrid();
+		return examined.get();
 	}
 }
@@ -0,0 +1,279 @@
+package com.richardarcega.sudoku.solver;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.richardarcega.sudoku.puzzle.Grid;
+import com.richardarcega.sudoku.puzzle.Puzzle;
+
+/**
+ * Caches the solutions found by another solver, so that repeated puzzles,
+ * and puzzles which are the same up to a symmetry of the grid, are answered
+ * without searching.
+ *
+ * A puzzle seen before as it is, givens for givens, is answered from a cache of
+ * exact matches, at the cost of a lookup. Any other puzzle is reduced to its
+ * canonical form (see {@link SymmetryCanonicalizer}), whose solution is stored in
+ * canonical space; on a hit it is mapped back through the inverse of the
+ * puzzle's own transformation, and kept as an exact match too.
+ *
+ * Each cache holds a bounded number of entries. Eviction is Guava's: the caches
+ * are split into segments, each evicting its least recently used entries on its
+ * own, so an entry may be evicted before the cache is full, and not always the
+ * least recently used of the whole cache.
+ *
+ * Puzzles which are not 9x9, have fewer than {@link #MIN_GIVENS} givens (and so
+ * cannot have a unique solution), or repeat a given in a row, column or box (and so
+ * have none), are passed straight to the underlying solver. The canonical form of
+ * such a grid may be that of a valid puzzle, whose solution it must not be given.
+ *
+ * The statistics of a search include those of the underlying solver on a miss,
+ * and are recorded in the metrics of the underlying solver's algorithm only.
+ */
+public class CachingSudokuSolver extends SudokuSolver
+{
+	/**
+	 * The fewest givens for which a puzzle is canonicalized.
+	 */
+	public static final int				MIN_GIVENS		= 17;
+
+	private static final int			SIZE			= 9;
+	private static final int			NUM_CELLS		= SIZE * SIZE;
+
+	private final SudokuSolver			solver;
+
+	/**
+	 * Canonical puzzle to canonical solution.
+	 */
+	private final Cache<String, int[]>	cache;
+
+	/**
+	 * Puzzle to solution, as given.
+	 */
+	private final Cache<String, int[]>	exact;
+
+	/**
+	 * @param solver		the solver used on a cache miss
+	 * @param maximumSize	the maximum number of cached solutions, of each kind
+	 */
+	public CachingSudokuSolver(final SudokuSolver solver, final long maximumSize)
+	{
+		checkArgument( maximumSize > 0, "Maximum cache size must be > 0. Specified: " + maximumSize );
+
+		this.solver = solver;
+		this.cache  = CacheBuilder.newBuilder().maximumSize( maximumSize ).recordStats().build();
+		this.exact  = CacheBuilder.newBuilder().maximumSize( maximumSize ).recordStats().build();
+	}
+
+	/**
+	 * The canonicalizer of one thread, whose scratch arrays are reused for every puzzle.
+	 */
+	private static final class Search extends SearchContext
+	{
+		private final SymmetryCanonicalizer	canonicalizer	= new SymmetryCanonicalizer();
+	}
+
+	@Override
+	SearchContext newContext()
+	{
+		return new Search();
+	}
+
+	@Override
+	void solvePuzzle(final Puzzle puzzle, final SearchContext context) throws UnsolvableException
+	{
+		final Grid grid = puzzle.getGrid();
+
+		if ( grid.size() != SIZE )
+		{
+			delegate( puzzle, context );
+			return;
+		}
+
+		final int[] cells = new int[NUM_CELLS];
+		int numGivens = 0;
+
+		for ( int i = 0; i < NUM_CELLS; i++ )
+		{
+			cells[i] = grid.getCellValue( i % SIZE, i / SIZE );
+
+			if ( cells[i] != 0 )
+			{
+				numGivens++;
+			}
+		}
+
+		if ( numGivens < MIN_GIVENS || repeatsGiven( cells ) )
+		{
+			delegate( puzzle, context );
+			return;
+		}
+
+		final String givens = SymmetryCanonicalizer.toKey( cells );
+		final int[] solved = exact.getIfPresent( givens );
+
+		if ( solved != null )
+		{
+			write( solved, grid );
+			return;
+		}
+
+		final SymmetryCanonicalizer.Transform transform = ( (Search) context ).canonicalizer.canonicalize( cells );
+		final String key = transform.getKey();
+		final int[] cached = cache.getIfPresent( key );
+
+		if ( cached != null )
+		{
+			final int[] solution = transform.invert( cached );
+
+			write( solution, grid );
+			exact.put( givens, solution );
+			return;
+		}
+
+		delegate( puzzle, context );
+
+		final int[] solution = new int[NUM_CELLS];
+
+		for ( int i = 0; i < NUM_CELLS; i++ )
+		{
+			solution[i] = grid.getCellValue( i % SIZE, i / SIZE );
+		}
+
+		cache.put( key, transform.apply( solution ) );
+		exact.put( givens, solution );
+	}
+
+	/**
+	 * Returns true if a digit is given twice in a row, column or box.
+	 */
+	private static boolean repeatsGiven(final int[] cells)
+	{
+		final int[] rows = new int[SIZE];
+		final int[] cols = new int[SIZE];
+		final int[] boxes = new int[SIZE];
+
+		for ( int i = 0; i < NUM_CELLS; i++ )
+		{
+			if ( cells[i] == 0 )
+			{
+				continue;
+			}
+
+			final int bit = 1 << cells[i];
+			final int row = i / SIZE;
+			final int col = i % SIZE;
+			final int box = ( row / 3 ) * 3 + col / 3;
+
+			if ( ( ( rows[row] | cols[col] | boxes[box] ) & bit ) != 0 )
+			{
+				return true;
+			}
+
+			rows[row] |= bit;
+			cols[col] |= bit;
+			boxes[box] |= bit;
+		}
+
+		return false;
+	}
+
+	private static void write(final int[] solution, final Grid grid)
+	{
+		for ( int i = 0; i < NUM_CELLS; i++ )
+		{
+			grid.setCellValue( i % SIZE, i / SIZE, solution[i] );
+		}
+	}
+
+	/**
+	 * Solves the puzzle with the underlying solver, within what is left of the
+	 * limits, adding its statistics to those of this search.
+	 */
+	private void delegate(final Puzzle puzzle, final SearchContext context) throws UnsolvableException
+	{
+		try
+		{
+			solver.solve( puzzle, context.remainingLimits() );
+		}
+		catch ( final SearchAbortedException e )
+		{
+			throw new SearchAbort( e.getReason() );
+		}
+		finally
+		{
+			context.addStats( solver.getLastStats() );
+		}
+	}
+
+	/**
+	 * Counts solutions with the underlying solver; the cache only holds solved puzzles.
+	 */
+	@Override
+	int count(final Puzzle puzzle, final int limit, final SearchContext context)
+	{
+		try
+		{
+			return solver.countSolutions( puzzle, limit, context.remainingLimits() );
+		}
+		catch ( final SearchAbortedException e )
+		{
+			throw new SearchAbort( e.getReason() );
+		}
+		finally
+		{
+			context.addStats( solver.getLastStats() );
+		}
+	}
+
+	/**
+	 * Returns the hit, miss and eviction counts of the canonical cache, with the
+	 * exact matches, which skip it, counted as hits.
+	 */
+	public CacheStats getStats()
+	{
+		final CacheStats stats = cache.stats();
+
+		return new CacheStats( stats.hitCount() + getExactHitCount(), stats.missCount(), 0, 0, 0, stats.evictionCount() );
+	}
+
+	/**
+	 * Returns the number of puzzles answered from either cache.
+	 */
+	public long getHitCount()
+	{
+		return cache.stats().hitCount() + getExactHitCount();
+	}
+
+	/**
+	 * Returns the number of puzzles answered from the cache of exact matches, without canonicalization.
+	 */
+	public long getExactHitCount()
+	{
+		return exact.stats().hitCount();
+	}
+
+	public long getMissCount()
+	{
+		return cache.stats().missCount();
+	}
+
+	/**
+	 * Returns the number of cached solutions in canonical space.
+	 */
+	public long size()
+	{
+		return cache.size();
+	}
+
+	/**
+	 * Discards every cached solution.
+	 */
+	public void clear()
+	{
+		cache.invalidateAll();
+		exact.invalidateAll();
+	}
+}
@@ -0,0 +1,18 @@
+package com.richardarcega.sudoku.solver;
+
+/**
+ * The order in which {@link BacktrackSudokuSolver} visits the empty cells.
+ */
+public enum CellSelection
+{
+	/**
+	 * The cells are sorted once, by their number of candidates before the search starts.
+	 */
+	STATIC,
+
+	/**
+	 * At every guess, the cell with the fewest remaining candidates is chosen,
+	 * ties going to the cell that comes first in the current search order.
+	 */
+	DYNAMIC
+}
@@ -0,0 +1,236 @@
+package com.richardarcega.sudoku.solver;
+
+import java.util.Arrays;
+
+import com.richardarcega.sudoku.puzzle.Grid;
+import com.richardarcega.sudoku.puzzle.Units;
+
+/**
+ * Applies the constraint propagation rules of {@link NorvigSudokuSolver} to
+ * an array of candidate masks, one per cell, where bit {@code (d - 1)} is set
+ * when digit {@code d} is still possible.
+ *
+ * The propagator holds no search state of its own; the masks are owned by
+ * the caller, which makes it safe to share between the tasks of a parallel
+ * search.
+ */
+final class ConstraintPropagator
+{
+	private static final ConstraintPropagator[]	BY_BOX_SIZE	= new ConstraintPropagator[Units.MAX_BOX_SIZE + 1];
+
+	static
+	{
+		for ( int boxSize = Units.MIN_BOX_SIZE; boxSize <= Units.MAX_BOX_SIZE; boxSize++ )
+		{
+			BY_BOX_SIZE[boxSize] = new ConstraintPropagator( Units.of( boxSize * boxSize ) );
+		}
+	}
+
+	/**
+	 * The propagator of the standard 9x9 grid.
+	 */
+	static final ConstraintPropagator	STANDARD	= BY_BOX_SIZE[3];
+
+	private final Units		units;
+	private final int[][]	allUnits;
+	private final int[][]	unitsOf;
+	private final int[][]	peers;
+
+	ConstraintPropagator(final Units units)
+	{
+		this.units    = units;
+		this.allUnits = units.getUnits();
+		this.unitsOf  = units.getUnitsOf();
+		this.peers    = units.getPeers();
+	}
+
+	/**
+	 * Returns the shared propagator for grids of the given size.
+	 */
+	static ConstraintPropagator of(final int size)
+	{
+		return ( size == Units.STANDARD.size() ) ? STANDARD : BY_BOX_SIZE[Units.of( size ).getBoxSize()];
+	}
+
+	Units getUnits()
+	{
+		return units;
+	}
+
+	/**
+	 * Initialises the candidate masks from the known digits of the grid.
+	 *
+	 * @return false if the givens contradict each other
+	 */
+	boolean load(final Grid grid, final int[] values)
+	{
+		final int size = units.size();
+
+		Arrays.fill( values, units.getAllDigits() );
+
+		for ( int y = 0; y < size; y++ )
+		{
+			for ( int x = 0; x < size; x++ )
+			{
+				final int digit = grid.getCellValue( x, y );
+
+				if ( digit != 0 && !assign( values, y * size + x, 1 << ( digit - 1 ) ) )
+				{
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Writes the digits of solved candidate masks to the grid.
+	 */
+	void store(final int[] values, final Grid grid)
+	{
+		final int size = units.size();
+
+		for ( int cell = 0; cell < values.length; cell++ )
+		{
+			grid.setCellValue( cell % size, cell / size, Integer.numberOfTrailingZeros( values[cell] ) + 1 );
+		}
+	}
+
+	/**
+	 * Returns the unfilled cell with the fewest candidates, or -1 if every
+	 * cell holds a single candidate.
+	 */
+	int selectCell(final int[] values)
+	{
+		int cell = -1;
+		int fewest = Integer.MAX_VALUE;
+
+		for ( int i = 0; i < values.length; i++ )
+		{
+			final int count = Integer.bitCount( values[i] );
+
+			if ( count > 1 && count < fewest )
+			{
+				cell = i;
+				fewest = count;
+
+				if ( count == 2 )
+				{
+					break;
+				}
+			}
+		}
+
+		return cell;
+	}
+
+	/**
+	 * Returns the total number of candidates held by the cells.
+	 */
+	int countCandidates(final int[] values)
+	{
+		int count = 0;
+
+		for ( final int candidates : values )
+		{
+			count += Integer.bitCount( candidates );
+		}
+
+		return count;
+	}
+
+	/**
+	 * Assigns a digit to a cell by eliminating all other candidates from it.
+	 *
+	 * @param values	the candidate masks
+	 * @param cell		the cell index
+	 * @param bit		the digit, as a single bit mask
+	 *
+	 * @return false if a contradiction is found
+	 */
+	boolean assign(final int[] values, final int cell, final int bit)
+	{
+		for ( int others = values[cell] & ~bit; others != 0; others &= others - 1 )
+		{
+			if ( !eliminate( values, cell, Integer.lowestOneBit( others ) ) )
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Eliminates a digit from a cell's candidates, propagating the consequences
+	 * to its peers and units.
+	 *
+	 * @param values	the candidate masks
+	 * @param cell		the cell index
+	 * @param bit		the digit, as a single bit mask
+	 *
+	 * @return false if a contradiction is found
+	 */
+	boolean eliminate(final int[] values, final int cell, final int bit)
+	{
+		if ( ( values[cell] & bit ) == 0 )
+		{
+			// already eliminated
+			return true;
+		}
+
+		final int remaining = values[cell] & ~bit;
+		values[cell] = remaining;
+
+		if ( remaining == 0 )
+		{
+			// removed the last candidate
+			return false;
+		}
+
+		// (1) a cell reduced to one candidate eliminates it from its peers
+		if ( ( remaining & ( remaining - 1 ) ) == 0 )
+		{
+			for ( final int peer : peers[cell] )
+			{
+				if ( !eliminate( values, peer, remaining ) )
+				{
+					return false;
+				}
+			}
+		}
+
+		// (2) a unit reduced to one place for the digit assigns it there
+		for ( final int unit : unitsOf[cell] )
+		{
+			int place = -1;
+			int count = 0;
+
+			for ( final int other : allUnits[unit] )
+			{
+				if ( ( values[other] & bit ) != 0 )
+				{
+					place = other;
+
+					if ( ++count > 1 )
+					{
+						break;
+					}
+				}
+			}
+
+			if ( count == 0 )
+			{
+				return false;
+			}
+
+			if ( count == 1 && !assign( values, place, bit ) )
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
@@ -0,0 +1,159 @@
+package com.richardarcega.sudoku.solver;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.richardarcega.sudoku.puzzle.Grid;
+import com.richardarcega.sudoku.puzzle.Puzzle;
+
+/**
+ * Fills in what can be deduced of a puzzle with a {@link LogicalSolver} before
+ * handing it to another solver, which then searches a smaller space. Puzzles
+ * solved by deduction alone never reach the other solver.
+ *
+ * The candidates eliminated by deduction are counted as propagations. The
+ * statistics of a search include those of the underlying solver, and are recorded
+ * in the metrics of the underlying solver's algorithm only.
+ */
+public class DeductiveSudokuSolver extends SudokuSolver
+{
+	private static final Logger		log	= LoggerFactory.getLogger( DeductiveSudokuSolver.class );
+
+	private final SudokuSolver		solver;
+	private final Set<Technique>	techniques;
+
+	/**
+	 * Creates a solver applying every technique before the underlying solver.
+	 *
+	 * @param solver	the solver of what deduction leaves unsolved
+	 */
+	public DeductiveSudokuSolver(final SudokuSolver solver)
+	{
+		this( solver, EnumSet.range( Technique.NAKED_SINGLE, Technique.X_WING ) );
+	}
+
+	/**
+	 * @param solver		the solver of what deduction leaves unsolved
+	 * @param techniques	the techniques applied
+	 */
+	public DeductiveSudokuSolver(final SudokuSolver solver, final Set<Technique> techniques)
+	{
+		this.solver     = solver;
+		this.techniques = new LogicalSolver( techniques ).getTechniques();
+	}
+
+	/**
+	 * The deduction engine of one search, whose candidate masks are reused for every puzzle.
+	 */
+	private static final class Search extends SearchContext
+	{
+		private final LogicalSolver	logic;
+
+		Search(final Set<Technique> techniques)
+		{
+			this.logic = new LogicalSolver( techniques );
+		}
+	}
+
+	@Override
+	SearchContext newContext()
+	{
+		return new Search( techniques );
+	}
+
+	@Override
+	void solvePuzzle(final Puzzle puzzle, final SearchContext context) throws UnsolvableException
+	{
+		final LogicalSolver logic = ( (Search) context ).logic;
+
+		try
+		{
+			logic.deduce( puzzle.getGrid() );
+		}
+		catch ( final UnsolvableException e )
+		{
+			log.info( "The puzzle is unsolvable!" );
+			throw e;
+		}
+		finally
+		{
+			addEliminations( logic, context );
+		}
+
+		if ( logic.isSolved() )
+		{
+			return;
+		}
+
+		try
+		{
+			solver.solve( puzzle, context.remainingLimits() );
+		}
+		catch ( final SearchAbortedException e )
+		{
+			throw new SearchAbort( e.getReason() );
+		}
+		finally
+		{
+			context.addStats( solver.getLastStats() );
+		}
+	}
+
+	/**
+	 * Counts the solutions of what deduction leaves of the puzzle; deduction
+	 * never rules out a solution, so the count is unchanged.
+	 */
+	@Override
+	int count(final Puzzle puzzle, final int limit, final SearchContext context)
+	{
+		final LogicalSolver logic = ( (Search) context ).logic;
+		final Grid grid = puzzle.getGrid().copy();
+
+		try
+		{
+			logic.deduce( grid );
+		}
+		catch ( final UnsolvableException e )
+		{
+			return 0;
+		}
+		finally
+		{
+			addEliminations( logic, context );
+		}
+
+		if ( logic.isSolved() )
+		{
+			return 1;
+		}
+
+		try
+		{
+			return solver.countSolutions( new Puzzle( grid ), limit, context.remainingLimits() );
+		}
+		catch ( final SearchAbortedException e )
+		{
+			throw new SearchAbort( e.getReason() );
+		}
+		finally
+		{
+			context.addStats( solver.getLastStats() );
+		}
+	}
+
+	private static void addEliminations(final LogicalSolver logic, final SearchContext context)
+	{
+		if ( SolveStats.ENABLED )
+		{
+			context.propagations += logic.getEliminations();
+		}
+	}
+
+	public Set<Technique> getTechniques()
+	{
+		return techniques;
+	}
+}
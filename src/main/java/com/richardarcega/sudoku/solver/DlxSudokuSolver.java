@@ -0,0 +1,476 @@
+package com.richardarcega.sudoku.solver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.richardarcega.sudoku.puzzle.Grid;
+import com.richardarcega.sudoku.puzzle.Puzzle;
+import com.richardarcega.sudoku.puzzle.Units;
+
+/**
+ * Solves a sudoku puzzle using Donald Knuth's Algorithm X, implemented
+ * with the "Dancing Links" (DLX) technique.
+ *
+ * The puzzle is expressed as an exact cover problem: each of the 729
+ * (cell, digit) placements of a 9x9 grid is a row which satisfies four
+ * of the 324 constraints (the cell is filled, and the digit appears once
+ * within the row, column and box). A solution is a set of rows which
+ * covers every constraint exactly once.
+ *
+ * The sparse matrix is held in parallel int arrays rather than node
+ * objects. The links are built once per grid size into a template and
+ * are copied into the working arrays at the start of every solve.
+ */
+public class DlxSudokuSolver extends SudokuSolver
+{
+	private static final Logger	log			= LoggerFactory.getLogger( DlxSudokuSolver.class );
+
+	/**
+	 * Index 0 of the node arrays is the root header.
+	 */
+	private static final int	ROOT		= 0;
+
+	/**
+	 * The pristine matrix of the standard 9x9 grid.
+	 */
+	private static final Matrix	STANDARD	= new Matrix( Units.STANDARD );
+
+	/**
+	 * The pristine matrices of the other grid sizes, built on first use.
+	 */
+	private static final Matrix[] MATRICES	= new Matrix[Units.MAX_BOX_SIZE + 1];
+
+	/**
+	 * The exact cover matrix of a grid size, linked into its pristine state.
+	 *
+	 * Index 0 is the root header and 1..numColumns the column headers. The
+	 * four nodes of matrix row {@code r} start at {@code firstNode + 4 * r}.
+	 */
+	private static final class Matrix
+	{
+		private final int	size;
+		private final int	numCells;
+
+		/**
+		 * The number of constraint columns: cell, row-digit, column-digit and box-digit.
+		 */
+		private final int	numColumns;
+		private final int	firstNode;
+		private final int	numNodes;
+
+		private final int[]	left;
+		private final int[]	right;
+		private final int[]	up;
+		private final int[]	down;
+		private final int[]	columnSize;
+
+		/**
+		 * The column header of every node. Never modified while solving.
+		 */
+		private final int[]	header;
+
+		Matrix(final Units units)
+		{
+			size       = units.size();
+			numCells   = units.getNumCells();
+			numColumns = 4 * numCells;
+			firstNode  = numColumns + 1;
+
+			// one candidate row per (cell, digit) placement
+			final int numRows = numCells * size;
+			numNodes = firstNode + 4 * numRows;
+
+			left       = new int[numNodes];
+			right      = new int[numNodes];
+			up         = new int[numNodes];
+			down       = new int[numNodes];
+			columnSize = new int[numColumns + 1];
+			header     = new int[numNodes];
+
+			// circular list of column headers
+			for ( int c = 0; c <= numColumns; c++ )
+			{
+				left[c]   = ( c == 0 ) ? numColumns : c - 1;
+				right[c]  = ( c == numColumns ) ? 0 : c + 1;
+				up[c]     = c;
+				down[c]   = c;
+				header[c] = c;
+			}
+
+			final int[] boxOf = units.getBoxOf();
+
+			for ( int row = 0; row < numRows; row++ )
+			{
+				final int cell  = row / size;
+				final int digit = row % size;
+				final int x     = cell % size;
+				final int y     = cell / size;
+
+				final int[] columns = {
+					1 + cell,
+					1 + numCells + y * size + digit,
+					1 + 2 * numCells + x * size + digit,
+					1 + 3 * numCells + boxOf[cell] * size + digit
+				};
+
+				final int first = firstNode + 4 * row;
+
+				for ( int k = 0; k < 4; k++ )
+				{
+					final int node = first + k;
+					final int c    = columns[k];
+
+					// append the node to the bottom of its column
+					header[node]   = c;
+					up[node]       = up[c];
+					down[node]     = c;
+					down[up[c]]    = node;
+					up[c]          = node;
+					columnSize[c]++;
+
+					// link the node within its row
+					left[node]  = first + ( k + 3 ) % 4;
+					right[node] = first + ( k + 1 ) % 4;
+				}
+			}
+		}
+
+		/**
+		 * Returns the pristine matrix for grids of the given size.
+		 */
+		static Matrix of(final int size)
+		{
+			if ( size == STANDARD.size )
+			{
+				return STANDARD;
+			}
+
+			final Units units = Units.of( size );
+
+			synchronized ( MATRICES )
+			{
+				if ( MATRICES[units.getBoxSize()] == null )
+				{
+					MATRICES[units.getBoxSize()] = new Matrix( units );
+				}
+
+				return MATRICES[units.getBoxSize()];
+			}
+		}
+	}
+
+	public DlxSudokuSolver()
+	{
+		super( Algorithm.DLX );
+	}
+
+	@Override
+	SearchContext newContext()
+	{
+		return new Search();
+	}
+
+	@Override
+	void solvePuzzle(final Puzzle puzzle, final SearchContext context) throws UnsolvableException
+	{
+		if ( ( (Search) context ).search( puzzle.getGrid(), puzzle.getGrid(), 1 ) == 0 )
+		{
+			log.info( "The puzzle is unsolvable!" );
+			throw new UnsolvableException( "The puzzle could not be solved using " + this.getClass().getSimpleName() );
+		}
+	}
+
+	@Override
+	int count(final Puzzle puzzle, final int limit, final SearchContext context)
+	{
+		return ( (Search) context ).search( puzzle.getGrid(), null, limit );
+	}
+
+	/**
+	 * The working copy of the matrix searched by one thread.
+	 */
+	private static final class Search extends SearchContext
+	{
+		/**
+		 * The pristine matrix of the grid size being solved.
+		 */
+		private Matrix				matrix;
+
+		/*
+		 * The working copy of the matrix.
+		 */
+		private int[]				left;
+		private int[]				right;
+		private int[]				up;
+		private int[]				down;
+		private int[]				size;
+
+		/**
+		 * The column header of every node, shared with the pristine matrix.
+		 */
+		private int[]				header;
+
+		/**
+		 * The nodes of the rows chosen so far, one per search depth.
+		 */
+		private int[]				solution;
+
+		/**
+		 * The grid the first solution is written to, or null when only counting.
+		 */
+		private Grid				target;
+		private int					limit;
+		private int					numSolutions;
+
+		Search()
+		{
+			allocate( STANDARD );
+		}
+
+		/**
+		 * Searches for solutions to the grid until the limit is reached.
+		 *
+		 * @param grid		the puzzle grid
+		 * @param target	the grid the first solution is written to, or null
+		 * @param limit		the number of solutions at which the search stops
+		 *
+		 * @return the number of solutions found
+		 */
+		int search(final Grid grid, final Grid target, final int limit)
+		{
+			this.target       = target;
+			this.limit        = limit;
+			this.numSolutions = 0;
+
+			if ( grid.size() != matrix.size )
+			{
+				allocate( Matrix.of( grid.size() ) );
+			}
+
+			reset();
+
+			try
+			{
+				if ( coverGivens( grid ) )
+				{
+					search( 0 );
+				}
+			}
+			finally
+			{
+				this.target = null;
+			}
+
+			return numSolutions;
+		}
+
+		/**
+		 * Allocates the working matrix for a grid size.
+		 */
+		private void allocate(final Matrix matrix)
+		{
+			this.matrix = matrix;
+
+			left     = new int[matrix.numNodes];
+			right    = new int[matrix.numNodes];
+			up       = new int[matrix.numNodes];
+			down     = new int[matrix.numNodes];
+			size     = new int[matrix.numColumns + 1];
+			header   = matrix.header;
+			solution = new int[matrix.numCells];
+		}
+
+		/**
+		 * Restores the working matrix to its pristine state.
+		 */
+		private void reset()
+		{
+			System.arraycopy( matrix.left, 0, left, 0, matrix.numNodes );
+			System.arraycopy( matrix.right, 0, right, 0, matrix.numNodes );
+			System.arraycopy( matrix.up, 0, up, 0, matrix.numNodes );
+			System.arraycopy( matrix.down, 0, down, 0, matrix.numNodes );
+			System.arraycopy( matrix.columnSize, 0, size, 0, matrix.numColumns + 1 );
+		}
+
+		/**
+		 * Selects the rows corresponding to the known digits of the grid.
+		 *
+		 * @param grid	the puzzle grid
+		 *
+		 * @return false if two givens conflict with each other
+		 */
+		private boolean coverGivens(final Grid grid)
+		{
+			final int gridSize = matrix.size;
+
+			for ( int y = 0; y < gridSize; y++ )
+			{
+				for ( int x = 0; x < gridSize; x++ )
+				{
+					final int digit = grid.getCellValue( x, y );
+
+					if ( digit == 0 )
+					{
+						continue;
+					}
+
+					final int first = matrix.firstNode + 4 * ( ( y * gridSize + x ) * gridSize + digit - 1 );
+
+					// each constraint of a given must still be open
+					for ( int k = 0; k < 4; k++ )
+					{
+						final int c = header[first + k];
+
+						if ( right[left[c]] != c )
+						{
+							return false;
+						}
+					}
+
+					for ( int k = 0; k < 4; k++ )
+					{
+						cover( header[first + k] );
+					}
+				}
+			}
+
+			return true;
+		}
+
+		/**
+		 * Recursively searches for sets of rows covering the remaining columns.
+		 * The digits of the first one found are written to the target grid.
+		 *
+		 * @param depth	the number of rows chosen so far by the search
+		 *
+		 * @return true once the limit on the number of solutions is reached
+		 */
+		private boolean search(final int depth)
+		{
+			if ( --budget < 0 )
+			{
+				budget = nextBudget();
+			}
+
+			if ( SolveStats.ENABLED )
+			{
+				nodes++;
+				maxDepth = Math.max( maxDepth, depth );
+			}
+
+			if ( right[ROOT] == ROOT )
+			{
+				if ( ++numSolutions == 1 && target != null )
+				{
+					final int gridSize = matrix.size;
+
+					for ( int i = 0; i < depth; i++ )
+					{
+						final int cell  = ( solution[i] - matrix.firstNode ) / 4 / gridSize;
+						final int digit = ( solution[i] - matrix.firstNode ) / 4 % gridSize + 1;
+
+						target.setCellValue( cell % gridSize, cell / gridSize, digit );
+					}
+				}
+
+				return numSolutions >= limit;
+			}
+
+			// choose the column with the fewest remaining rows
+			int column = right[ROOT];
+
+			for ( int c = right[column]; c != ROOT && size[column] > 1; c = right[c] )
+			{
+				if ( size[c] < size[column] )
+				{
+					column = c;
+				}
+			}
+
+			if ( size[column] == 0 )
+			{
+				return false;
+			}
+
+			cover( column );
+
+			for ( int row = down[column]; row != column; row = down[row] )
+			{
+				solution[depth] = row;
+
+				if ( SolveStats.ENABLED )
+				{
+					guesses++;
+				}
+
+				for ( int j = right[row]; j != row; j = right[j] )
+				{
+					cover( header[j] );
+				}
+
+				if ( search( depth + 1 ) )
+				{
+					return true;
+				}
+
+				for ( int j = left[row]; j != row; j = left[j] )
+				{
+					uncover( header[j] );
+				}
+
+				if ( SolveStats.ENABLED )
+				{
+					backtracks++;
+				}
+			}
+
+			uncover( column );
+
+			return false;
+		}
+
+		/**
+		 * Removes a column from the header list, and every row which
+		 * intersects it from the other columns.
+		 */
+		private void cover(final int column)
+		{
+			if ( SolveStats.ENABLED )
+			{
+				propagations++;
+			}
+
+			right[left[column]] = right[column];
+			left[right[column]] = left[column];
+
+			for ( int i = down[column]; i != column; i = down[i] )
+			{
+				for ( int j = right[i]; j != i; j = right[j] )
+				{
+					up[down[j]] = up[j];
+					down[up[j]] = down[j];
+					size[header[j]]--;
+				}
+			}
+		}
+
+		/**
+		 * Reverses {@link #cover(int)}, relinking in the opposite order.
+		 */
+		private void uncover(final int column)
+		{
+			for ( int i = up[column]; i != column; i = up[i] )
+			{
+				for ( int j = left[i]; j != i; j = left[j] )
+				{
+					size[header[j]]++;
+					up[down[j]] = j;
+					down[up[j]] = j;
+				}
+			}
+
+			right[left[column]] = column;
+			left[right[column]] = column;
+		}
+	}
+}
@@ -0,0 +1,457 @@
+package com.richardarcega.sudoku.solver;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.richardarcega.sudoku.puzzle.Grid;
+import com.richardarcega.sudoku.puzzle.Puzzle;
+
+/**
+ * Solves a single sudoku puzzle on several cores, using the constraint
+ * propagation of {@link NorvigSudokuSolver} within a fork/join search.
+ *
+ * Down to the split depth, every guess point forks one subtask per candidate,
+ * each with its own copy of the candidate masks, so idle workers can steal
+ * whole branches of the search tree. Below the split depth a task searches
+ * its branch sequentially. Solutions are published to the other tasks, which
+ * abandon their branches at the next node once enough have been found.
+ */
+public class ForkJoinSudokuSolver extends SudokuSolver
+{
+	private static final Logger			log					= LoggerFactory.getLogger( ForkJoinSudokuSolver.class );
+
+	/**
+	 * The number of guess levels at which the search tree is split into subtasks.
+	 */
+	public static final int				DEFAULT_SPLIT_DEPTH	= 4;
+
+	/**
+	 * The pool shared by solvers which are not given one, sized to the number of processors.
+	 */
+	private static final ForkJoinPool	SHARED_POOL			= new ForkJoinPool();
+
+	private final ForkJoinPool			pool;
+	private final int					splitDepth;
+
+	public ForkJoinSudokuSolver()
+	{
+		this( SHARED_POOL, DEFAULT_SPLIT_DEPTH );
+	}
+
+	/**
+	 * @param pool			the pool on which the search runs
+	 * @param splitDepth	the number of guess levels split into subtasks
+	 */
+	public ForkJoinSudokuSolver(final ForkJoinPool pool, final int splitDepth)
+	{
+		super( Algorithm.FORK_JOIN );
+
+		checkArgument( splitDepth >= 0, "Split depth must be >= 0. Specified: " + splitDepth );
+
+		this.pool       = pool;
+		this.splitDepth = splitDepth;
+	}
+
+	@Override
+	void solvePuzzle(final Puzzle puzzle, final SearchContext context) throws UnsolvableException
+	{
+		final Grid grid = puzzle.getGrid();
+		final Search search = new Search( grid, 1, context );
+
+		final boolean solved = search.run( grid );
+		search.addStats();
+
+		if ( !solved && search.abort.get() != null )
+		{
+			throw new SearchAbort( search.abort.get() );
+		}
+
+		if ( !solved )
+		{
+			log.info( "The puzzle is unsolvable!" );
+			throw new UnsolvableException( "The puzzle could not be solved using " + this.getClass().getSimpleName() );
+		}
+
+		search.propagator.store( search.solution.get(), grid );
+	}
+
+	@Override
+	int count(final Puzzle puzzle, final int limit, final SearchContext context)
+	{
+		final Search search = new Search( puzzle.getGrid(), limit, context );
+		search.run( puzzle.getGrid() );
+		search.addStats();
+
+		if ( search.abort.get() != null )
+		{
+			throw new SearchAbort( search.abort.get() );
+		}
+
+		// tasks finishing together may overshoot the limit
+		return Math.min( search.numSolutions.get(), limit );
+	}
+
+	/**
+	 * The state shared by the tasks of one search: the first solution found,
+	 * the number found so far, the statistics of the finished tasks, and the
+	 * reason the search was stopped, if it was. The tasks add the nodes they
+	 * visit to a shared count, and the limits of the search are checked each
+	 * time it passes a multiple of {@link SearchContext#checkInterval()}, however
+	 * few nodes each task visits. Interruption of the thread which started the
+	 * search stops it.
+	 */
+	private final class Search
+	{
+		private final ConstraintPropagator		propagator;
+		private final int						limit;
+		private final SearchContext				context;
+		private final AtomicReference<int[]>	solution		= new AtomicReference<int[]>();
+		private final AtomicInteger				numSolutions	= new AtomicInteger();
+
+		private final AtomicLong				nodes			= new AtomicLong();
+		private final AtomicLong				guesses			= new AtomicLong();
+		private final AtomicLong				backtracks		= new AtomicLong();
+		private final AtomicLong				propagations	= new AtomicLong();
+		private final AtomicInteger				maxDepth		= new AtomicInteger();
+
+		private final Thread					caller			= Thread.currentThread();
+		private final int						checkInterval;
+		private final AtomicLong				visited			= new AtomicLong();
+		private final AtomicReference<SearchAbortedException.Reason>	abort	= new AtomicReference<SearchAbortedException.Reason>();
+
+		Search(final Grid grid, final int limit, final SearchContext context)
+		{
+			this.propagator    = ConstraintPropagator.of( grid.size() );
+			this.limit         = limit;
+			this.context       = context;
+			this.checkInterval = context.checkInterval();
+		}
+
+		/**
+		 * Searches the grid until the limit is reached.
+		 *
+		 * @return true if a solution was found
+		 */
+		boolean run(final Grid grid)
+		{
+			final int[] values = new int[propagator.getUnits().getNumCells()];
+
+			final boolean consistent = propagator.load( grid, values );
+
+			if ( SolveStats.ENABLED )
+			{
+				propagations.addAndGet( values.length * grid.size() - propagator.countCandidates( values ) );
+			}
+
+			if ( consistent )
+			{
+				final SearchTask root = new SearchTask( values, 0, this );
+				pool.execute( root );
+				await( root );
+			}
+
+			return solution.get() != null;
+		}
+
+		/**
+		 * Waits for the search to finish. Waiting clears the caller's interrupt
+		 * status, which the tasks check, so an interruption of the wait is passed
+		 * on to the tasks, and the status is set again for the caller.
+		 */
+		private void await(final SearchTask root)
+		{
+			try
+			{
+				root.get();
+			}
+			catch ( final InterruptedException e )
+			{
+				Thread.currentThread().interrupt();
+
+				final SearchAbortedException.Reason reason = context.checkLimits( visited.get(), caller );
+
+				if ( reason != null )
+				{
+					abort.compareAndSet( null, reason );
+				}
+			}
+			catch ( final ExecutionException e )
+			{
+				// thrown again by the join below
+			}
+
+			root.join();
+		}
+
+		boolean isDone()
+		{
+			return numSolutions.get() >= limit || abort.get() != null;
+		}
+
+		/**
+		 * Adds the nodes a task has visited since its last check, and stops the
+		 * search if a limit is exceeded once the count passes a multiple of the
+		 * check interval.
+		 */
+		void check(final int numNodes)
+		{
+			final long total = visited.addAndGet( numNodes );
+
+			if ( total / checkInterval == ( total - numNodes ) / checkInterval )
+			{
+				return;
+			}
+
+			final SearchAbortedException.Reason reason = context.checkLimits( total, caller );
+
+			if ( reason != null )
+			{
+				abort.compareAndSet( null, reason );
+			}
+		}
+
+		void found(final int[] solved)
+		{
+			numSolutions.incrementAndGet();
+			solution.compareAndSet( null, solved );
+		}
+
+		/**
+		 * Adds the counters of a finished task.
+		 */
+		void record(final SearchTask task)
+		{
+			nodes.addAndGet( task.nodes );
+			guesses.addAndGet( task.guesses );
+			backtracks.addAndGet( task.backtracks );
+			propagations.addAndGet( task.propagations );
+
+			for ( int depth = maxDepth.get(); task.maxDepth > depth; depth = maxDepth.get() )
+			{
+				if ( maxDepth.compareAndSet( depth, task.maxDepth ) )
+				{
+					break;
+				}
+			}
+		}
+
+		/**
+		 * Adds the counters of every task to those of the calling thread's search.
+		 */
+		void addStats()
+		{
+			if ( SolveStats.ENABLED )
+			{
+				context.addStats( new SolveStats( nodes.get(), guesses.get(), backtracks.get(), maxDepth.get(),
+					propagations.get(), 0, false ) );
+			}
+		}
+	}
+
+	/**
+	 * Searches the branch of the tree rooted at a set of candidate masks,
+	 * reporting solutions to the shared search until its limit is reached.
+	 */
+	private final class SearchTask extends RecursiveAction
+	{
+		private static final long	serialVersionUID	= 4163526098145829061L;
+
+		private final int[]			values;
+		private final int			depth;
+		private final Search		shared;
+
+		/*
+		 * The statistics of this task alone, added to the shared search when it finishes.
+		 */
+		private long				nodes;
+		private long				guesses;
+		private long				backtracks;
+		private long				propagations;
+		private int					maxDepth;
+
+		/**
+		 * The nodes visited by this task since it last checked the limits.
+		 */
+		private int					unchecked;
+
+		SearchTask(final int[] values, final int depth, final Search shared)
+		{
+			this.values = values;
+			this.depth  = depth;
+			this.shared = shared;
+		}
+
+		@Override
+		protected void compute()
+		{
+			try
+			{
+				expand();
+			}
+			finally
+			{
+				// a task may finish before visiting a whole check interval
+				if ( unchecked > 0 )
+				{
+					shared.check( unchecked );
+				}
+
+				if ( SolveStats.ENABLED )
+				{
+					shared.record( this );
+				}
+			}
+		}
+
+		private void expand()
+		{
+			if ( depth >= splitDepth )
+			{
+				final int[][] stack = new int[values.length + 1][];
+				stack[0] = values;
+
+				search( stack, 0 );
+				return;
+			}
+
+			// counted at once, so the limits are checked before any subtask is forked
+			shared.check( 1 );
+
+			if ( SolveStats.ENABLED )
+			{
+				nodes++;
+				maxDepth = depth;
+			}
+
+			if ( shared.isDone() )
+			{
+				return;
+			}
+
+			final int cell = shared.propagator.selectCell( values );
+
+			if ( cell < 0 )
+			{
+				shared.found( values );
+				return;
+			}
+
+			// fork one subtask per viable candidate
+			final List<SearchTask> subtasks = Lists.newArrayList();
+			final int numCandidates = SolveStats.ENABLED ? shared.propagator.countCandidates( values ) : 0;
+
+			for ( int candidates = values[cell]; candidates != 0; candidates &= candidates - 1 )
+			{
+				final int[] next = values.clone();
+				final boolean consistent = shared.propagator.assign( next, cell, Integer.lowestOneBit( candidates ) );
+
+				if ( SolveStats.ENABLED )
+				{
+					guesses++;
+					propagations += numCandidates - shared.propagator.countCandidates( next );
+
+					if ( !consistent )
+					{
+						backtracks++;
+					}
+				}
+
+				if ( consistent )
+				{
+					subtasks.add( new SearchTask( next, depth + 1, shared ) );
+				}
+			}
+
+			invokeAll( subtasks );
+
+			// as in the sequential search, every guess is withdrawn unless the search is done
+			if ( SolveStats.ENABLED && !shared.isDone() )
+			{
+				backtracks += subtasks.size();
+			}
+		}
+
+		/**
+		 * Counts a node visited by the sequential search, adding the nodes to the
+		 * shared count once a whole check interval has been visited.
+		 */
+		private void visit()
+		{
+			if ( ++unchecked >= shared.checkInterval )
+			{
+				shared.check( unchecked );
+				unchecked = 0;
+			}
+		}
+
+		/**
+		 * Searches sequentially, copying the masks into a lazily allocated stack.
+		 */
+		private void search(final int[][] stack, final int level)
+		{
+			visit();
+
+			if ( SolveStats.ENABLED )
+			{
+				nodes++;
+				maxDepth = Math.max( maxDepth, depth + level );
+			}
+
+			if ( shared.isDone() )
+			{
+				return;
+			}
+
+			final int[] current = stack[level];
+			final int cell = shared.propagator.selectCell( current );
+
+			if ( cell < 0 )
+			{
+				shared.found( current.clone() );
+				return;
+			}
+
+			if ( stack[level + 1] == null )
+			{
+				stack[level + 1] = new int[current.length];
+			}
+
+			final int[] next = stack[level + 1];
+			final int numCandidates = SolveStats.ENABLED ? shared.propagator.countCandidates( current ) : 0;
+
+			for ( int candidates = current[cell]; candidates != 0 && !shared.isDone(); candidates &= candidates - 1 )
+			{
+				System.arraycopy( current, 0, next, 0, current.length );
+
+				final boolean consistent = shared.propagator.assign( next, cell, Integer.lowestOneBit( candidates ) );
+
+				if ( SolveStats.ENABLED )
+				{
+					guesses++;
+					propagations += numCandidates - shared.propagator.countCandidates( next );
+				}
+
+				if ( consistent )
+				{
+					search( stack, level + 1 );
+				}
+
+				if ( SolveStats.ENABLED && !shared.isDone() )
+				{
+					backtracks++;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,803 @@
+package com.richardarcega.sudoku.solver;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+import com.google.common.base.Predicate;
+import com.richardarcega.sudoku.puzzle.Grid;
+import com.richardarcega.sudoku.puzzle.Units;
+
+/**
+ * Solves a sudoku puzzle as a person would, by deduction alone.
+ *
+ * Every cell holds a bitmask of its remaining candidates, as in
+ * {@link ConstraintPropagator}. The enabled {@link Technique}s are tried from the
+ * easiest; whenever one makes progress, the search for the next deduction starts
+ * again from the easiest. Deduction stops when the grid is solved or no technique
+ * applies, and never guesses, so every digit it places holds in every solution
+ * of the puzzle.
+ *
+ * The solver serves two purposes: {@link #deduce(Grid)} fills in the cells that
+ * follow from the givens before a search (see {@link DeductiveSudokuSolver}), and
+ * {@link #grade(Grid)} rates a puzzle by the hardest technique it requires.
+ *
+ * An instance keeps its candidate masks between puzzles, and so must not be
+ * shared between threads.
+ */
+public class LogicalSolver
+{
+	private final Set<Technique>	techniques;
+
+	/**
+	 * The enabled techniques, from the easiest.
+	 */
+	private final Technique[]		enabled;
+
+	private Units					units		= Units.STANDARD;
+
+	/**
+	 * The candidates of every cell, and the digits placed so far (0 while a cell is unsolved).
+	 */
+	private int[]					candidates	= new int[Units.STANDARD.getNumCells()];
+	private int[]					digits		= new int[Units.STANDARD.getNumCells()];
+	private int						numUnsolved;
+
+	/**
+	 * The cells or digits of the subset being examined, and the cells of a unit
+	 * eligible for one.
+	 */
+	private final int[]				subset		= new int[3];
+	private int[]					members		= new int[Units.STANDARD.size()];
+	private int[]					places		= new int[Units.STANDARD.size()];
+
+	/**
+	 * The number of times each technique was applied to the last puzzle.
+	 */
+	private final int[]				uses		= new int[Technique.values().length];
+	private Technique				hardest;
+	private long					eliminations;
+
+	/**
+	 * Creates a solver applying every technique.
+	 */
+	public LogicalSolver()
+	{
+		this( EnumSet.range( Technique.NAKED_SINGLE, Technique.X_WING ) );
+	}
+
+	/**
+	 * @param techniques	the techniques applied
+	 */
+	public LogicalSolver(final Set<Technique> techniques)
+	{
+		checkArgument( !techniques.contains( Technique.GUESS ), "Guessing is not a deduction" );
+
+		this.techniques = Collections.unmodifiableSet( EnumSet.copyOf( techniques ) );
+		this.enabled    = this.techniques.toArray( new Technique[0] );
+	}
+
+	/**
+	 * Fills in the cells of the grid which can be deduced from its givens.
+	 *
+	 * @return the number of cells filled in
+	 * @throws UnsolvableException if the givens are found to contradict each other
+	 */
+	public int deduce(final Grid grid) throws UnsolvableException
+	{
+		final int size = grid.size();
+
+		load( grid );
+		deduce();
+
+		int numFilled = 0;
+
+		for ( int cell = 0; cell < units.getNumCells(); cell++ )
+		{
+			if ( digits[cell] != 0 && grid.getCellValue( cell % size, cell / size ) == 0 )
+			{
+				grid.setCellValue( cell % size, cell / size, digits[cell] );
+				numFilled++;
+			}
+		}
+
+		return numFilled;
+	}
+
+	/**
+	 * Rates the puzzle by the hardest technique needed to solve it, without changing the grid.
+	 *
+	 * @return the hardest technique applied, {@link Technique#NAKED_SINGLE} if the grid
+	 *         is already full, or {@link Technique#GUESS} if deduction alone cannot solve it
+	 * @throws UnsolvableException if the givens are found to contradict each other
+	 */
+	public Technique grade(final Grid grid) throws UnsolvableException
+	{
+		load( grid );
+		deduce();
+
+		if ( numUnsolved > 0 )
+		{
+			return Technique.GUESS;
+		}
+
+		return ( hardest == null ) ? Technique.NAKED_SINGLE : hardest;
+	}
+
+	/**
+	 * Returns a filter accepting the puzzles of a grade, for a
+	 * {@link com.richardarcega.sudoku.puzzle.PuzzleGenerator}. It may be used by
+	 * any number of threads, each grading with a solver of its own.
+	 *
+	 * @param grade	the hardest technique of the puzzles accepted; {@link Technique#GUESS}
+	 *              accepts those which deduction alone cannot solve
+	 */
+	public static Predicate<Grid> hasGrade(final Technique grade)
+	{
+		checkNotNull( grade );
+
+		final ThreadLocal<LogicalSolver> solvers = new ThreadLocal<LogicalSolver>()
+		{
+			@Override
+			protected LogicalSolver initialValue()
+			{
+				return new LogicalSolver();
+			}
+		};
+
+		return new Predicate<Grid>()
+		{
+			@Override
+			public boolean apply(final Grid grid)
+			{
+				try
+				{
+					return solvers.get().grade( grid ) == grade;
+				}
+				catch ( final UnsolvableException e )
+				{
+					return false;
+				}
+			}
+
+			@Override
+			public String toString()
+			{
+				return "grade " + grade;
+			}
+		};
+	}
+
+	/**
+	 * Returns true if the last puzzle was solved.
+	 */
+	public boolean isSolved()
+	{
+		return numUnsolved == 0;
+	}
+
+	/**
+	 * Returns the hardest technique applied to the last puzzle, or null if none was.
+	 */
+	public Technique getHardestTechnique()
+	{
+		return hardest;
+	}
+
+	/**
+	 * Returns the number of times the technique was applied to the last puzzle.
+	 */
+	public int getUses(final Technique technique)
+	{
+		return uses[technique.ordinal()];
+	}
+
+	/**
+	 * Returns the number of candidates eliminated from the last puzzle.
+	 */
+	public long getEliminations()
+	{
+		return eliminations;
+	}
+
+	public Set<Technique> getTechniques()
+	{
+		return techniques;
+	}
+
+	/**
+	 * Sets up the candidates from the givens of the grid.
+	 */
+	private void load(final Grid grid) throws UnsolvableException
+	{
+		final int size = grid.size();
+
+		if ( size != units.size() )
+		{
+			units      = Units.of( size );
+			candidates = new int[units.getNumCells()];
+			digits     = new int[units.getNumCells()];
+			members    = new int[size];
+			places     = new int[size];
+		}
+
+		Arrays.fill( candidates, units.getAllDigits() );
+		Arrays.fill( digits, 0 );
+		Arrays.fill( uses, 0 );
+
+		numUnsolved  = units.getNumCells();
+		hardest      = null;
+		eliminations = 0;
+
+		for ( int cell = 0; cell < units.getNumCells(); cell++ )
+		{
+			final int digit = grid.getCellValue( cell % size, cell / size );
+
+			if ( digit != 0 )
+			{
+				if ( ( candidates[cell] & ( 1 << ( digit - 1 ) ) ) == 0 )
+				{
+					throw new UnsolvableException( "The givens repeat the digit " + digit );
+				}
+
+				place( cell, 1 << ( digit - 1 ) );
+			}
+		}
+	}
+
+	/**
+	 * Applies the techniques until the grid is solved or none makes progress.
+	 */
+	private void deduce() throws UnsolvableException
+	{
+		while ( numUnsolved > 0 )
+		{
+			int numDeductions = 0;
+			Technique technique = null;
+
+			for ( int i = 0; i < enabled.length && numDeductions == 0; i++ )
+			{
+				technique = enabled[i];
+				numDeductions = apply( technique );
+			}
+
+			if ( numDeductions == 0 )
+			{
+				return;
+			}
+
+			uses[technique.ordinal()] += numDeductions;
+
+			if ( hardest == null || technique.compareTo( hardest ) > 0 )
+			{
+				hardest = technique;
+			}
+		}
+	}
+
+	/**
+	 * Applies a technique wherever it makes progress.
+	 *
+	 * @return the number of deductions made
+	 */
+	private int apply(final Technique technique) throws UnsolvableException
+	{
+		switch ( technique )
+		{
+			case NAKED_SINGLE:
+				return nakedSingles();
+			case HIDDEN_SINGLE:
+				return hiddenSingles();
+			case POINTING_PAIR:
+				return pointing();
+			case BOX_LINE_REDUCTION:
+				return boxLineReduction();
+			case NAKED_PAIR:
+				return nakedSubsets( 2 );
+			case HIDDEN_PAIR:
+				return hiddenSubsets( 2 );
+			case NAKED_TRIPLE:
+				return nakedSubsets( 3 );
+			case HIDDEN_TRIPLE:
+				return hiddenSubsets( 3 );
+			case X_WING:
+				return xWings();
+			default:
+				throw new IllegalArgumentException( "Not a deduction: " + technique.name() );
+		}
+	}
+
+	/**
+	 * Places a digit in a cell, eliminating it from the cell's peers.
+	 */
+	private void place(final int cell, final int bit) throws UnsolvableException
+	{
+		eliminate( cell, ~bit );
+
+		digits[cell] = Integer.numberOfTrailingZeros( bit ) + 1;
+		numUnsolved--;
+
+		for ( final int peer : units.getPeers()[cell] )
+		{
+			eliminate( peer, bit );
+		}
+	}
+
+	/**
+	 * Eliminates candidates from a cell.
+	 *
+	 * @return true if any of the candidates was still possible
+	 * @throws UnsolvableException if the cell is left without a candidate
+	 */
+	private boolean eliminate(final int cell, final int bits) throws UnsolvableException
+	{
+		final int removed = candidates[cell] & bits;
+
+		if ( removed == 0 )
+		{
+			return false;
+		}
+
+		candidates[cell] &= ~removed;
+		eliminations += Integer.bitCount( removed );
+
+		if ( candidates[cell] == 0 )
+		{
+			throw new UnsolvableException( "No digit can be placed in cell " + cell );
+		}
+
+		return true;
+	}
+
+	private int nakedSingles() throws UnsolvableException
+	{
+		int count = 0;
+
+		for ( int cell = 0; cell < units.getNumCells(); cell++ )
+		{
+			if ( digits[cell] == 0 && Integer.bitCount( candidates[cell] ) == 1 )
+			{
+				place( cell, candidates[cell] );
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	private int hiddenSingles() throws UnsolvableException
+	{
+		int count = 0;
+
+		for ( final int[] unit : units.getUnits() )
+		{
+			// the digits with at least one, and with more than one, place in the unit
+			int once = 0;
+			int twice = 0;
+			int placed = 0;
+
+			for ( final int cell : unit )
+			{
+				twice |= once & candidates[cell];
+				once  |= candidates[cell];
+
+				if ( digits[cell] != 0 )
+				{
+					placed |= candidates[cell];
+				}
+			}
+
+			if ( once != units.getAllDigits() )
+			{
+				throw new UnsolvableException( "A digit has no place in a unit" );
+			}
+
+			for ( int singles = once & ~twice & ~placed; singles != 0; singles &= singles - 1 )
+			{
+				final int bit = Integer.lowestOneBit( singles );
+
+				for ( final int cell : unit )
+				{
+					if ( digits[cell] == 0 && ( candidates[cell] & bit ) != 0 )
+					{
+						place( cell, bit );
+						count++;
+						break;
+					}
+				}
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Eliminates each digit confined to one row or column of a box from the rest of the line.
+	 */
+	private int pointing() throws UnsolvableException
+	{
+		final int size = units.size();
+		final int[][] allUnits = units.getUnits();
+
+		int count = 0;
+
+		for ( int box = 0; box < size; box++ )
+		{
+			final int[] unit = allUnits[2 * size + box];
+
+			for ( int bit = 1; bit <= units.getAllDigits(); bit <<= 1 )
+			{
+				final int line = commonLine( unit, bit );
+
+				if ( line >= 0 && eliminateOutside( allUnits[line], unit, bit ) )
+				{
+					count++;
+				}
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Eliminates each digit confined to one box of a row or column from the rest of the box.
+	 */
+	private int boxLineReduction() throws UnsolvableException
+	{
+		final int size = units.size();
+		final int[][] allUnits = units.getUnits();
+		final int[] boxOf = units.getBoxOf();
+
+		int count = 0;
+
+		for ( int line = 0; line < 2 * size; line++ )
+		{
+			final int[] unit = allUnits[line];
+
+			for ( int bit = 1; bit <= units.getAllDigits(); bit <<= 1 )
+			{
+				int box = -1;
+
+				for ( final int cell : unit )
+				{
+					if ( digits[cell] == 0 && ( candidates[cell] & bit ) != 0 )
+					{
+						if ( box == -1 )
+						{
+							box = boxOf[cell];
+						}
+						else if ( box != boxOf[cell] )
+						{
+							box = -2;
+							break;
+						}
+					}
+				}
+
+				if ( box >= 0 && eliminateOutside( allUnits[2 * size + box], unit, bit ) )
+				{
+					count++;
+				}
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Returns the row or column unit holding every unsolved place of the digit in the
+	 * box, or -1 if there is none.
+	 */
+	private int commonLine(final int[] box, final int bit)
+	{
+		final int size = units.size();
+
+		int row = -1;
+		int col = -1;
+
+		for ( final int cell : box )
+		{
+			if ( digits[cell] == 0 && ( candidates[cell] & bit ) != 0 )
+			{
+				if ( row == -1 )
+				{
+					row = cell / size;
+					col = cell % size;
+				}
+				else
+				{
+					row = ( row == cell / size ) ? row : -2;
+					col = ( col == cell % size ) ? col : -2;
+				}
+			}
+		}
+
+		if ( row >= 0 )
+		{
+			return row;
+		}
+
+		return ( col >= 0 ) ? size + col : -1;
+	}
+
+	/**
+	 * Eliminates the digit from the unsolved cells of a unit which are not in another.
+	 *
+	 * @return true if a candidate was eliminated
+	 */
+	private boolean eliminateOutside(final int[] unit, final int[] other, final int bit) throws UnsolvableException
+	{
+		boolean eliminated = false;
+
+		for ( final int cell : unit )
+		{
+			if ( digits[cell] == 0 && !contains( other, cell ) )
+			{
+				eliminated |= eliminate( cell, bit );
+			}
+		}
+
+		return eliminated;
+	}
+
+	private static boolean contains(final int[] unit, final int cell)
+	{
+		for ( final int member : unit )
+		{
+			if ( member == cell )
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Finds sets of n cells in a unit holding only n candidates between them, and
+	 * eliminates those candidates from the rest of the unit.
+	 */
+	private int nakedSubsets(final int n) throws UnsolvableException
+	{
+		int count = 0;
+
+		for ( final int[] unit : units.getUnits() )
+		{
+			int numMembers = 0;
+
+			for ( final int cell : unit )
+			{
+				final int numCandidates = Integer.bitCount( candidates[cell] );
+
+				if ( digits[cell] == 0 && numCandidates >= 2 && numCandidates <= n )
+				{
+					members[numMembers++] = cell;
+				}
+			}
+
+			if ( numMembers >= n )
+			{
+				count += nakedSubsets( unit, numMembers, n, 0, 0, 0 );
+			}
+		}
+
+		return count;
+	}
+
+	private int nakedSubsets(final int[] unit, final int numMembers, final int n, final int start, final int depth, final int union) throws UnsolvableException
+	{
+		if ( depth == n )
+		{
+			if ( Integer.bitCount( union ) != n )
+			{
+				return 0;
+			}
+
+			boolean eliminated = false;
+
+			for ( final int cell : unit )
+			{
+				if ( digits[cell] == 0 && !isInSubset( cell, n ) )
+				{
+					eliminated |= eliminate( cell, union );
+				}
+			}
+
+			return eliminated ? 1 : 0;
+		}
+
+		int count = 0;
+
+		for ( int i = start; i < numMembers; i++ )
+		{
+			final int next = union | candidates[members[i]];
+
+			if ( Integer.bitCount( next ) <= n )
+			{
+				subset[depth] = members[i];
+				count += nakedSubsets( unit, numMembers, n, i + 1, depth + 1, next );
+			}
+		}
+
+		return count;
+	}
+
+	private boolean isInSubset(final int value, final int n)
+	{
+		for ( int i = 0; i < n; i++ )
+		{
+			if ( subset[i] == value )
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Finds sets of n digits confined to the same n cells of a unit, and
+	 * eliminates every other candidate from those cells.
+	 */
+	private int hiddenSubsets(final int n) throws UnsolvableException
+	{
+		final int size = units.size();
+
+		int count = 0;
+
+		for ( final int[] unit : units.getUnits() )
+		{
+			int numMembers = 0;
+
+			// members holds the digits, places the unit positions of each digit
+			for ( int digit = 0; digit < size; digit++ )
+			{
+				int positions = 0;
+
+				for ( int i = 0; i < size; i++ )
+				{
+					if ( digits[unit[i]] == 0 && ( candidates[unit[i]] & ( 1 << digit ) ) != 0 )
+					{
+						positions |= 1 << i;
+					}
+				}
+
+				final int numPlaces = Integer.bitCount( positions );
+
+				if ( numPlaces >= 2 && numPlaces <= n )
+				{
+					members[numMembers] = digit;
+					places[numMembers]  = positions;
+					numMembers++;
+				}
+			}
+
+			if ( numMembers >= n )
+			{
+				count += hiddenSubsets( unit, numMembers, n, 0, 0, 0, 0 );
+			}
+		}
+
+		return count;
+	}
+
+	private int hiddenSubsets(final int[] unit, final int numMembers, final int n, final int start, final int depth, final int positions, final int bits) throws UnsolvableException
+	{
+		if ( depth == n )
+		{
+			if ( Integer.bitCount( positions ) != n )
+			{
+				return 0;
+			}
+
+			boolean eliminated = false;
+
+			for ( int remaining = positions; remaining != 0; remaining &= remaining - 1 )
+			{
+				eliminated |= eliminate( unit[Integer.numberOfTrailingZeros( remaining )], ~bits );
+			}
+
+			return eliminated ? 1 : 0;
+		}
+
+		int count = 0;
+
+		for ( int i = start; i < numMembers; i++ )
+		{
+			final int next = positions | places[i];
+
+			if ( Integer.bitCount( next ) <= n )
+			{
+				count += hiddenSubsets( unit, numMembers, n, i + 1, depth + 1, next, bits | ( 1 << members[i] ) );
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Finds pairs of rows in which a digit's places lie in the same two columns,
+	 * and eliminates it from the rest of those columns; then likewise for columns.
+	 */
+	private int xWings() throws UnsolvableException
+	{
+		final int size = units.size();
+		final int[][] allUnits = units.getUnits();
+
+		int count = 0;
+
+		for ( int bit = 1; bit <= units.getAllDigits(); bit <<= 1 )
+		{
+			// the rows (0) and then the columns (size) as the base lines
+			for ( int base = 0; base <= size; base += size )
+			{
+				final int cover = size - base;
+
+				for ( int line = 0; line < size; line++ )
+				{
+					places[line] = linePlaces( allUnits[base + line], bit );
+				}
+
+				for ( int first = 0; first < size; first++ )
+				{
+					if ( Integer.bitCount( places[first] ) != 2 )
+					{
+						continue;
+					}
+
+					for ( int second = first + 1; second < size; second++ )
+					{
+						if ( places[second] != places[first] )
+						{
+							continue;
+						}
+
+						boolean eliminated = false;
+
+						for ( int remaining = places[first]; remaining != 0; remaining &= remaining - 1 )
+						{
+							final int[] unit = allUnits[cover + Integer.numberOfTrailingZeros( remaining )];
+
+							for ( int i = 0; i < size; i++ )
+							{
+								if ( i != first && i != second && digits[unit[i]] == 0 )
+								{
+									eliminated |= eliminate( unit[i], bit );
+								}
+							}
+						}
+
+						if ( eliminated )
+						{
+							count++;
+						}
+					}
+				}
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Returns the positions within a row or column of the unsolved cells where the digit is possible.
+	 */
+	private int linePlaces(final int[] line, final int bit)
+	{
+		int positions = 0;
+
+		for ( int i = 0; i < line.length; i++ )
+		{
+			if ( digits[line[i]] == 0 && ( candidates[line[i]] & bit ) != 0 )
+			{
+				positions |= 1 << i;
+			}
+		}
+
+		return positions;
+	}
+}
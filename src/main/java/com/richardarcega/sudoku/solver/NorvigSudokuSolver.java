@@ -0,0 +1,177 @@
+package com.richardarcega.sudoku.solver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.richardarcega.sudoku.puzzle.Grid;
+import com.richardarcega.sudoku.puzzle.Puzzle;
+import com.richardarcega.sudoku.puzzle.Units;
+
+/**
+ * Solves a sudoku puzzle using constraint propagation and search, after
+ * Peter Norvig's "Solving Every Sudoku Puzzle".
+ *
+ * Every cell holds a bitmask of its remaining candidates. Two rules are
+ * applied until neither makes further progress:
+ * <ol>
+ * <li>if a cell has a single candidate, eliminate it from the cell's peers;</li>
+ * <li>if a unit has a single place for a digit, assign the digit there.</li>
+ * </ol>
+ * When propagation stalls, a depth-first search guesses on the cell with the
+ * fewest candidates. Each level of the search works on its own copy of the
+ * candidate masks, taken from a preallocated stack, so backtracking is free.
+ */
+public class NorvigSudokuSolver extends SudokuSolver
+{
+	private static final Logger			log			= LoggerFactory.getLogger( NorvigSudokuSolver.class );
+
+	public NorvigSudokuSolver()
+	{
+		super( Algorithm.NORVIG );
+	}
+
+	@Override
+	SearchContext newContext()
+	{
+		return new Search();
+	}
+
+	@Override
+	void solvePuzzle(final Puzzle puzzle, final SearchContext context) throws UnsolvableException
+	{
+		final Search search = (Search) context;
+		final Grid grid = puzzle.getGrid();
+
+		if ( search.search( grid, 1 ) == 0 )
+		{
+			log.info( "The puzzle is unsolvable!" );
+			throw new UnsolvableException( "The puzzle could not be solved using " + this.getClass().getSimpleName() );
+		}
+
+		search.propagator.store( search.stack[0], grid );
+	}
+
+	@Override
+	int count(final Puzzle puzzle, final int limit, final SearchContext context)
+	{
+		return ( (Search) context ).search( puzzle.getGrid(), limit );
+	}
+
+	/**
+	 * The candidate masks of one thread's search.
+	 */
+	private static final class Search extends SearchContext
+	{
+		private ConstraintPropagator	propagator	= ConstraintPropagator.STANDARD;
+
+		/**
+		 * The candidate masks of every cell, one copy per search depth. Sized for
+		 * the standard grid, and reallocated when a grid of another size is solved.
+		 */
+		private int[][]					stack		= new int[Units.STANDARD.getNumCells() + 1][Units.STANDARD.getNumCells()];
+
+		private int						limit;
+		private int						numSolutions;
+
+		/**
+		 * Searches for solutions to the grid until the limit is reached.
+		 *
+		 * @return the number of solutions found
+		 */
+		int search(final Grid grid, final int limit)
+		{
+			this.limit        = limit;
+			this.numSolutions = 0;
+
+			if ( grid.size() != propagator.getUnits().size() )
+			{
+				propagator = ConstraintPropagator.of( grid.size() );
+				stack      = new int[propagator.getUnits().getNumCells() + 1][propagator.getUnits().getNumCells()];
+			}
+
+			final boolean consistent = propagator.load( grid, stack[0] );
+
+			if ( SolveStats.ENABLED )
+			{
+				propagations += propagator.getUnits().getNumCells() * grid.size() - propagator.countCandidates( stack[0] );
+			}
+
+			if ( consistent )
+			{
+				search( 0 );
+			}
+
+			return numSolutions;
+		}
+
+		/**
+		 * Searches for solutions from the candidate masks at the given depth.
+		 * When the limit is reached the solved masks are copied to {@code stack[0]},
+		 * from where they are written back to the grid.
+		 *
+		 * @return true once the limit on the number of solutions is reached
+		 */
+		private boolean search(final int depth)
+		{
+			final int[] values = stack[depth];
+
+			if ( --budget < 0 )
+			{
+				budget = nextBudget();
+			}
+
+			if ( SolveStats.ENABLED )
+			{
+				nodes++;
+				maxDepth = Math.max( maxDepth, depth );
+			}
+
+			// choose the unfilled cell with the fewest candidates
+			final int cell = propagator.selectCell( values );
+
+			if ( cell < 0 )
+			{
+				// every cell holds a single candidate
+				if ( ++numSolutions < limit )
+				{
+					return false;
+				}
+
+				if ( depth != 0 )
+				{
+					System.arraycopy( values, 0, stack[0], 0, values.length );
+				}
+
+				return true;
+			}
+
+			final int[] next = stack[depth + 1];
+			final int numCandidates = SolveStats.ENABLED ? propagator.countCandidates( values ) : 0;
+
+			for ( int candidates = values[cell]; candidates != 0; candidates &= candidates - 1 )
+			{
+				System.arraycopy( values, 0, next, 0, values.length );
+
+				final boolean consistent = propagator.assign( next, cell, Integer.lowestOneBit( candidates ) );
+
+				if ( SolveStats.ENABLED )
+				{
+					guesses++;
+					propagations += numCandidates - propagator.countCandidates( next );
+				}
+
+				if ( consistent && search( depth + 1 ) )
+				{
+					return true;
+				}
+
+				if ( SolveStats.ENABLED )
+				{
+					backtracks++;
+				}
+			}
+
+			return false;
+		}
+	}
+}
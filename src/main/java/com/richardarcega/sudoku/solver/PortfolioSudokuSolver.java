@@ -0,0 +1,360 @@
+package com.richardarcega.sudoku.solver;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.richardarcega.sudoku.puzzle.Grid;
+import com.richardarcega.sudoku.puzzle.Puzzle;
+
+/**
+ * Races several algorithms against each other, each on its own thread and
+ * its own copy of the puzzle, and takes the first result.
+ *
+ * The algorithms have different worst cases: a puzzle which makes plain
+ * backtracking explode may fall to exact cover or constraint propagation at
+ * once, and the reverse. Once one engine has a result the others are
+ * interrupted, and the solve returns as soon as they have stopped, which
+ * takes at most {@link SolveLimits#CHECK_INTERVAL} nodes each, so that no
+ * search of the puzzle outlives the call. Every engine is given the limits
+ * of the search, so a node limit bounds each engine rather than their sum.
+ *
+ * The number of races won by each engine is kept, to help tune the portfolio.
+ * The engines' own metrics include the searches they were interrupted in.
+ */
+public class PortfolioSudokuSolver extends SudokuSolver
+{
+	private static final Logger					log			= LoggerFactory.getLogger( PortfolioSudokuSolver.class );
+
+	/**
+	 * The engines raced when none are specified.
+	 */
+	public static final List<Algorithm>			DEFAULT_ENGINES	= ImmutableList.of( Algorithm.BACKTRACK, Algorithm.NORVIG, Algorithm.DLX );
+
+	/**
+	 * The pool shared by portfolios which are not given one. It grows to
+	 * the number of engines racing at once.
+	 */
+	private static final ExecutorService		SHARED_POOL	= Executors.newCachedThreadPool(
+		new ThreadFactoryBuilder().setNameFormat( "portfolio-%d" ).setDaemon( true ).build() );
+
+	private final ExecutorService				executor;
+	private final List<Algorithm>				algorithms;
+	private final List<SudokuSolver>			engines		= Lists.newArrayList();
+	private final Map<Algorithm, AtomicLong>	wins		= new EnumMap<Algorithm, AtomicLong>( Algorithm.class );
+
+	public PortfolioSudokuSolver()
+	{
+		this( SHARED_POOL, DEFAULT_ENGINES );
+	}
+
+	/**
+	 * @param algorithms	the engines to race, each at most once
+	 */
+	public PortfolioSudokuSolver(final Algorithm... algorithms)
+	{
+		this( SHARED_POOL, Arrays.asList( algorithms ) );
+	}
+
+	/**
+	 * @param executor		the threads on which the engines run, at least one per engine
+	 * @param algorithms	the engines to race, each at most once
+	 */
+	public PortfolioSudokuSolver(final ExecutorService executor, final List<Algorithm> algorithms)
+	{
+		super( Algorithm.PORTFOLIO );
+
+		checkArgument( !algorithms.isEmpty(), "At least one engine must be specified" );
+		checkArgument( !algorithms.contains( Algorithm.PORTFOLIO ), "A portfolio cannot race itself" );
+
+		this.executor   = executor;
+		this.algorithms = ImmutableList.copyOf( algorithms );
+
+		for ( final Algorithm algorithm : this.algorithms )
+		{
+			checkArgument( !wins.containsKey( algorithm ), "Engine specified more than once: " + algorithm.name() );
+
+			engines.add( SolverFactory.getSolver( algorithm ) );
+			wins.put( algorithm, new AtomicLong() );
+		}
+	}
+
+	/**
+	 * The outcome of one engine's search.
+	 */
+	private static final class Result
+	{
+		private final int			engine;
+		private final Grid			grid;
+		private final Throwable		failure;
+		private final SolveStats	stats;
+
+		Result(final int engine, final Grid grid, final Throwable failure, final SolveStats stats)
+		{
+			this.engine  = engine;
+			this.grid    = grid;
+			this.failure = failure;
+			this.stats   = stats;
+		}
+	}
+
+	/**
+	 * One engine's search of its copy of the puzzle. Unlike a cancelled
+	 * {@link java.util.concurrent.Future}, a cancelled task which has yet to
+	 * start still runs, and stops at once, so that every task is seen to stop.
+	 */
+	private final class Race implements Runnable
+	{
+		private final int					engine;
+		private final Grid					grid;
+		private final SolveLimits			limits;
+		private final BlockingQueue<Result>	results;
+		private final CountDownLatch		stopped;
+
+		private Thread						runner;
+		private boolean						cancelled;
+
+		Race(final int engine, final Grid grid, final SolveLimits limits, final BlockingQueue<Result> results, final CountDownLatch stopped)
+		{
+			this.engine  = engine;
+			this.grid    = grid;
+			this.limits  = limits;
+			this.results = results;
+			this.stopped = stopped;
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				synchronized ( this )
+				{
+					if ( cancelled )
+					{
+						return;
+					}
+
+					runner = Thread.currentThread();
+				}
+
+				// the engine's statistics are those of this thread's search
+				final SudokuSolver solver = engines.get( engine );
+
+				try
+				{
+					solver.solve( new Puzzle( grid ), limits );
+					results.add( new Result( engine, grid, null, solver.getLastStats() ) );
+				}
+				catch ( final Throwable e )
+				{
+					results.add( new Result( engine, null, e, solver.getLastStats() ) );
+				}
+				finally
+				{
+					synchronized ( this )
+					{
+						runner = null;
+
+						// leave the pool's thread as it was found
+						Thread.interrupted();
+					}
+				}
+			}
+			finally
+			{
+				stopped.countDown();
+			}
+		}
+
+		synchronized void cancel()
+		{
+			cancelled = true;
+
+			if ( runner != null )
+			{
+				runner.interrupt();
+			}
+		}
+	}
+
+	@Override
+	void solvePuzzle(final Puzzle puzzle, final SearchContext context) throws UnsolvableException
+	{
+		final Grid grid = puzzle.getGrid();
+		final SolveLimits limits = context.remainingLimits();
+
+		final int numEngines = engines.size();
+		final BlockingQueue<Result> results = new LinkedBlockingQueue<Result>();
+		final CountDownLatch stopped = new CountDownLatch( numEngines );
+		final List<Race> races = Lists.newArrayListWithCapacity( numEngines );
+
+		for ( int i = 0; i < numEngines; i++ )
+		{
+			final Race race = new Race( i, grid.copy(), limits, results, stopped );
+
+			races.add( race );
+			executor.execute( race );
+		}
+
+		Result winner = null;
+		Throwable failure = null;
+
+		try
+		{
+			for ( int i = 0; i < numEngines && winner == null; i++ )
+			{
+				final Result result = results.take();
+
+				// an engine which proves the puzzle unsolvable decides the race too
+				if ( result.failure == null || isUnsolvable( result.failure ) )
+				{
+					winner = result;
+				}
+				else if ( failure == null )
+				{
+					failure = result.failure;
+				}
+			}
+		}
+		catch ( final InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+			throw new SearchAbort( SearchAbortedException.Reason.INTERRUPTED );
+		}
+		finally
+		{
+			for ( final Race race : races )
+			{
+				race.cancel();
+			}
+
+			awaitUninterruptibly( stopped );
+		}
+
+		if ( winner == null )
+		{
+			if ( failure instanceof SearchAbortedException )
+			{
+				throw new SearchAbort( ( (SearchAbortedException) failure ).getReason() );
+			}
+
+			throw new IllegalStateException( "Every engine of the portfolio failed", failure );
+		}
+
+		wins.get( algorithms.get( winner.engine ) ).incrementAndGet();
+		context.addStats( winner.stats );
+
+		if ( winner.failure != null )
+		{
+			log.info( "The puzzle is unsolvable!" );
+			throw (UnsolvableException) winner.failure;
+		}
+
+		for ( int y = 0; y < grid.size(); y++ )
+		{
+			for ( int x = 0; x < grid.size(); x++ )
+			{
+				grid.setCellValue( x, y, winner.grid.getCellValue( x, y ) );
+			}
+		}
+	}
+
+	/**
+	 * Counts the solutions with the first engine alone; counting runs to completion
+	 * in every engine, so racing gains little.
+	 */
+	@Override
+	int count(final Puzzle puzzle, final int limit, final SearchContext context)
+	{
+		final SudokuSolver engine = engines.get( 0 );
+
+		try
+		{
+			return engine.countSolutions( puzzle, limit, context.remainingLimits() );
+		}
+		catch ( final SearchAbortedException e )
+		{
+			throw new SearchAbort( e.getReason() );
+		}
+		finally
+		{
+			context.addStats( engine.getLastStats() );
+		}
+	}
+
+	private static boolean isUnsolvable(final Throwable failure)
+	{
+		return failure instanceof UnsolvableException && !( failure instanceof SearchAbortedException );
+	}
+
+	/**
+	 * Waits for the engines to stop, restoring the interrupt status if interrupted while waiting.
+	 */
+	private static void awaitUninterruptibly(final CountDownLatch stopped)
+	{
+		boolean interrupted = false;
+
+		while ( true )
+		{
+			try
+			{
+				stopped.await();
+				break;
+			}
+			catch ( final InterruptedException e )
+			{
+				interrupted = true;
+			}
+		}
+
+		if ( interrupted )
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public List<Algorithm> getAlgorithms()
+	{
+		return algorithms;
+	}
+
+	/**
+	 * Returns the number of races won by the given engine.
+	 */
+	public long getWins(final Algorithm algorithm)
+	{
+		final AtomicLong count = wins.get( algorithm );
+		return ( count == null ) ? 0 : count.get();
+	}
+
+	/**
+	 * Returns the number of races won by each engine.
+	 */
+	public Map<Algorithm, Long> getWinCounts()
+	{
+		final Map<Algorithm, Long> counts = new EnumMap<Algorithm, Long>( Algorithm.class );
+
+		for ( final Map.Entry<Algorithm, AtomicLong> entry : wins.entrySet() )
+		{
+			counts.put( entry.getKey(), entry.getValue().get() );
+		}
+
+		return counts;
+	}
+}
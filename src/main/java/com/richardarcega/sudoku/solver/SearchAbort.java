@@ -0,0 +1,25 @@
+package com.richardarcega.sudoku.solver;
+
+/**
+ * Unwinds a search which has reached one of its limits. Thrown from deep
+ * within the search and converted to a {@link SearchAbortedException} by
+ * {@link SudokuSolver}; it carries no stack trace.
+ */
+final class SearchAbort extends RuntimeException
+{
+	private static final long						serialVersionUID	= 2975102846018840322L;
+
+	private final SearchAbortedException.Reason		reason;
+
+	SearchAbort(final SearchAbortedException.Reason reason)
+	{
+		super( reason.name(), null, false, false );
+
+		this.reason = reason;
+	}
+
+	SearchAbortedException.Reason getReason()
+	{
+		return reason;
+	}
+}
@@ -0,0 +1,45 @@
+package com.richardarcega.sudoku.solver;
+
+/**
+ * Signals that a search stopped before finding a solution because it reached
+ * one of its {@link SolveLimits}, or because its thread was interrupted. The
+ * statistics of the search up to that point are attached.
+ */
+public class SearchAbortedException extends UnsolvableException
+{
+	private static final long	serialVersionUID	= -3215741094268571635L;
+
+	/**
+	 * Why a search was stopped.
+	 */
+	public enum Reason
+	{
+		DEADLINE,
+		NODE_LIMIT,
+		INTERRUPTED
+	}
+
+	private final Reason		reason;
+	private final SolveStats	stats;
+
+	public SearchAbortedException(final String message, final Reason reason, final SolveStats stats)
+	{
+		super( message );
+
+		this.reason = reason;
+		this.stats  = stats;
+	}
+
+	public Reason getReason()
+	{
+		return reason;
+	}
+
+	/**
+	 * Returns the statistics of the search up to the point at which it stopped.
+	 */
+	public SolveStats getStats()
+	{
+		return stats;
+	}
+}
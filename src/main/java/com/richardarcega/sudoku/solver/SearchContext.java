@@ -0,0 +1,172 @@
+package com.richardarcega.sudoku.solver;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The state of a search: its limits, node budget and counters. Solvers extend
+ * it with the scratch structures of their search, and keep it for their next
+ * search once it is done.
+ *
+ * A context is used by one search at a time, and so needs no synchronization.
+ * {@link #checkLimits(long, Thread)} alone may be called from the threads
+ * of a parallel search.
+ */
+class SearchContext
+{
+	/**
+	 * The limits of the current search, and the value of {@code System.nanoTime()}
+	 * at which it times out.
+	 */
+	private SolveLimits	limits		= SolveLimits.NONE;
+	private long		start;
+	private long		deadline;
+
+	/**
+	 * The number of nodes granted to the current search so far.
+	 */
+	private long		granted;
+
+	/**
+	 * The nodes the current search may visit before the limits are next checked.
+	 * Decremented by the solvers at every node.
+	 */
+	int					budget;
+
+	/*
+	 * The counters of the current search, updated by the solvers while
+	 * SolveStats.ENABLED and reset at the start of every search.
+	 */
+	long				nodes;
+	long				guesses;
+	long				backtracks;
+	long				propagations;
+	int					maxDepth;
+
+	/**
+	 * Starts a search within the limits, resetting the counters.
+	 */
+	final void startSearch(final SolveLimits limits)
+	{
+		this.limits = checkNotNull( limits );
+
+		nodes        = 0;
+		guesses      = 0;
+		backtracks   = 0;
+		propagations = 0;
+		maxDepth     = 0;
+
+		start    = System.nanoTime();
+		deadline = ( limits.getTimeoutNanos() == Long.MAX_VALUE ) ? Long.MAX_VALUE : start + limits.getTimeoutNanos();
+		granted  = Math.min( SolveLimits.CHECK_INTERVAL, limits.getMaxNodes() );
+		budget   = (int) granted;
+	}
+
+	/**
+	 * Ends the current search.
+	 *
+	 * @return the statistics of the search
+	 */
+	final SolveStats finishSearch(final boolean solved)
+	{
+		return new SolveStats( nodes, guesses, backtracks, maxDepth, propagations, System.nanoTime() - start, solved );
+	}
+
+	/**
+	 * Called when the budget of nodes is spent: checks the limits, and grants
+	 * the next budget if none is exceeded. The node being visited is charged
+	 * to the new budget.
+	 *
+	 * @return the new budget
+	 * @throws SearchAbort if a limit is exceeded
+	 */
+	final int nextBudget()
+	{
+		final SearchAbortedException.Reason reason = checkLimits( granted, Thread.currentThread() );
+
+		if ( reason != null )
+		{
+			throw new SearchAbort( reason );
+		}
+
+		final long next = Math.min( SolveLimits.CHECK_INTERVAL, limits.getMaxNodes() - granted );
+		granted += next;
+
+		return (int) next - 1;
+	}
+
+	/**
+	 * Checks the limits of the current search. Safe to call from the threads
+	 * of a parallel search.
+	 *
+	 * @param numNodes	the number of nodes visited so far
+	 * @param thread	the thread whose interruption stops the search
+	 *
+	 * @return the limit which is exceeded, or null if none is
+	 */
+	final SearchAbortedException.Reason checkLimits(final long numNodes, final Thread thread)
+	{
+		if ( numNodes >= limits.getMaxNodes() )
+		{
+			return SearchAbortedException.Reason.NODE_LIMIT;
+		}
+
+		if ( limits.isInterruptible() && thread.isInterrupted() )
+		{
+			return SearchAbortedException.Reason.INTERRUPTED;
+		}
+
+		if ( deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0 )
+		{
+			return SearchAbortedException.Reason.DEADLINE;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the number of nodes a task of a parallel search may visit between
+	 * checks of the limits.
+	 */
+	final int checkInterval()
+	{
+		return (int) Math.min( SolveLimits.CHECK_INTERVAL, Math.max( 1, limits.getMaxNodes() ) );
+	}
+
+	/**
+	 * Returns what is left of the current search's limits, for a search
+	 * delegated to another solver.
+	 */
+	final SolveLimits remainingLimits()
+	{
+		if ( limits.getMaxNodes() == Long.MAX_VALUE && deadline == Long.MAX_VALUE )
+		{
+			return limits;
+		}
+
+		SolveLimits remaining = limits.withMaxNodes( Math.max( 0, limits.getMaxNodes() - ( granted - budget ) ) );
+
+		if ( deadline != Long.MAX_VALUE )
+		{
+			remaining = remaining.withTimeout( Math.max( 0, deadline - System.nanoTime() ), TimeUnit.NANOSECONDS );
+		}
+
+		return remaining;
+	}
+
+	/**
+	 * Adds the counters of another search to those of the current search.
+	 */
+	final void addStats(final SolveStats stats)
+	{
+		if ( SolveStats.ENABLED )
+		{
+			nodes        += stats.getNodes();
+			guesses      += stats.getGuesses();
+			backtracks   += stats.getBacktracks();
+			propagations += stats.getPropagations();
+			maxDepth      = Math.max( maxDepth, stats.getMaxDepth() );
+		}
+	}
+}
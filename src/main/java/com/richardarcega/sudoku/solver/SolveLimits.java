@@ -0,0 +1,105 @@
+package com.richardarcega.sudoku.solver;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The limits on a single search: a timeout, measured from the start of the
+ * search, and a maximum number of search nodes. A search which exceeds a limit,
+ * or whose thread is interrupted, stops with a {@link SearchAbortedException}.
+ *
+ * The limits are checked every {@link #CHECK_INTERVAL} nodes, so a search may
+ * overrun its timeout by the time taken to visit that many nodes.
+ */
+public final class SolveLimits
+{
+	/**
+	 * The number of search nodes between checks of the limits.
+	 */
+	public static final int				CHECK_INTERVAL	= 1024;
+
+	/**
+	 * No timeout or node limit; the search stops only when its thread is interrupted.
+	 */
+	public static final SolveLimits		NONE			= new SolveLimits( Long.MAX_VALUE, Long.MAX_VALUE, true );
+
+	/**
+	 * No limits at all, not even interruption.
+	 */
+	static final SolveLimits			UNINTERRUPTIBLE	= new SolveLimits( Long.MAX_VALUE, Long.MAX_VALUE, false );
+
+	private final long					timeoutNanos;
+	private final long					maxNodes;
+	private final boolean				interruptible;
+
+	private SolveLimits(final long timeoutNanos, final long maxNodes, final boolean interruptible)
+	{
+		this.timeoutNanos  = timeoutNanos;
+		this.maxNodes      = maxNodes;
+		this.interruptible = interruptible;
+	}
+
+	/**
+	 * Returns limits with only a timeout.
+	 */
+	public static SolveLimits timeout(final long timeout, final TimeUnit unit)
+	{
+		return NONE.withTimeout( timeout, unit );
+	}
+
+	/**
+	 * Returns limits with only a maximum number of search nodes.
+	 */
+	public static SolveLimits maxNodes(final long maxNodes)
+	{
+		return NONE.withMaxNodes( maxNodes );
+	}
+
+	/**
+	 * Returns a copy of these limits with the given timeout.
+	 */
+	public SolveLimits withTimeout(final long timeout, final TimeUnit unit)
+	{
+		checkArgument( timeout >= 0, "Timeout must be >= 0. Specified: " + timeout );
+
+		return new SolveLimits( unit.toNanos( timeout ), maxNodes, interruptible );
+	}
+
+	/**
+	 * Returns a copy of these limits with the given maximum number of search nodes.
+	 */
+	public SolveLimits withMaxNodes(final long maxNodes)
+	{
+		checkArgument( maxNodes >= 0, "Maximum nodes must be >= 0. Specified: " + maxNodes );
+
+		return new SolveLimits( timeoutNanos, maxNodes, interruptible );
+	}
+
+	/**
+	 * Returns the timeout in nanoseconds, or {@code Long.MAX_VALUE} if there is none.
+	 */
+	public long getTimeoutNanos()
+	{
+		return timeoutNanos;
+	}
+
+	/**
+	 * Returns the maximum number of search nodes, or {@code Long.MAX_VALUE} if there is no limit.
+	 */
+	public long getMaxNodes()
+	{
+		return maxNodes;
+	}
+
+	public boolean isInterruptible()
+	{
+		return interruptible;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "SolveLimits [timeoutNanos=" + timeoutNanos + ", maxNodes=" + maxNodes + ", interruptible=" + interruptible + "]";
+	}
+}
@@ -0,0 +1,106 @@
+package com.richardarcega.sudoku.solver;
+
+import java.io.Serializable;
+
+/**
+ * The statistics of a single search by a {@link SudokuSolver}: a call to
+ * {@link SudokuSolver#solve} or {@link SudokuSolver#countSolutions}.
+ *
+ * What counts as a propagation depends on the algorithm: candidates eliminated
+ * by constraint propagation, columns covered by DLX, or cells filled as single
+ * candidates by backtracking.
+ */
+public final class SolveStats implements Serializable
+{
+	private static final long		serialVersionUID	= 6502371914453870263L;
+
+	/**
+	 * Whether the solvers record statistics. Read once from the system property
+	 * {@code sudoku.stats} (default true); being a static final constant, the JIT
+	 * removes the instrumentation entirely when it is false. Replacing the
+	 * initializer with {@code false} removes it at compile time.
+	 */
+	public static final boolean		ENABLED	= Boolean.parseBoolean( System.getProperty( "sudoku.stats", "true" ) );
+
+	/**
+	 * The statistics reported when none have been recorded.
+	 */
+	public static final SolveStats	NONE	= new SolveStats( 0, 0, 0, 0, 0, 0, false );
+
+	private final long				nodes;
+	private final long				guesses;
+	private final long				backtracks;
+	private final int				maxDepth;
+	private final long				propagations;
+	private final long				elapsedNanos;
+	private final boolean			solved;
+
+	SolveStats(final long nodes, final long guesses, final long backtracks, final int maxDepth, final long propagations,
+		final long elapsedNanos, final boolean solved)
+	{
+		this.nodes        = nodes;
+		this.guesses      = guesses;
+		this.backtracks   = backtracks;
+		this.maxDepth     = maxDepth;
+		this.propagations = propagations;
+		this.elapsedNanos = elapsedNanos;
+		this.solved       = solved;
+	}
+
+	/**
+	 * Returns the number of search states examined.
+	 */
+	public long getNodes()
+	{
+		return nodes;
+	}
+
+	/**
+	 * Returns the number of digits tried at guess points.
+	 */
+	public long getGuesses()
+	{
+		return guesses;
+	}
+
+	/**
+	 * Returns the number of guesses withdrawn after leading to a dead end.
+	 */
+	public long getBacktracks()
+	{
+		return backtracks;
+	}
+
+	/**
+	 * Returns the greatest number of guesses on a single path of the search.
+	 */
+	public int getMaxDepth()
+	{
+		return maxDepth;
+	}
+
+	public long getPropagations()
+	{
+		return propagations;
+	}
+
+	public long getElapsedNanos()
+	{
+		return elapsedNanos;
+	}
+
+	/**
+	 * Returns true if the search found a solution.
+	 */
+	public boolean isSolved()
+	{
+		return solved;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "SolveStats [nodes=" + nodes + ", guesses=" + guesses + ", backtracks=" + backtracks + ", maxDepth=" + maxDepth
+			+ ", propagations=" + propagations + ", elapsedNanos=" + elapsedNanos + ", solved=" + solved + "]";
+	}
+}
@@ -12,6 +12,14 @@ public abstract class SolverFactory
 		{
 			case BACKTRACK:
 				return new BacktrackSudokuSolver();
+			case NORVIG:
+				return new NorvigSudokuSolver();
+			case DLX:
+				return new DlxSudokuSolver();
+			case FORK_JOIN:
+				return new ForkJoinSudokuSolver();
+			case PORTFOLIO:
+				return new PortfolioSudokuSolver();
 			default:
 				break;
 		}
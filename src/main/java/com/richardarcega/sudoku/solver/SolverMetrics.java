@@ -0,0 +1,160 @@
+package com.richardarcega.sudoku.solver;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The cumulative search statistics of every solver of one {@link Algorithm},
+ * published to the platform MBean server as
+ * {@code com.richardarcega.sudoku:type=SolverMetrics,algorithm=<name>}.
+ */
+public final class SolverMetrics implements SolverMetricsMBean
+{
+	private static final Logger						log			= LoggerFactory.getLogger( SolverMetrics.class );
+
+	private static final Map<Algorithm, SolverMetrics>	METRICS		= new EnumMap<Algorithm, SolverMetrics>( Algorithm.class );
+
+	static
+	{
+		for ( final Algorithm algorithm : Algorithm.values() )
+		{
+			final SolverMetrics metrics = new SolverMetrics();
+			METRICS.put( algorithm, metrics );
+
+			try
+			{
+				ManagementFactory.getPlatformMBeanServer().registerMBean( metrics,
+					new ObjectName( "com.richardarcega.sudoku:type=SolverMetrics,algorithm=" + algorithm.name() ) );
+			}
+			catch ( final JMException e )
+			{
+				log.warn( "Could not register the solver metrics of " + algorithm.name(), e );
+			}
+		}
+	}
+
+	private final AtomicLong		searches		= new AtomicLong();
+	private final AtomicLong		unsolved		= new AtomicLong();
+	private final AtomicLong		nodes			= new AtomicLong();
+	private final AtomicLong		guesses			= new AtomicLong();
+	private final AtomicLong		backtracks		= new AtomicLong();
+	private final AtomicLong		propagations	= new AtomicLong();
+	private final AtomicInteger		maxDepth		= new AtomicInteger();
+	private final AtomicLong		totalNanos		= new AtomicLong();
+
+	private SolverMetrics()
+	{
+	}
+
+	/**
+	 * Returns the metrics of the given algorithm.
+	 */
+	public static SolverMetrics of(final Algorithm algorithm)
+	{
+		return METRICS.get( algorithm );
+	}
+
+	/**
+	 * Adds the statistics of a search.
+	 */
+	void record(final SolveStats stats)
+	{
+		searches.incrementAndGet();
+
+		if ( !stats.isSolved() )
+		{
+			unsolved.incrementAndGet();
+		}
+
+		nodes.addAndGet( stats.getNodes() );
+		guesses.addAndGet( stats.getGuesses() );
+		backtracks.addAndGet( stats.getBacktracks() );
+		propagations.addAndGet( stats.getPropagations() );
+		totalNanos.addAndGet( stats.getElapsedNanos() );
+
+		for ( int depth = maxDepth.get(); stats.getMaxDepth() > depth; depth = maxDepth.get() )
+		{
+			if ( maxDepth.compareAndSet( depth, stats.getMaxDepth() ) )
+			{
+				break;
+			}
+		}
+	}
+
+	@Override
+	public long getSearches()
+	{
+		return searches.get();
+	}
+
+	@Override
+	public long getUnsolved()
+	{
+		return unsolved.get();
+	}
+
+	@Override
+	public long getNodes()
+	{
+		return nodes.get();
+	}
+
+	@Override
+	public long getGuesses()
+	{
+		return guesses.get();
+	}
+
+	@Override
+	public long getBacktracks()
+	{
+		return backtracks.get();
+	}
+
+	@Override
+	public long getPropagations()
+	{
+		return propagations.get();
+	}
+
+	@Override
+	public int getMaxDepth()
+	{
+		return maxDepth.get();
+	}
+
+	@Override
+	public long getTotalNanos()
+	{
+		return totalNanos.get();
+	}
+
+	@Override
+	public long getMeanNanos()
+	{
+		final long count = searches.get();
+		return ( count == 0 ) ? 0 : totalNanos.get() / count;
+	}
+
+	@Override
+	public void reset()
+	{
+		searches.set( 0 );
+		unsolved.set( 0 );
+		nodes.set( 0 );
+		guesses.set( 0 );
+		backtracks.set( 0 );
+		propagations.set( 0 );
+		maxDepth.set( 0 );
+		totalNanos.set( 0 );
+	}
+}
@@ -0,0 +1,27 @@
+package com.richardarcega.sudoku.solver;
+
+/**
+ * The management interface of {@link SolverMetrics}.
+ */
+public interface SolverMetricsMBean
+{
+	long getSearches();
+
+	long getUnsolved();
+
+	long getNodes();
+
+	long getGuesses();
+
+	long getBacktracks();
+
+	long getPropagations();
+
+	int getMaxDepth();
+
+	long getTotalNanos();
+
+	long getMeanNanos();
+
+	void reset();
+}
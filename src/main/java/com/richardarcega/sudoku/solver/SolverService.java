@@ -0,0 +1,171 @@
+package com.richardarcega.sudoku.solver;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
+import com.richardarcega.sudoku.puzzle.Puzzle;
+
+/**
+ * Serves solvers to concurrent callers.
+ *
+ * Solvers are reentrant and keep the scratch structures of finished searches
+ * for the next, so a single instance of each algorithm serves every caller,
+ * and solves only allocate search state when more callers than ever before are
+ * solving at once. The solvers are created with the service and never replaced,
+ * so handing one out takes no lock.
+ */
+public class SolverService
+{
+	private static final Logger						log				= LoggerFactory.getLogger( SolverService.class );
+
+	/**
+	 * The puzzle solved by {@link #warmUp(int)}.
+	 */
+	private static final String						WARM_UP_PUZZLE	= "medium.txt";
+
+	private final Map<Algorithm, SudokuSolver>		solvers			= new EnumMap<Algorithm, SudokuSolver>( Algorithm.class );
+	private final Algorithm							defaultAlgorithm;
+
+	/**
+	 * Creates a service for every algorithm, defaulting to {@link Algorithm#DLX}.
+	 */
+	public SolverService()
+	{
+		this( Algorithm.DLX, Algorithm.values() );
+	}
+
+	/**
+	 * @param defaultAlgorithm	the algorithm used when none is specified
+	 * @param algorithms		the algorithms served
+	 */
+	public SolverService(final Algorithm defaultAlgorithm, final Algorithm... algorithms)
+	{
+		for ( final Algorithm algorithm : algorithms )
+		{
+			solvers.put( algorithm, SolverFactory.getSolver( algorithm ) );
+		}
+
+		checkArgument( solvers.containsKey( defaultAlgorithm ), "Default algorithm must be served. Specified: " + defaultAlgorithm.name() );
+
+		this.defaultAlgorithm = defaultAlgorithm;
+	}
+
+	/**
+	 * Returns the shared solver of the given algorithm.
+	 *
+	 * @throws IllegalArgumentException if the algorithm is not served
+	 */
+	public SudokuSolver getSolver(final Algorithm algorithm)
+	{
+		final SudokuSolver solver = solvers.get( algorithm );
+
+		checkArgument( solver != null, "Algorithm is not served: " + algorithm.name() );
+
+		return solver;
+	}
+
+	/**
+	 * Returns the shared solver of the default algorithm.
+	 */
+	public SudokuSolver getSolver()
+	{
+		return solvers.get( defaultAlgorithm );
+	}
+
+	/**
+	 * Solves the puzzle with the given algorithm within the limits.
+	 *
+	 * @return the statistics of the search
+	 * @throws SearchAbortedException if a limit is reached, or the thread is interrupted
+	 * @throws UnsolvableException if the puzzle has no solution
+	 */
+	public SolveStats solve(final Puzzle puzzle, final Algorithm algorithm, final SolveLimits limits) throws UnsolvableException
+	{
+		final SudokuSolver solver = getSolver( algorithm );
+
+		solver.solve( puzzle, limits );
+		return solver.getLastStats();
+	}
+
+	/**
+	 * Counts the solutions of the puzzle with the given algorithm within the limits.
+	 *
+	 * @return the number of solutions, at most {@code limit}
+	 * @throws SearchAbortedException if a limit is reached, or the thread is interrupted
+	 */
+	public int countSolutions(final Puzzle puzzle, final Algorithm algorithm, final int limit, final SolveLimits limits) throws SearchAbortedException
+	{
+		return getSolver( algorithm ).countSolutions( puzzle, limit, limits );
+	}
+
+	/**
+	 * Solves a bundled puzzle with every solver, so that their search code is
+	 * compiled, and their scratch structures allocated, before the first real
+	 * puzzle arrives.
+	 *
+	 * @param numSolves	the number of times each solver solves the puzzle
+	 */
+	public void warmUp(final int numSolves) throws IOException
+	{
+		checkArgument( numSolves >= 0, "Number of solves must be >= 0. Specified: " + numSolves );
+
+		final BitboardGrid puzzle = new BitboardGrid();
+		final InputStream puzzleFile = SolverService.class.getClassLoader().getResourceAsStream( WARM_UP_PUZZLE );
+
+		if ( puzzleFile == null )
+		{
+			throw new IOException( "Warm-up puzzle not found: " + WARM_UP_PUZZLE );
+		}
+
+		try
+		{
+			puzzle.load( puzzleFile );
+		}
+		finally
+		{
+			puzzleFile.close();
+		}
+
+		final long start = System.nanoTime();
+
+		for ( final Map.Entry<Algorithm, SudokuSolver> entry : solvers.entrySet() )
+		{
+			for ( int i = 0; i < numSolves; i++ )
+			{
+				try
+				{
+					entry.getValue().solve( new Puzzle( puzzle.copy() ) );
+				}
+				catch ( final UnsolvableException e )
+				{
+					throw new IllegalStateException( "Warm-up puzzle could not be solved by " + entry.getKey().name(), e );
+				}
+			}
+		}
+
+		log.info( "Warmed up " + solvers.size() + " solvers in " + ( System.nanoTime() - start ) / 1000000 + " ms" );
+	}
+
+	/**
+	 * Returns the algorithms served.
+	 */
+	public Set<Algorithm> getAlgorithms()
+	{
+		return Collections.unmodifiableSet( solvers.keySet() );
+	}
+
+	public Algorithm getDefaultAlgorithm()
+	{
+		return defaultAlgorithm;
+	}
+}
@@ -5,4 +5,8 @@ import com.richardarcega.sudoku.puzzle.Puzzle;
 interface Strategy
 {
 	void solve(Puzzle puzzle) throws UnsolvableException;
+
+	void solve(Puzzle puzzle, SolveLimits limits) throws UnsolvableException;
+
+	int countSolutions(Puzzle puzzle, int limit);
 }
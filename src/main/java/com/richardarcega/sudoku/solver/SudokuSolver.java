@@ -1,15 +1,264 @@
 package com.richardarcega.sudoku.solver;
 
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
 import com.richardarcega.sudoku.puzzle.Puzzle;
 
 /**
  * A class to solve sudoku puzzles.
+ *
+ * Every search is timed and its counters collected into a {@link SolveStats};
+ * the counters stay at zero when {@link SolveStats#ENABLED} is false. Solvers of
+ * a known {@link Algorithm} also add their statistics to its {@link SolverMetrics}.
+ *
+ * A search may be bounded by {@link SolveLimits}. Subclasses spend a budget of
+ * nodes as they search, and call {@link SearchContext#nextBudget()} when it runs
+ * out, which checks the limits and throws a {@link SearchAbort} once one is exceeded.
+ *
+ * The hierarchy is closed: the search hooks take the package-private
+ * {@link SearchContext}, so every solver is declared in this package;
+ * its constructors and hooks are package-private.
+ *
+ * Solvers are reentrant: the state of a search is held in a {@link SearchContext}
+ * used by one search at a time, so one instance may be shared by any number of
+ * threads. Contexts are kept between searches, so their scratch structures stay
+ * warm even when every search runs on a new thread.
  */
 public abstract class SudokuSolver implements Strategy
 {
 	/**
-	 * Solves the specified puzzle.
+	 * The metrics of the solver's algorithm, or null if it has none.
+	 */
+	private final SolverMetrics					metrics;
+
+	/**
+	 * The search states not in use. A search takes the most recently used, and a
+	 * solver used by N threads at once holds N states. The deque is lock-free.
+	 */
+	private final Deque<SearchContext>			idle		= new ConcurrentLinkedDeque<SearchContext>();
+
+	/**
+	 * The statistics of each thread's last search.
+	 */
+	private final ThreadLocal<SolveStats>		lastStats	= new ThreadLocal<SolveStats>()
+	{
+		@Override
+		protected SolveStats initialValue()
+		{
+			return SolveStats.NONE;
+		}
+	};
+
+	/**
+	 * Creates a solver whose statistics are not added to any algorithm's metrics.
+	 */
+	SudokuSolver()
+	{
+		this.metrics = null;
+	}
+
+	/**
+	 * @param algorithm	the algorithm whose metrics the solver's statistics are added to
+	 */
+	SudokuSolver(final Algorithm algorithm)
+	{
+		this.metrics = SolveStats.ENABLED ? SolverMetrics.of( algorithm ) : null;
+	}
+
+	/**
+	 * Solves the specified puzzle, stopping if the thread is interrupted.
 	 */
 	@Override
-	public abstract void solve(Puzzle puzzle) throws UnsolvableException;
+	public final void solve(final Puzzle puzzle) throws UnsolvableException
+	{
+		solve( puzzle, SolveLimits.NONE );
+	}
+
+	/**
+	 * Solves the specified puzzle within the limits.
+	 *
+	 * @param puzzle	the sudoku puzzle
+	 * @param limits	the limits of the search
+	 *
+	 * @throws SearchAbortedException if a limit is reached, or the thread is interrupted
+	 * @throws UnsolvableException if the puzzle has no solution
+	 */
+	@Override
+	public final void solve(final Puzzle puzzle, final SolveLimits limits) throws UnsolvableException
+	{
+		final SearchContext context = startSearch( limits );
+
+		boolean solved = false;
+		boolean finished = false;
+
+		try
+		{
+			solvePuzzle( puzzle, context );
+			solved = true;
+		}
+		catch ( final SearchAbort e )
+		{
+			final SolveStats stats = finishSearch( context, false );
+			finished = true;
+
+			throw aborted( stats, e );
+		}
+		finally
+		{
+			if ( !finished )
+			{
+				finishSearch( context, solved );
+			}
+		}
+	}
+
+	/**
+	 * Counts the solutions of the specified puzzle, stopping as soon as the
+	 * limit is reached. The puzzle's grid is left unchanged.
+	 *
+	 * @param puzzle	the sudoku puzzle
+	 * @param limit		the number of solutions at which counting stops
+	 *
+	 * @return the number of solutions, at most {@code limit}
+	 */
+	@Override
+	public int countSolutions(final Puzzle puzzle, final int limit)
+	{
+		try
+		{
+			return countSolutions( puzzle, limit, SolveLimits.UNINTERRUPTIBLE );
+		}
+		catch ( final SearchAbortedException e )
+		{
+			// cannot happen without limits
+			throw new IllegalStateException( e );
+		}
+	}
+
+	/**
+	 * Counts the solutions of the specified puzzle within the search limits.
+	 *
+	 * @param puzzle	the sudoku puzzle
+	 * @param limit		the number of solutions at which counting stops
+	 * @param limits	the limits of the search
+	 *
+	 * @return the number of solutions, at most {@code limit}
+	 * @throws SearchAbortedException if a limit is reached, or the thread is interrupted
+	 */
+	public int countSolutions(final Puzzle puzzle, final int limit, final SolveLimits limits) throws SearchAbortedException
+	{
+		// not checkArgument, whose message would be built on every call
+		if ( limit <= 0 )
+		{
+			throw new IllegalArgumentException( "Solution limit must be > 0. Specified: " + limit );
+		}
+
+		final SearchContext context = startSearch( limits );
+
+		int numSolutions = 0;
+		boolean finished = false;
+
+		try
+		{
+			numSolutions = count( puzzle, limit, context );
+		}
+		catch ( final SearchAbort e )
+		{
+			final SolveStats stats = finishSearch( context, false );
+			finished = true;
+
+			throw aborted( stats, e );
+		}
+		finally
+		{
+			if ( !finished )
+			{
+				finishSearch( context, numSolutions > 0 );
+			}
+		}
+
+		return numSolutions;
+	}
+
+	/**
+	 * Returns true if the specified puzzle has exactly one solution.
+	 */
+	public boolean isUnique(final Puzzle puzzle)
+	{
+		return countSolutions( puzzle, 2 ) == 1;
+	}
+
+	/**
+	 * Returns the statistics of the last search made by the calling thread,
+	 * or {@link SolveStats#NONE} if none have been recorded.
+	 */
+	public SolveStats getLastStats()
+	{
+		return lastStats.get();
+	}
+
+	/**
+	 * Takes an idle search state, or creates one if none is idle, and starts a search with it.
+	 */
+	private SearchContext startSearch(final SolveLimits limits)
+	{
+		SearchContext context = idle.pollFirst();
+
+		if ( context == null )
+		{
+			context = newContext();
+		}
+
+		context.startSearch( limits );
+
+		return context;
+	}
+
+	/**
+	 * Ends the search, recording its statistics, and returns the search state to the idle ones.
+	 */
+	private SolveStats finishSearch(final SearchContext context, final boolean solved)
+	{
+		final SolveStats stats = context.finishSearch( solved );
+
+		idle.offerFirst( context );
+		lastStats.set( stats );
+
+		if ( metrics != null )
+		{
+			metrics.record( stats );
+		}
+
+		return stats;
+	}
+
+	private SearchAbortedException aborted(final SolveStats stats, final SearchAbort abort)
+	{
+		return new SearchAbortedException( "The search by " + this.getClass().getSimpleName() + " was stopped: " + abort.getReason(),
+			abort.getReason(), stats );
+	}
+
+	/**
+	 * Creates a search state, called when every existing one is in use.
+	 * Solvers with scratch structures return a subclass holding them.
+	 */
+	SearchContext newContext()
+	{
+		return new SearchContext();
+	}
+
+	/**
+	 * Solves the puzzle, writing the solution to its grid.
+	 *
+	 * @param context	the state of the search
+	 */
+	abstract void solvePuzzle(Puzzle puzzle, SearchContext context) throws UnsolvableException;
+
+	/**
+	 * Counts the solutions of the puzzle, up to the limit, without changing its grid.
+	 *
+	 * @param context	the state of the search
+	 */
+	abstract int count(Puzzle puzzle, int limit, SearchContext context);
 }
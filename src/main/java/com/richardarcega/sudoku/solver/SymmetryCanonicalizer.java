@@ -0,0 +1,709 @@
+package com.richardarcega.sudoku.solver;
+
+/**
+ * Computes a canonical form of a 9x9 sudoku grid under the validity-preserving
+ * symmetries: transposition, permutation of the bands and stacks, permutation
+ * of the rows within a band and of the columns within a stack, and relabeling
+ * of the digits.
+ *
+ * The canonical form is the lexicographically smallest grid, read row by row,
+ * that can be reached by these transformations when digits are relabeled in
+ * order of first appearance and empty cells read as 0. Isomorphic grids share
+ * the same canonical form.
+ *
+ * The transformation is found by a depth-first search which reads the grid
+ * cell by cell, first picking the orientation, the top row and the order of
+ * the stacks, then each of the remaining rows. At every level only the rows
+ * with the smallest reading are tried, and a branch is cut off as soon as a
+ * cell compares greater than the same cell of the best grid found so far.
+ *
+ * The order of the columns is not chosen up front but refined row by row.
+ * Columns of a stack which are blank in every row read so far are
+ * interchangeable, so they are kept in one block, in no particular order,
+ * until a row tells them apart; a row then reads each block smallest first,
+ * blanks before digits. Only digits not yet labeled read alike, and only
+ * their order within a block is searched.
+ * An instance keeps scratch state and must not be shared between threads.
+ */
+final class SymmetryCanonicalizer
+{
+	private static final int		SIZE		= 9;
+	private static final int		BOX_SIZE	= 3;
+	private static final int		NUM_CELLS	= SIZE * SIZE;
+
+	/**
+	 * A grid's canonical form, together with the transformation that produces it.
+	 */
+	static final class Transform
+	{
+		private final int[]		canonical	= new int[NUM_CELLS];
+		private final int[]		rowOrder	= new int[SIZE];
+		private final int[]		colOrder	= new int[SIZE];
+
+		/**
+		 * Maps each original digit to its canonical label; index 0 maps blanks to blanks.
+		 */
+		private final int[]		labels		= new int[SIZE + 1];
+		private boolean			transposed;
+
+		/**
+		 * Returns the canonical form as a string of 81 digits, 0 denoting an empty cell.
+		 */
+		String getKey()
+		{
+			return toKey( canonical );
+		}
+
+		/**
+		 * Maps a grid, in the same orientation as the canonicalized grid, into canonical space.
+		 */
+		int[] apply(final int[] cells)
+		{
+			final int[] result = new int[NUM_CELLS];
+
+			for ( int i = 0; i < SIZE; i++ )
+			{
+				for ( int j = 0; j < SIZE; j++ )
+				{
+					result[i * SIZE + j] = labels[cells[source( rowOrder[i], colOrder[j] )]];
+				}
+			}
+
+			return result;
+		}
+
+		/**
+		 * Maps a grid in canonical space back to the orientation of the canonicalized grid.
+		 */
+		int[] invert(final int[] canonicalCells)
+		{
+			final int[] digits = new int[SIZE + 1];
+
+			for ( int digit = 0; digit <= SIZE; digit++ )
+			{
+				digits[labels[digit]] = digit;
+			}
+
+			final int[] result = new int[NUM_CELLS];
+
+			for ( int i = 0; i < SIZE; i++ )
+			{
+				for ( int j = 0; j < SIZE; j++ )
+				{
+					result[source( rowOrder[i], colOrder[j] )] = digits[canonicalCells[i * SIZE + j]];
+				}
+			}
+
+			return result;
+		}
+
+		private int source(final int row, final int col)
+		{
+			return transposed ? col * SIZE + row : row * SIZE + col;
+		}
+	}
+
+	/**
+	 * Returns the 81 digits of a grid in row-major order as a string, 0 denoting an empty cell.
+	 */
+	static String toKey(final int[] cells)
+	{
+		final char[] key = new char[NUM_CELLS];
+
+		for ( int i = 0; i < NUM_CELLS; i++ )
+		{
+			key[i] = (char) ( '0' + cells[i] );
+		}
+
+		return new String( key );
+	}
+
+	/**
+	 * The orders of the stacks.
+	 */
+	private static final int[][]	STACK_ORDERS	= { { 0, 1, 2 }, { 0, 2, 1 }, { 1, 0, 2 }, { 1, 2, 0 }, { 2, 0, 1 }, { 2, 1, 0 } };
+
+	/*
+	 * Scratch state of the search.
+	 */
+	private final int[][]			grids			= new int[2][NUM_CELLS];
+	private final int[]				best			= new int[NUM_CELLS];
+	private final int[]				labels			= new int[SIZE + 1];
+	private final int[]				rowOrder		= new int[SIZE];
+	private final boolean[]			usedRow			= new boolean[SIZE];
+	private final boolean[]			usedBand		= new boolean[BOX_SIZE];
+
+	/**
+	 * The column order before each row is read, and after the last. The columns
+	 * from a position marked as a block start up to the next such position are
+	 * blank in every row read so far, and may yet be placed in any order.
+	 */
+	private final int[][]			colOrders		= new int[SIZE + 1][SIZE];
+	private final boolean[][]		blockStarts		= new boolean[SIZE + 1][SIZE];
+
+	/**
+	 * Per level of the row search, the smallest reading of a candidate row and
+	 * the rows which read that way. Level 0 holds the reading being compared.
+	 */
+	private final int[][]			rowValues		= new int[SIZE][SIZE];
+	private final int[][]			candidates		= new int[SIZE][SIZE];
+	private final int[]				rowLabels		= new int[SIZE + 1];
+
+	/**
+	 * The top rows which read smallest, as an orientation, row and stack order.
+	 */
+	private final int[]				topRows			= new int[2 * SIZE * STACK_ORDERS.length];
+	private final int[]				stackBlanks		= new int[BOX_SIZE];
+
+	/**
+	 * The number of leading cells of {@link #best} which hold a real grid;
+	 * cells beyond it compare as greater than any cell.
+	 */
+	private int						bestCells;
+
+	/**
+	 * The grid in the orientation being searched.
+	 */
+	private int[]					grid;
+	private boolean					transposed;
+	private Transform				result;
+
+	/**
+	 * Computes the canonical form of a grid. The search relies on no digit
+	 * repeating in a row, column or box; for a grid which repeats one, the
+	 * form returned may not be reached by the transformation returned.
+	 *
+	 * @param cells	the 81 digits of the grid in row-major order, 0 denoting an empty cell
+	 *
+	 * @return the canonical form and the transformation that produces it
+	 */
+	Transform canonicalize(final int[] cells)
+	{
+		result    = new Transform();
+		bestCells = 0;
+
+		for ( int i = 0; i < NUM_CELLS; i++ )
+		{
+			grids[0][i] = cells[i];
+			grids[1][i] = cells[( i % SIZE ) * SIZE + i / SIZE];
+		}
+
+		// a top row reads as many blanks as its stack with the most, then digits,
+		// then the blanks of its stack with the next most, and so on; so the top
+		// rows which read smallest are those whose stacks hold the most blanks,
+		// with the stacks in decreasing order of blanks
+		int mostBlanks = -1;
+		int numTopRows = 0;
+
+		for ( int t = 0; t < 2; t++ )
+		{
+			for ( int r = 0; r < SIZE; r++ )
+			{
+				for ( int stack = 0; stack < BOX_SIZE; stack++ )
+				{
+					stackBlanks[stack] = 0;
+
+					for ( int c = stack * BOX_SIZE; c < stack * BOX_SIZE + BOX_SIZE; c++ )
+					{
+						stackBlanks[stack] += ( grids[t][r * SIZE + c] == 0 ) ? 1 : 0;
+					}
+				}
+
+				for ( int order = 0; order < STACK_ORDERS.length; order++ )
+				{
+					final int[] stacks = STACK_ORDERS[order];
+
+					if ( stackBlanks[stacks[0]] < stackBlanks[stacks[1]] || stackBlanks[stacks[1]] < stackBlanks[stacks[2]] )
+					{
+						continue;
+					}
+
+					final int blanks = ( stackBlanks[stacks[0]] * ( BOX_SIZE + 1 ) + stackBlanks[stacks[1]] ) * ( BOX_SIZE + 1 )
+						+ stackBlanks[stacks[2]];
+
+					if ( blanks > mostBlanks )
+					{
+						mostBlanks = blanks;
+						numTopRows = 0;
+					}
+
+					if ( blanks == mostBlanks )
+					{
+						topRows[numTopRows++] = ( t * SIZE + r ) * STACK_ORDERS.length + order;
+					}
+				}
+			}
+		}
+
+		for ( int i = 0; i < numTopRows; i++ )
+		{
+			final int r = startTopRow( topRows[i] );
+
+			usedRow[r] = true;
+			usedBand[r / BOX_SIZE] = true;
+
+			searchCells( 0, 0, 0 );
+
+			usedRow[r] = false;
+			usedBand[r / BOX_SIZE] = false;
+		}
+
+		System.arraycopy( best, 0, result.canonical, 0, NUM_CELLS );
+
+		// give the digits absent from the grid the remaining labels, so that the
+		// transform also applies to the grid's solutions
+		int next = 0;
+
+		for ( int digit = 1; digit <= SIZE; digit++ )
+		{
+			next = Math.max( next, result.labels[digit] );
+		}
+
+		for ( int digit = 1; digit <= SIZE; digit++ )
+		{
+			if ( result.labels[digit] == 0 )
+			{
+				result.labels[digit] = ++next;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Sets up the orientation, top row and stack order of a start of the search.
+	 *
+	 * @param top	the orientation, row and stack order, numbered from 0
+	 *
+	 * @return the top row
+	 */
+	private int startTopRow(final int top)
+	{
+		final int[] stacks = STACK_ORDERS[top % STACK_ORDERS.length];
+		final int r = top / STACK_ORDERS.length % SIZE;
+
+		transposed  = ( top >= SIZE * STACK_ORDERS.length );
+		grid        = grids[transposed ? 1 : 0];
+		rowOrder[0] = r;
+
+		for ( int position = 0; position < SIZE; position++ )
+		{
+			colOrders[0][position] = stacks[position / BOX_SIZE] * BOX_SIZE + position % BOX_SIZE;
+			blockStarts[0][position] = ( position % BOX_SIZE == 0 );
+		}
+
+		return r;
+	}
+
+	/**
+	 * Chooses the row placed at the given level of the row order. Only the
+	 * rows with the smallest reading can lead to the canonical form.
+	 *
+	 * @param level		the number of rows placed so far
+	 * @param numLabels	the number of digits labeled so far
+	 */
+	private void searchRows(final int level, final int numLabels)
+	{
+		if ( level == SIZE )
+		{
+			// the current grid is at least as small as the best seen so far
+			result.transposed = transposed;
+			System.arraycopy( rowOrder, 0, result.rowOrder, 0, SIZE );
+			System.arraycopy( colOrders[SIZE], 0, result.colOrder, 0, SIZE );
+			System.arraycopy( labels, 0, result.labels, 0, SIZE + 1 );
+			return;
+		}
+
+		final int slot = level % BOX_SIZE;
+		final int first = ( slot == 0 ) ? 0 : rowOrder[level - 1] - rowOrder[level - 1] % BOX_SIZE;
+		final int last = ( slot == 0 ) ? SIZE : first + BOX_SIZE;
+
+		if ( slot == BOX_SIZE - 1 )
+		{
+			// the last row of the band is the only choice, and is compared as it is read
+			for ( int r = first; r < last; r++ )
+			{
+				if ( !usedRow[r] )
+				{
+					rowOrder[level] = r;
+					usedRow[r] = true;
+
+					searchCells( level, 0, numLabels );
+
+					usedRow[r] = false;
+				}
+			}
+
+			return;
+		}
+
+		// a row reading greater than the same row of the best grid is of no use,
+		// so the best grid bounds the readings until one is taken
+		final int[] smallest = rowValues[level];
+		final int[] value = rowValues[0];
+		int length = Math.max( 0, Math.min( SIZE, bestCells - level * SIZE ) );
+		int numSmallest = 0;
+
+		System.arraycopy( best, level * SIZE, smallest, 0, length );
+
+		for ( int r = first; r < last; r++ )
+		{
+			if ( usedRow[r] || ( slot == 0 && usedBand[r / BOX_SIZE] ) )
+			{
+				continue;
+			}
+
+			final int cmp = readSmallest( level, r, numLabels, value, smallest, length );
+
+			if ( cmp > 0 )
+			{
+				continue;
+			}
+
+			if ( cmp < 0 || numSmallest == 0 )
+			{
+				System.arraycopy( value, 0, smallest, 0, SIZE );
+				length = SIZE;
+				numSmallest = 0;
+			}
+
+			candidates[level][numSmallest++] = r;
+		}
+
+		if ( numSmallest == 0 )
+		{
+			return;
+		}
+
+		int cmp = 0;
+
+		for ( int c = 0; c < SIZE && cmp <= 0; c++ )
+		{
+			cmp = compare( level * SIZE + c, smallest[c] );
+		}
+
+		if ( cmp > 0 )
+		{
+			return;
+		}
+
+		for ( int i = 0; i < numSmallest; i++ )
+		{
+			final int r = candidates[level][i];
+
+			rowOrder[level] = r;
+			usedRow[r] = true;
+			usedBand[r / BOX_SIZE] = true;
+
+			searchCells( level, 0, numLabels );
+
+			usedRow[r] = false;
+			usedBand[r / BOX_SIZE] = ( slot != 0 );
+		}
+	}
+
+	/**
+	 * Computes the smallest reading of a row at the given level, each block of
+	 * columns read smallest first, comparing it with the leading cells of a bound.
+	 * Neither the labels nor the column order are changed.
+	 *
+	 * @param length	the number of cells of the bound
+	 *
+	 * @return a negative value, zero or a positive value as the reading is smaller
+	 *         than, equal to or greater than the bound; once it is greater, the rest
+	 *         of the row is not read
+	 */
+	private int readSmallest(final int level, final int row, final int numLabels, final int[] value, final int[] bound, final int length)
+	{
+		final int[] order = colOrders[level];
+		final boolean[] starts = blockStarts[level];
+		int labeled = numLabels;
+		int cmp = 0;
+
+		System.arraycopy( labels, 0, rowLabels, 0, SIZE + 1 );
+
+		for ( int position = 0; position < SIZE; )
+		{
+			final int end = blockEnd( starts, position );
+
+			if ( end == position + 1 )
+			{
+				// a single column reads as it is
+				final int digit = grid[row * SIZE + order[position]];
+
+				if ( digit != 0 && rowLabels[digit] == 0 )
+				{
+					rowLabels[digit] = ++labeled;
+				}
+
+				value[position] = rowLabels[digit];
+			}
+			else
+			{
+				int p = position;
+
+				for ( int q = position; q < end; q++ )
+				{
+					if ( grid[row * SIZE + order[q]] == 0 )
+					{
+						value[p++] = 0;
+					}
+				}
+
+				// the labeled digits in increasing order, by insertion
+				final int firstLabeled = p;
+
+				for ( int q = position; q < end; q++ )
+				{
+					final int label = rowLabels[grid[row * SIZE + order[q]]];
+
+					if ( label != 0 )
+					{
+						int i = p++;
+
+						for ( ; i > firstLabeled && value[i - 1] > label; i-- )
+						{
+							value[i] = value[i - 1];
+						}
+
+						value[i] = label;
+					}
+				}
+
+				for ( int q = position; q < end; q++ )
+				{
+					final int digit = grid[row * SIZE + order[q]];
+
+					if ( digit != 0 && rowLabels[digit] == 0 )
+					{
+						rowLabels[digit] = ++labeled;
+						value[p++] = labeled;
+					}
+				}
+			}
+
+			for ( int i = position; i < end && i < length && cmp == 0; i++ )
+			{
+				cmp = value[i] - bound[i];
+			}
+
+			if ( cmp > 0 )
+			{
+				return cmp;
+			}
+
+			position = end;
+		}
+
+		return cmp;
+	}
+
+	/**
+	 * Returns the position after the last of the block starting at a position.
+	 */
+	private static int blockEnd(final boolean[] starts, final int position)
+	{
+		int end = position + 1;
+
+		while ( end < SIZE && !starts[end] )
+		{
+			end++;
+		}
+
+		return end;
+	}
+
+	/**
+	 * Reads the blocks of columns of a row from the given position, in the
+	 * column order of the row's level, and writes their columns to the order of
+	 * the next level: in each block the blanks first, as a block still open, then
+	 * the labeled digits in increasing order, then the digits not yet labeled.
+	 * Blocks are read in turn until one holds more than one digit not yet
+	 * labeled, whose order is searched.
+	 *
+	 * @param level		the row being read
+	 * @param position	the number of cells of the row read so far
+	 * @param numLabels	the number of digits labeled so far
+	 */
+	private void searchCells(final int level, final int position, final int numLabels)
+	{
+		final int[] order = colOrders[level];
+		final boolean[] starts = blockStarts[level];
+		final int[] next = colOrders[level + 1];
+		final boolean[] nextStarts = blockStarts[level + 1];
+		final int row = rowOrder[level] * SIZE;
+		final int index = level * SIZE;
+		int labeled = numLabels;
+		int first = position;
+
+		while ( first < SIZE )
+		{
+			final int end = blockEnd( starts, first );
+			int p = first;
+			int numNew = 0;
+			int newCol = -1;
+
+			for ( int q = first; q < end; q++ )
+			{
+				final int digit = grid[row + order[q]];
+
+				if ( digit == 0 )
+				{
+					if ( compare( index + p, 0 ) > 0 )
+					{
+						unlabel( numLabels );
+						return;
+					}
+
+					next[p] = order[q];
+					nextStarts[p] = ( p == first );
+					p++;
+				}
+				else if ( labels[digit] == 0 )
+				{
+					numNew++;
+					newCol = order[q];
+				}
+			}
+
+			final int firstLabeled = p;
+
+			for ( int q = first; q < end; q++ )
+			{
+				final int col = order[q];
+				final int label = labels[grid[row + col]];
+
+				if ( label != 0 )
+				{
+					int i = p++;
+
+					for ( ; i > firstLabeled && labels[grid[row + next[i - 1]]] > label; i-- )
+					{
+						next[i] = next[i - 1];
+					}
+
+					next[i] = col;
+				}
+			}
+
+			for ( int i = firstLabeled; i < p; i++ )
+			{
+				if ( compare( index + i, labels[grid[row + next[i]]] ) > 0 )
+				{
+					unlabel( numLabels );
+					return;
+				}
+
+				nextStarts[i] = true;
+			}
+
+			if ( numNew > 1 )
+			{
+				searchNew( level, first, end, p, labeled );
+				unlabel( numLabels );
+				return;
+			}
+
+			if ( numNew == 1 )
+			{
+				if ( compare( index + p, labeled + 1 ) > 0 )
+				{
+					unlabel( numLabels );
+					return;
+				}
+
+				next[p] = newCol;
+				nextStarts[p] = true;
+				labels[grid[row + newCol]] = ++labeled;
+			}
+
+			first = end;
+		}
+
+		searchRows( level + 1, labeled );
+		unlabel( numLabels );
+	}
+
+	/**
+	 * Clears the labels given after the first {@code numLabels}.
+	 */
+	private void unlabel(final int numLabels)
+	{
+		for ( int digit = 1; digit <= SIZE; digit++ )
+		{
+			if ( labels[digit] > numLabels )
+			{
+				labels[digit] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Places the digits of a block not yet labeled, which all read as the next
+	 * label, trying each of them at the given position.
+	 *
+	 * @param first		the first position of the block
+	 * @param end		the position after the last of the block
+	 * @param position	the position to place a digit at
+	 */
+	private void searchNew(final int level, final int first, final int end, final int position, final int numLabels)
+	{
+		if ( position == end )
+		{
+			searchCells( level, end, numLabels );
+			return;
+		}
+
+		if ( compare( level * SIZE + position, numLabels + 1 ) > 0 )
+		{
+			return;
+		}
+
+		final int[] order = colOrders[level];
+		final int row = rowOrder[level] * SIZE;
+
+		for ( int q = first; q < end; q++ )
+		{
+			final int digit = grid[row + order[q]];
+
+			if ( digit != 0 && labels[digit] == 0 )
+			{
+				colOrders[level + 1][position] = order[q];
+				blockStarts[level + 1][position] = true;
+				labels[digit] = numLabels + 1;
+
+				searchNew( level, first, end, position + 1, numLabels + 1 );
+
+				labels[digit] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Compares a cell of the current grid with the same cell of the best grid.
+	 * The cells before it are equal. If the current cell is smaller it replaces
+	 * the best one, invalidating the cells that follow.
+	 *
+	 * @return a positive value if the current grid is greater than the best grid
+	 */
+	private int compare(final int index, final int value)
+	{
+		if ( index < bestCells )
+		{
+			if ( value > best[index] )
+			{
+				return 1;
+			}
+
+			if ( value == best[index] )
+			{
+				return 0;
+			}
+		}
+
+		best[index] = value;
+		bestCells = index + 1;
+
+		return -1;
+	}
+}
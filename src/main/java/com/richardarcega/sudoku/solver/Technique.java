@@ -0,0 +1,66 @@
+package com.richardarcega.sudoku.solver;
+
+/**
+ * The deductions applied by {@link LogicalSolver}, in increasing order of
+ * difficulty. A puzzle is graded by the hardest technique needed to solve it.
+ */
+public enum Technique
+{
+	/**
+	 * A cell has a single candidate.
+	 */
+	NAKED_SINGLE,
+
+	/**
+	 * A digit has a single place in a unit.
+	 */
+	HIDDEN_SINGLE,
+
+	/**
+	 * The places of a digit in a box lie in one row or column, so the digit is
+	 * eliminated from the rest of that row or column.
+	 */
+	POINTING_PAIR,
+
+	/**
+	 * The places of a digit in a row or column lie in one box, so the digit is
+	 * eliminated from the rest of that box.
+	 */
+	BOX_LINE_REDUCTION,
+
+	/**
+	 * Two cells of a unit hold the same two candidates, which are eliminated
+	 * from the rest of the unit.
+	 */
+	NAKED_PAIR,
+
+	/**
+	 * Two digits are confined to the same two cells of a unit, whose other
+	 * candidates are eliminated.
+	 */
+	HIDDEN_PAIR,
+
+	/**
+	 * Three cells of a unit hold only three candidates between them, which are
+	 * eliminated from the rest of the unit.
+	 */
+	NAKED_TRIPLE,
+
+	/**
+	 * Three digits are confined to the same three cells of a unit, whose other
+	 * candidates are eliminated.
+	 */
+	HIDDEN_TRIPLE,
+
+	/**
+	 * The places of a digit in two rows lie in the same two columns, so the
+	 * digit is eliminated from the rest of those columns; and likewise with
+	 * rows and columns exchanged.
+	 */
+	X_WING,
+
+	/**
+	 * None of the other techniques makes progress, so a search is needed.
+	 */
+	GUESS
+}
@@ -0,0 +1,124 @@
+package com.richardarcega.sudoku;
+
+import static com.richardarcega.sudoku.BitboardGridTest.loadGrid;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
+import com.richardarcega.sudoku.puzzle.Puzzle;
+import com.richardarcega.sudoku.solver.Algorithm;
+import com.richardarcega.sudoku.solver.BacktrackSudokuSolver;
+import com.richardarcega.sudoku.solver.CellSelection;
+import com.richardarcega.sudoku.solver.SolverFactory;
+import com.richardarcega.sudoku.solver.SudokuSolver;
+import com.richardarcega.sudoku.solver.UnsolvableException;
+
+/**
+ * Verifies that searches allocate nothing per node, by counting the bytes
+ * allocated by the test thread across repeated solves
+ */
+public class AllocationTest
+{
+	/**
+	 * The most a warm solve may allocate: its statistics, and the bookkeeping of
+	 * the idle search states, whatever the number of nodes visited.
+	 */
+	private static final long					MAX_BYTES_PER_SOLVE	= 512;
+
+	private static final int					NUM_ROUNDS			= 5;
+
+	private com.sun.management.ThreadMXBean		threads;
+
+	@Before
+	public void setUp()
+	{
+		assumeTrue( ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean );
+
+		threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+		assumeTrue( threads.isThreadAllocatedMemorySupported() );
+		threads.setThreadAllocatedMemoryEnabled( true );
+	}
+
+	private static void reset(final BitboardGrid puzzle, final BitboardGrid grid)
+	{
+		for ( int y = 0; y < puzzle.size(); y++ )
+		{
+			for ( int x = 0; x < puzzle.size(); x++ )
+			{
+				grid.setCellValue( x, y, puzzle.getCellValue( x, y ) );
+			}
+		}
+	}
+
+	/**
+	 * Returns the fewest bytes allocated per solve over several rounds, once warm.
+	 */
+	private long bytesPerSolve(final SudokuSolver solver, final String puzzleFile, final int numSolves, final boolean count) throws IOException, UnsolvableException
+	{
+		final BitboardGrid puzzle = loadGrid( puzzleFile );
+		final BitboardGrid grid = puzzle.copy();
+		final Puzzle wrapper = new Puzzle( grid );
+		final long threadId = Thread.currentThread().getId();
+
+		long fewest = Long.MAX_VALUE;
+
+		for ( int round = 0; round < NUM_ROUNDS; round++ )
+		{
+			final long before = threads.getThreadAllocatedBytes( threadId );
+
+			for ( int i = 0; i < numSolves; i++ )
+			{
+				reset( puzzle, grid );
+
+				if ( count )
+				{
+					solver.countSolutions( wrapper, 2 );
+				}
+				else
+				{
+					solver.solve( wrapper );
+				}
+			}
+
+			fewest = Math.min( fewest, ( threads.getThreadAllocatedBytes( threadId ) - before ) / numSolves );
+		}
+
+		return fewest;
+	}
+
+	private void assertAllocationFree(final SudokuSolver solver, final String puzzleFile, final int numSolves) throws IOException, UnsolvableException
+	{
+		final long solveBytes = bytesPerSolve( solver, puzzleFile, numSolves, false );
+		final long countBytes = bytesPerSolve( solver, puzzleFile, numSolves, true );
+
+		assertTrue( solver.getClass().getSimpleName() + " allocated " + solveBytes + " bytes per solve", solveBytes <= MAX_BYTES_PER_SOLVE );
+		assertTrue( solver.getClass().getSimpleName() + " allocated " + countBytes + " bytes per count", countBytes <= MAX_BYTES_PER_SOLVE );
+	}
+
+	@Test
+	public void testBacktrack() throws IOException, UnsolvableException
+	{
+		// hundreds of thousands of nodes per solve
+		assertAllocationFree( new BacktrackSudokuSolver( CellSelection.STATIC ), "expert.txt", 4 );
+		assertAllocationFree( new BacktrackSudokuSolver( CellSelection.DYNAMIC ), "hard.txt", 200 );
+	}
+
+	@Test
+	public void testNorvig() throws IOException, UnsolvableException
+	{
+		assertAllocationFree( SolverFactory.getSolver( Algorithm.NORVIG ), "hard.txt", 2000 );
+	}
+
+	@Test
+	public void testDlx() throws IOException, UnsolvableException
+	{
+		assertAllocationFree( SolverFactory.getSolver( Algorithm.DLX ), "hard.txt", 2000 );
+	}
+}
@@ -11,7 +11,6 @@ import java.util.List;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
-import org.junit.Ignore;
 import org.junit.Test;
 
 import com.google.common.collect.ArrayTable;
@@ -21,6 +20,8 @@ import com.richardarcega.sudoku.puzzle.Cell;
 import com.richardarcega.sudoku.puzzle.Puzzle;
 import com.richardarcega.sudoku.puzzle.TableGrid;
 import com.richardarcega.sudoku.solver.Algorithm;
+import com.richardarcega.sudoku.solver.BacktrackSudokuSolver;
+import com.richardarcega.sudoku.solver.CellSelection;
 import com.richardarcega.sudoku.solver.SolverFactory;
 import com.richardarcega.sudoku.solver.SudokuSolver;
 import com.richardarcega.sudoku.solver.UnsolvableException;
@@ -124,7 +125,6 @@ public class BacktrackSolverTest
 		}
 	}
 
-	@Ignore
 	@Test
 	public void testHardPuzzleSolve() throws UnsolvableException
 	{
@@ -154,6 +154,33 @@ public class BacktrackSolverTest
 		}
 	}
 
+	@Test
+	public void testDynamicCellSelection() throws UnsolvableException
+	{
+		for ( final String puzzleFile : new String[] { "medium.txt", "hard.txt", "expert.txt" } )
+		{
+			final BacktrackSudokuSolver staticSolver = new BacktrackSudokuSolver( CellSelection.STATIC );
+			final BacktrackSudokuSolver dynamicSolver = new BacktrackSudokuSolver( CellSelection.DYNAMIC );
+
+			loadPuzzle( puzzleFile );
+			final Puzzle staticPuzzle = puzzle;
+			staticSolver.solve( staticPuzzle );
+
+			loadPuzzle( puzzleFile );
+			dynamicSolver.solve( puzzle );
+
+			for ( int y = 0; y < 9; y++ )
+			{
+				for ( int x = 0; x < 9; x++ )
+				{
+					assertEquals( staticPuzzle.at( x, y ), puzzle.at( x, y ) );
+				}
+			}
+
+			assertTrue( puzzleFile, dynamicSolver.getNodeCount() < staticSolver.getNodeCount() );
+		}
+	}
+
 	@Test(expected=UnsolvableException.class)
 	public void testUnsolvablePuzzle()  throws UnsolvableException
 	{
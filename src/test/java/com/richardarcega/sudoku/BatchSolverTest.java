@@ -0,0 +1,229 @@
+package com.richardarcega.sudoku;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.richardarcega.sudoku.batch.BatchResult;
+import com.richardarcega.sudoku.batch.BatchSolver;
+import com.richardarcega.sudoku.batch.SolutionWriter;
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
+import com.richardarcega.sudoku.solver.Algorithm;
+
+/**
+ * Unit tests for the parallel batch solver
+ */
+public class BatchSolverTest
+{
+	private static final String[]	PUZZLE_FILES	= { "easy.txt", "medium.txt", "hard.txt", "expert.txt" };
+
+	private static final List<String>	lines		= Lists.newArrayList();
+
+	@BeforeClass
+	public static void setUp() throws IOException
+	{
+		for ( final String puzzleFile : PUZZLE_FILES )
+		{
+			final BitboardGrid grid = new BitboardGrid();
+			grid.load( new FileInputStream( "src/main/resources/" + puzzleFile ) );
+			lines.add( grid.toLine() );
+		}
+	}
+
+	/**
+	 * Returns true if the solution is a complete, valid grid which agrees with the puzzle's givens.
+	 */
+	public static boolean isSolutionOf(final String puzzle, final String solution)
+	{
+		if ( solution.length() != 81 )
+		{
+			return false;
+		}
+
+		final int[] rows = new int[9];
+		final int[] cols = new int[9];
+		final int[] boxes = new int[9];
+
+		for ( int i = 0; i < 81; i++ )
+		{
+			final char c = solution.charAt( i );
+
+			if ( c < '1' || c > '9' || ( puzzle.charAt( i ) != '.' && puzzle.charAt( i ) != c ) )
+			{
+				return false;
+			}
+
+			final int bit = 1 << ( c - '1' );
+			rows[i / 9] |= bit;
+			cols[i % 9] |= bit;
+			boxes[( i / 27 ) * 3 + ( i % 9 ) / 3] |= bit;
+		}
+
+		for ( int unit = 0; unit < 9; unit++ )
+		{
+			if ( rows[unit] != 0x1FF || cols[unit] != 0x1FF || boxes[unit] != 0x1FF )
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	@Test
+	public void testSolutionsAreWrittenInInputOrder() throws IOException, InterruptedException
+	{
+		final StringBuilder input = new StringBuilder( "# a comment\n\n" );
+		final List<String> puzzles = Lists.newArrayList();
+
+		for ( int i = 0; i < 200; i++ )
+		{
+			puzzles.add( lines.get( i % lines.size() ) );
+			input.append( puzzles.get( i ) ).append( '\n' );
+		}
+
+		final StringWriter output = new StringWriter();
+		final BatchResult result = new BatchSolver( Algorithm.DLX, 4, 8 ).solve( new BufferedReader( new StringReader( input.toString() ) ), output );
+
+		final List<String> solutions = Lists.newArrayList( Splitter.on( '\n' ).omitEmptyStrings().split( output.toString() ) );
+
+		assertEquals( 200, result.getNumPuzzles() );
+		assertEquals( 0, result.getNumUnsolved() );
+		assertEquals( 200, solutions.size() );
+
+		for ( int i = 0; i < 200; i++ )
+		{
+			assertTrue( "line " + i, isSolutionOf( puzzles.get( i ), solutions.get( i ) ) );
+		}
+	}
+
+	@Test
+	public void testUnsolvableLinesAreCommentedOut() throws IOException, InterruptedException
+	{
+		final String conflicting = "11" + Strings.repeat( ".", 79 );
+		final String truncated = "123";
+
+		final String input = lines.get( 0 ) + "\n" + conflicting + "\n" + truncated + "\n" + lines.get( 1 ) + "\n";
+
+		final StringWriter output = new StringWriter();
+		final BatchResult result = new BatchSolver( Algorithm.NORVIG, 2, 2 ).solve( new BufferedReader( new StringReader( input ) ), output );
+
+		final List<String> solutions = Lists.newArrayList( Splitter.on( '\n' ).omitEmptyStrings().split( output.toString() ) );
+
+		assertEquals( 4, result.getNumPuzzles() );
+		assertEquals( 2, result.getNumUnsolved() );
+		assertTrue( isSolutionOf( lines.get( 0 ), solutions.get( 0 ) ) );
+		assertEquals( "#" + conflicting, solutions.get( 1 ) );
+		assertEquals( "#" + truncated, solutions.get( 2 ) );
+		assertTrue( isSolutionOf( lines.get( 1 ), solutions.get( 3 ) ) );
+	}
+
+	@Test
+	public void testChannelOutput() throws IOException, InterruptedException
+	{
+		final StringBuilder input = new StringBuilder();
+
+		for ( int i = 0; i < 500; i++ )
+		{
+			input.append( lines.get( i % lines.size() ) ).append( '\n' );
+		}
+
+		final Path outputFile = Files.createTempFile( "solutions", ".txt" );
+
+		try
+		{
+			final BatchResult result;
+
+			try ( FileChannel output = FileChannel.open( outputFile, StandardOpenOption.WRITE ) )
+			{
+				result = new BatchSolver( Algorithm.DLX, 3, 16 ).solve( new BufferedReader( new StringReader( input.toString() ) ), output );
+			}
+
+			final List<String> solutions = Files.readAllLines( outputFile, StandardCharsets.US_ASCII );
+
+			assertEquals( 500, result.getNumPuzzles() );
+			assertEquals( 500, solutions.size() );
+
+			for ( int i = 0; i < 500; i++ )
+			{
+				assertTrue( "line " + i, isSolutionOf( lines.get( i % lines.size() ), solutions.get( i ) ) );
+			}
+		}
+		finally
+		{
+			Files.delete( outputFile );
+		}
+	}
+
+	@Test
+	public void testSolutionWriterRestoresOrder() throws IOException, InterruptedException
+	{
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		// a buffer smaller than some lines, which are written on their own
+		final SolutionWriter writer = new SolutionWriter( Channels.newChannel( bytes ), 4, 8 );
+		final long[] sequences = new long[4];
+
+		for ( int i = 0; i < 4; i++ )
+		{
+			sequences[i] = writer.claim();
+		}
+
+		final Thread publisher = new Thread( new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				for ( int i = 3; i >= 0; i-- )
+				{
+					final String line = Strings.repeat( Integer.toString( i ), 3 * i + 1 ) + "\n";
+
+					writer.getBuffer( sequences[i], line.length() ).put( line.getBytes( StandardCharsets.US_ASCII ) );
+					writer.publish( sequences[i] );
+				}
+
+				writer.finish();
+			}
+		} );
+
+		publisher.start();
+
+		assertEquals( 4, writer.drain() );
+		assertEquals( "0\n1111\n2222222\n3333333333\n", bytes.toString( "US-ASCII" ) );
+		assertTrue( writer.getNumWrites() > 1 );
+
+		publisher.join();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testSolutionWriterAbort() throws IOException, InterruptedException
+	{
+		final SolutionWriter writer = new SolutionWriter( Channels.newChannel( new ByteArrayOutputStream() ), 2, 64 );
+
+		writer.claim();
+		writer.abort( new RuntimeException( "solver failed" ) );
+
+		assertEquals( -1, writer.claim() );
+
+		writer.drain();
+	}
+}
@@ -0,0 +1,104 @@
+package com.richardarcega.sudoku;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
+import com.richardarcega.sudoku.puzzle.Puzzle;
+import com.richardarcega.sudoku.puzzle.TableGrid;
+import com.richardarcega.sudoku.solver.Algorithm;
+import com.richardarcega.sudoku.solver.SolverFactory;
+import com.richardarcega.sudoku.solver.UnsolvableException;
+
+/**
+ * Unit tests for the primitive array based grid.
+ */
+public class BitboardGridTest
+{
+	public static BitboardGrid loadGrid(final String puzzleFile) throws IOException
+	{
+		final BitboardGrid grid = new BitboardGrid();
+		grid.load( new FileInputStream( "src/main/resources/" + puzzleFile ) );
+		return grid;
+	}
+
+	@Test
+	public void testLoadMatchesTableGrid() throws IOException
+	{
+		final BitboardGrid grid = loadGrid( "medium.txt" );
+
+		final TableGrid table = new TableGrid( 9, 9 );
+		table.load( new FileInputStream( "src/main/resources/medium.txt" ) );
+
+		for ( int y = 0; y < 9; y++ )
+		{
+			for ( int x = 0; x < 9; x++ )
+			{
+				assertEquals( table.getCellValue( x, y ), grid.getCellValue( x, y ) );
+			}
+		}
+
+		assertEquals( table.toString(), grid.toString() );
+		assertEquals( table.getEmptyCells().size(), grid.getEmptyCells().size() );
+	}
+
+	@Test
+	public void testCandidateMasks() throws IOException
+	{
+		final BitboardGrid grid = loadGrid( "easy.txt" );
+
+		// row 0 holds 4 5 8 3 7 1, column 0 holds 8 7 6 3, box 0 holds 4 5 8 1 7 9
+		assertEquals( 1 << ( 2 - 1 ), grid.getCandidates( 0, 0 ) );
+
+		grid.setCellValue( 0, 0, 2 );
+		assertEquals( 0, grid.getCandidates( 0, 0 ) & ( 1 << ( 2 - 1 ) ) );
+		assertEquals( 0, grid.getCandidates( 8, 0 ) & ( 1 << ( 2 - 1 ) ) );
+
+		grid.setCellValue( 0, 0, 0 );
+		assertEquals( 1 << ( 2 - 1 ), grid.getCandidates( 0, 0 ) );
+	}
+
+	@Test
+	public void testCandidateMasksWithRepeatedDigits()
+	{
+		final BitboardGrid grid = new BitboardGrid();
+		final int five = 1 << ( 5 - 1 );
+
+		// the same digit twice in row 0 and box 0, and in column 0
+		grid.setCellValue( 0, 0, 5 );
+		grid.setCellValue( 1, 0, 5 );
+		grid.setCellValue( 0, 8, 5 );
+
+		grid.setCellValue( 0, 0, 0 );
+		assertEquals( 0, grid.getCandidates( 8, 0 ) & five );
+		assertEquals( 0, grid.getCandidates( 2, 2 ) & five );
+		assertEquals( 0, grid.getCandidates( 0, 4 ) & five );
+
+		grid.setCellValue( 1, 0, 3 );
+		assertEquals( five, grid.getCandidates( 8, 0 ) & five );
+		assertEquals( five, grid.getCandidates( 2, 2 ) & five );
+		assertEquals( 0, grid.getCandidates( 0, 4 ) & five );
+	}
+
+	@Test
+	public void testSolveWithBacktracking() throws IOException, UnsolvableException
+	{
+		final BitboardGrid grid = loadGrid( "medium.txt" );
+
+		SolverFactory.getSolver( Algorithm.BACKTRACK ).solve( new Puzzle( grid ) );
+
+		for ( int y = 0; y < 9; y++ )
+		{
+			for ( int x = 0; x < 9; x++ )
+			{
+				assertTrue( grid.getCellValue( x, y ) != 0 );
+				assertEquals( grid.getSolutionValue( x, y ), grid.getCellValue( x, y ) );
+			}
+		}
+	}
+}
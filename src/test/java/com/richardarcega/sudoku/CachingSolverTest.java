@@ -0,0 +1,229 @@
+package com.richardarcega.sudoku;
+
+import static com.richardarcega.sudoku.BitboardGridTest.loadGrid;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
+import com.richardarcega.sudoku.puzzle.Puzzle;
+import com.richardarcega.sudoku.solver.Algorithm;
+import com.richardarcega.sudoku.solver.CachingSudokuSolver;
+import com.richardarcega.sudoku.solver.SolverFactory;
+import com.richardarcega.sudoku.solver.UnsolvableException;
+
+/**
+ * Unit tests for the symmetry-canonicalizing solution cache
+ */
+public class CachingSolverTest
+{
+	private CachingSudokuSolver	solver;
+
+	@Before
+	public void setUp()
+	{
+		solver = new CachingSudokuSolver( SolverFactory.getSolver( Algorithm.DLX ), 100 );
+	}
+
+	/**
+	 * Applies a random symmetry to both the puzzle and its solution: relabeling, band, stack,
+	 * row and column permutations, and transposition.
+	 *
+	 * @return the transformed puzzle and solution, in that order
+	 */
+	private static int[][] transform(final BitboardGrid grid, final Random random)
+	{
+		final List<Integer> digits = Lists.newArrayList( 1, 2, 3, 4, 5, 6, 7, 8, 9 );
+		Collections.shuffle( digits, random );
+
+		final int[] rows = lineOrder( random );
+		final int[] cols = lineOrder( random );
+		final boolean transpose = random.nextBoolean();
+
+		final int[][] result = new int[2][81];
+
+		for ( int y = 0; y < 9; y++ )
+		{
+			for ( int x = 0; x < 9; x++ )
+			{
+				final int sourceX = transpose ? rows[y] : cols[x];
+				final int sourceY = transpose ? cols[x] : rows[y];
+
+				final int given = grid.getCellValue( sourceX, sourceY );
+
+				result[0][y * 9 + x] = ( given == 0 ) ? 0 : digits.get( given - 1 );
+				result[1][y * 9 + x] = digits.get( grid.getSolutionValue( sourceX, sourceY ) - 1 );
+			}
+		}
+
+		return result;
+	}
+
+	private static int[] lineOrder(final Random random)
+	{
+		final List<Integer> bands = Lists.newArrayList( 0, 1, 2 );
+		Collections.shuffle( bands, random );
+
+		final int[] order = new int[9];
+
+		for ( int band = 0; band < 3; band++ )
+		{
+			final List<Integer> lines = Lists.newArrayList( 0, 1, 2 );
+			Collections.shuffle( lines, random );
+
+			for ( int i = 0; i < 3; i++ )
+			{
+				order[band * 3 + i] = bands.get( band ) * 3 + lines.get( i );
+			}
+		}
+
+		return order;
+	}
+
+	private void assertSolvesTo(final int[] givens, final int[] solution) throws UnsolvableException
+	{
+		final BitboardGrid grid = new BitboardGrid();
+
+		for ( int i = 0; i < 81; i++ )
+		{
+			grid.setCellValue( i % 9, i / 9, givens[i] );
+		}
+
+		solver.solve( new Puzzle( grid ) );
+
+		for ( int i = 0; i < 81; i++ )
+		{
+			assertEquals( "cell " + i, solution[i], grid.getCellValue( i % 9, i / 9 ) );
+		}
+	}
+
+	@Test
+	public void testRepeatedPuzzleHitsCache() throws IOException, UnsolvableException
+	{
+		final int[][] copy = transform( loadGrid( "expert.txt" ), new Random( 1 ) );
+
+		assertSolvesTo( copy[0], copy[1] );
+		assertTrue( solver.getLastStats().getNodes() > 0 );
+
+		assertSolvesTo( copy[0], copy[1] );
+		assertEquals( 0, solver.getLastStats().getNodes() );
+
+		assertEquals( 1, solver.getMissCount() );
+		assertEquals( 1, solver.getHitCount() );
+		assertEquals( 1, solver.getExactHitCount() );
+		assertEquals( 1, solver.size() );
+	}
+
+	@Test
+	public void testIsomorphicHitIsKeptAsExactMatch() throws IOException, UnsolvableException
+	{
+		final Random random = new Random( 3 );
+		final BitboardGrid grid = loadGrid( "hard.txt" );
+		final int[][] first = transform( grid, random );
+		final int[][] second = transform( grid, random );
+
+		assertSolvesTo( first[0], first[1] );
+		assertSolvesTo( second[0], second[1] );
+		assertSolvesTo( second[0], second[1] );
+		assertSolvesTo( first[0], first[1] );
+
+		assertEquals( 1, solver.getMissCount() );
+		assertEquals( 3, solver.getHitCount() );
+		assertEquals( 2, solver.getExactHitCount() );
+		assertEquals( 3, solver.getStats().hitCount() );
+
+		solver.clear();
+		assertSolvesTo( first[0], first[1] );
+
+		assertEquals( 2, solver.getMissCount() );
+	}
+
+	@Test
+	public void testIsomorphicPuzzlesHitCache() throws IOException, UnsolvableException
+	{
+		final Random random = new Random( 42 );
+
+		for ( final String puzzleFile : new String[] { "easy.txt", "hard.txt", "expert.txt" } )
+		{
+			final BitboardGrid grid = loadGrid( puzzleFile );
+
+			for ( int i = 0; i < 20; i++ )
+			{
+				final int[][] isomorph = transform( grid, random );
+				assertSolvesTo( isomorph[0], isomorph[1] );
+			}
+		}
+
+		assertEquals( 3, solver.getMissCount() );
+		assertEquals( 57, solver.getHitCount() );
+	}
+
+	@Test
+	public void testRepeatedGivenSkipsCache() throws UnsolvableException
+	{
+		// the canonical form the canonicalizer gives the second puzzle, which
+		// repeats 4 in its last row, is the first puzzle
+		final BitboardGrid valid = grid( "000000000000000001001023045000000000000002000004006007000300500007000060890040000" );
+		final String invalid = "000000000000000007900020006000030000000000000300910708200600000000001080144000090";
+
+		solver.solve( new Puzzle( valid ) );
+
+		final BitboardGrid grid = grid( invalid );
+
+		try
+		{
+			solver.solve( new Puzzle( grid ) );
+			fail( "A puzzle with a repeated given was solved" );
+		}
+		catch ( final UnsolvableException e )
+		{
+			// expected
+		}
+
+		for ( int i = 0; i < 81; i++ )
+		{
+			assertEquals( "cell " + i, invalid.charAt( i ) - '0', grid.getCellValue( i % 9, i / 9 ) );
+		}
+
+		assertEquals( 0, solver.getHitCount() );
+	}
+
+	private static BitboardGrid grid(final String givens)
+	{
+		final BitboardGrid grid = new BitboardGrid();
+
+		for ( int i = 0; i < 81; i++ )
+		{
+			grid.setCellValue( i % 9, i / 9, givens.charAt( i ) - '0' );
+		}
+
+		return grid;
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEviction() throws IOException, UnsolvableException
+	{
+		solver = new CachingSudokuSolver( SolverFactory.getSolver( Algorithm.DLX ), 1 );
+
+		final Random random = new Random( 7 );
+		final int[][] easy = transform( loadGrid( "easy.txt" ), random );
+		final int[][] medium = transform( loadGrid( "medium.txt" ), random );
+
+		assertSolvesTo( easy[0], easy[1] );
+		assertSolvesTo( medium[0], medium[1] );
+		assertSolvesTo( easy[0], easy[1] );
+
+		assertEquals( 3, solver.getMissCount() );
+		assertEquals( 0, solver.getHitCount() );
+		assertEquals( 1, solver.size() );
+	}
+}
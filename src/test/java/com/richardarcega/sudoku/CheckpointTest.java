@@ -0,0 +1,264 @@
+package com.richardarcega.sudoku;
+
+import static com.richardarcega.sudoku.BitboardGridTest.loadGrid;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
+import com.richardarcega.sudoku.puzzle.Puzzle;
+import com.richardarcega.sudoku.solver.BacktrackSudokuSolver;
+import com.richardarcega.sudoku.solver.CellSelection;
+import com.richardarcega.sudoku.solver.SearchAbortedException;
+import com.richardarcega.sudoku.solver.SearchCheckpoint;
+import com.richardarcega.sudoku.solver.SolveLimits;
+import com.richardarcega.sudoku.solver.UnsolvableException;
+
+/**
+ * Unit tests for saving and resuming a backtracking search
+ */
+public class CheckpointTest
+{
+	/**
+	 * Returns the checkpoint as read back from its bytes, as a new JVM would.
+	 */
+	private static SearchCheckpoint copy(final SearchCheckpoint checkpoint) throws IOException
+	{
+		return SearchCheckpoint.read( toBytes( checkpoint ) );
+	}
+
+	private static byte[] toBytes(final SearchCheckpoint checkpoint) throws IOException
+	{
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		checkpoint.writeTo( bytes );
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Solves the grid uninterrupted, returning the number of guesses it took.
+	 */
+	private static long solve(final CellSelection selection, final BitboardGrid grid) throws UnsolvableException
+	{
+		final BacktrackSudokuSolver solver = new BacktrackSudokuSolver( selection );
+		solver.solve( new Puzzle( grid ) );
+		return solver.getLastStats().getGuesses();
+	}
+
+	/**
+	 * Stops the search after a number of guesses, and returns its checkpoint.
+	 */
+	private static SearchCheckpoint stop(final BacktrackSudokuSolver solver, final Puzzle puzzle, final long maxNodes)
+		throws UnsolvableException
+	{
+		try
+		{
+			solver.solve( puzzle, SolveLimits.maxNodes( maxNodes ) );
+			fail( "The search was not stopped" );
+		}
+		catch ( final SearchAbortedException e )
+		{
+			assertEquals( SearchAbortedException.Reason.NODE_LIMIT, e.getReason() );
+		}
+
+		assertNotNull( solver.getLastCheckpoint() );
+
+		return solver.getLastCheckpoint();
+	}
+
+	@Test
+	public void testResumeInNewSolver() throws IOException, UnsolvableException
+	{
+		final BitboardGrid solution = loadGrid( "expert.txt" );
+		final long numGuesses = solve( CellSelection.STATIC, solution );
+
+		final SearchCheckpoint checkpoint = stop( new BacktrackSudokuSolver(), new Puzzle( loadGrid( "expert.txt" ) ), 100000 );
+
+		assertEquals( 100000, checkpoint.getGuesses() );
+		assertEquals( 9, checkpoint.size() );
+		assertEquals( loadGrid( "expert.txt" ).getCellValue( 0, 0 ), checkpoint.getGiven( 0, 0 ) );
+
+		final Path file = Files.createTempFile( "search", ".checkpoint" );
+
+		try
+		{
+			checkpoint.save( file );
+
+			// the puzzle is recovered from the checkpoint alone
+			final BacktrackSudokuSolver solver = new BacktrackSudokuSolver();
+			final Puzzle puzzle = new Puzzle( new BitboardGrid() );
+			solver.resume( SearchCheckpoint.load( file ), puzzle, SolveLimits.NONE );
+
+			assertEquals( solution.toString(), puzzle.getGrid().toString() );
+			assertEquals( numGuesses, checkpoint.getGuesses() + solver.getLastStats().getGuesses() );
+			assertNull( solver.getLastCheckpoint() );
+		}
+		finally
+		{
+			Files.delete( file );
+		}
+	}
+
+	@Test
+	public void testRepeatedResumes() throws IOException, UnsolvableException
+	{
+		final BitboardGrid solution = loadGrid( "hard.txt" );
+		final long numGuesses = solve( CellSelection.DYNAMIC, solution );
+
+		final BacktrackSudokuSolver solver = new BacktrackSudokuSolver( CellSelection.DYNAMIC );
+		final Puzzle puzzle = new Puzzle( loadGrid( "hard.txt" ) );
+
+		SearchCheckpoint checkpoint = stop( solver, puzzle, 300 );
+		int numRuns = 1;
+
+		while ( true )
+		{
+			try
+			{
+				solver.resume( copy( checkpoint ), puzzle, SolveLimits.maxNodes( 300 ) );
+				break;
+			}
+			catch ( final SearchAbortedException e )
+			{
+				assertEquals( checkpoint.getGuesses() + 300, solver.getLastCheckpoint().getGuesses() );
+				checkpoint = solver.getLastCheckpoint();
+			}
+
+			numRuns++;
+		}
+
+		assertTrue( numRuns > 5 );
+		assertEquals( solution.toString(), puzzle.getGrid().toString() );
+		assertEquals( numGuesses, checkpoint.getGuesses() + solver.getLastStats().getGuesses() );
+	}
+
+	@Test
+	public void testIntervalCheckpoints() throws IOException, UnsolvableException
+	{
+		final BitboardGrid solution = loadGrid( "expert.txt" );
+		final long numGuesses = solve( CellSelection.STATIC, solution );
+
+		final List<SearchCheckpoint> checkpoints = Lists.newArrayList();
+		final BacktrackSudokuSolver solver = new BacktrackSudokuSolver();
+
+		solver.setCheckpointListener( new SearchCheckpoint.Listener()
+		{
+			@Override
+			public void checkpoint(final SearchCheckpoint checkpoint)
+			{
+				checkpoints.add( checkpoint );
+			}
+		}, 0, TimeUnit.SECONDS );
+
+		final Puzzle puzzle = new Puzzle( loadGrid( "expert.txt" ) );
+		solver.solve( puzzle );
+
+		assertEquals( solution.toString(), puzzle.getGrid().toString() );
+		assertEquals( numGuesses / SolveLimits.CHECK_INTERVAL, checkpoints.size() );
+
+		solver.setCheckpointListener( null, 0, TimeUnit.SECONDS );
+
+		for ( final SearchCheckpoint checkpoint : Arrays.asList( checkpoints.get( 0 ), checkpoints.get( checkpoints.size() / 2 ),
+			checkpoints.get( checkpoints.size() - 1 ) ) )
+		{
+			final Puzzle resumed = new Puzzle( new BitboardGrid() );
+			solver.resume( copy( checkpoint ), resumed, SolveLimits.NONE );
+
+			assertEquals( solution.toString(), resumed.getGrid().toString() );
+			assertEquals( numGuesses, checkpoint.getGuesses() + solver.getLastStats().getGuesses() );
+		}
+	}
+
+	@Test
+	public void testSaveToFile() throws IOException, UnsolvableException
+	{
+		final Path file = Files.createTempFile( "search", ".checkpoint" );
+
+		try
+		{
+			final BacktrackSudokuSolver solver = new BacktrackSudokuSolver();
+			solver.setCheckpointListener( SearchCheckpoint.saveTo( file ), 0, TimeUnit.SECONDS );
+			stop( solver, new Puzzle( loadGrid( "hard.txt" ) ), 5000 );
+
+			// the last interval checkpoint, taken when the limits were last checked
+			final SearchCheckpoint checkpoint = SearchCheckpoint.load( file );
+
+			assertEquals( 4 * SolveLimits.CHECK_INTERVAL, checkpoint.getGuesses() );
+			assertEquals( CellSelection.STATIC, checkpoint.getSelection() );
+			assertTrue( Files.size( file ) < 600 );
+		}
+		finally
+		{
+			Files.delete( file );
+		}
+	}
+
+	@Test
+	public void testCorruptCheckpoint() throws IOException, UnsolvableException
+	{
+		final byte[] bytes = toBytes( stop( new BacktrackSudokuSolver(), new Puzzle( loadGrid( "hard.txt" ) ), 1000 ) );
+
+		bytes[bytes.length / 2] ^= 1;
+		assertUnreadable( bytes );
+
+		bytes[bytes.length / 2] ^= 1;
+		SearchCheckpoint.read( bytes );
+
+		assertUnreadable( Arrays.copyOf( bytes, bytes.length - 10 ) );
+		assertUnreadable( Arrays.copyOf( bytes, 3 ) );
+
+		bytes[0] = 'X';
+		assertUnreadable( bytes );
+	}
+
+	private static void assertUnreadable(final byte[] bytes)
+	{
+		try
+		{
+			SearchCheckpoint.read( bytes );
+			fail( "A damaged checkpoint was read" );
+		}
+		catch ( final IOException e )
+		{
+			// expected
+		}
+	}
+
+	@Test
+	public void testMismatchedSolver() throws IOException, UnsolvableException
+	{
+		final SearchCheckpoint checkpoint = stop( new BacktrackSudokuSolver(), new Puzzle( loadGrid( "hard.txt" ) ), 1000 );
+
+		try
+		{
+			new BacktrackSudokuSolver( CellSelection.DYNAMIC ).resume( checkpoint, new Puzzle( new BitboardGrid() ), SolveLimits.NONE );
+			fail( "A checkpoint was resumed with another cell selection" );
+		}
+		catch ( final IllegalArgumentException e )
+		{
+			// expected
+		}
+
+		try
+		{
+			new BacktrackSudokuSolver().resume( checkpoint, new Puzzle( new BitboardGrid( 16 ) ), SolveLimits.NONE );
+			fail( "A checkpoint was resumed into a grid of another size" );
+		}
+		catch ( final IllegalArgumentException e )
+		{
+			// expected
+		}
+	}
+}
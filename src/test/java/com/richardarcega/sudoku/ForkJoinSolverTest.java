@@ -0,0 +1,58 @@
+package com.richardarcega.sudoku;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
+import com.richardarcega.sudoku.puzzle.Puzzle;
+import com.richardarcega.sudoku.solver.ForkJoinSudokuSolver;
+import com.richardarcega.sudoku.solver.NorvigSudokuSolver;
+import com.richardarcega.sudoku.solver.SolveStats;
+import com.richardarcega.sudoku.solver.UnsolvableException;
+
+/**
+ * Unit tests for the split depth of the parallel fork/join search; the cases
+ * common to every algorithm are in {@link SolverTest}
+ */
+public class ForkJoinSolverTest
+{
+	@Test
+	public void testSplitDepths() throws IOException, UnsolvableException
+	{
+		final ForkJoinPool pool = new ForkJoinPool( 4 );
+
+		try
+		{
+			final NorvigSudokuSolver sequential = new NorvigSudokuSolver();
+			final BitboardGrid grid = BitboardGridTest.loadGrid( "hard.txt" );
+
+			// counting a unique puzzle's solutions searches the whole tree
+			sequential.countSolutions( new Puzzle( grid ), 2 );
+			final SolveStats expected = sequential.getLastStats();
+
+			// 0 searches sequentially; 81 splits at every guess
+			for ( final int splitDepth : new int[] { 0, 1, ForkJoinSudokuSolver.DEFAULT_SPLIT_DEPTH, 81 } )
+			{
+				final ForkJoinSudokuSolver splitSolver = new ForkJoinSudokuSolver( pool, splitDepth );
+
+				SolverTest.assertSolves( splitSolver, "hard.txt" );
+				SolverTest.assertSolves( splitSolver, "expert.txt" );
+
+				splitSolver.countSolutions( new Puzzle( grid ), 2 );
+				final SolveStats stats = splitSolver.getLastStats();
+
+				assertEquals( "nodes at split depth " + splitDepth, expected.getNodes(), stats.getNodes() );
+				assertEquals( "guesses at split depth " + splitDepth, expected.getGuesses(), stats.getGuesses() );
+				assertEquals( "backtracks at split depth " + splitDepth, expected.getBacktracks(), stats.getBacktracks() );
+			}
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+}
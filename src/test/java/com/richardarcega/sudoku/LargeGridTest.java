@@ -0,0 +1,137 @@
+package com.richardarcega.sudoku;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
+import com.richardarcega.sudoku.puzzle.Grid;
+import com.richardarcega.sudoku.puzzle.Puzzle;
+import com.richardarcega.sudoku.puzzle.TableGrid;
+import com.richardarcega.sudoku.puzzle.Units;
+import com.richardarcega.sudoku.solver.Algorithm;
+import com.richardarcega.sudoku.solver.SolverFactory;
+import com.richardarcega.sudoku.solver.SudokuSolver;
+import com.richardarcega.sudoku.solver.UnsolvableException;
+
+/**
+ * Unit tests for 16x16 and 25x25 grids
+ */
+public class LargeGridTest
+{
+	private static <T extends Grid> T load(final T grid, final String puzzleFile) throws IOException
+	{
+		grid.load( new FileInputStream( "src/test/resources/" + puzzleFile ) );
+		return grid;
+	}
+
+	/**
+	 * Checks that every unit of the grid holds each digit once, and that the givens are kept.
+	 */
+	private static void assertSolution(final String message, final Grid givens, final Grid grid)
+	{
+		final Units units = Units.of( grid.size() );
+		final int[][] allUnits = units.getUnits();
+
+		for ( final int[] unit : allUnits )
+		{
+			int digits = 0;
+
+			for ( final int cell : unit )
+			{
+				digits |= 1 << ( grid.getCellValue( cell % grid.size(), cell / grid.size() ) - 1 );
+			}
+
+			assertEquals( message, units.getAllDigits(), digits );
+		}
+
+		for ( int y = 0; y < grid.size(); y++ )
+		{
+			for ( int x = 0; x < grid.size(); x++ )
+			{
+				if ( givens.getCellValue( x, y ) != 0 )
+				{
+					assertEquals( message, givens.getCellValue( x, y ), grid.getCellValue( x, y ) );
+				}
+			}
+		}
+	}
+
+	private static void assertSolves(final int size, final String puzzleFile) throws IOException, UnsolvableException
+	{
+		final BitboardGrid givens = load( new BitboardGrid( size ), puzzleFile );
+
+		for ( final Algorithm algorithm : Algorithm.values() )
+		{
+			final SudokuSolver solver = SolverFactory.getSolver( algorithm );
+
+			final BitboardGrid bitboard = load( new BitboardGrid( size ), puzzleFile );
+			solver.solve( new Puzzle( bitboard ) );
+			assertSolution( algorithm + " " + puzzleFile, givens, bitboard );
+
+			final TableGrid table = load( new TableGrid( size, size ), puzzleFile );
+			solver.solve( new Puzzle( table ) );
+			assertSolution( algorithm + " " + puzzleFile, givens, table );
+
+			// the same solver goes back to a standard grid
+			SolverTest.assertSolves( solver, "expert.txt" );
+		}
+	}
+
+	@Test
+	public void testSixteenBySixteen() throws IOException, UnsolvableException
+	{
+		assertSolves( 16, "16x16.txt" );
+	}
+
+	@Test
+	public void testTwentyFiveByTwentyFive() throws IOException, UnsolvableException
+	{
+		assertSolves( 25, "25x25.txt" );
+	}
+
+	@Test
+	public void testLineRoundTrip() throws IOException
+	{
+		final BitboardGrid grid = load( new BitboardGrid( 16 ), "16x16.txt" );
+		final BitboardGrid copy = new BitboardGrid( 16 );
+
+		copy.loadLine( grid.toLine() );
+
+		assertEquals( 256, grid.toLine().length() );
+		assertEquals( grid.toLine(), copy.toLine() );
+	}
+
+	@Test
+	public void testToStringRoundTrip() throws IOException
+	{
+		final TableGrid grid = load( new TableGrid( 16, 16 ), "16x16.txt" );
+		final TableGrid copy = new TableGrid( 16, 16 );
+
+		copy.load( new ByteArrayInputStream( grid.toString().getBytes( "US-ASCII" ) ) );
+
+		assertEquals( grid.toString(), copy.toString() );
+		assertTrue( grid.toString().startsWith( "2 A . . |G C B . |" ) );
+	}
+
+	@Test
+	public void testSymbols()
+	{
+		assertEquals( 10, Grid.toDigit( 'A' ) );
+		assertEquals( 25, Grid.toDigit( 'p' ) );
+		assertEquals( 0, Grid.toDigit( '.' ) );
+		assertEquals( -1, Grid.toDigit( 'Q' ) );
+		assertEquals( 'G', Grid.toSymbol( 16 ) );
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedSize()
+	{
+		new BitboardGrid( 12 );
+	}
+}
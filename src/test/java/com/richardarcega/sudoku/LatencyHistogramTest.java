@@ -0,0 +1,231 @@
+package com.richardarcega.sudoku;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.richardarcega.sudoku.batch.BatchSolver;
+import com.richardarcega.sudoku.batch.LatencyHistogram;
+import com.richardarcega.sudoku.batch.LatencyRecorder;
+import com.richardarcega.sudoku.batch.LatencyReport;
+import com.richardarcega.sudoku.client.AppRunner;
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
+import com.richardarcega.sudoku.solver.Algorithm;
+
+/**
+ * Unit tests for the latency histograms and report
+ */
+public class LatencyHistogramTest
+{
+	/**
+	 * The relative error allowed of a percentile.
+	 */
+	private static final double	PRECISION	= 1.0 / 64;
+
+	@Test
+	public void testSmallValuesAreExact()
+	{
+		final LatencyHistogram histogram = new LatencyHistogram();
+
+		for ( int value = 1; value <= 100; value++ )
+		{
+			histogram.record( value );
+		}
+
+		assertEquals( 100, histogram.getCount() );
+		assertEquals( 1, histogram.getMin() );
+		assertEquals( 100, histogram.getMax() );
+		assertEquals( 50.5, histogram.getMean(), 1e-9 );
+		assertEquals( 50, histogram.getValueAtPercentile( 50 ) );
+		assertEquals( 99, histogram.getValueAtPercentile( 99 ) );
+		assertEquals( 1, histogram.getValueAtPercentile( 0 ) );
+		assertEquals( 100, histogram.getValueAtPercentile( 100 ) );
+	}
+
+	@Test
+	public void testPercentilePrecision()
+	{
+		final Random random = new Random( 42 );
+		final LatencyHistogram histogram = new LatencyHistogram();
+		final long[] values = new long[100000];
+
+		// latencies spread over nine orders of magnitude
+		for ( int i = 0; i < values.length; i++ )
+		{
+			values[i] = (long) Math.pow( 10, 9 * random.nextDouble() );
+			histogram.record( values[i] );
+		}
+
+		Arrays.sort( values );
+
+		for ( final double percentile : new double[]{ 10, 50, 90, 99, 99.9, 99.99 } )
+		{
+			final long expected = values[(int) Math.ceil( percentile / 100 * values.length ) - 1];
+			final long actual = histogram.getValueAtPercentile( percentile );
+
+			assertTrue( percentile + ": " + actual + " vs " + expected, actual >= expected && actual <= expected * ( 1 + PRECISION ) );
+		}
+
+		assertEquals( values[values.length - 1], histogram.getMax() );
+		assertEquals( values[values.length - 1], histogram.getValueAtPercentile( 100 ) );
+	}
+
+	@Test
+	public void testExtremes()
+	{
+		final LatencyHistogram histogram = new LatencyHistogram();
+
+		histogram.record( -5 );
+		histogram.record( Long.MAX_VALUE );
+
+		assertEquals( 0, histogram.getValueAtPercentile( 50 ) );
+		assertEquals( Long.MAX_VALUE, histogram.getValueAtPercentile( 100 ) );
+
+		histogram.reset();
+
+		assertEquals( 0, histogram.getCount() );
+		assertEquals( 0, histogram.getValueAtPercentile( 99 ) );
+	}
+
+	@Test
+	public void testAdd()
+	{
+		final LatencyHistogram whole = new LatencyHistogram();
+		final LatencyHistogram odd = new LatencyHistogram();
+		final LatencyHistogram even = new LatencyHistogram();
+
+		for ( long value = 1; value <= 10000; value++ )
+		{
+			whole.record( value * 37 );
+			( ( value % 2 == 0 ) ? even : odd ).record( value * 37 );
+		}
+
+		odd.add( even );
+
+		assertEquals( whole.getCount(), odd.getCount() );
+		assertEquals( whole.getMin(), odd.getMin() );
+		assertEquals( whole.getMax(), odd.getMax() );
+		assertEquals( whole.getMean(), odd.getMean(), 1e-9 );
+
+		for ( final double percentile : new double[]{ 50, 90, 99, 99.9 } )
+		{
+			assertEquals( whole.getValueAtPercentile( percentile ), odd.getValueAtPercentile( percentile ) );
+		}
+	}
+
+	@Test
+	public void testRecorderCombinesThreads() throws InterruptedException
+	{
+		final LatencyRecorder recorder = new LatencyRecorder();
+		final Thread[] threads = new Thread[4];
+
+		for ( int t = 0; t < threads.length; t++ )
+		{
+			final long offset = t * 1000000L;
+
+			threads[t] = new Thread( new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					for ( int i = 1; i <= 10000; i++ )
+					{
+						recorder.record( offset + i );
+					}
+				}
+			} );
+
+			threads[t].start();
+		}
+
+		for ( final Thread thread : threads )
+		{
+			thread.join();
+		}
+
+		final LatencyHistogram histogram = recorder.getHistogram();
+
+		assertEquals( 40000, histogram.getCount() );
+		assertEquals( 1, histogram.getMin() );
+		assertEquals( 3010000, histogram.getMax() );
+	}
+
+	@Test
+	public void testBatchLatencies() throws IOException, InterruptedException
+	{
+		final BitboardGrid grid = new BitboardGrid();
+		grid.load( new FileInputStream( "src/main/resources/hard.txt" ) );
+
+		final StringBuilder input = new StringBuilder();
+
+		for ( int i = 0; i < 100; i++ )
+		{
+			input.append( grid.toLine() ).append( '\n' );
+		}
+
+		final LatencyRecorder recorder = new LatencyRecorder();
+		new BatchSolver( Algorithm.DLX, 2, 8, recorder ).solve( new BufferedReader( new StringReader( input.toString() ) ), new StringWriter() );
+
+		assertEquals( 100, recorder.getHistogram().getCount() );
+		assertTrue( recorder.getHistogram().getMin() > 0 );
+	}
+
+	@Test
+	public void testReport() throws IOException, InterruptedException
+	{
+		final BitboardGrid grid = new BitboardGrid();
+		grid.load( new FileInputStream( "src/main/resources/medium.txt" ) );
+
+		final Path inputFile = Files.createTempFile( "puzzles", ".txt" );
+
+		try
+		{
+			final List<String> lines = Lists.newArrayList();
+
+			for ( int i = 0; i < 50; i++ )
+			{
+				lines.add( grid.toLine() );
+			}
+
+			Files.write( inputFile, lines, StandardCharsets.US_ASCII );
+
+			// the warm-up puzzles are not counted
+			final LatencyReport report = AppRunner.report( inputFile, Arrays.asList( Algorithm.NORVIG, Algorithm.DLX ), 20 );
+
+			assertEquals( 50, report.getLatencies( Algorithm.DLX ).getCount() );
+			assertEquals( 50, report.getLatencies( Algorithm.NORVIG ).getCount() );
+			assertTrue( report.getPuzzlesPerSecond( Algorithm.DLX ) > 0 );
+			assertTrue( report.toString().contains( "NORVIG" ) );
+
+			final StringWriter csv = new StringWriter();
+			report.writeCsv( csv );
+
+			final List<String> rows = Lists.newArrayList( Splitter.on( '\n' ).omitEmptyStrings().split( csv.toString() ) );
+
+			assertEquals( 3, rows.size() );
+			assertTrue( rows.get( 0 ).startsWith( "algorithm,puzzles,elapsed_ms,puzzles_per_s,p50_us" ) );
+			assertTrue( rows.get( 1 ).startsWith( "NORVIG,50," ) );
+			assertTrue( rows.get( 2 ).startsWith( "DLX,50," ) );
+			assertEquals( 10, Lists.newArrayList( Splitter.on( ',' ).split( rows.get( 2 ) ) ).size() );
+		}
+		finally
+		{
+			Files.delete( inputFile );
+		}
+	}
+}
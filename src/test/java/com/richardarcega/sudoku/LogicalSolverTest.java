@@ -0,0 +1,214 @@
+package com.richardarcega.sudoku;
+
+import static com.richardarcega.sudoku.BitboardGridTest.loadGrid;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.EnumSet;
+
+import org.junit.Test;
+
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
+import com.richardarcega.sudoku.puzzle.Puzzle;
+import com.richardarcega.sudoku.solver.Algorithm;
+import com.richardarcega.sudoku.solver.DeductiveSudokuSolver;
+import com.richardarcega.sudoku.solver.LogicalSolver;
+import com.richardarcega.sudoku.solver.SolveStats;
+import com.richardarcega.sudoku.solver.SolverFactory;
+import com.richardarcega.sudoku.solver.SudokuSolver;
+import com.richardarcega.sudoku.solver.Technique;
+import com.richardarcega.sudoku.solver.UnsolvableException;
+
+/**
+ * Unit tests for the deduction engine, puzzle grading and the deductive pre-pass
+ */
+public class LogicalSolverTest
+{
+	/**
+	 * A puzzle needing a hidden pair.
+	 */
+	private static final String	HIDDEN_PAIR	= "720096003000205000080004020000000060106503807040000000030800090000702000200430018";
+
+	/**
+	 * A puzzle needing an X-Wing.
+	 */
+	private static final String	X_WING		= "100000569492056108056109240009640801064010000218035604040500016905061402621000005";
+
+	/**
+	 * A puzzle which none of the techniques can solve.
+	 */
+	private static final String	GUESS		= "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..";
+
+	private static BitboardGrid line(final String puzzle)
+	{
+		final BitboardGrid grid = new BitboardGrid();
+		grid.loadLine( puzzle );
+		return grid;
+	}
+
+	private static BitboardGrid solve(final BitboardGrid grid) throws UnsolvableException
+	{
+		final BitboardGrid solution = grid.copy();
+		SolverFactory.getSolver( Algorithm.DLX ).solve( new Puzzle( solution ) );
+		return solution;
+	}
+
+	@Test
+	public void testGrade() throws IOException, UnsolvableException
+	{
+		final LogicalSolver logic = new LogicalSolver();
+
+		assertEquals( Technique.NAKED_SINGLE, logic.grade( loadGrid( "easy.txt" ) ) );
+		assertEquals( Technique.NAKED_TRIPLE, logic.grade( loadGrid( "medium.txt" ) ) );
+		assertEquals( Technique.POINTING_PAIR, logic.grade( loadGrid( "hard.txt" ) ) );
+		assertEquals( Technique.HIDDEN_PAIR, logic.grade( line( HIDDEN_PAIR ) ) );
+
+		assertEquals( Technique.X_WING, logic.grade( line( X_WING ) ) );
+		assertTrue( logic.isSolved() );
+		assertEquals( 1, logic.getUses( Technique.X_WING ) );
+
+		assertEquals( Technique.GUESS, logic.grade( line( GUESS ) ) );
+		assertFalse( logic.isSolved() );
+	}
+
+	@Test
+	public void testGradeLeavesGridUnchanged() throws IOException, UnsolvableException
+	{
+		final BitboardGrid grid = loadGrid( "hard.txt" );
+		final BitboardGrid copy = grid.copy();
+
+		new LogicalSolver().grade( grid );
+
+		assertEquals( copy, grid );
+	}
+
+	@Test
+	public void testDisabledTechniques() throws UnsolvableException
+	{
+		final LogicalSolver singles = new LogicalSolver( EnumSet.of( Technique.NAKED_SINGLE, Technique.HIDDEN_SINGLE ) );
+
+		assertEquals( Technique.GUESS, singles.grade( line( X_WING ) ) );
+		assertEquals( 0, singles.getUses( Technique.POINTING_PAIR ) );
+
+		final LogicalSolver noXWing = new LogicalSolver( EnumSet.range( Technique.NAKED_SINGLE, Technique.HIDDEN_TRIPLE ) );
+
+		assertEquals( Technique.GUESS, noXWing.grade( line( X_WING ) ) );
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGuessIsNotADeduction()
+	{
+		new LogicalSolver( EnumSet.of( Technique.GUESS ) );
+	}
+
+	@Test
+	public void testDeduce() throws IOException, UnsolvableException
+	{
+		final LogicalSolver logic = new LogicalSolver();
+
+		// fully deduced puzzles are solved in place
+		for ( final BitboardGrid grid : new BitboardGrid[]{ loadGrid( "expert.txt" ), line( X_WING ) } )
+		{
+			final BitboardGrid solution = solve( grid );
+
+			assertTrue( logic.deduce( grid ) > 0 );
+			assertEquals( solution, grid );
+		}
+
+		// every digit deduced of a puzzle needing search agrees with its solution
+		final BitboardGrid grid = line( GUESS );
+		final BitboardGrid solution = solve( grid );
+
+		logic.deduce( grid );
+
+		for ( int y = 0; y < 9; y++ )
+		{
+			for ( int x = 0; x < 9; x++ )
+			{
+				assertTrue( grid.getCellValue( x, y ) == 0 || grid.getCellValue( x, y ) == solution.getCellValue( x, y ) );
+			}
+		}
+	}
+
+	@Test
+	public void testLargeGrids() throws IOException, UnsolvableException
+	{
+		final LogicalSolver logic = new LogicalSolver();
+
+		for ( final int size : new int[]{ 16, 25 } )
+		{
+			final BitboardGrid grid = new BitboardGrid( size );
+			grid.load( new FileInputStream( "src/test/resources/" + size + "x" + size + ".txt" ) );
+
+			final BitboardGrid solution = grid.copy();
+			SolverFactory.getSolver( Algorithm.DLX ).solve( new Puzzle( solution ) );
+
+			assertTrue( logic.deduce( grid ) > 0 );
+
+			for ( int y = 0; y < size; y++ )
+			{
+				for ( int x = 0; x < size; x++ )
+				{
+					assertTrue( grid.getCellValue( x, y ) == 0 || grid.getCellValue( x, y ) == solution.getCellValue( x, y ) );
+				}
+			}
+		}
+	}
+
+	@Test(expected = UnsolvableException.class)
+	public void testContradiction() throws UnsolvableException
+	{
+		final BitboardGrid grid = new BitboardGrid();
+		grid.setCellValue( 0, 0, 5 );
+		grid.setCellValue( 8, 0, 5 );
+
+		new LogicalSolver().grade( grid );
+	}
+
+	@Test
+	public void testDeductiveSolver() throws IOException, UnsolvableException
+	{
+		for ( final Algorithm algorithm : new Algorithm[]{ Algorithm.BACKTRACK, Algorithm.NORVIG, Algorithm.DLX } )
+		{
+			final SudokuSolver solver = new DeductiveSudokuSolver( SolverFactory.getSolver( algorithm ) );
+
+			for ( final BitboardGrid grid : new BitboardGrid[]{ loadGrid( "easy.txt" ), loadGrid( "expert.txt" ), line( GUESS ) } )
+			{
+				final BitboardGrid solution = solve( grid );
+
+				solver.solve( new Puzzle( grid ) );
+				assertEquals( algorithm.name(), solution, grid );
+			}
+
+			assertTrue( solver.isUnique( new Puzzle( line( GUESS ) ) ) );
+			assertEquals( 2, solver.countSolutions( new Puzzle( new BitboardGrid() ), 2 ) );
+		}
+	}
+
+	@Test
+	public void testDeductionSkipsSearch() throws IOException, UnsolvableException
+	{
+		final SudokuSolver solver = new DeductiveSudokuSolver( SolverFactory.getSolver( Algorithm.BACKTRACK ) );
+
+		solver.solve( new Puzzle( loadGrid( "hard.txt" ) ) );
+
+		final SolveStats stats = solver.getLastStats();
+
+		assertTrue( stats.isSolved() );
+		assertEquals( 0, stats.getNodes() );
+		assertTrue( !SolveStats.ENABLED || stats.getPropagations() > 0 );
+	}
+
+	@Test(expected = UnsolvableException.class)
+	public void testDeductiveSolverUnsolvable() throws UnsolvableException
+	{
+		final BitboardGrid grid = new BitboardGrid();
+		grid.setCellValue( 0, 0, 5 );
+		grid.setCellValue( 0, 8, 5 );
+
+		new DeductiveSudokuSolver( SolverFactory.getSolver( Algorithm.DLX ) ).solve( new Puzzle( grid ) );
+	}
+}
@@ -0,0 +1,201 @@
+package com.richardarcega.sudoku;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import com.richardarcega.sudoku.batch.MappedPuzzleReader;
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
+
+/**
+ * Unit tests for the memory-mapped puzzle reader
+ */
+public class MappedPuzzleReaderTest
+{
+	private static final String[]	PUZZLE_FILES	= { "easy.txt", "medium.txt", "hard.txt", "expert.txt" };
+
+	@Rule
+	public final TemporaryFolder	folder			= new TemporaryFolder();
+
+	/**
+	 * The expected puzzle at each line offset, and the offsets of the invalid lines.
+	 */
+	private final Map<Long, String>	expected		= Maps.newTreeMap();
+	private final List<Long>		invalid			= Lists.newArrayList();
+
+	private File					file;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		final List<String> puzzles = Lists.newArrayList();
+
+		for ( final String puzzleFile : PUZZLE_FILES )
+		{
+			final BitboardGrid grid = new BitboardGrid();
+			grid.load( new FileInputStream( "src/main/resources/" + puzzleFile ) );
+			puzzles.add( grid.toLine() );
+		}
+
+		final BitboardGrid large = new BitboardGrid( 16 );
+		large.load( new FileInputStream( "src/test/resources/16x16.txt" ) );
+		puzzles.add( large.toLine() );
+
+		final StringBuilder text = new StringBuilder();
+
+		for ( int i = 0; i < 500; i++ )
+		{
+			final String puzzle = puzzles.get( i % puzzles.size() );
+
+			if ( i % 50 == 0 )
+			{
+				text.append( "# comment\n\n" );
+			}
+
+			if ( i % 70 == 0 )
+			{
+				invalid.add( (long) text.length() );
+				text.append( puzzle.substring( 1 ) ).append( '\n' );
+			}
+
+			expected.put( (long) text.length(), puzzle );
+			text.append( puzzle ).append( ( i % 3 == 0 ) ? "\r\n" : "\n" );
+		}
+
+		// the last line has no terminator
+		expected.put( (long) text.length(), puzzles.get( 0 ) );
+		text.append( puzzles.get( 0 ) );
+
+		file = folder.newFile( "puzzles.txt" );
+		Files.write( text.toString(), file, Charset.forName( "US-ASCII" ) );
+	}
+
+	@Test
+	public void testRangesAlignOnLines() throws IOException
+	{
+		try ( MappedPuzzleReader reader = new MappedPuzzleReader( file.toPath() ) )
+		{
+			final byte[] bytes = Files.toByteArray( file );
+
+			for ( final int numRanges : new int[] { 1, 2, 7, 64, 100000 } )
+			{
+				final List<MappedPuzzleReader.Range> ranges = reader.split( numRanges );
+
+				assertTrue( ranges.size() <= numRanges );
+				assertEquals( 0, ranges.get( 0 ).getStart() );
+				assertEquals( reader.size(), ranges.get( ranges.size() - 1 ).getEnd() );
+
+				for ( int i = 1; i < ranges.size(); i++ )
+				{
+					assertEquals( ranges.get( i - 1 ).getEnd(), ranges.get( i ).getStart() );
+					assertEquals( '\n', bytes[(int) ranges.get( i ).getStart() - 1] );
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testParallelParse() throws IOException, InterruptedException
+	{
+		final Map<Long, String> parsed = new ConcurrentSkipListMap<Long, String>();
+		final Map<Long, Integer> rejected = new ConcurrentSkipListMap<Long, Integer>();
+
+		try ( MappedPuzzleReader reader = new MappedPuzzleReader( file.toPath() ) )
+		{
+			final long count = reader.parseAll( 4, new MappedPuzzleReader.Handler()
+			{
+				@Override
+				public void puzzle(final long position, final BitboardGrid grid)
+				{
+					parsed.put( position, grid.toLine() );
+				}
+
+				@Override
+				public void invalid(final long position, final int length)
+				{
+					rejected.put( position, length );
+				}
+			} );
+
+			assertEquals( expected.size(), count );
+		}
+
+		assertEquals( expected, parsed );
+		assertEquals( invalid, Lists.newArrayList( rejected.keySet() ) );
+	}
+
+	@Test
+	public void testRangesFitMaximumSize() throws IOException
+	{
+		try ( MappedPuzzleReader reader = new MappedPuzzleReader( file.toPath() ) )
+		{
+			final byte[] bytes = Files.toByteArray( file );
+			final long half = reader.size() / 2;
+
+			// just above half the file, where a cut moved to the next line overflows;
+			// the longest line, of 16x16 cells, takes 258 bytes
+			for ( long maxRangeSize = half + 1; maxRangeSize < half + 300; maxRangeSize += 7 )
+			{
+				assertRangesFit( reader, bytes, reader.split( 1, maxRangeSize ), maxRangeSize );
+			}
+
+			for ( final long maxRangeSize : new long[] { 258, 300, 1000, reader.size() - 1 } )
+			{
+				assertRangesFit( reader, bytes, reader.split( 3, maxRangeSize ), maxRangeSize );
+			}
+
+			try
+			{
+				reader.split( 1, 200 );
+				fail( "A line longer than the range was split" );
+			}
+			catch ( final IOException e )
+			{
+				// expected
+			}
+		}
+	}
+
+	private static void assertRangesFit(final MappedPuzzleReader reader, final byte[] bytes, final List<MappedPuzzleReader.Range> ranges,
+		final long maxRangeSize)
+	{
+		assertEquals( 0, ranges.get( 0 ).getStart() );
+		assertEquals( reader.size(), ranges.get( ranges.size() - 1 ).getEnd() );
+
+		for ( int i = 0; i < ranges.size(); i++ )
+		{
+			assertTrue( ranges.get( i ).toString(), ranges.get( i ).getEnd() - ranges.get( i ).getStart() <= maxRangeSize );
+
+			if ( i > 0 )
+			{
+				assertEquals( ranges.get( i - 1 ).getEnd(), ranges.get( i ).getStart() );
+				assertEquals( '\n', bytes[(int) ranges.get( i ).getStart() - 1] );
+			}
+		}
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException
+	{
+		try ( MappedPuzzleReader reader = new MappedPuzzleReader( folder.newFile( "empty.txt" ).toPath() ) )
+		{
+			assertTrue( reader.split( 4 ).isEmpty() );
+		}
+	}
+}
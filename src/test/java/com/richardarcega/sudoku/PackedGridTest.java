@@ -0,0 +1,220 @@
+package com.richardarcega.sudoku;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
+import com.richardarcega.sudoku.puzzle.PackedGridFormat;
+import com.richardarcega.sudoku.puzzle.PackedGridReader;
+import com.richardarcega.sudoku.puzzle.PackedGridWriter;
+import com.richardarcega.sudoku.puzzle.TableGrid;
+
+/**
+ * Unit tests for the packed binary puzzle format
+ */
+public class PackedGridTest
+{
+	private static final String[]	PUZZLE_FILES	= { "src/main/resources/easy.txt", "src/main/resources/medium.txt",
+		"src/main/resources/hard.txt", "src/main/resources/expert.txt", "src/test/resources/16x16.txt",
+		"src/test/resources/25x25.txt" };
+
+	private static final int[]		SIZES			= { 9, 9, 9, 9, 16, 25 };
+
+	private static byte[] pack(final boolean checksum) throws IOException
+	{
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try ( PackedGridWriter writer = new PackedGridWriter( bytes, checksum ) )
+		{
+			for ( int i = 0; i < PUZZLE_FILES.length; i++ )
+			{
+				writer.writeText( new FileInputStream( PUZZLE_FILES[i] ), SIZES[i] );
+			}
+		}
+
+		return bytes.toByteArray();
+	}
+
+	@Test
+	public void testTextRoundTrip() throws IOException
+	{
+		for ( final boolean checksum : new boolean[] { false, true } )
+		{
+			try ( PackedGridReader reader = new PackedGridReader( new ByteArrayInputStream( pack( checksum ) ) ) )
+			{
+				for ( int i = 0; i < PUZZLE_FILES.length; i++ )
+				{
+					final BitboardGrid expected = new BitboardGrid( SIZES[i] );
+					expected.load( new FileInputStream( PUZZLE_FILES[i] ) );
+
+					final BitboardGrid actual = new BitboardGrid( SIZES[i] );
+					actual.load( new ByteArrayInputStream( reader.readText( SIZES[i] ).getBytes( "US-ASCII" ) ) );
+
+					assertTrue( reader.hasSolution() );
+					assertEquals( PUZZLE_FILES[i], expected, actual );
+				}
+
+				assertEquals( null, reader.readText( 9 ) );
+			}
+		}
+	}
+
+	@Test
+	public void testRecordSize() throws IOException
+	{
+		final int flags = PackedGridFormat.FLAG_SOLUTION | PackedGridFormat.FLAG_CHECKSUM;
+
+		assertEquals( 58, PackedGridFormat.recordSize( 9, flags ) );
+		assertEquals( 43, PackedGridFormat.recordSize( 9, 0 ) );
+		assertEquals( 5 + 4 * 58 + PackedGridFormat.recordSize( 16, flags ) + PackedGridFormat.recordSize( 25, flags ),
+			pack( true ).length );
+	}
+
+	@Test
+	public void testPuzzleWithoutSolution() throws IOException
+	{
+		final TableGrid puzzle = new TableGrid( 9, 9 );
+		puzzle.load( new FileInputStream( "src/main/resources/hard.txt" ) );
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try ( PackedGridWriter writer = new PackedGridWriter( bytes, false ) )
+		{
+			writer.write( puzzle );
+		}
+
+		try ( PackedGridReader reader = new PackedGridReader( new ByteArrayInputStream( bytes.toByteArray() ) ) )
+		{
+			final TableGrid copy = new TableGrid( 9, 9 );
+
+			assertTrue( reader.read( copy ) );
+			assertFalse( reader.hasSolution() );
+			assertEquals( puzzle.toString(), copy.toString() );
+			assertFalse( reader.read( copy ) );
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testCorruptRecord() throws IOException
+	{
+		final byte[] bytes = pack( true );
+		bytes[20] ^= 0x10;
+
+		try ( PackedGridReader reader = new PackedGridReader( new ByteArrayInputStream( bytes ) ) )
+		{
+			reader.read( new BitboardGrid() );
+		}
+	}
+
+	@Test
+	public void testInvalidRecords() throws IOException
+	{
+		// the first record starts after the 5 header bytes: its size, flags, then cells
+
+		// an unknown flag, which would change the length of the record
+		assertUnreadable( 6, PackedGridFormat.FLAG_SOLUTION | 0x10 );
+
+		// the first two cells of the solution emptied
+		assertUnreadable( 7, 0 );
+	}
+
+	/**
+	 * Asserts that the first record is rejected once one of its bytes is changed.
+	 */
+	private static void assertUnreadable(final int offset, final int value) throws IOException
+	{
+		final byte[] bytes = pack( false );
+		bytes[offset] = (byte) value;
+
+		try ( PackedGridReader reader = new PackedGridReader( new ByteArrayInputStream( bytes ) ) )
+		{
+			reader.read( new BitboardGrid() );
+			fail( "An invalid record was read" );
+		}
+		catch ( final IOException e )
+		{
+			// expected
+		}
+	}
+
+	@Test
+	public void testRecordOfAnotherSizeIsLeftUnread() throws IOException
+	{
+		try ( PackedGridReader reader = new PackedGridReader( new ByteArrayInputStream( pack( true ) ) ) )
+		{
+			for ( int i = 0; i < 4; i++ )
+			{
+				assertTrue( reader.read( new BitboardGrid() ) );
+			}
+
+			try
+			{
+				reader.read( new BitboardGrid() );
+				fail( "A 16x16 record was read into a 9x9 grid" );
+			}
+			catch ( final IOException e )
+			{
+				assertEquals( 16, reader.getSize() );
+			}
+
+			final BitboardGrid expected = new BitboardGrid( 16 );
+			expected.load( new FileInputStream( "src/test/resources/16x16.txt" ) );
+
+			final BitboardGrid actual = new BitboardGrid( 16 );
+			assertTrue( reader.read( actual ) );
+			assertEquals( expected.toString(), actual.toString() );
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncatedRecord() throws IOException
+	{
+		final byte[] bytes = pack( false );
+
+		try ( PackedGridReader reader = new PackedGridReader( new ByteArrayInputStream( bytes, 0, 40 ) ) )
+		{
+			reader.read( new BitboardGrid() );
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testNotPacked() throws IOException
+	{
+		new PackedGridReader( new FileInputStream( "src/main/resources/easy.txt" ) ).close();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSolutionMustAgreeWithGivens() throws IOException
+	{
+		final BitboardGrid puzzle = new BitboardGrid();
+		puzzle.load( new FileInputStream( "src/main/resources/easy.txt" ) );
+
+		final BitboardGrid medium = new BitboardGrid();
+		medium.load( new FileInputStream( "src/main/resources/medium.txt" ) );
+
+		// a complete solution, but of another puzzle
+		final BitboardGrid solution = new BitboardGrid();
+
+		for ( int y = 0; y < 9; y++ )
+		{
+			for ( int x = 0; x < 9; x++ )
+			{
+				solution.setCellValue( x, y, medium.getSolutionValue( x, y ) );
+			}
+		}
+
+		try ( PackedGridWriter writer = new PackedGridWriter( new ByteArrayOutputStream(), false ) )
+		{
+			writer.write( puzzle, solution );
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package com.richardarcega.sudoku;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
+import com.richardarcega.sudoku.puzzle.Grid;
+import com.richardarcega.sudoku.puzzle.Puzzle;
+import com.richardarcega.sudoku.puzzle.TableGrid;
+import com.richardarcega.sudoku.solver.Algorithm;
+import com.richardarcega.sudoku.solver.PortfolioSudokuSolver;
+import com.richardarcega.sudoku.solver.SearchAbortedException;
+import com.richardarcega.sudoku.solver.SolveLimits;
+import com.richardarcega.sudoku.solver.UnsolvableException;
+
+/**
+ * Unit tests for the portfolio of racing solvers
+ */
+public class PortfolioSolverTest
+{
+	private static final String[]	PUZZLES	= { "easy.txt", "medium.txt", "hard.txt", "expert.txt" };
+
+	@Test
+	public void testSolvesAndCountsWins() throws IOException, UnsolvableException
+	{
+		final PortfolioSudokuSolver solver = new PortfolioSudokuSolver();
+
+		for ( final String puzzleFile : PUZZLES )
+		{
+			SolverTest.assertSolves( solver, puzzleFile );
+		}
+
+		long totalWins = 0;
+
+		for ( final Map.Entry<Algorithm, Long> entry : solver.getWinCounts().entrySet() )
+		{
+			assertEquals( entry.getValue().longValue(), solver.getWins( entry.getKey() ) );
+			totalWins += entry.getValue();
+		}
+
+		assertEquals( PortfolioSudokuSolver.DEFAULT_ENGINES, solver.getAlgorithms() );
+		assertEquals( PortfolioSudokuSolver.DEFAULT_ENGINES.size(), solver.getWinCounts().size() );
+		assertEquals( PUZZLES.length, totalWins );
+		assertEquals( 0, solver.getWins( Algorithm.FORK_JOIN ) );
+		assertTrue( solver.getLastStats().isSolved() );
+	}
+
+	@Test
+	public void testGivenExecutor() throws IOException, UnsolvableException
+	{
+		final ExecutorService executor = Executors.newFixedThreadPool( 2 );
+
+		try
+		{
+			final PortfolioSudokuSolver solver = new PortfolioSudokuSolver( executor, ImmutableList.of( Algorithm.DLX, Algorithm.FORK_JOIN ) );
+
+			for ( final String puzzleFile : PUZZLES )
+			{
+				SolverTest.assertSolves( solver, puzzleFile );
+			}
+
+			assertEquals( PUZZLES.length, solver.getWins( Algorithm.DLX ) + solver.getWins( Algorithm.FORK_JOIN ) );
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	@Test(expected=UnsolvableException.class)
+	public void testUnsolvablePuzzle() throws IOException, UnsolvableException
+	{
+		final BitboardGrid grid = new BitboardGrid();
+		grid.load( new FileInputStream( "src/test/resources/unsolvable.txt" ) );
+
+		new PortfolioSudokuSolver().solve( new Puzzle( grid ) );
+	}
+
+	@Test
+	public void testNodeLimit() throws IOException, UnsolvableException
+	{
+		final BitboardGrid grid = new BitboardGrid();
+		grid.load( new FileInputStream( "src/main/resources/hard.txt" ) );
+
+		final String before = grid.toString();
+
+		try
+		{
+			new PortfolioSudokuSolver( Algorithm.BACKTRACK, Algorithm.DLX ).solve( new Puzzle( grid ), SolveLimits.maxNodes( 10 ) );
+			fail( "The portfolio was not stopped" );
+		}
+		catch ( final SearchAbortedException e )
+		{
+			assertEquals( SearchAbortedException.Reason.NODE_LIMIT, e.getReason() );
+			// the engines search copies of the grid
+			assertEquals( before, grid.toString() );
+		}
+	}
+
+	@Test
+	public void testInterruption() throws IOException, UnsolvableException
+	{
+		final BitboardGrid grid = new BitboardGrid();
+		grid.load( new FileInputStream( "src/main/resources/hard.txt" ) );
+
+		Thread.currentThread().interrupt();
+
+		try
+		{
+			new PortfolioSudokuSolver().solve( new Puzzle( grid ) );
+			fail( "The portfolio was not interrupted" );
+		}
+		catch ( final SearchAbortedException e )
+		{
+			assertEquals( SearchAbortedException.Reason.INTERRUPTED, e.getReason() );
+		}
+		finally
+		{
+			assertTrue( Thread.interrupted() );
+		}
+	}
+
+	@Test
+	public void testCountSolutions()
+	{
+		assertEquals( 5, new PortfolioSudokuSolver().countSolutions( new Puzzle( new BitboardGrid() ), 5 ) );
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testDuplicateEngine()
+	{
+		new PortfolioSudokuSolver( Algorithm.DLX, Algorithm.DLX );
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testNestedPortfolio()
+	{
+		new PortfolioSudokuSolver( Algorithm.DLX, Algorithm.PORTFOLIO );
+	}
+
+	@Test
+	public void testGridCopy() throws IOException
+	{
+		final BitboardGrid bitboard = new BitboardGrid();
+		bitboard.load( new FileInputStream( "src/main/resources/medium.txt" ) );
+
+		final TableGrid table = new TableGrid( 9, 9 );
+		table.load( new FileInputStream( "src/main/resources/medium.txt" ) );
+
+		for ( final Grid grid : new Grid[] { bitboard, table } )
+		{
+			final Grid copy = grid.copy();
+			assertEquals( grid.toString(), copy.toString() );
+
+			copy.setCellValue( 7, 0, 2 );
+			assertEquals( 0, grid.getCellValue( 7, 0 ) );
+			assertEquals( 2, copy.getCellValue( 7, 0 ) );
+		}
+	}
+}
@@ -0,0 +1,217 @@
+package com.richardarcega.sudoku;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+import com.google.common.base.Predicates;
+
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
+import com.richardarcega.sudoku.puzzle.Puzzle;
+import com.richardarcega.sudoku.puzzle.PuzzleGenerator;
+import com.richardarcega.sudoku.solver.Algorithm;
+import com.richardarcega.sudoku.solver.LogicalSolver;
+import com.richardarcega.sudoku.solver.SolverFactory;
+import com.richardarcega.sudoku.solver.SudokuSolver;
+import com.richardarcega.sudoku.solver.Technique;
+import com.richardarcega.sudoku.solver.UnsolvableException;
+
+/**
+ * Unit tests for the unique-solution puzzle generator
+ */
+public class PuzzleGeneratorTest
+{
+	private static int countClues(final BitboardGrid grid)
+	{
+		int numClues = 0;
+
+		for ( final char c : grid.toLine().toCharArray() )
+		{
+			if ( c != '.' )
+			{
+				numClues++;
+			}
+		}
+
+		return numClues;
+	}
+
+	/**
+	 * Asserts that the puzzle has exactly one solution, the one generated with it.
+	 */
+	private static void assertUnique(final BitboardGrid puzzle) throws UnsolvableException
+	{
+		final SudokuSolver solver = SolverFactory.getSolver( Algorithm.DLX );
+
+		assertTrue( solver.isUnique( new Puzzle( puzzle ) ) );
+
+		final BitboardGrid solution = puzzle.copy();
+		solver.solve( new Puzzle( solution ) );
+
+		for ( int y = 0; y < puzzle.size(); y++ )
+		{
+			for ( int x = 0; x < puzzle.size(); x++ )
+			{
+				assertEquals( puzzle.getSolutionValue( x, y ), solution.getCellValue( x, y ) );
+			}
+		}
+	}
+
+	@Test
+	public void testUniqueSolution() throws UnsolvableException
+	{
+		final PuzzleGenerator generator = new PuzzleGenerator( 1 );
+
+		for ( int i = 0; i < 50; i++ )
+		{
+			final BitboardGrid puzzle = generator.generate( i );
+
+			assertUnique( puzzle );
+
+			// a minimal puzzle of the standard grid has at least 17 clues
+			assertTrue( countClues( puzzle ) >= 17 );
+		}
+	}
+
+	@Test
+	public void testMinimal()
+	{
+		final BitboardGrid puzzle = new PuzzleGenerator( 2 ).generate( 0 );
+		final SudokuSolver solver = SolverFactory.getSolver( Algorithm.DLX );
+
+		// removing any remaining clue admits another solution
+		for ( int y = 0; y < 9; y++ )
+		{
+			for ( int x = 0; x < 9; x++ )
+			{
+				final int digit = puzzle.getCellValue( x, y );
+
+				if ( digit != 0 )
+				{
+					final BitboardGrid reduced = puzzle.copy();
+					reduced.setCellValue( x, y, 0 );
+
+					assertFalse( solver.isUnique( new Puzzle( reduced ) ) );
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testMinClues() throws UnsolvableException
+	{
+		final PuzzleGenerator generator = new PuzzleGenerator( 9, 3, 40 );
+
+		for ( int i = 0; i < 10; i++ )
+		{
+			final BitboardGrid puzzle = generator.generate( i );
+
+			assertEquals( 40, countClues( puzzle ) );
+			assertUnique( puzzle );
+		}
+	}
+
+	@Test
+	public void testSmallGrid() throws UnsolvableException
+	{
+		final BitboardGrid puzzle = new PuzzleGenerator( 4, 4, 0 ).generate( 0 );
+
+		assertEquals( 4, puzzle.size() );
+		assertUnique( puzzle );
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLargeGridRejected()
+	{
+		new PuzzleGenerator( 16, 0, 0 );
+	}
+
+	@Test
+	public void testReproducible() throws IOException, InterruptedException
+	{
+		final StringWriter single = new StringWriter();
+		final StringWriter parallel = new StringWriter();
+		final StringWriter reseeded = new StringWriter();
+
+		assertEquals( 200, new PuzzleGenerator( 5 ).writeLines( 200, 1, single ) );
+		assertEquals( 200, new PuzzleGenerator( 5 ).writeLines( 200, 3, parallel ) );
+		assertEquals( 200, new PuzzleGenerator( 6 ).writeLines( 200, 1, reseeded ) );
+
+		assertEquals( single.toString(), parallel.toString() );
+		assertFalse( single.toString().equals( reseeded.toString() ) );
+
+		final String[] lines = single.toString().split( "\n" );
+
+		assertEquals( 200, lines.length );
+		assertEquals( new PuzzleGenerator( 5 ).generate( 137 ).toLine(), lines[137] );
+	}
+
+	@Test
+	public void testGrade() throws IOException, InterruptedException, UnsolvableException
+	{
+		final PuzzleGenerator generator = new PuzzleGenerator( 9, 8, 0, LogicalSolver.hasGrade( Technique.POINTING_PAIR ) );
+		final StringWriter output = new StringWriter();
+
+		assertEquals( 6, generator.writeLines( 6, 2, output ) );
+
+		final String[] lines = output.toString().split( "\n" );
+
+		for ( int i = 0; i < 6; i++ )
+		{
+			final BitboardGrid puzzle = generator.generate( i );
+
+			assertEquals( puzzle.toLine(), lines[i] );
+			assertEquals( Technique.POINTING_PAIR, new LogicalSolver().grade( puzzle ) );
+			assertUnique( puzzle );
+		}
+
+		// a puzzle accepted at the first attempt is the unfiltered one
+		final BitboardGrid unfiltered = new PuzzleGenerator( 8 ).generate( 0 );
+		final Technique grade = new LogicalSolver().grade( unfiltered );
+
+		assertEquals( unfiltered, new PuzzleGenerator( 9, 8, 0, LogicalSolver.hasGrade( grade ) ).generate( 0 ) );
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testFilterGivenUp()
+	{
+		new PuzzleGenerator( 4, 0, 0, Predicates.alwaysFalse() ).generate( 0 );
+	}
+
+	@Test
+	public void testWriteFiles() throws IOException, InterruptedException, UnsolvableException
+	{
+		final Path directory = Files.createTempDirectory( "puzzles" );
+
+		try
+		{
+			assertEquals( 3, new PuzzleGenerator( 7 ).writeFiles( 3, 2, directory ) );
+
+			for ( int i = 0; i < 3; i++ )
+			{
+				final BitboardGrid puzzle = new BitboardGrid();
+				puzzle.load( new FileInputStream( directory.resolve( "puzzle-" + i + ".txt" ).toFile() ) );
+
+				assertEquals( new PuzzleGenerator( 7 ).generate( i ), puzzle );
+				assertUnique( puzzle );
+			}
+		}
+		finally
+		{
+			for ( int i = 0; i < 3; i++ )
+			{
+				Files.deleteIfExists( directory.resolve( "puzzle-" + i + ".txt" ) );
+			}
+
+			Files.delete( directory );
+		}
+	}
+}
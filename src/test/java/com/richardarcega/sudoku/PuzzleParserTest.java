@@ -0,0 +1,224 @@
+package com.richardarcega.sudoku;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
+import com.richardarcega.sudoku.puzzle.PuzzleParser;
+import com.richardarcega.sudoku.puzzle.PuzzleParser.Format;
+import com.richardarcega.sudoku.puzzle.TableGrid;
+
+/**
+ * Unit tests for reading puzzles in the supported formats
+ */
+public class PuzzleParserTest
+{
+	private static final String	HARD		= "4.....8.5.3..........7......2.....6.....8.4......1.......6.3.7.5..2.....1.4......";
+
+	private static final String	SOLUTION	= "417369825632158947958724316825437169791586432346912758289643571573291684164875293";
+
+	/**
+	 * Returns the puzzle last read by the parser in the single-line format.
+	 */
+	private static String toLine(final PuzzleParser parser)
+	{
+		final BitboardGrid grid = new BitboardGrid( parser.size() );
+		grid.load( parser );
+		return grid.toLine();
+	}
+
+	private static String toSolutionLine(final PuzzleParser parser)
+	{
+		final StringBuilder sb = new StringBuilder();
+
+		for ( int y = 0; y < parser.size(); y++ )
+		{
+			for ( int x = 0; x < parser.size(); x++ )
+			{
+				sb.append( BitboardGrid.toSymbol( parser.getSolutionValue( x, y ) ) );
+			}
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the puzzle in the .sdk layout, one row per line.
+	 */
+	private static String toRows(final String line, final char empty)
+	{
+		final StringBuilder sb = new StringBuilder();
+
+		for ( int y = 0; y < 9; y++ )
+		{
+			sb.append( line.substring( y * 9, y * 9 + 9 ).replace( '.', empty ) ).append( "\r\n" );
+		}
+
+		return sb.toString();
+	}
+
+	@Test
+	public void testBoxed() throws IOException
+	{
+		final byte[] bytes = ByteStreams.toByteArray( new FileInputStream( "src/main/resources/hard.txt" ) );
+		final PuzzleParser parser = new PuzzleParser();
+
+		assertEquals( bytes.length, parser.parse( bytes ) );
+		assertEquals( Format.BOXED, parser.getFormat() );
+		assertEquals( HARD, toLine( parser ) );
+		assertTrue( parser.hasSolution() );
+		assertEquals( SOLUTION, toSolutionLine( parser ) );
+	}
+
+	@Test
+	public void testBoxedWithoutSpaces()
+	{
+		final PuzzleParser parser = new PuzzleParser();
+
+		parser.parse( "4..|...|8.5\n.3.|...|...\n...|7..|...\n---+---+---\n.2.|...|.6.\n...|.8.|4..\n"
+			+ "...|.1.|...\n---+---+---\n...|6.3|.7.\n5..|2..|...\n1.4|...|...\n" );
+
+		assertEquals( Format.BOXED, parser.getFormat() );
+		assertEquals( HARD, toLine( parser ) );
+		assertFalse( parser.hasSolution() );
+	}
+
+	@Test
+	public void testSdk()
+	{
+		final PuzzleParser parser = new PuzzleParser();
+		final String text = "#A Arto Inkala\n#D hard\n[Puzzle]\n" + toRows( HARD, '0' );
+
+		assertEquals( text.length(), parser.parse( text ) );
+		assertEquals( Format.SDK, parser.getFormat() );
+		assertEquals( HARD, toLine( parser ) );
+	}
+
+	@Test
+	public void testSdkSequence()
+	{
+		final PuzzleParser parser = new PuzzleParser();
+		final String first = toRows( HARD, '.' );
+		final String text = first + "\n" + toRows( SOLUTION, '.' ) + "\n" + first;
+
+		// a complete grid after a blank line is the solution, an incomplete one the next puzzle
+		final int end = parser.parse( text );
+
+		assertTrue( parser.hasSolution() );
+		assertEquals( SOLUTION, toSolutionLine( parser ) );
+
+		assertEquals( text.length(), parser.parse( text, end, text.length() ) );
+		assertEquals( HARD, toLine( parser ) );
+		assertFalse( parser.hasSolution() );
+
+		assertEquals( -1, parser.parse( "\n# nothing left\n\n" ) );
+	}
+
+	@Test
+	public void testSdm()
+	{
+		final String text = "# a collection\n" + HARD.replace( '.', '0' ) + "\r\n" + SOLUTION + " 12.5\r\n\r\n";
+		final PuzzleParser parser = new PuzzleParser();
+
+		final int end = parser.parse( text );
+
+		assertEquals( Format.LINE, parser.getFormat() );
+		assertEquals( HARD, toLine( parser ) );
+
+		// other fields may follow a puzzle on its line
+		assertEquals( text.length() - 2, parser.parse( text, end, text.length() ) );
+		assertEquals( SOLUTION, toLine( parser ) );
+
+		assertEquals( -1, parser.parse( text, text.length() - 2, text.length() ) );
+	}
+
+	@Test
+	public void testInputs()
+	{
+		final String text = "  " + toRows( HARD, '.' ) + "\n" + HARD + "\n";
+		final byte[] bytes = text.getBytes( StandardCharsets.US_ASCII );
+		final ByteBuffer buffer = ByteBuffer.allocateDirect( bytes.length );
+		buffer.put( bytes ).position( 3 );
+
+		final PuzzleParser parser = new PuzzleParser();
+		final int end = parser.parse( text );
+
+		assertEquals( end, parser.parse( bytes ) );
+		assertEquals( HARD, toLine( parser ) );
+		assertEquals( end, parser.parse( buffer, 0, bytes.length ) );
+		assertEquals( HARD, toLine( parser ) );
+
+		assertEquals( bytes.length, parser.parse( buffer, end, bytes.length ) );
+		assertEquals( Format.LINE, parser.getFormat() );
+		assertEquals( HARD, toLine( parser ) );
+		assertEquals( 3, buffer.position() );
+	}
+
+	@Test
+	public void testLargeGrid() throws IOException
+	{
+		final BitboardGrid expected = new BitboardGrid( 16 );
+		expected.load( new FileInputStream( "src/test/resources/16x16.txt" ) );
+
+		final PuzzleParser parser = new PuzzleParser( 16 );
+
+		// the single-line format, and digits above 9 written as numbers
+		parser.parse( expected.toLine() );
+		assertEquals( expected.toLine(), toLine( parser ) );
+
+		parser.parse( "#\n" + expected.toString().replace( "A ", "10 " ).replace( "G ", "16 " ) );
+		assertEquals( Format.BOXED, parser.getFormat() );
+		assertEquals( expected.toLine(), toLine( parser ) );
+	}
+
+	@Test
+	public void testTableGrid()
+	{
+		final PuzzleParser parser = new PuzzleParser();
+		parser.parse( toRows( HARD, '0' ) );
+
+		final TableGrid grid = new TableGrid( 9, 9 );
+		grid.load( parser );
+
+		final BitboardGrid expected = new BitboardGrid();
+		expected.loadLine( HARD );
+
+		for ( int y = 0; y < 9; y++ )
+		{
+			for ( int x = 0; x < 9; x++ )
+			{
+				assertEquals( expected.getCellValue( x, y ), grid.getCellValue( x, y ) );
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIncomplete()
+	{
+		new PuzzleParser().parse( toRows( HARD, '.' ).substring( 0, 50 ) );
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidLine()
+	{
+		new PuzzleParser().parse( HARD.replace( '4', 'x' ) );
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSizeMismatch()
+	{
+		final PuzzleParser parser = new PuzzleParser();
+		parser.parse( HARD );
+
+		new BitboardGrid( 16 ).load( parser );
+	}
+}
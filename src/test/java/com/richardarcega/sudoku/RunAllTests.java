@@ -8,13 +8,13 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({ BacktrackSolverTest.class })
+@SuiteClasses({ BacktrackSolverTest.class, BitboardGridTest.class, SolverTest.class, BatchSolverTest.class, ForkJoinSolverTest.class, CachingSolverTest.class, SolutionCountTest.class, LargeGridTest.class, MappedPuzzleReaderTest.class, PackedGridTest.class, SolveStatsTest.class, SolveLimitsTest.class, PortfolioSolverTest.class, SolverServiceTest.class, SolveServerTest.class, LogicalSolverTest.class, PuzzleGeneratorTest.class, AllocationTest.class, PuzzleParserTest.class, LatencyHistogramTest.class, CheckpointTest.class })
 public class RunAllTests
 {
 	public static void main(final String[] args)
 	{
 		// Run all JUnit tests programmatically
-		final Result result = JUnitCore.runClasses( BacktrackSolverTest.class );
+		final Result result = JUnitCore.runClasses( BacktrackSolverTest.class, BitboardGridTest.class, SolverTest.class, BatchSolverTest.class, ForkJoinSolverTest.class, CachingSolverTest.class, SolutionCountTest.class, LargeGridTest.class, MappedPuzzleReaderTest.class, PackedGridTest.class, SolveStatsTest.class, SolveLimitsTest.class, PortfolioSolverTest.class, SolverServiceTest.class, SolveServerTest.class, LogicalSolverTest.class, PuzzleGeneratorTest.class, AllocationTest.class, PuzzleParserTest.class, LatencyHistogramTest.class, CheckpointTest.class );
 		for ( final Failure failure : result.getFailures() )
 		{
 			System.out.println( failure.toString() );
@@ -0,0 +1,103 @@
+package com.richardarcega.sudoku;
+
+import static com.richardarcega.sudoku.BitboardGridTest.loadGrid;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
+import com.richardarcega.sudoku.puzzle.Puzzle;
+import com.richardarcega.sudoku.solver.Algorithm;
+import com.richardarcega.sudoku.solver.SolverFactory;
+import com.richardarcega.sudoku.solver.SudokuSolver;
+
+/**
+ * Unit tests for solution counting, run against every algorithm
+ */
+public class SolutionCountTest
+{
+	/**
+	 * Returns the solution of easy.txt with a rectangle of cells, spanning two boxes
+	 * and holding the digits 2 and 4, emptied. The digits may be swapped, so the
+	 * puzzle has exactly two solutions.
+	 */
+	private static BitboardGrid twoSolutions() throws IOException
+	{
+		final BitboardGrid grid = loadGrid( "easy.txt" );
+
+		for ( int i = 0; i < 81; i++ )
+		{
+			grid.setCellValue( i % 9, i / 9, grid.getSolutionValue( i % 9, i / 9 ) );
+		}
+
+		grid.setCellValue( 7, 1, 0 );
+		grid.setCellValue( 8, 1, 0 );
+		grid.setCellValue( 7, 3, 0 );
+		grid.setCellValue( 8, 3, 0 );
+
+		return grid;
+	}
+
+	private static void assertCount(final int expected, final BitboardGrid grid, final int limit)
+	{
+		for ( final Algorithm algorithm : Algorithm.values() )
+		{
+			final String givens = grid.toLine();
+
+			assertEquals( algorithm.name(), expected, SolverFactory.getSolver( algorithm ).countSolutions( new Puzzle( grid ), limit ) );
+			assertEquals( algorithm.name() + " changed the grid", givens, grid.toLine() );
+		}
+	}
+
+	@Test
+	public void testUniquePuzzles() throws IOException
+	{
+		for ( final String puzzleFile : new String[] { "easy.txt", "medium.txt", "hard.txt", "expert.txt" } )
+		{
+			assertCount( 1, loadGrid( puzzleFile ), 2 );
+		}
+	}
+
+	@Test
+	public void testTwoSolutions() throws IOException
+	{
+		assertCount( 2, twoSolutions(), 10 );
+		assertCount( 1, twoSolutions(), 1 );
+	}
+
+	@Test
+	public void testEmptyGridStopsAtLimit()
+	{
+		assertCount( 5, new BitboardGrid(), 5 );
+	}
+
+	@Test
+	public void testConflictingGivens() throws IOException
+	{
+		final BitboardGrid grid = loadGrid( "easy.txt" );
+
+		// easy.txt has a 4 at (1,0)
+		grid.setCellValue( 0, 0, 4 );
+
+		assertCount( 0, grid, 2 );
+	}
+
+	@Test
+	public void testIsUnique() throws IOException
+	{
+		final SudokuSolver solver = SolverFactory.getSolver( Algorithm.DLX );
+
+		assertTrue( solver.isUnique( new Puzzle( loadGrid( "expert.txt" ) ) ) );
+		assertFalse( solver.isUnique( new Puzzle( twoSolutions() ) ) );
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLimitMustBePositive() throws IOException
+	{
+		SolverFactory.getSolver( Algorithm.DLX ).countSolutions( new Puzzle( loadGrid( "easy.txt" ) ), 0 );
+	}
+}
@@ -0,0 +1,191 @@
+package com.richardarcega.sudoku;
+
+import static com.richardarcega.sudoku.BitboardGridTest.loadGrid;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
+import com.richardarcega.sudoku.puzzle.Puzzle;
+import com.richardarcega.sudoku.solver.Algorithm;
+import com.richardarcega.sudoku.solver.BacktrackSudokuSolver;
+import com.richardarcega.sudoku.solver.CachingSudokuSolver;
+import com.richardarcega.sudoku.solver.ForkJoinSudokuSolver;
+import com.richardarcega.sudoku.solver.SearchAbortedException;
+import com.richardarcega.sudoku.solver.SolveLimits;
+import com.richardarcega.sudoku.solver.SolverFactory;
+import com.richardarcega.sudoku.solver.SudokuSolver;
+import com.richardarcega.sudoku.solver.UnsolvableException;
+
+/**
+ * Unit tests for the deadline, node limit and interruption of a search
+ */
+public class SolveLimitsTest
+{
+	private static SearchAbortedException assertAborted(final SudokuSolver solver, final Puzzle puzzle, final SolveLimits limits,
+		final SearchAbortedException.Reason reason) throws UnsolvableException
+	{
+		try
+		{
+			solver.solve( puzzle, limits );
+			fail( "The search was not stopped" );
+		}
+		catch ( final SearchAbortedException e )
+		{
+			assertEquals( reason, e.getReason() );
+			assertEquals( e.getStats(), solver.getLastStats() );
+			return e;
+		}
+
+		return null;
+	}
+
+	@After
+	public void tearDown()
+	{
+		Thread.interrupted();
+	}
+
+	@Test
+	public void testNodeLimit() throws IOException, UnsolvableException
+	{
+		for ( final Algorithm algorithm : Algorithm.values() )
+		{
+			assertAborted( SolverFactory.getSolver( algorithm ), new Puzzle( loadGrid( "hard.txt" ) ), SolveLimits.maxNodes( 1 ),
+				SearchAbortedException.Reason.NODE_LIMIT );
+		}
+
+		final SearchAbortedException e = assertAborted( new BacktrackSudokuSolver(), new Puzzle( loadGrid( "hard.txt" ) ),
+			SolveLimits.maxNodes( 5000 ), SearchAbortedException.Reason.NODE_LIMIT );
+
+		assertEquals( 5000, e.getStats().getGuesses() );
+	}
+
+	@Test
+	public void testDeadline() throws IOException, UnsolvableException
+	{
+		// the hard puzzle takes millions of nodes to solve with static cell selection
+		final SearchAbortedException e = assertAborted( new BacktrackSudokuSolver(), new Puzzle( loadGrid( "hard.txt" ) ),
+			SolveLimits.timeout( 10, TimeUnit.MILLISECONDS ), SearchAbortedException.Reason.DEADLINE );
+
+		assertTrue( e.getStats().toString(), e.getStats().getElapsedNanos() >= TimeUnit.MILLISECONDS.toNanos( 10 ) );
+		assertTrue( e.getStats().toString(), e.getStats().getElapsedNanos() < TimeUnit.SECONDS.toNanos( 1 ) );
+	}
+
+	@Test
+	public void testInterruption() throws IOException, UnsolvableException
+	{
+		Thread.currentThread().interrupt();
+
+		assertAborted( new BacktrackSudokuSolver(), new Puzzle( loadGrid( "hard.txt" ) ), SolveLimits.NONE,
+			SearchAbortedException.Reason.INTERRUPTED );
+
+		// the interrupt status is left set for the caller
+		assertTrue( Thread.interrupted() );
+	}
+
+	@Test
+	public void testWithinLimits() throws IOException, UnsolvableException
+	{
+		final SolveLimits limits = SolveLimits.timeout( 10, TimeUnit.SECONDS ).withMaxNodes( 1000000 );
+
+		for ( final Algorithm algorithm : Algorithm.values() )
+		{
+			final BitboardGrid grid = loadGrid( "expert.txt" );
+			SolverFactory.getSolver( algorithm ).solve( new Puzzle( grid ), limits );
+
+			for ( int i = 0; i < 81; i++ )
+			{
+				assertEquals( algorithm.name(), grid.getSolutionValue( i % 9, i / 9 ), grid.getCellValue( i % 9, i / 9 ) );
+			}
+		}
+	}
+
+	@Test
+	public void testCountWithinLimits() throws IOException
+	{
+		for ( final Algorithm algorithm : Algorithm.values() )
+		{
+			final BitboardGrid grid = new BitboardGrid();
+			final String before = grid.toString();
+
+			try
+			{
+				SolverFactory.getSolver( algorithm ).countSolutions( new Puzzle( grid ), Integer.MAX_VALUE, SolveLimits.maxNodes( 2000 ) );
+				fail( "Counting the solutions of the empty grid was not stopped" );
+			}
+			catch ( final SearchAbortedException e )
+			{
+				assertEquals( SearchAbortedException.Reason.NODE_LIMIT, e.getReason() );
+				assertEquals( algorithm.name(), before, grid.toString() );
+			}
+		}
+	}
+
+	@Test
+	public void testForkJoinLimitsAtAnySplitDepth() throws InterruptedException
+	{
+		final ForkJoinPool pool = new ForkJoinPool( 2 );
+
+		try
+		{
+			// at a large split depth every task visits a single node or a few
+			for ( final int splitDepth : new int[] { ForkJoinSudokuSolver.DEFAULT_SPLIT_DEPTH, 40, 81 } )
+			{
+				final ForkJoinSudokuSolver solver = new ForkJoinSudokuSolver( pool, splitDepth );
+
+				SearchAbortedException e = assertCountAborted( solver, SolveLimits.maxNodes( 5000 ), SearchAbortedException.Reason.NODE_LIMIT );
+				assertTrue( e.getStats().toString(), e.getStats().getNodes() >= 5000 );
+				assertTrue( e.getStats().toString(), e.getStats().getNodes() < 10000 );
+
+				e = assertCountAborted( solver, SolveLimits.timeout( 100, TimeUnit.MILLISECONDS ), SearchAbortedException.Reason.DEADLINE );
+				assertTrue( e.getStats().toString(), e.getStats().getElapsedNanos() < TimeUnit.SECONDS.toNanos( 2 ) );
+
+				Thread.currentThread().interrupt();
+				assertCountAborted( solver, SolveLimits.NONE, SearchAbortedException.Reason.INTERRUPTED );
+				assertTrue( Thread.interrupted() );
+			}
+		}
+		finally
+		{
+			pool.shutdown();
+			pool.awaitTermination( 10, TimeUnit.SECONDS );
+		}
+	}
+
+	/**
+	 * Counts the solutions of the empty grid, which has too many to count, and
+	 * asserts that the count is stopped by the given limit.
+	 */
+	private static SearchAbortedException assertCountAborted(final SudokuSolver solver, final SolveLimits limits,
+		final SearchAbortedException.Reason reason)
+	{
+		try
+		{
+			solver.countSolutions( new Puzzle( new BitboardGrid() ), Integer.MAX_VALUE, limits );
+			fail( "The count was not stopped" );
+		}
+		catch ( final SearchAbortedException e )
+		{
+			assertEquals( reason, e.getReason() );
+			return e;
+		}
+
+		return null;
+	}
+
+	@Test
+	public void testCachingSolverPassesLimits() throws IOException, UnsolvableException
+	{
+		final CachingSudokuSolver solver = new CachingSudokuSolver( new BacktrackSudokuSolver(), 10 );
+
+		assertAborted( solver, new Puzzle( loadGrid( "hard.txt" ) ), SolveLimits.maxNodes( 100 ), SearchAbortedException.Reason.NODE_LIMIT );
+	}
+}
@@ -0,0 +1,288 @@
+package com.richardarcega.sudoku;
+
+import static com.richardarcega.sudoku.BitboardGridTest.loadGrid;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
+import com.richardarcega.sudoku.server.SolveServer;
+import com.richardarcega.sudoku.solver.Algorithm;
+import com.richardarcega.sudoku.solver.SolverService;
+
+/**
+ * Unit tests for the HTTP solve endpoint, served on an ephemeral port of the loopback interface
+ */
+public class SolveServerTest
+{
+	private SolveServer	server;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		server = new SolveServer( 0, new SolverService( Algorithm.DLX, Algorithm.DLX, Algorithm.NORVIG, Algorithm.BACKTRACK ), 1 );
+		server.start();
+	}
+
+	@After
+	public void tearDown()
+	{
+		server.close();
+	}
+
+	private HttpURLConnection open(final String path) throws IOException
+	{
+		return (HttpURLConnection) new URL( "http", server.getAddress().getHostString(), server.getAddress().getPort(), path ).openConnection();
+	}
+
+	private static String read(final HttpURLConnection connection) throws IOException
+	{
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+		try ( InputStream input = ( connection.getResponseCode() < 400 ) ? connection.getInputStream() : connection.getErrorStream() )
+		{
+			final byte[] buffer = new byte[4096];
+
+			for ( int n; ( n = input.read( buffer ) ) > 0; )
+			{
+				body.write( buffer, 0, n );
+			}
+		}
+
+		return new String( body.toByteArray(), StandardCharsets.US_ASCII );
+	}
+
+	private HttpURLConnection post(final String path, final byte[] body) throws IOException
+	{
+		final HttpURLConnection connection = open( path );
+		connection.setRequestMethod( "POST" );
+		connection.setDoOutput( true );
+
+		try ( OutputStream output = connection.getOutputStream() )
+		{
+			output.write( body );
+		}
+
+		return connection;
+	}
+
+	private HttpURLConnection post(final String path, final String body) throws IOException
+	{
+		return post( path, body.getBytes( StandardCharsets.US_ASCII ) );
+	}
+
+	private static void assertSolved(final String line, final BitboardGrid expected)
+	{
+		final String[] fields = line.split( "\t" );
+
+		assertEquals( line, 4, fields.length );
+		assertEquals( "SOLVED", fields[0] );
+
+		for ( int index = 0; index < BitboardGrid.NUM_CELLS; index++ )
+		{
+			assertEquals( expected.getSolutionValue( index % 9, index / 9 ), fields[1].charAt( index ) - '0' );
+		}
+
+		assertTrue( Long.parseLong( fields[2] ) >= 0 );
+		assertTrue( Long.parseLong( fields[3] ) >= 0 );
+	}
+
+	@Test
+	public void testSolveLine() throws IOException
+	{
+		final BitboardGrid hard = loadGrid( "hard.txt" );
+
+		final HttpURLConnection connection = post( "/solve", hard.toLine() + "\n" );
+
+		assertEquals( 200, connection.getResponseCode() );
+		assertEquals( "1", connection.getHeaderField( "X-Puzzles" ) );
+		assertTrue( connection.getHeaderField( "X-Elapsed-Micros" ) != null );
+
+		final String[] lines = read( connection ).split( "\n" );
+
+		assertEquals( 1, lines.length );
+		assertSolved( lines[0], hard );
+	}
+
+	@Test
+	public void testSolveBatch() throws IOException
+	{
+		final String[] puzzleFiles = { "easy.txt", "medium.txt", "hard.txt", "expert.txt" };
+		final StringBuilder body = new StringBuilder();
+
+		for ( final String puzzleFile : puzzleFiles )
+		{
+			body.append( loadGrid( puzzleFile ).toLine() ).append( "\r\n" );
+		}
+
+		// an invalid line is answered in its place, without failing the batch
+		body.append( "not a puzzle\n" );
+
+		final HttpURLConnection connection = post( "/solve?algorithm=NORVIG", body.toString() );
+
+		assertEquals( 200, connection.getResponseCode() );
+		assertEquals( "5", connection.getHeaderField( "X-Puzzles" ) );
+
+		final String[] lines = read( connection ).split( "\n" );
+
+		assertEquals( 5, lines.length );
+
+		for ( int i = 0; i < puzzleFiles.length; i++ )
+		{
+			assertSolved( lines[i], loadGrid( puzzleFiles[i] ) );
+		}
+
+		assertTrue( lines[4], lines[4].startsWith( "INVALID\tnot a puzzle\t" ) );
+	}
+
+	@Test
+	public void testSolveTextFormat() throws IOException
+	{
+		final byte[] body = Files.readAllBytes( Paths.get( "src/main/resources/expert.txt" ) );
+
+		final HttpURLConnection connection = post( "/solve", body );
+
+		assertEquals( 200, connection.getResponseCode() );
+		assertSolved( read( connection ).trim(), loadGrid( "expert.txt" ) );
+	}
+
+	@Test
+	public void testUnsolvableAndAborted() throws IOException
+	{
+		final BitboardGrid grid = loadGrid( "hard.txt" );
+		grid.clear();
+		grid.setCellValue( 0, 0, 1 );
+		grid.setCellValue( 1, 1, 1 );
+
+		HttpURLConnection connection = post( "/solve", grid.toLine() );
+		assertTrue( read( connection ).startsWith( "UNSOLVABLE\t" + grid.toLine() + "\t" ) );
+
+		final String hard = loadGrid( "hard.txt" ).toLine();
+
+		connection = post( "/solve?algorithm=BACKTRACK&maxNodes=1", hard );
+		assertTrue( read( connection ).startsWith( "ABORTED\t" + hard + "\t" ) );
+	}
+
+	@Test
+	public void testBadRequests() throws IOException
+	{
+		final String hard = loadGrid( "hard.txt" ).toLine();
+
+		assertEquals( 400, post( "/solve?algorithm=NONE", hard ).getResponseCode() );
+		assertEquals( 400, post( "/solve?algorithm=FORK_JOIN", hard ).getResponseCode() );
+		assertEquals( 400, post( "/solve?timeoutMs=0", hard ).getResponseCode() );
+		assertEquals( 400, post( "/solve?maxNodes=x", hard ).getResponseCode() );
+		assertEquals( 400, post( "/solve", "\n\n" ).getResponseCode() );
+		assertEquals( 413, post( "/solve", new byte[SolveServer.MAX_REQUEST_BYTES + 1] ).getResponseCode() );
+
+		assertEquals( 405, open( "/solve" ).getResponseCode() );
+	}
+
+	@Test
+	public void testHealth() throws IOException
+	{
+		final HttpURLConnection connection = open( "/health" );
+
+		assertEquals( 200, connection.getResponseCode() );
+		assertEquals( "OK\n", read( connection ) );
+	}
+
+	@Test
+	public void testRejectsBeyondMaxInFlight() throws IOException, InterruptedException
+	{
+		final String hard = loadGrid( "hard.txt" ).toLine();
+		final StringBuilder puzzles = new StringBuilder();
+
+		// hold the only permit with a slow solve: each takes about 0.3s by static
+		// backtracking, so the request runs until its timeout
+		for ( int i = 0; i < 100; i++ )
+		{
+			puzzles.append( hard ).append( '\n' );
+		}
+
+		final HttpURLConnection slow = post( "/solve?algorithm=BACKTRACK&timeoutMs=3000", puzzles.toString() );
+		final Thread reader = new Thread()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					read( slow );
+				}
+				catch ( final IOException e )
+				{
+					// seen by the assertion below
+				}
+			}
+		};
+
+		reader.start();
+
+		for ( int i = 0; i < 500 && server.getInFlight() == 0; i++ )
+		{
+			Thread.sleep( 10 );
+		}
+
+		assertEquals( 1, server.getInFlight() );
+
+		final HttpURLConnection rejected = post( "/solve", hard );
+
+		assertEquals( 503, rejected.getResponseCode() );
+		assertEquals( "1", rejected.getHeaderField( "Retry-After" ) );
+		assertEquals( 1, server.getRejectedCount() );
+
+		reader.join();
+
+		assertEquals( 200, slow.getResponseCode() );
+		assertEquals( "100", slow.getHeaderField( "X-Puzzles" ) );
+
+		// the permit is released before the response is sent
+		assertEquals( 0, server.getInFlight() );
+	}
+
+	@Test
+	public void testSlowUploadHoldsNoPermit() throws IOException, InterruptedException
+	{
+		final String hard = loadGrid( "hard.txt" ).toLine();
+
+		// send the body of the first request slowly
+		final HttpURLConnection slow = open( "/solve" );
+		slow.setRequestMethod( "POST" );
+		slow.setDoOutput( true );
+		slow.setChunkedStreamingMode( 16 );
+
+		final OutputStream output = slow.getOutputStream();
+		output.write( hard.getBytes( StandardCharsets.US_ASCII ), 0, 16 );
+		output.flush();
+
+		Thread.sleep( 100 );
+
+		assertEquals( 0, server.getInFlight() );
+
+		// the only permit is free for another request meanwhile
+		final HttpURLConnection other = post( "/solve", hard );
+
+		assertEquals( 200, other.getResponseCode() );
+		assertSolved( read( other ).trim(), loadGrid( "hard.txt" ) );
+		assertEquals( 0, server.getRejectedCount() );
+
+		output.write( hard.substring( 16 ).getBytes( StandardCharsets.US_ASCII ) );
+		output.close();
+
+		assertSolved( read( slow ).trim(), loadGrid( "hard.txt" ) );
+	}
+}
@@ -0,0 +1,134 @@
+package com.richardarcega.sudoku;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
+import com.richardarcega.sudoku.puzzle.Puzzle;
+import com.richardarcega.sudoku.solver.Algorithm;
+import com.richardarcega.sudoku.solver.CachingSudokuSolver;
+import com.richardarcega.sudoku.solver.SolveStats;
+import com.richardarcega.sudoku.solver.SolverFactory;
+import com.richardarcega.sudoku.solver.SolverMetrics;
+import com.richardarcega.sudoku.solver.SudokuSolver;
+import com.richardarcega.sudoku.solver.UnsolvableException;
+
+/**
+ * Unit tests for the per-search statistics and the solver metrics
+ */
+public class SolveStatsTest
+{
+	private static Puzzle load(final String puzzleFile) throws IOException
+	{
+		final BitboardGrid grid = new BitboardGrid();
+		grid.load( new FileInputStream( "src/main/resources/" + puzzleFile ) );
+		return new Puzzle( grid );
+	}
+
+	@Test
+	public void testSolveStats() throws IOException, UnsolvableException
+	{
+		assertTrue( SolveStats.ENABLED );
+
+		for ( final Algorithm algorithm : Algorithm.values() )
+		{
+			final SudokuSolver solver = SolverFactory.getSolver( algorithm );
+			assertEquals( SolveStats.NONE, solver.getLastStats() );
+
+			solver.solve( load( "hard.txt" ) );
+
+			final SolveStats stats = solver.getLastStats();
+
+			assertTrue( algorithm + " " + stats, stats.isSolved() );
+			assertTrue( algorithm + " " + stats, stats.getNodes() > 0 );
+			assertTrue( algorithm + " " + stats, stats.getGuesses() > 0 );
+			assertTrue( algorithm + " " + stats, stats.getBacktracks() < stats.getGuesses() );
+			assertTrue( algorithm + " " + stats, stats.getMaxDepth() > 0 );
+			// the hard puzzle has no single candidates for backtracking to fill, and backtracking may win a portfolio
+			assertTrue( algorithm + " " + stats, stats.getPropagations() > 0 || algorithm == Algorithm.BACKTRACK || algorithm == Algorithm.PORTFOLIO );
+			assertTrue( algorithm + " " + stats, stats.getElapsedNanos() > 0 );
+		}
+	}
+
+	@Test
+	public void testStatsAreResetPerSearch() throws IOException, UnsolvableException
+	{
+		final SudokuSolver solver = SolverFactory.getSolver( Algorithm.NORVIG );
+
+		solver.solve( load( "hard.txt" ) );
+		assertTrue( solver.getLastStats().getGuesses() > 0 );
+
+		// the easy puzzle is solved by propagation alone
+		solver.solve( load( "easy.txt" ) );
+		assertEquals( 0, solver.getLastStats().getGuesses() );
+		assertEquals( 0, solver.getLastStats().getMaxDepth() );
+		assertTrue( solver.getLastStats().getPropagations() > 0 );
+	}
+
+	@Test
+	public void testUnsolvedSearch() throws IOException
+	{
+		final SudokuSolver solver = SolverFactory.getSolver( Algorithm.DLX );
+		final SolverMetrics metrics = SolverMetrics.of( Algorithm.DLX );
+		final long unsolved = metrics.getUnsolved();
+
+		final BitboardGrid grid = new BitboardGrid();
+		grid.setCellValue( 0, 0, 5 );
+		grid.setCellValue( 8, 0, 5 );
+
+		try
+		{
+			solver.solve( new Puzzle( grid ) );
+			fail( "Conflicting givens were solved" );
+		}
+		catch ( final UnsolvableException e )
+		{
+			assertFalse( solver.getLastStats().isSolved() );
+			assertEquals( unsolved + 1, metrics.getUnsolved() );
+		}
+	}
+
+	@Test
+	public void testCachedSolveIncludesMissStats() throws IOException, UnsolvableException
+	{
+		final CachingSudokuSolver solver = new CachingSudokuSolver( SolverFactory.getSolver( Algorithm.BACKTRACK ), 10 );
+
+		solver.solve( load( "medium.txt" ) );
+		assertTrue( solver.getLastStats().getGuesses() > 0 );
+
+		solver.solve( load( "medium.txt" ) );
+		assertEquals( 1, solver.getHitCount() );
+		assertEquals( 0, solver.getLastStats().getGuesses() );
+	}
+
+	@Test
+	public void testMetricsPublishedToJmx() throws IOException, UnsolvableException, JMException
+	{
+		final ObjectName name = new ObjectName( "com.richardarcega.sudoku:type=SolverMetrics,algorithm=BACKTRACK" );
+		final SolverMetrics metrics = SolverMetrics.of( Algorithm.BACKTRACK );
+
+		final long searches = metrics.getSearches();
+		final long guesses = metrics.getGuesses();
+
+		final SudokuSolver solver = SolverFactory.getSolver( Algorithm.BACKTRACK );
+		solver.solve( load( "expert.txt" ) );
+		solver.countSolutions( load( "expert.txt" ), 2 );
+
+		assertEquals( searches + 2, metrics.getSearches() );
+		assertTrue( metrics.getGuesses() > guesses );
+		assertTrue( metrics.getMeanNanos() > 0 );
+
+		assertEquals( metrics.getSearches(), ManagementFactory.getPlatformMBeanServer().getAttribute( name, "Searches" ) );
+	}
+}
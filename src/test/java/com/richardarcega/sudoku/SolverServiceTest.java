@@ -0,0 +1,165 @@
+package com.richardarcega.sudoku;
+
+import static com.richardarcega.sudoku.BitboardGridTest.loadGrid;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
+import com.richardarcega.sudoku.puzzle.Puzzle;
+import com.richardarcega.sudoku.solver.Algorithm;
+import com.richardarcega.sudoku.solver.BacktrackSudokuSolver;
+import com.richardarcega.sudoku.solver.CellSelection;
+import com.richardarcega.sudoku.solver.SolveLimits;
+import com.richardarcega.sudoku.solver.SolveStats;
+import com.richardarcega.sudoku.solver.SolverMetrics;
+import com.richardarcega.sudoku.solver.SolverService;
+import com.richardarcega.sudoku.solver.SudokuSolver;
+import com.richardarcega.sudoku.solver.UnsolvableException;
+
+/**
+ * Unit tests for solvers shared between threads, and the solver service
+ */
+public class SolverServiceTest
+{
+	private static final String[]	PUZZLES		= { "easy.txt", "medium.txt", "hard.txt", "expert.txt" };
+
+	private static final int		NUM_THREADS	= 4;
+
+	/**
+	 * Solves every puzzle a number of times with the solver on each of several threads at once.
+	 */
+	private static void assertSolvesConcurrently(final SudokuSolver solver, final int numRounds) throws InterruptedException, ExecutionException
+	{
+		final ExecutorService executor = Executors.newFixedThreadPool( NUM_THREADS );
+
+		try
+		{
+			final List<Future<Void>> futures = Lists.newArrayList();
+
+			for ( int t = 0; t < NUM_THREADS; t++ )
+			{
+				final int offset = t;
+
+				futures.add( executor.submit( new Callable<Void>()
+				{
+					@Override
+					public Void call() throws IOException, UnsolvableException
+					{
+						for ( int i = 0; i < numRounds * PUZZLES.length; i++ )
+						{
+							// each thread takes the puzzles in a different order
+							final String puzzleFile = PUZZLES[( i + offset ) % PUZZLES.length];
+							final BitboardGrid grid = loadGrid( puzzleFile );
+
+							solver.solve( new Puzzle( grid ) );
+
+							for ( int j = 0; j < 81; j++ )
+							{
+								assertEquals( puzzleFile, grid.getSolutionValue( j % 9, j / 9 ), grid.getCellValue( j % 9, j / 9 ) );
+							}
+
+							assertTrue( solver.getLastStats().isSolved() );
+						}
+
+						return null;
+					}
+				} ) );
+			}
+
+			for ( final Future<Void> future : futures )
+			{
+				future.get();
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testSharedSolvers() throws InterruptedException, ExecutionException
+	{
+		final SolverService service = new SolverService();
+
+		for ( final Algorithm algorithm : service.getAlgorithms() )
+		{
+			assertSolvesConcurrently( service.getSolver( algorithm ), algorithm == Algorithm.BACKTRACK ? 1 : 5 );
+		}
+
+		assertSolvesConcurrently( new BacktrackSudokuSolver( CellSelection.DYNAMIC ), 5 );
+	}
+
+	@Test
+	public void testStatsArePerThread() throws IOException, InterruptedException, ExecutionException
+	{
+		final SudokuSolver solver = new SolverService().getSolver( Algorithm.NORVIG );
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+		try
+		{
+			final SolveStats stats = executor.submit( new Callable<SolveStats>()
+			{
+				@Override
+				public SolveStats call() throws IOException, UnsolvableException
+				{
+					solver.solve( new Puzzle( loadGrid( "hard.txt" ) ) );
+					return solver.getLastStats();
+				}
+			} ).get();
+
+			assertTrue( stats.isSolved() );
+			assertEquals( SolveStats.NONE, solver.getLastStats() );
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testService() throws IOException, UnsolvableException
+	{
+		final SolverService service = new SolverService( Algorithm.NORVIG, Algorithm.NORVIG, Algorithm.DLX );
+
+		assertSame( service.getSolver( Algorithm.DLX ), service.getSolver( Algorithm.DLX ) );
+		assertSame( service.getSolver( Algorithm.NORVIG ), service.getSolver() );
+		assertEquals( 2, service.getAlgorithms().size() );
+
+		final BitboardGrid grid = loadGrid( "expert.txt" );
+		final SolveStats stats = service.solve( new Puzzle( grid ), Algorithm.DLX, SolveLimits.NONE );
+
+		assertTrue( stats.isSolved() );
+		assertEquals( grid.getSolutionValue( 0, 0 ), grid.getCellValue( 0, 0 ) );
+		assertEquals( 1, service.countSolutions( new Puzzle( loadGrid( "expert.txt" ) ), Algorithm.NORVIG, 2, SolveLimits.NONE ) );
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testAlgorithmNotServed()
+	{
+		new SolverService( Algorithm.DLX, Algorithm.DLX ).getSolver( Algorithm.NORVIG );
+	}
+
+	@Test
+	public void testWarmUp() throws IOException
+	{
+		final SolverService service = new SolverService( Algorithm.DLX, Algorithm.DLX );
+		final long searches = SolverMetrics.of( Algorithm.DLX ).getSearches();
+
+		service.warmUp( 3 );
+
+		assertEquals( searches + 3, SolverMetrics.of( Algorithm.DLX ).getSearches() );
+	}
+}
@@ -0,0 +1,116 @@
+package com.richardarcega.sudoku;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.richardarcega.sudoku.puzzle.BitboardGrid;
+import com.richardarcega.sudoku.puzzle.Puzzle;
+import com.richardarcega.sudoku.puzzle.TableGrid;
+import com.richardarcega.sudoku.solver.Algorithm;
+import com.richardarcega.sudoku.solver.SolverFactory;
+import com.richardarcega.sudoku.solver.SudokuSolver;
+import com.richardarcega.sudoku.solver.UnsolvableException;
+
+/**
+ * Unit tests run against each of the search algorithms
+ */
+@RunWith(Parameterized.class)
+public class SolverTest
+{
+	private final SudokuSolver	solver;
+
+	public SolverTest(final String name, final Algorithm algorithm)
+	{
+		this.solver = SolverFactory.getSolver( algorithm );
+	}
+
+	@Parameters(name = "{0}")
+	public static Collection<Object[]> algorithms()
+	{
+		return Arrays.asList( new Object[][] {
+			{ Algorithm.DLX.name(), Algorithm.DLX },
+			{ Algorithm.NORVIG.name(), Algorithm.NORVIG },
+			{ Algorithm.FORK_JOIN.name(), Algorithm.FORK_JOIN } } );
+	}
+
+	/**
+	 * Solves the puzzle file and compares the result with the solution held in the file.
+	 */
+	public static void assertSolves(final SudokuSolver solver, final String puzzleFile) throws IOException, UnsolvableException
+	{
+		final BitboardGrid grid = BitboardGridTest.loadGrid( puzzleFile );
+
+		solver.solve( new Puzzle( grid ) );
+
+		for ( int y = 0; y < 9; y++ )
+		{
+			for ( int x = 0; x < 9; x++ )
+			{
+				assertEquals( puzzleFile + " (" + x + "," + y + ")", grid.getSolutionValue( x, y ), grid.getCellValue( x, y ) );
+			}
+		}
+	}
+
+	@Test
+	public void testEasyPuzzleSolve() throws IOException, UnsolvableException
+	{
+		assertSolves( solver, "easy.txt" );
+	}
+
+	@Test
+	public void testMediumPuzzleSolve() throws IOException, UnsolvableException
+	{
+		assertSolves( solver, "medium.txt" );
+	}
+
+	@Test
+	public void testHardPuzzleSolve() throws IOException, UnsolvableException
+	{
+		assertSolves( solver, "hard.txt" );
+	}
+
+	@Test
+	public void testExpertPuzzleSolve() throws IOException, UnsolvableException
+	{
+		assertSolves( solver, "expert.txt" );
+	}
+
+	@Test
+	public void testSolverIsReusable() throws IOException, UnsolvableException
+	{
+		// nothing of one search is left over for the next
+		assertSolves( solver, "expert.txt" );
+		assertSolves( solver, "easy.txt" );
+		assertSolves( solver, "hard.txt" );
+	}
+
+	@Test
+	public void testTableGridSolve() throws IOException, UnsolvableException
+	{
+		final TableGrid grid = new TableGrid( 9, 9 );
+		grid.load( new FileInputStream( "src/main/resources/medium.txt" ) );
+
+		solver.solve( new Puzzle( grid ) );
+
+		assertEquals( 2, grid.getCellValue( 7, 0 ) );
+		assertEquals( 4, grid.getCellValue( 8, 8 ) );
+	}
+
+	@Test(expected=UnsolvableException.class)
+	public void testUnsolvablePuzzle() throws IOException, UnsolvableException
+	{
+		final BitboardGrid grid = new BitboardGrid();
+		grid.load( new FileInputStream( "src/test/resources/unsolvable.txt" ) );
+
+		solver.solve( new Puzzle( grid ) );
+	}
+}